@@ -0,0 +1,57 @@
+package com.elucesc.itvintegration.busqueda;
+
+import com.elucesc.itvintegration.dto.consulta.EstacionResumen;
+import com.elucesc.itvintegration.dto.consulta.SugerenciaEstacion;
+import com.elucesc.itvintegration.event.IntegracionCompletadaEvent;
+import com.elucesc.itvintegration.repository.EstacionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Autocompletado de estaciones sobre un índice de texto en memoria
+ * El índice se reconstruye al arrancar y tras cada integración y se publica de golpe
+ */
+@Slf4j
+@Service
+public class BusquedaTextoService {
+
+    private final EstacionRepository estacionRepository;
+    private final AtomicReference<IndiceTexto> indice = new AtomicReference<>(IndiceTexto.vacio());
+
+    public BusquedaTextoService(EstacionRepository estacionRepository) {
+        this.estacionRepository = estacionRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alArrancar() {
+        reconstruir();
+    }
+
+    @EventListener
+    public void alCompletarIntegracion(IntegracionCompletadaEvent evento) {
+        reconstruir();
+    }
+
+    public synchronized void reconstruir() {
+        try {
+            long inicio = System.currentTimeMillis();
+            List<EstacionResumen> estaciones = estacionRepository.listarResumenes();
+            IndiceTexto nuevo = IndiceTexto.construir(estaciones);
+            indice.set(nuevo);
+            log.info("🔎 Índice de texto reconstruido: {} estaciones, {} términos en {} ms",
+                    nuevo.tamano(), nuevo.terminos(), System.currentTimeMillis() - inicio);
+        } catch (DataAccessException e) {
+            log.error("No se pudo reconstruir el índice de texto, se mantiene el anterior: {}", e.getMessage());
+        }
+    }
+
+    public List<SugerenciaEstacion> autocompletar(String consulta, int limite) {
+        return indice.get().buscar(consulta, limite);
+    }
+}
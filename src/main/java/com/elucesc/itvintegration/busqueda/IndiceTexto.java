@@ -0,0 +1,388 @@
+package com.elucesc.itvintegration.busqueda;
+
+import com.elucesc.itvintegration.dto.consulta.EstacionResumen;
+import com.elucesc.itvintegration.dto.consulta.SugerenciaEstacion;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido inmutable sobre el nombre, la dirección, la localidad y la provincia de las estaciones
+ * - Los términos se normalizan sin acentos ni mayúsculas ("Castelló" → "castello", "Espírito" → "espirito")
+ * - Los términos están ordenados, así que un prefijo es un rango contiguo localizado por búsqueda binaria
+ * - Si un término de la consulta no es prefijo de ninguno, se aceptan términos a distancia de edición 1;
+ *   se buscan como prefijos las variantes de la palabra con una edición, sin recorrer todos los términos
+ * Todas las palabras de la consulta deben coincidir; la puntuación pondera el campo donde aparecen
+ */
+public final class IndiceTexto {
+
+    private static final float PESO_NOMBRE = 3f;
+    private static final float PESO_LOCALIDAD = 2f;
+    private static final float PESO_PROVINCIA = 1f;
+    private static final float PESO_DIRECCION = 1f;
+
+    // Bonificación por palabra completa y penalización por coincidencia con errata
+    private static final float BONUS_EXACTO = 0.5f;
+    private static final float FACTOR_APROXIMADO = 0.5f;
+
+    private static final int LONGITUD_MINIMA_APROXIMADA = 4;
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final long[] codigos;
+    private final String[] nombres;
+    private final String[] direcciones;
+    private final String[] localidades;
+    private final String[] provincias;
+
+    // Términos ordenados y, para cada uno, los documentos que lo contienen con su mayor peso de campo
+    private final String[] terminos;
+    private final int[][] documentos;
+    private final float[][] pesos;
+    // Caracteres que aparecen en algún término: los únicos con los que una errata puede acertar
+    private final char[] alfabeto;
+
+    private IndiceTexto(int tamano, String[] terminos, int[][] documentos, float[][] pesos, char[] alfabeto) {
+        this.codigos = new long[tamano];
+        this.nombres = new String[tamano];
+        this.direcciones = new String[tamano];
+        this.localidades = new String[tamano];
+        this.provincias = new String[tamano];
+        this.terminos = terminos;
+        this.documentos = documentos;
+        this.pesos = pesos;
+        this.alfabeto = alfabeto;
+    }
+
+    public static IndiceTexto vacio() {
+        return construir(List.of());
+    }
+
+    public static IndiceTexto construir(List<EstacionResumen> estaciones) {
+        TreeMap<String, Map<Integer, Float>> invertido = new TreeMap<>();
+        for (int doc = 0; doc < estaciones.size(); doc++) {
+            EstacionResumen estacion = estaciones.get(doc);
+            indexar(invertido, doc, estacion.getNombre(), PESO_NOMBRE);
+            indexar(invertido, doc, estacion.getLocalidad(), PESO_LOCALIDAD);
+            indexar(invertido, doc, estacion.getProvincia(), PESO_PROVINCIA);
+            indexar(invertido, doc, estacion.getDireccion(), PESO_DIRECCION);
+        }
+
+        String[] terminos = new String[invertido.size()];
+        int[][] documentos = new int[invertido.size()][];
+        float[][] pesos = new float[invertido.size()][];
+        TreeSet<Character> caracteres = new TreeSet<>();
+        int t = 0;
+        for (Map.Entry<String, Map<Integer, Float>> entrada : invertido.entrySet()) {
+            terminos[t] = entrada.getKey();
+            for (char c : entrada.getKey().toCharArray()) {
+                caracteres.add(c);
+            }
+            int[] docs = entrada.getValue().keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            float[] pesosTermino = new float[docs.length];
+            for (int i = 0; i < docs.length; i++) {
+                pesosTermino[i] = entrada.getValue().get(docs[i]);
+            }
+            documentos[t] = docs;
+            pesos[t] = pesosTermino;
+            t++;
+        }
+
+        char[] alfabeto = new char[caracteres.size()];
+        int c = 0;
+        for (char caracter : caracteres) {
+            alfabeto[c++] = caracter;
+        }
+
+        IndiceTexto indice = new IndiceTexto(estaciones.size(), terminos, documentos, pesos, alfabeto);
+        for (int doc = 0; doc < estaciones.size(); doc++) {
+            EstacionResumen estacion = estaciones.get(doc);
+            indice.codigos[doc] = estacion.getCodEstacion();
+            indice.nombres[doc] = estacion.getNombre();
+            indice.direcciones[doc] = estacion.getDireccion();
+            indice.localidades[doc] = estacion.getLocalidad();
+            indice.provincias[doc] = estacion.getProvincia();
+        }
+        return indice;
+    }
+
+    public int tamano() {
+        return codigos.length;
+    }
+
+    public int terminos() {
+        return terminos.length;
+    }
+
+    /**
+     * Estaciones que contienen todas las palabras de la consulta (como prefijo o con una errata),
+     * de mayor a menor puntuación
+     */
+    public List<SugerenciaEstacion> buscar(String consulta, int limite) {
+        List<String> palabras = tokenizar(consulta);
+        if (palabras.isEmpty() || limite <= 0 || tamano() == 0) {
+            return List.of();
+        }
+
+        // Un solo juego de arrays por consulta; de cada palabra solo se recorren los documentos que toca
+        float[] puntuaciones = new float[tamano()];
+        int[] coincidencias = new int[tamano()];
+        MejorPorDocumento mejorPorDoc = new MejorPorDocumento(tamano());
+        List<Integer> candidatos = new ArrayList<>();
+        for (int p = 0; p < palabras.size(); p++) {
+            String palabra = palabras.get(p);
+            if (!acumularPrefijo(palabra, mejorPorDoc) && palabra.length() >= LONGITUD_MINIMA_APROXIMADA) {
+                acumularAproximado(palabra, mejorPorDoc);
+            }
+
+            candidatos.clear();
+            for (int i = 0; i < mejorPorDoc.total; i++) {
+                int doc = mejorPorDoc.tocados[i];
+                // Solo sigue siendo candidato si coincidió con todas las palabras anteriores
+                if (coincidencias[doc] == p) {
+                    puntuaciones[doc] += mejorPorDoc.puntuacion[doc];
+                    coincidencias[doc]++;
+                    candidatos.add(doc);
+                }
+            }
+            mejorPorDoc.reiniciar();
+            if (candidatos.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        Comparator<Integer> mejorPrimero = (a, b) -> puntuaciones[a] != puntuaciones[b]
+                ? Float.compare(puntuaciones[b], puntuaciones[a])
+                : Long.compare(codigos[a], codigos[b]);
+
+        // Se puntúan todas las coincidencias y solo se conservan las 'limite' mejores, sin ordenar el resto
+        PriorityQueue<Integer> mejores = new PriorityQueue<>(Math.min(limite, candidatos.size()) + 1,
+                mejorPrimero.reversed());
+        for (int doc : candidatos) {
+            mejores.add(doc);
+            if (mejores.size() > limite) {
+                mejores.poll();
+            }
+        }
+        List<Integer> seleccionados = new ArrayList<>(mejores);
+        seleccionados.sort(mejorPrimero);
+
+        List<SugerenciaEstacion> resultado = new ArrayList<>(seleccionados.size());
+        for (int doc : seleccionados) {
+            resultado.add(new SugerenciaEstacion(codigos[doc], nombres[doc], direcciones[doc],
+                    localidades[doc], provincias[doc], puntuaciones[doc]));
+        }
+        return resultado;
+    }
+
+    /**
+     * Minúsculas, sin acentos ni signos, separado en palabras ("L'Hospitalet de Llobregat" → [l, hospitalet, de, llobregat])
+     */
+    public static List<String> tokenizar(String texto) {
+        if (texto == null || texto.isBlank()) {
+            return List.of();
+        }
+        String sinAcentos = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        // El punto volado catalán (l·l) forma parte de la palabra
+        String normalizado = sinAcentos.replace("·", "").toLowerCase(Locale.ROOT);
+
+        List<String> palabras = new ArrayList<>();
+        for (String palabra : SEPARADORES.split(normalizado)) {
+            if (!palabra.isEmpty()) {
+                palabras.add(palabra);
+            }
+        }
+        return palabras;
+    }
+
+    private static void indexar(TreeMap<String, Map<Integer, Float>> invertido, int doc, String texto, float peso) {
+        for (String termino : tokenizar(texto)) {
+            invertido.computeIfAbsent(termino, k -> new HashMap<>()).merge(doc, peso, Math::max);
+        }
+    }
+
+    /**
+     * Acumula todos los términos que empiezan por la palabra, sin límite: el coste lo acota el montículo final
+     */
+    private boolean acumularPrefijo(String palabra, MejorPorDocumento mejorPorDoc) {
+        int desde = primeroNoMenor(palabra);
+        int hasta = finPrefijo(palabra, desde);
+        for (int t = desde; t < hasta; t++) {
+            float bonus = terminos[t].length() == palabra.length() ? BONUS_EXACTO : 0f;
+            acumularTermino(t, 1f, bonus, mejorPorDoc);
+        }
+        return hasta > desde;
+    }
+
+    /**
+     * Términos que empiezan por alguna variante de la palabra con una edición (equivale a prefijoADistanciaUno).
+     * Ningún término empieza por la palabra entera, así que la edición cae dentro del prefijo que sí comparte
+     * con algún término, o justo después
+     */
+    private void acumularAproximado(String palabra, MejorPorDocumento mejorPorDoc) {
+        int comun = prefijoComunMasLargo(palabra);
+        Set<String> variantes = new HashSet<>();
+        for (int i = 0; i <= comun && i < palabra.length(); i++) {
+            String antes = palabra.substring(0, i);
+            String despues = palabra.substring(i + 1);
+            variantes.add(antes + despues);
+            for (char c : alfabeto) {
+                variantes.add(antes + c + despues);
+                variantes.add(antes + c + palabra.substring(i));
+            }
+        }
+
+        for (String variante : variantes) {
+            if (variante.isEmpty()) {
+                continue;
+            }
+            int desde = primeroNoMenor(variante);
+            int hasta = finPrefijo(variante, desde);
+            for (int t = desde; t < hasta; t++) {
+                acumularTermino(t, FACTOR_APROXIMADO, 0f, mejorPorDoc);
+            }
+        }
+    }
+
+    private void acumularTermino(int termino, float factor, float bonus, MejorPorDocumento mejorPorDoc) {
+        int[] docs = documentos[termino];
+        float[] pesosTermino = pesos[termino];
+        for (int i = 0; i < docs.length; i++) {
+            mejorPorDoc.registrar(docs[i], pesosTermino[i] * factor + bonus);
+        }
+    }
+
+    /**
+     * Posición del primer término mayor o igual que el texto (donde empezaría su rango de prefijo)
+     */
+    private int primeroNoMenor(String texto) {
+        int posicion = Arrays.binarySearch(terminos, texto);
+        return posicion < 0 ? -posicion - 1 : posicion;
+    }
+
+    /**
+     * Fin (exclusivo) del rango de términos que empiezan por el prefijo a partir de 'desde'
+     */
+    private int finPrefijo(String prefijo, int desde) {
+        int bajo = desde;
+        int alto = terminos.length;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (terminos[medio].startsWith(prefijo)) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    /**
+     * Longitud del mayor prefijo de la palabra con el que empieza algún término
+     * (en el orden de los términos, el que más comparte es uno de los dos vecinos de la palabra)
+     */
+    private int prefijoComunMasLargo(String palabra) {
+        int posicion = primeroNoMenor(palabra);
+        int comun = 0;
+        if (posicion > 0) {
+            comun = longitudComun(palabra, terminos[posicion - 1]);
+        }
+        if (posicion < terminos.length) {
+            comun = Math.max(comun, longitudComun(palabra, terminos[posicion]));
+        }
+        return comun;
+    }
+
+    private static int longitudComun(String a, String b) {
+        int n = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < n && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Indica si algún prefijo del término (de longitud palabra ± 1) está a distancia de edición ≤ 1 de la palabra
+     */
+    static boolean prefijoADistanciaUno(String palabra, String termino) {
+        int m = palabra.length();
+        for (int longitud = m - 1; longitud <= m + 1; longitud++) {
+            if (longitud > 0 && longitud <= termino.length() && distanciaMaximaUno(palabra, termino, longitud)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Levenshtein acotado: si a y los primeros n caracteres de b difieren en como mucho una edición
+     */
+    private static boolean distanciaMaximaUno(String a, String b, int n) {
+        int m = a.length();
+        if (Math.abs(m - n) > 1) {
+            return false;
+        }
+        int i = 0;
+        int j = 0;
+        while (i < m && j < n && a.charAt(i) == b.charAt(j)) {
+            i++;
+            j++;
+        }
+        if (i == m || j == n) {
+            return Math.abs((m - i) - (n - j)) <= 1;
+        }
+        // Primera diferencia: sustitución, inserción o borrado, y el resto debe coincidir
+        if (m == n) {
+            return a.regionMatches(i + 1, b, j + 1, m - i - 1);
+        } else if (m > n) {
+            return a.regionMatches(i + 1, b, j, n - j);
+        } else {
+            return a.regionMatches(i, b, j + 1, m - i);
+        }
+    }
+
+    /**
+     * Mejor puntuación de cada documento para la palabra en curso y lista de los documentos tocados,
+     * para recorrer y limpiar solo esos en lugar de todo el índice
+     */
+    private static final class MejorPorDocumento {
+        private final float[] puntuacion;
+        private final int[] tocados;
+        private int total;
+
+        MejorPorDocumento(int tamano) {
+            this.puntuacion = new float[tamano];
+            this.tocados = new int[tamano];
+        }
+
+        void registrar(int doc, float valor) {
+            if (puntuacion[doc] == 0f) {
+                tocados[total++] = doc;
+            }
+            if (valor > puntuacion[doc]) {
+                puntuacion[doc] = valor;
+            }
+        }
+
+        void reiniciar() {
+            for (int i = 0; i < total; i++) {
+                puntuacion[tocados[i]] = 0f;
+            }
+            total = 0;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.elucesc.itvintegration.cache;
+
+import com.elucesc.itvintegration.model.Localidad;
+import com.elucesc.itvintegration.model.Provincia;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caché de segundo nivel de Hibernate para las entidades de referencia (provincias y localidades por ID)
+ * Las provincias y localidades se escriben con upserts JDBC (ReferenciaUpsertRepository) que Hibernate
+ * no ve, así que tras guardarlas hay que invalidar a mano sus regiones
+ */
+@Slf4j
+@Component
+public class CacheSegundoNivel {
+
+    private final SessionFactory sessionFactory;
+
+    public CacheSegundoNivel(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    public void invalidarReferencias() {
+        sessionFactory.getCache().evictEntityData(Provincia.class);
+        sessionFactory.getCache().evictEntityData(Localidad.class);
+        log.debug("Caché de segundo nivel de provincias y localidades invalidada");
+    }
+
+    public Map<String, Object> estadisticas() {
+        Statistics estadisticas = sessionFactory.getStatistics();
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("activa", estadisticas.isStatisticsEnabled());
+        resultado.put("provincias", region(estadisticas, Provincia.class.getName()));
+        resultado.put("localidades", region(estadisticas, Localidad.class.getName()));
+        resultado.put("consultasEjecutadasEnBd", estadisticas.getQueryExecutionCount());
+        return resultado;
+    }
+
+    private static Map<String, Object> region(Statistics estadisticas, String nombre) {
+        Map<String, Object> region = new LinkedHashMap<>();
+        CacheRegionStatistics stats = estadisticas.getCacheRegionStatistics(nombre);
+        if (stats == null) {
+            region.put("disponible", false);
+            return region;
+        }
+        long aciertos = stats.getHitCount();
+        long fallos = stats.getMissCount();
+        region.put("aciertos", aciertos);
+        region.put("fallos", fallos);
+        region.put("escrituras", stats.getPutCount());
+        region.put("elementosEnMemoria", stats.getElementCountInMemory());
+        long total = aciertos + fallos;
+        region.put("tasaAciertos", total == 0 ? 0.0 : (double) aciertos / total);
+        return region;
+    }
+}
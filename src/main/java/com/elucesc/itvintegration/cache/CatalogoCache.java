@@ -0,0 +1,126 @@
+package com.elucesc.itvintegration.cache;
+
+import com.elucesc.itvintegration.event.IntegracionCompletadaEvent;
+import com.elucesc.itvintegration.service.VersionCatalogo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Caché de lectura (read-through) de las consultas del catálogo
+ * - Clave: texto de la consulta con sus parámetros + versión del catálogo
+ * - Acotada por tamaño estimado en bytes, expulsando las entradas menos usadas (LRU)
+ * - Al completarse una integración cambia la versión del catálogo: ninguna entrada anterior vuelve
+ *   a servirse, y además se vacía para liberar la memoria
+ */
+@Slf4j
+@Component
+public class CatalogoCache {
+
+    // Estimaciones de tamaño en memoria por fila cacheada
+    public static final int BYTES_POR_ESTACION = 512;
+    public static final int BYTES_POR_REFERENCIA = 96;
+    private static final int BYTES_POR_ENTRADA = 128;
+
+    private final VersionCatalogo versionCatalogo;
+    private final long capacidadBytes;
+
+    // accessOrder = true: el orden de iteración va de la entrada menos usada a la más reciente
+    private final LinkedHashMap<Clave, Entrada> entradas = new LinkedHashMap<>(256, 0.75f, true);
+    private long bytesOcupados;
+    private long aciertos;
+    private long fallos;
+    private long expulsiones;
+
+    public CatalogoCache(VersionCatalogo versionCatalogo,
+                         @Value("${api.cache.max-size:64MB}") DataSize capacidad) {
+        this.versionCatalogo = versionCatalogo;
+        this.capacidadBytes = capacidad.toBytes();
+    }
+
+    /**
+     * Devuelve el resultado cacheado de la consulta o lo carga con el cargador y lo guarda
+     * El cargador se ejecuta fuera del cerrojo para no bloquear las lecturas que sí aciertan
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T obtener(String consulta, Supplier<T> cargador, ToLongFunction<T> peso) {
+        long version = versionCatalogo.actual();
+        Clave clave = new Clave(consulta, version);
+
+        synchronized (this) {
+            Entrada entrada = entradas.get(clave);
+            if (entrada != null) {
+                aciertos++;
+                return (T) entrada.valor();
+            }
+            fallos++;
+        }
+
+        T valor = cargador.get();
+        long bytes = BYTES_POR_ENTRADA + consulta.length() * 2L + peso.applyAsLong(valor);
+
+        synchronized (this) {
+            // Si el catálogo cambió mientras se cargaba, el resultado ya no se guarda
+            if (version == versionCatalogo.actual() && bytes <= capacidadBytes) {
+                Entrada anterior = entradas.put(clave, new Entrada(valor, bytes));
+                if (anterior != null) {
+                    bytesOcupados -= anterior.bytes();
+                }
+                bytesOcupados += bytes;
+                expulsarHastaCapacidad();
+            }
+        }
+        return valor;
+    }
+
+    public static long estimarBytes(Collection<?> filas, int bytesPorFila) {
+        return (long) filas.size() * bytesPorFila;
+    }
+
+    @EventListener
+    @Order(1)
+    public synchronized void alCompletarIntegracion(IntegracionCompletadaEvent evento) {
+        log.debug("Catálogo actualizado: vaciando caché de lectura ({} entradas)", entradas.size());
+        entradas.clear();
+        bytesOcupados = 0;
+    }
+
+    public synchronized Map<String, Object> estadisticas() {
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("versionCatalogo", versionCatalogo.actual());
+        estadisticas.put("entradas", entradas.size());
+        estadisticas.put("bytesOcupados", bytesOcupados);
+        estadisticas.put("capacidadBytes", capacidadBytes);
+        estadisticas.put("aciertos", aciertos);
+        estadisticas.put("fallos", fallos);
+        estadisticas.put("expulsiones", expulsiones);
+        long total = aciertos + fallos;
+        estadisticas.put("tasaAciertos", total == 0 ? 0.0 : (double) aciertos / total);
+        return estadisticas;
+    }
+
+    private void expulsarHastaCapacidad() {
+        Iterator<Entrada> iterador = entradas.values().iterator();
+        while (bytesOcupados > capacidadBytes && iterador.hasNext()) {
+            bytesOcupados -= iterador.next().bytes();
+            iterador.remove();
+            expulsiones++;
+        }
+    }
+
+    private record Clave(String consulta, long version) {
+    }
+
+    private record Entrada(Object valor, long bytes) {
+    }
+}
@@ -0,0 +1,47 @@
+package com.elucesc.itvintegration.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Respuesta JSON ya serializada, sin comprimir y comprimida con gzip, de una versión del catálogo
+ * Los bytes viven en buffers directos (fuera del heap): el recolector no los recorre ni los copia,
+ * y se liberan cuando el snapshot deja de estar referenciado
+ */
+public record SnapshotJson(long version, Instant actualizado, ByteBuffer json, ByteBuffer gzip) {
+
+    public static SnapshotJson crear(byte[] json, long version, Instant actualizado) {
+        return new SnapshotJson(version, actualizado, directo(json), directo(comprimir(json)));
+    }
+
+    /**
+     * Vista de solo lectura con su propia posición: cada respuesta lee el buffer compartido sin afectar a las demás
+     */
+    public ByteBuffer cuerpo(boolean comprimido) {
+        return (comprimido ? gzip : json).asReadOnlyBuffer();
+    }
+
+    public long bytes() {
+        return json.capacity() + gzip.capacity();
+    }
+
+    private static ByteBuffer directo(byte[] datos) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(datos.length);
+        buffer.put(datos).flip();
+        return buffer;
+    }
+
+    private static byte[] comprimir(byte[] datos) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(Math.max(64, datos.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(salida)) {
+            gzip.write(datos);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return salida.toByteArray();
+    }
+}
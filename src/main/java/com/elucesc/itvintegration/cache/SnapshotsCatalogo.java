@@ -0,0 +1,129 @@
+package com.elucesc.itvintegration.cache;
+
+import com.elucesc.itvintegration.dto.consulta.EstacionResumen;
+import com.elucesc.itvintegration.event.IntegracionCompletadaEvent;
+import com.elucesc.itvintegration.model.Provincia;
+import com.elucesc.itvintegration.repository.EstacionRepository;
+import com.elucesc.itvintegration.repository.ProvinciaRepository;
+import com.elucesc.itvintegration.service.VersionCatalogo;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Listados completos de estaciones (todo el catálogo y por provincia) serializados una sola vez por versión
+ * Se regeneran al arrancar y tras cada integración y se publican de golpe; las peticiones solo copian bytes
+ */
+@Slf4j
+@Component
+public class SnapshotsCatalogo {
+
+    private final EstacionRepository estacionRepository;
+    private final ProvinciaRepository provinciaRepository;
+    private final VersionCatalogo versionCatalogo;
+    private final ObjectMapper objectMapper;
+    private final AtomicReference<Snapshots> snapshots = new AtomicReference<>();
+
+    public SnapshotsCatalogo(EstacionRepository estacionRepository,
+                             ProvinciaRepository provinciaRepository,
+                             VersionCatalogo versionCatalogo,
+                             ObjectMapper objectMapper) {
+        this.estacionRepository = estacionRepository;
+        this.provinciaRepository = provinciaRepository;
+        this.versionCatalogo = versionCatalogo;
+        this.objectMapper = objectMapper;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alArrancar() {
+        reconstruir();
+    }
+
+    @EventListener
+    public void alCompletarIntegracion(IntegracionCompletadaEvent evento) {
+        reconstruir();
+    }
+
+    public synchronized void reconstruir() {
+        try {
+            long inicio = System.currentTimeMillis();
+            // La versión se lee antes que los datos: como mucho el snapshot es más nuevo que su versión
+            VersionCatalogo.Estado estado = versionCatalogo.estado();
+            List<EstacionResumen> estaciones = estacionRepository.listarResumenes();
+
+            // Todas las provincias conocidas tienen snapshot, aunque no tengan estaciones
+            Map<Long, List<EstacionResumen>> porProvincia = new HashMap<>();
+            for (Provincia provincia : provinciaRepository.findAll()) {
+                porProvincia.put(provincia.getCodigo(), new ArrayList<>());
+            }
+            for (EstacionResumen estacion : estaciones) {
+                if (estacion.getCodProvincia() != null) {
+                    porProvincia.computeIfAbsent(estacion.getCodProvincia(), k -> new ArrayList<>()).add(estacion);
+                }
+            }
+
+            SnapshotJson completo = serializar(estaciones, estado);
+            Map<Long, SnapshotJson> provincias = new HashMap<>();
+            long bytes = completo.bytes();
+            for (Map.Entry<Long, List<EstacionResumen>> entrada : porProvincia.entrySet()) {
+                SnapshotJson snapshot = serializar(entrada.getValue(), estado);
+                provincias.put(entrada.getKey(), snapshot);
+                bytes += snapshot.bytes();
+            }
+
+            snapshots.set(new Snapshots(completo, provincias, bytes));
+            log.info("📦 Snapshots del catálogo regenerados: {} estaciones, {} provincias, {} KB en {} ms",
+                    estaciones.size(), provincias.size(), bytes / 1024, System.currentTimeMillis() - inicio);
+        } catch (DataAccessException | JsonProcessingException e) {
+            log.error("No se pudieron regenerar los snapshots del catálogo, se mantienen los anteriores: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Snapshot de todo el catálogo (vacío hasta que termine la primera generación)
+     */
+    public Optional<SnapshotJson> catalogo() {
+        Snapshots actuales = snapshots.get();
+        return actuales == null ? Optional.empty() : Optional.of(actuales.completo());
+    }
+
+    /**
+     * Snapshot de una provincia (vacío si la provincia no existe o aún no se han generado)
+     */
+    public Optional<SnapshotJson> provincia(Long codProvincia) {
+        Snapshots actuales = snapshots.get();
+        return actuales == null ? Optional.empty() : Optional.ofNullable(actuales.porProvincia().get(codProvincia));
+    }
+
+    public Map<String, Object> estadisticas() {
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        Snapshots actuales = snapshots.get();
+        estadisticas.put("generados", actuales != null);
+        if (actuales != null) {
+            estadisticas.put("version", actuales.completo().version());
+            estadisticas.put("provincias", actuales.porProvincia().size());
+            estadisticas.put("bytesFueraDelHeap", actuales.bytes());
+        }
+        return estadisticas;
+    }
+
+    private SnapshotJson serializar(List<EstacionResumen> estaciones, VersionCatalogo.Estado estado)
+            throws JsonProcessingException {
+        return SnapshotJson.crear(objectMapper.writeValueAsBytes(estaciones), estado.version(), estado.actualizado());
+    }
+
+    private record Snapshots(SnapshotJson completo, Map<Long, SnapshotJson> porProvincia, long bytes) {
+    }
+}
@@ -0,0 +1,201 @@
+package com.elucesc.itvintegration.controller;
+
+import com.elucesc.itvintegration.busqueda.BusquedaTextoService;
+import com.elucesc.itvintegration.cache.SnapshotJson;
+import com.elucesc.itvintegration.cache.SnapshotsCatalogo;
+import com.elucesc.itvintegration.dto.consulta.EstacionCercana;
+import com.elucesc.itvintegration.dto.consulta.PaginaEstaciones;
+import com.elucesc.itvintegration.dto.consulta.SugerenciaEstacion;
+import com.elucesc.itvintegration.geo.BusquedaGeohashService;
+import com.elucesc.itvintegration.geo.ClusterService;
+import com.elucesc.itvintegration.geo.IndiceEspacialService;
+import com.elucesc.itvintegration.geo.PuntoEstacion;
+import com.elucesc.itvintegration.model.TipoEstacion;
+import com.elucesc.itvintegration.service.EstacionConsultaService;
+import com.elucesc.itvintegration.web.RespuestaSnapshot;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/estaciones")
+@Tag(name = "Consulta de estaciones", description = "Endpoints de lectura sobre el catálogo de estaciones integrado")
+public class EstacionController {
+
+    private static final int MAX_VECINOS = 100;
+    private static final double MAX_RADIO_KM = 1000;
+    private static final int MAX_RESULTADOS_BBOX = 5000;
+    private static final int MAX_SUGERENCIAS = 50;
+
+    private final EstacionConsultaService estacionConsultaService;
+    private final IndiceEspacialService indiceEspacialService;
+    private final BusquedaGeohashService busquedaGeohashService;
+    private final ClusterService clusterService;
+    private final BusquedaTextoService busquedaTextoService;
+    private final SnapshotsCatalogo snapshotsCatalogo;
+
+    @Autowired
+    public EstacionController(EstacionConsultaService estacionConsultaService,
+                              IndiceEspacialService indiceEspacialService,
+                              BusquedaGeohashService busquedaGeohashService,
+                              ClusterService clusterService,
+                              BusquedaTextoService busquedaTextoService,
+                              SnapshotsCatalogo snapshotsCatalogo) {
+        this.estacionConsultaService = estacionConsultaService;
+        this.indiceEspacialService = indiceEspacialService;
+        this.busquedaGeohashService = busquedaGeohashService;
+        this.clusterService = clusterService;
+        this.busquedaTextoService = busquedaTextoService;
+        this.snapshotsCatalogo = snapshotsCatalogo;
+    }
+
+    @Operation(summary = "Buscar estaciones",
+            description = "Lista estaciones filtradas por provincia, localidad, tipo y código postal. " +
+                    "Paginación por cursor: para la página siguiente se pasa el valor 'siguiente' como 'despues'.")
+    @ApiResponse(responseCode = "200", description = "Página de estaciones")
+    @GetMapping
+    public ResponseEntity<PaginaEstaciones> buscar(
+            @Parameter(description = "Código de provincia") @RequestParam(required = false) Long provincia,
+            @Parameter(description = "Código de localidad") @RequestParam(required = false) Long localidad,
+            @Parameter(description = "Tipo de estación") @RequestParam(required = false) TipoEstacion tipo,
+            @Parameter(description = "Código postal") @RequestParam(required = false) Long codigoPostal,
+            @Parameter(description = "Cursor: código de la última estación de la página anterior")
+            @RequestParam(required = false) Long despues,
+            @Parameter(description = "Tamaño de página") @RequestParam(defaultValue = "50") int limite) {
+        return ResponseEntity.ok(estacionConsultaService.buscar(provincia, localidad, tipo, codigoPostal, despues, limite));
+    }
+
+    @Operation(summary = "Estaciones más cercanas",
+            description = "Devuelve las k estaciones más cercanas a un punto (índice espacial en memoria), " +
+                    "opcionalmente solo de un tipo, ordenadas por distancia.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Estaciones ordenadas por distancia"),
+            @ApiResponse(responseCode = "400", description = "Coordenadas o parámetros fuera de rango")
+    })
+    @GetMapping("/cercanas")
+    public ResponseEntity<?> cercanas(
+            @Parameter(description = "Latitud del punto") @RequestParam double lat,
+            @Parameter(description = "Longitud del punto") @RequestParam double lon,
+            @Parameter(description = "Número de estaciones (máx. 100)") @RequestParam(defaultValue = "5") int k,
+            @Parameter(description = "Tipo de estación") @RequestParam(required = false) TipoEstacion tipo) {
+        if (!coordenadasValidas(lat, lon) || k < 1 || k > MAX_VECINOS) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error",
+                    "message", "Se requiere lat en [-90, 90], lon en [-180, 180] y k entre 1 y " + MAX_VECINOS));
+        }
+        List<EstacionCercana> estaciones = indiceEspacialService.masCercanas(lat, lon, k, tipo);
+        return ResponseEntity.ok(estaciones);
+    }
+
+    @Operation(summary = "Estaciones en un radio",
+            description = "Devuelve las estaciones a menos de radioKm de un punto, opcionalmente solo de un tipo, " +
+                    "ordenadas por distancia.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Estaciones ordenadas por distancia"),
+            @ApiResponse(responseCode = "400", description = "Coordenadas o parámetros fuera de rango")
+    })
+    @GetMapping("/radio")
+    public ResponseEntity<?> enRadio(
+            @Parameter(description = "Latitud del punto") @RequestParam double lat,
+            @Parameter(description = "Longitud del punto") @RequestParam double lon,
+            @Parameter(description = "Radio en km (máx. 1000)") @RequestParam double radioKm,
+            @Parameter(description = "Tipo de estación") @RequestParam(required = false) TipoEstacion tipo) {
+        if (!coordenadasValidas(lat, lon) || !(radioKm >= 0 && radioKm <= MAX_RADIO_KM)) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error",
+                    "message", "Se requiere lat en [-90, 90], lon en [-180, 180] y radioKm entre 0 y " + MAX_RADIO_KM));
+        }
+        List<EstacionCercana> estaciones = indiceEspacialService.enRadio(lat, lon, radioKm, tipo);
+        return ResponseEntity.ok(estaciones);
+    }
+
+    @Operation(summary = "Estaciones en un rectángulo",
+            description = "Devuelve las estaciones dentro del rectángulo (viewport de mapa) consultando la BD " +
+                    "por rangos de geohash. No admite rectángulos que crucen el antimeridiano.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Estaciones dentro del rectángulo"),
+            @ApiResponse(responseCode = "400", description = "Rectángulo inválido")
+    })
+    @GetMapping("/bbox")
+    public ResponseEntity<?> enRectangulo(
+            @Parameter(description = "Latitud mínima (sur)") @RequestParam double latMin,
+            @Parameter(description = "Longitud mínima (oeste)") @RequestParam double lonMin,
+            @Parameter(description = "Latitud máxima (norte)") @RequestParam double latMax,
+            @Parameter(description = "Longitud máxima (este)") @RequestParam double lonMax,
+            @Parameter(description = "Tipo de estación") @RequestParam(required = false) TipoEstacion tipo,
+            @Parameter(description = "Máximo de estaciones (máx. 5000)") @RequestParam(defaultValue = "1000") int limite) {
+        if (!coordenadasValidas(latMin, lonMin) || !coordenadasValidas(latMax, lonMax)
+                || latMin > latMax || lonMin > lonMax || limite < 1 || limite > MAX_RESULTADOS_BBOX) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error",
+                    "message", "Rectángulo inválido: se requiere latMin <= latMax, lonMin <= lonMax " +
+                            "y limite entre 1 y " + MAX_RESULTADOS_BBOX));
+        }
+        List<PuntoEstacion> estaciones = busquedaGeohashService.buscarEnRectangulo(
+                latMin, lonMin, latMax, lonMax, tipo, limite);
+        return ResponseEntity.ok(estaciones);
+    }
+
+    @Operation(summary = "Clusters de estaciones para un mapa",
+            description = "Devuelve, en GeoJSON, los clusters precalculados (número, centroide y rectángulo) " +
+                    "del viewport para el nivel de zoom indicado (0-18).")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "FeatureCollection con un Point por cluster"),
+            @ApiResponse(responseCode = "400", description = "Rectángulo o zoom inválido")
+    })
+    @GetMapping(value = "/clusters", produces = {"application/geo+json", "application/json"})
+    public ResponseEntity<?> clusters(
+            @Parameter(description = "Latitud mínima (sur)") @RequestParam double latMin,
+            @Parameter(description = "Longitud mínima (oeste)") @RequestParam double lonMin,
+            @Parameter(description = "Latitud máxima (norte)") @RequestParam double latMax,
+            @Parameter(description = "Longitud máxima (este)") @RequestParam double lonMax,
+            @Parameter(description = "Nivel de zoom del mapa") @RequestParam int zoom) {
+        if (!coordenadasValidas(latMin, lonMin) || !coordenadasValidas(latMax, lonMax)
+                || latMin > latMax || lonMin > lonMax || zoom < 0) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error",
+                    "message", "Rectángulo inválido: se requiere latMin <= latMax, lonMin <= lonMax y zoom >= 0"));
+        }
+        return ResponseEntity.ok(clusterService.clustersGeoJson(latMin, lonMin, latMax, lonMax, zoom));
+    }
+
+    @Operation(summary = "Autocompletar estaciones",
+            description = "Busca estaciones por nombre, dirección, localidad o provincia sin distinguir acentos " +
+                    "ni mayúsculas. Cada palabra puede ser un prefijo o tener una errata.")
+    @ApiResponse(responseCode = "200", description = "Estaciones ordenadas por relevancia")
+    @GetMapping("/autocompletar")
+    public ResponseEntity<List<SugerenciaEstacion>> autocompletar(
+            @Parameter(description = "Texto a buscar") @RequestParam String q,
+            @Parameter(description = "Número de sugerencias (máx. 50)") @RequestParam(defaultValue = "10") int limite) {
+        int tamano = Math.max(1, Math.min(limite, MAX_SUGERENCIAS));
+        return ResponseEntity.ok(busquedaTextoService.autocompletar(q, tamano));
+    }
+
+    @Operation(summary = "Listar todo el catálogo",
+            description = "Todas las estaciones en un único JSON generado tras cada integración, comprimido con " +
+                    "gzip si el cliente lo acepta. Para filtrar o paginar, usar GET /api/estaciones.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Lista de estaciones"),
+            @ApiResponse(responseCode = "503", description = "Listado aún no generado")
+    })
+    @GetMapping("/catalogo")
+    public ResponseEntity<?> catalogo(HttpServletRequest request) {
+        Optional<SnapshotJson> snapshot = snapshotsCatalogo.catalogo();
+        if (snapshot.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("status", "error",
+                    "message", "El listado del catálogo aún se está generando"));
+        }
+        return RespuestaSnapshot.de(snapshot.get(), request);
+    }
+
+    private boolean coordenadasValidas(double lat, double lon) {
+        return lat >= -90 && lat <= 90 && lon >= -180 && lon <= 180;
+    }
+}
@@ -0,0 +1,73 @@
+package com.elucesc.itvintegration.controller;
+
+import com.elucesc.itvintegration.service.ExportacionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/exportacion")
+@Tag(name = "Exportación", description = "Descarga del catálogo integrado completo")
+public class ExportacionController {
+
+    private static final int TAMANO_BUFFER_GZIP = 8192;
+
+    private final ExportacionService exportacionService;
+
+    @Autowired
+    public ExportacionController(ExportacionService exportacionService) {
+        this.exportacionService = exportacionService;
+    }
+
+    @Operation(summary = "Exportar estaciones",
+            description = "Descarga todas las estaciones en NDJSON, CSV o GeoJSON. La respuesta se genera en " +
+                    "streaming desde la BD, opcionalmente comprimida con gzip.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Catálogo en el formato pedido"),
+            @ApiResponse(responseCode = "400", description = "Formato no soportado")
+    })
+    @GetMapping("/estaciones")
+    public ResponseEntity<?> exportarEstaciones(
+            @Parameter(description = "ndjson, csv o geojson") @RequestParam(defaultValue = "ndjson") String formato,
+            @Parameter(description = "Comprimir con gzip") @RequestParam(defaultValue = "false") boolean gzip) {
+        ExportacionService.Formato formatoExportacion;
+        try {
+            formatoExportacion = ExportacionService.Formato.fromString(formato);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", e.getMessage()));
+        }
+
+        StreamingResponseBody cuerpo = salida -> {
+            if (gzip) {
+                // syncFlush: cada flush del exportador envía ya los datos comprimidos hasta ese punto
+                GZIPOutputStream salidaGzip = new GZIPOutputStream(salida, TAMANO_BUFFER_GZIP, true);
+                exportacionService.exportar(formatoExportacion, salidaGzip);
+                salidaGzip.finish();
+            } else {
+                exportacionService.exportar(formatoExportacion, salida);
+            }
+        };
+
+        String nombreArchivo = "estaciones." + formatoExportacion.getExtension();
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(formatoExportacion.getTipoContenido() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + nombreArchivo + "\"");
+        if (gzip) {
+            respuesta.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return respuesta.body(cuerpo);
+    }
+}
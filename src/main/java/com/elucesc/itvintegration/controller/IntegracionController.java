@@ -1,7 +1,15 @@
 package com.elucesc.itvintegration.controller;
 
+import com.elucesc.itvintegration.cache.CacheSegundoNivel;
+import com.elucesc.itvintegration.cache.CatalogoCache;
+import com.elucesc.itvintegration.cache.SnapshotsCatalogo;
+import com.elucesc.itvintegration.service.GeocodingHealthRegistry;
 import com.elucesc.itvintegration.service.IntegrationService;
+import com.elucesc.itvintegration.trabajo.DifusorEventosIntegracion;
+import com.elucesc.itvintegration.trabajo.TrabajoIntegracion;
+import com.elucesc.itvintegration.trabajo.TrabajosIntegracionService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -10,12 +18,18 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.HashMap;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @Slf4j
 @RestController
@@ -24,6 +38,12 @@ import java.util.Map;
 public class IntegracionController {
 
     private final IntegrationService integracionService;
+    private final TrabajosIntegracionService trabajosIntegracionService;
+    private final DifusorEventosIntegracion difusorEventos;
+    private final GeocodingHealthRegistry geocodingHealthRegistry;
+    private final CatalogoCache catalogoCache;
+    private final CacheSegundoNivel cacheSegundoNivel;
+    private final SnapshotsCatalogo snapshotsCatalogo;
 
     @Value("${integration.files.cv}")
     private String rutaCV;
@@ -35,103 +55,109 @@ public class IntegracionController {
     private String rutaCAT;
 
     @Autowired
-    public IntegracionController(IntegrationService integracionService) {
+    public IntegracionController(IntegrationService integracionService,
+                                 TrabajosIntegracionService trabajosIntegracionService,
+                                 DifusorEventosIntegracion difusorEventos,
+                                 GeocodingHealthRegistry geocodingHealthRegistry,
+                                 CatalogoCache catalogoCache,
+                                 CacheSegundoNivel cacheSegundoNivel,
+                                 SnapshotsCatalogo snapshotsCatalogo) {
         this.integracionService = integracionService;
+        this.trabajosIntegracionService = trabajosIntegracionService;
+        this.difusorEventos = difusorEventos;
+        this.geocodingHealthRegistry = geocodingHealthRegistry;
+        this.catalogoCache = catalogoCache;
+        this.cacheSegundoNivel = cacheSegundoNivel;
+        this.snapshotsCatalogo = snapshotsCatalogo;
     }
 
     @Operation(summary = "Integrar datos de Comunidad Valenciana",
-            description = "Procesa e integra únicamente el archivo de la Comunidad Valenciana.")
+            description = "Encola la integración del archivo de la Comunidad Valenciana y devuelve el id del trabajo.")
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "Integración realizada correctamente"),
-            @ApiResponse(responseCode = "500", description = "Error interno al integrar los datos")
+            @ApiResponse(responseCode = "202", description = "Integración encolada o unida a la que ya está en curso"),
+            @ApiResponse(responseCode = "503", description = "Demasiadas integraciones en curso")
     })
     @PostMapping("/cv")
-    public ResponseEntity<Map<String, String>> integrarCV() {
-        try {
-            log.info("Iniciando integración de Comunidad Valenciana");
-            integracionService.integrarArchivo(rutaCV, IntegrationService.TipoOrigen.COMUNIDAD_VALENCIANA);
-
-            Map<String, String> response = new HashMap<>();
-            response.put("status", "success");
-            response.put("message", "Datos de Comunidad Valenciana integrados correctamente");
-
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error en integración CV", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("status", "error", "message", e.getMessage()));
-        }
+    public ResponseEntity<Map<String, Object>> integrarCV() {
+        return lanzar("cv", "Comunidad Valenciana", progreso ->
+                integracionService.integrarArchivo(rutaCV, IntegrationService.TipoOrigen.COMUNIDAD_VALENCIANA, progreso));
     }
 
     @Operation(summary = "Integrar datos de Galicia",
-            description = "Procesa e integra únicamente el archivo de Galicia.")
+            description = "Encola la integración del archivo de Galicia y devuelve el id del trabajo.")
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "Integración realizada correctamente"),
-            @ApiResponse(responseCode = "500", description = "Error interno al integrar los datos")
+            @ApiResponse(responseCode = "202", description = "Integración encolada o unida a la que ya está en curso"),
+            @ApiResponse(responseCode = "503", description = "Demasiadas integraciones en curso")
     })
     @PostMapping("/gal")
-    public ResponseEntity<Map<String, String>> integrarGAL() {
-        try {
-            log.info("Iniciando integración de Galicia");
-            integracionService.integrarArchivo(rutaGAL, IntegrationService.TipoOrigen.GALICIA);
-
-            Map<String, String> response = new HashMap<>();
-            response.put("status", "success");
-            response.put("message", "Datos de Galicia integrados correctamente");
-
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error en integración GAL", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("status", "error", "message", e.getMessage()));
-        }
+    public ResponseEntity<Map<String, Object>> integrarGAL() {
+        return lanzar("gal", "Galicia", progreso ->
+                integracionService.integrarArchivo(rutaGAL, IntegrationService.TipoOrigen.GALICIA, progreso));
     }
 
     @Operation(summary = "Integrar datos de Cataluña",
-            description = "Procesa e integra únicamente el archivo de Cataluña.")
+            description = "Encola la integración del archivo de Cataluña y devuelve el id del trabajo.")
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "Integración realizada correctamente"),
-            @ApiResponse(responseCode = "500", description = "Error interno al integrar los datos")
+            @ApiResponse(responseCode = "202", description = "Integración encolada o unida a la que ya está en curso"),
+            @ApiResponse(responseCode = "503", description = "Demasiadas integraciones en curso")
     })
     @PostMapping("/cat")
-    public ResponseEntity<Map<String, String>> integrarCAT() {
-        try {
-            log.info("Iniciando integración de Cataluña");
-            integracionService.integrarArchivo(rutaCAT, IntegrationService.TipoOrigen.CATALUNA);
-
-            Map<String, String> response = new HashMap<>();
-            response.put("status", "success");
-            response.put("message", "Datos de Cataluña integrados correctamente");
-
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error en integración CAT", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("status", "error", "message", e.getMessage()));
-        }
+    public ResponseEntity<Map<String, Object>> integrarCAT() {
+        return lanzar("cat", "Cataluña", progreso ->
+                integracionService.integrarArchivo(rutaCAT, IntegrationService.TipoOrigen.CATALUNA, progreso));
     }
 
     @Operation(summary = "Integración completa",
-            description = "Integra los archivos de todas las comunidades disponibles.")
+            description = "Encola la integración de los archivos de todas las comunidades y devuelve el id del trabajo.")
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "Integración completa realizada correctamente"),
-            @ApiResponse(responseCode = "500", description = "Error interno al integrar los datos")
+            @ApiResponse(responseCode = "202", description = "Integración encolada o unida a la que ya está en curso"),
+            @ApiResponse(responseCode = "503", description = "Demasiadas integraciones en curso")
     })
     @PostMapping("/all")
-    public ResponseEntity<Map<String, String>> integrarTodos() {
+    public ResponseEntity<Map<String, Object>> integrarTodos() {
+        return lanzar("all", "Todas las comunidades", progreso ->
+                integracionService.integrarTodosLosArchivos(rutaCV, rutaGAL, rutaCAT, progreso));
+    }
+
+    @Operation(summary = "Estado de un trabajo de integración",
+            description = "Etapa, estaciones procesadas sobre el total y recuento de guardadas, rechazadas y fallidas.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Estado del trabajo"),
+            @ApiResponse(responseCode = "404", description = "Trabajo no encontrado")
+    })
+    @GetMapping("/trabajos/{id}")
+    public ResponseEntity<Map<String, Object>> trabajo(@PathVariable String id) {
+        return trabajosIntegracionService.buscar(id)
+                .map(trabajo -> ResponseEntity.ok(trabajo.describir()))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("status", "error", "message", "Trabajo no encontrado: " + id)));
+    }
+
+    @Operation(summary = "Listar trabajos de integración",
+            description = "Trabajos en curso, en cola y los últimos terminados, los más recientes primero.")
+    @ApiResponse(responseCode = "200", description = "Lista de trabajos")
+    @GetMapping("/trabajos")
+    public ResponseEntity<List<Map<String, Object>>> trabajos() {
+        return ResponseEntity.ok(trabajosIntegracionService.listar());
+    }
+
+    @Operation(summary = "Eventos de integración en directo",
+            description = "Flujo SSE con los cambios de etapa y el resultado de cada registro (transformado, validado, " +
+                    "corregido, rechazado con sus motivos, guardado o descartado). Si el cliente no consume a tiempo " +
+                    "se pierden eventos y se envía un evento PERDIDOS con cuántos.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Flujo de eventos"),
+            @ApiResponse(responseCode = "503", description = "Demasiados suscriptores")
+    })
+    @GetMapping(value = "/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> eventos(
+            @Parameter(description = "Id del trabajo (todos si se omite)") @RequestParam(required = false) String trabajo) {
         try {
-            log.info("Iniciando integración completa");
-            integracionService.integrarTodosLosArchivos(rutaCV, rutaGAL, rutaCAT);
-
-            Map<String, String> response = new HashMap<>();
-            response.put("status", "success");
-            response.put("message", "Todos los datos integrados correctamente");
-
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error en integración completa", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("status", "error", "message", e.getMessage()));
+            return ResponseEntity.ok(difusorEventos.suscribir(trabajo));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(Map.of("status", "error", "message", "Demasiados suscriptores de eventos"));
         }
     }
 
@@ -141,4 +167,60 @@ public class IntegracionController {
     public ResponseEntity<Map<String, String>> health() {
         return ResponseEntity.ok(Map.of("status", "UP"));
     }
+
+    @Operation(summary = "Salud de los proveedores de geocoding",
+            description = "Estado del circuit breaker de cada proveedor (CERRADO, ABIERTO, SEMI_ABIERTO) y su tasa de fallos.")
+    @ApiResponse(responseCode = "200", description = "Estado de los proveedores")
+    @GetMapping("/health/geocoding")
+    public ResponseEntity<Map<String, Object>> healthGeocoding() {
+        return ResponseEntity.ok(geocodingHealthRegistry.estadoProveedores());
+    }
+
+    @Operation(summary = "Estado de la caché de lectura",
+            description = "Versión del catálogo, ocupación y tasa de aciertos de la caché de consultas y tamaño de los listados pregenerados.")
+    @ApiResponse(responseCode = "200", description = "Estadísticas de la caché")
+    @GetMapping("/health/cache")
+    public ResponseEntity<Map<String, Object>> healthCache() {
+        Map<String, Object> estadisticas = new LinkedHashMap<>(catalogoCache.estadisticas());
+        estadisticas.put("snapshots", snapshotsCatalogo.estadisticas());
+        return ResponseEntity.ok(estadisticas);
+    }
+
+    @Operation(summary = "Estado de la caché de segundo nivel",
+            description = "Aciertos, fallos y elementos de las regiones de Hibernate de provincias, localidades y consultas.")
+    @ApiResponse(responseCode = "200", description = "Estadísticas de la caché de segundo nivel")
+    @GetMapping("/health/hibernate-cache")
+    public ResponseEntity<Map<String, Object>> healthHibernateCache() {
+        return ResponseEntity.ok(cacheSegundoNivel.estadisticas());
+    }
+
+    private ResponseEntity<Map<String, Object>> lanzar(String clave, String descripcion,
+                                                       TrabajosIntegracionService.TareaIntegracion tarea) {
+        try {
+            TrabajosIntegracionService.Lanzamiento lanzamiento =
+                    trabajosIntegracionService.lanzar(clave, descripcion, tarea);
+            TrabajoIntegracion trabajo = lanzamiento.trabajo();
+            URI ubicacion = URI.create("/api/integracion/trabajos/" + trabajo.getId());
+
+            Map<String, Object> response = new LinkedHashMap<>();
+            if (lanzamiento.nuevo()) {
+                log.info("Integración de {} encolada como trabajo {}", descripcion, trabajo.getId());
+                response.put("status", "accepted");
+                response.put("message", "Integración de " + descripcion + " encolada");
+            } else {
+                // Misma petición que un trabajo sin terminar: se devuelve ese trabajo en vez de repetirlo
+                response.put("status", "attached");
+                response.put("message", "Ya hay una integración de " + descripcion + " en curso");
+            }
+            response.put("jobId", trabajo.getId());
+            response.put("estado", ubicacion.toString());
+            return ResponseEntity.accepted().location(ubicacion).body(response);
+        } catch (RejectedExecutionException e) {
+            log.warn("⚠️ Integración de {} rechazada: no quedan huecos en la cola de trabajos", descripcion);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "60")
+                    .body(Map.of("status", "error", "message",
+                            "Demasiadas integraciones en curso, inténtalo más tarde"));
+        }
+    }
 }
@@ -0,0 +1,77 @@
+package com.elucesc.itvintegration.controller;
+
+import com.elucesc.itvintegration.cache.SnapshotJson;
+import com.elucesc.itvintegration.cache.SnapshotsCatalogo;
+import com.elucesc.itvintegration.dto.consulta.LocalidadResumen;
+import com.elucesc.itvintegration.model.Provincia;
+import com.elucesc.itvintegration.service.ReferenciaConsultaService;
+import com.elucesc.itvintegration.web.RespuestaSnapshot;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/provincias")
+@Tag(name = "Provincias y localidades", description = "Endpoints de lectura de los datos de referencia")
+public class ReferenciaController {
+
+    private final ReferenciaConsultaService referenciaConsultaService;
+    private final SnapshotsCatalogo snapshotsCatalogo;
+
+    @Autowired
+    public ReferenciaController(ReferenciaConsultaService referenciaConsultaService,
+                                SnapshotsCatalogo snapshotsCatalogo) {
+        this.referenciaConsultaService = referenciaConsultaService;
+        this.snapshotsCatalogo = snapshotsCatalogo;
+    }
+
+    @Operation(summary = "Listar provincias", description = "Todas las provincias ordenadas por nombre.")
+    @ApiResponse(responseCode = "200", description = "Lista de provincias")
+    @GetMapping
+    public ResponseEntity<List<Provincia>> provincias() {
+        return ResponseEntity.ok(referenciaConsultaService.provincias());
+    }
+
+    @Operation(summary = "Listar localidades de una provincia", description = "Localidades ordenadas por nombre.")
+    @ApiResponse(responseCode = "200", description = "Lista de localidades")
+    @GetMapping("/{codigo}/localidades")
+    public ResponseEntity<List<LocalidadResumen>> localidades(
+            @Parameter(description = "Código de provincia") @PathVariable Long codigo) {
+        return ResponseEntity.ok(referenciaConsultaService.localidades(codigo));
+    }
+
+    @Operation(summary = "Listar estaciones de una provincia",
+            description = "Todas las estaciones de la provincia. Se sirve un JSON generado tras cada integración, " +
+                    "comprimido con gzip si el cliente lo acepta.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Lista de estaciones"),
+            @ApiResponse(responseCode = "404", description = "Provincia no encontrada"),
+            @ApiResponse(responseCode = "503", description = "Listados aún no generados")
+    })
+    @GetMapping("/{codigo}/estaciones")
+    public ResponseEntity<?> estaciones(
+            @Parameter(description = "Código de provincia") @PathVariable Long codigo,
+            HttpServletRequest request) {
+        if (snapshotsCatalogo.catalogo().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("status", "error",
+                    "message", "Los listados del catálogo aún se están generando"));
+        }
+        Optional<SnapshotJson> snapshot = snapshotsCatalogo.provincia(codigo);
+        if (snapshot.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("status", "error",
+                    "message", "Provincia no encontrada: " + codigo));
+        }
+        return RespuestaSnapshot.de(snapshot.get(), request);
+    }
+}
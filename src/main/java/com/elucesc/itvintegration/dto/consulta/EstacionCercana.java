@@ -0,0 +1,19 @@
+package com.elucesc.itvintegration.dto.consulta;
+
+import com.elucesc.itvintegration.model.TipoEstacion;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Estación devuelta por una búsqueda espacial con su distancia (ortodrómica) al punto consultado
+ */
+@Data
+@AllArgsConstructor
+public class EstacionCercana {
+    private Long codEstacion;
+    private String nombre;
+    private TipoEstacion tipo;
+    private Double latitud;
+    private Double longitud;
+    private double distanciaKm;
+}
@@ -0,0 +1,24 @@
+package com.elucesc.itvintegration.dto.consulta;
+
+import com.elucesc.itvintegration.model.TipoEstacion;
+
+/**
+ * Proyección de lectura de una estación con los nombres de su localidad y provincia
+ * (se rellena con una sola consulta con JOIN, sin cargar entidades ni proxies lazy)
+ */
+public interface EstacionResumen {
+    Long getCodEstacion();
+    String getNombre();
+    TipoEstacion getTipo();
+    String getDireccion();
+    Long getCodigoPostal();
+    Double getLongitud();
+    Double getLatitud();
+    String getHorario();
+    String getContacto();
+    String getUrl();
+    Long getCodLocalidad();
+    String getLocalidad();
+    Long getCodProvincia();
+    String getProvincia();
+}
@@ -0,0 +1,10 @@
+package com.elucesc.itvintegration.dto.consulta;
+
+/**
+ * Proyección de lectura de una localidad (sin la relación lazy con su provincia)
+ */
+public interface LocalidadResumen {
+    Long getCodigo();
+    String getNombre();
+    Long getCodProvincia();
+}
@@ -0,0 +1,17 @@
+package com.elucesc.itvintegration.dto.consulta;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Página de estaciones con paginación por cursor (keyset): para la siguiente página se pasa
+ * 'siguiente' como parámetro 'despues'. Si es null no hay más resultados
+ */
+@Data
+@AllArgsConstructor
+public class PaginaEstaciones {
+    private List<EstacionResumen> estaciones;
+    private Long siguiente;
+}
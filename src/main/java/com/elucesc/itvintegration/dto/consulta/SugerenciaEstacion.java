@@ -0,0 +1,18 @@
+package com.elucesc.itvintegration.dto.consulta;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Resultado del autocompletado de estaciones, con su puntuación de relevancia
+ */
+@Data
+@AllArgsConstructor
+public class SugerenciaEstacion {
+    private Long codEstacion;
+    private String nombre;
+    private String direccion;
+    private String localidad;
+    private String provincia;
+    private float puntuacion;
+}
@@ -0,0 +1,11 @@
+package com.elucesc.itvintegration.event;
+
+import com.elucesc.itvintegration.service.IntegrationService;
+
+/**
+ * Se publica cuando la integración de un archivo termina y sus estaciones ya están confirmadas en la BD
+ * (los índices en memoria se reconstruyen a partir de él). Si la integración falla también se publica
+ * en cuanto haya confirmado algo (referencias o bloques de estaciones), con las estaciones que llegó a guardar
+ */
+public record IntegracionCompletadaEvent(IntegrationService.TipoOrigen origen, int estacionesGuardadas) {
+}
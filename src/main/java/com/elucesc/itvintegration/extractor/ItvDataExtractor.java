@@ -17,4 +17,30 @@ public interface ItvDataExtractor {
      * con el nombre de su localidad correspondiente
      */
     Map<Integer, String> obtenerMapaEstacionLocalidad();
+
+    /**
+     * Número de registros de estación leídos del archivo
+     */
+    int totalRegistros();
+
+    /**
+     * Se llama al terminar la integración del archivo, haya ido bien o no,
+     * para liberar los recursos que el extractor mantenga abiertos
+     */
+    default void finalizar(boolean exito) {
+    }
+
+    /**
+     * Recibe cada estación según la transforma transformarEstaciones, junto con las procesadas hasta ese momento
+     */
+    default void setOyenteProgreso(OyenteExtraccion oyente) {
+    }
+
+    @FunctionalInterface
+    interface OyenteExtraccion {
+        OyenteExtraccion NINGUNO = (procesadas, estacion) -> {
+        };
+
+        void estacionTransformada(int procesadas, Estacion estacion);
+    }
 }
\ No newline at end of file
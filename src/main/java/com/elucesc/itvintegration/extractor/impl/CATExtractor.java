@@ -17,6 +17,7 @@ import java.util.stream.Collectors;
 public class CATExtractor implements ItvDataExtractor {
 
     private final List<EstacionCAT> estacionesCAT;
+    private OyenteExtraccion oyenteProgreso = OyenteExtraccion.NINGUNO;
     private final Map<String, Long> localidadCodigoMap = new HashMap<>();
 
     public CATExtractor(List<EstacionCAT> estacionesCAT) {
@@ -69,6 +70,11 @@ public class CATExtractor implements ItvDataExtractor {
         return localidades;
     }
 
+    @Override
+    public void setOyenteProgreso(OyenteExtraccion oyente) {
+        this.oyenteProgreso = oyente;
+    }
+
     @Override
     public List<Estacion> transformarEstaciones() {
         List<Estacion> estaciones = new ArrayList<>();
@@ -77,6 +83,7 @@ public class CATExtractor implements ItvDataExtractor {
             Double latitud = convertirCoordenada(estacionCAT.getLat());
 
             Estacion estacion = Estacion.builder()
+                    .claveNatural(construirClaveNatural(estacionCAT))
                     .nombre("Estación ITV de " + estacionCAT.getDenominaci())
                     .tipo(TipoEstacion.ESTACION_FIJA)
                     .direccion(estacionCAT.getDireccion())
@@ -91,10 +98,16 @@ public class CATExtractor implements ItvDataExtractor {
                     .build();
 
             estaciones.add(estacion);
+            oyenteProgreso.estacionTransformada(estaciones.size(), estacion);
         }
         return estaciones;
     }
 
+    @Override
+    public int totalRegistros() {
+        return estacionesCAT.size();
+    }
+
     @Override
     public Map<Integer, String> obtenerMapaEstacionLocalidad() {
         Map<Integer, String> mapa = new HashMap<>();
@@ -122,6 +135,17 @@ public class CATExtractor implements ItvDataExtractor {
         return (coordenada > 1_000_000) ? coordenada / 1_000_000.0 : coordenada;
     }
 
+    /**
+     * Clave natural de la estación: su código 'estaci' en el origen catalán
+     */
+    private String construirClaveNatural(EstacionCAT estacion) {
+        String codigo = estacion.getEstaci();
+        if (codigo == null || codigo.trim().isEmpty()) {
+            return null;
+        }
+        return "CAT-" + codigo.trim();
+    }
+
     private String extraerUrl(String web) {
         if (web == null || web.trim().isEmpty()) return null;
         return web.startsWith("http") ? web : null;
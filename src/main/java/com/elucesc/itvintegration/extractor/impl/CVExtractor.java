@@ -5,12 +5,14 @@ import com.elucesc.itvintegration.model.Estacion;
 import com.elucesc.itvintegration.model.Localidad;
 import com.elucesc.itvintegration.model.Provincia;
 import com.elucesc.itvintegration.model.TipoEstacion;
+import com.elucesc.itvintegration.service.GeocodingCheckpoint;
 import com.elucesc.itvintegration.service.SeleniumGeocodingService;
 import com.elucesc.itvintegration.extractor.ItvDataExtractor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.text.Normalizer;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -20,17 +22,43 @@ public class CVExtractor implements ItvDataExtractor {
 
     private final List<EstacionCV> estacionesCV;
     private final SeleniumGeocodingService seleniumGeocodingService;
+    private final GeocodingCheckpoint checkpoint;
 
     private final Map<String, Long> provinciaCodigoMap = new HashMap<>();
     private final Map<String, Long> localidadCodigoMap = new HashMap<>();
 
+    private OyenteExtraccion oyenteProgreso = OyenteExtraccion.NINGUNO;
+
     private Long provinciaCodigoCounter = 1L;
     private Long localidadCodigoCounter = 1L;
 
     @Autowired
     public CVExtractor(List<EstacionCV> estacionesCV, SeleniumGeocodingService seleniumGeocodingService) {
+        this(estacionesCV, seleniumGeocodingService, GeocodingCheckpoint.enMemoria());
+    }
+
+    public CVExtractor(List<EstacionCV> estacionesCV, SeleniumGeocodingService seleniumGeocodingService,
+                       GeocodingCheckpoint checkpoint) {
         this.estacionesCV = estacionesCV;
         this.seleniumGeocodingService = seleniumGeocodingService;
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * El checkpoint solo se borra si la integración terminó bien; si falló se conserva para reanudar
+     */
+    @Override
+    public void finalizar(boolean exito) {
+        if (exito) {
+            checkpoint.completar();
+        } else {
+            checkpoint.cerrar();
+        }
+    }
+
+    @Override
+    public void setOyenteProgreso(OyenteExtraccion oyente) {
+        this.oyenteProgreso = oyente;
     }
 
     @Override
@@ -72,8 +100,14 @@ public class CVExtractor implements ItvDataExtractor {
         log.info("Iniciando geocoding con Selenium de {} estaciones (puede tardar unos minutos...)",
                 estacionesCV.size());
 
-        // Verificar que Selenium está disponible
-        if (!seleniumGeocodingService.isAvailable()) {
+        int recuperadas = checkpoint.registrosCompletados();
+        if (recuperadas > 0) {
+            log.info("♻️ {} estaciones ya geocodificadas en una ejecución anterior ({})",
+                    recuperadas, checkpoint.getIdEjecucion());
+        }
+
+        // Verificar que Selenium está disponible (solo si queda trabajo pendiente)
+        if (recuperadas < estacionesCV.size() && !seleniumGeocodingService.isAvailable()) {
             log.error("❌ Selenium WebDriver no está disponible. Verifica que ChromeDriver esté instalado.");
             log.error("Descarga ChromeDriver desde: https://chromedriver.chromium.org/");
             throw new RuntimeException("Selenium WebDriver no disponible");
@@ -82,15 +116,18 @@ public class CVExtractor implements ItvDataExtractor {
         int procesadas = 0;
         int conCoordenadas = 0;
 
-        for (EstacionCV estacionCV : estacionesCV) {
-            // Obtener coordenadas usando Selenium
-            Double[] coordenadas = obtenerCoordenadasInteligente(estacionCV);
+        for (int i = 0; i < estacionesCV.size(); i++) {
+            EstacionCV estacionCV = estacionesCV.get(i);
+
+            // Obtener coordenadas del checkpoint o, si está pendiente, usando Selenium
+            Double[] coordenadas = obtenerCoordenadasConCheckpoint(i, estacionCV);
 
             if (coordenadas[0] != null && coordenadas[1] != null) {
                 conCoordenadas++;
             }
 
             Estacion estacion = Estacion.builder()
+                    .claveNatural(construirClaveNatural(estacionCV))
                     .nombre(construirNombre(estacionCV))
                     .tipo(mapearTipo(estacionCV.getTipoEstacion()))
                     .direccion(estacionCV.getDireccion())
@@ -107,6 +144,7 @@ public class CVExtractor implements ItvDataExtractor {
             estaciones.add(estacion);
 
             procesadas++;
+            oyenteProgreso.estacionTransformada(procesadas, estacion);
             if (procesadas % 10 == 0) {
                 log.info("Procesadas {}/{} estaciones ({} con coordenadas)",
                         procesadas, estacionesCV.size(), conCoordenadas);
@@ -117,6 +155,11 @@ public class CVExtractor implements ItvDataExtractor {
         return estaciones;
     }
 
+    @Override
+    public int totalRegistros() {
+        return estacionesCV.size();
+    }
+
     @Override
     public Map<Integer, String> obtenerMapaEstacionLocalidad() {
         Map<Integer, String> mapa = new HashMap<>();
@@ -129,6 +172,34 @@ public class CVExtractor implements ItvDataExtractor {
         return mapa;
     }
 
+    /**
+     * Reutiliza el resultado guardado en el checkpoint si el registro ya se geocodificó.
+     * Solo se guardan resultados con coordenadas: los fallidos se reintentan en la siguiente ejecución
+     */
+    private Double[] obtenerCoordenadasConCheckpoint(int indice, EstacionCV estacion) {
+        String clave = claveCheckpoint(indice, estacion);
+
+        Double[] guardadas = checkpoint.obtener(clave);
+        if (guardadas != null) {
+            return guardadas;
+        }
+
+        Double[] coordenadas = obtenerCoordenadasInteligente(estacion);
+        if (coordenadas[0] != null && coordenadas[1] != null) {
+            checkpoint.registrar(clave, coordenadas);
+        }
+        return coordenadas;
+    }
+
+    /**
+     * Identifica un registro de origen: posición en el archivo + Nº de estación
+     * (el checkpoint está ligado al hash del archivo, así que la posición es estable)
+     */
+    private String claveCheckpoint(int indice, EstacionCV estacion) {
+        String numero = estacion.getNumeroEstacion();
+        return indice + ":" + (numero != null ? numero.trim() : "");
+    }
+
     /**
      * Obtiene coordenadas de forma inteligente usando Selenium:
      * - Omite estaciones móviles/agrícolas
@@ -212,6 +283,40 @@ public class CVExtractor implements ItvDataExtractor {
         return sb.toString();
     }
 
+    /**
+     * Clave natural de la estación: su Nº ESTACIÓN en el origen valenciano
+     * - Las estaciones fijas tienen un número propio
+     * - Las móviles (y las de otros tipos) comparten número entre sus ubicaciones (p.ej. 0351 en Calpe,
+     *   Campello y Santa Pola), así que la clave añade el municipio y la dirección normalizados
+     */
+    private String construirClaveNatural(EstacionCV estacion) {
+        String numero = estacion.getNumeroEstacion();
+        if (numero == null || numero.trim().isEmpty()) {
+            return null;
+        }
+        String clave = "CV-" + numero.trim();
+        if (mapearTipo(estacion.getTipoEstacion()) == TipoEstacion.ESTACION_FIJA) {
+            return clave;
+        }
+        return clave + "-" + normalizarParteClave(estacion.getMunicipio())
+                + "-" + normalizarParteClave(estacion.getDireccion());
+    }
+
+    /**
+     * Sin tildes, en minúsculas y con cualquier separador reducido a un guion,
+     * para que la clave no cambie por el formato del texto
+     */
+    private String normalizarParteClave(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinTildes = Normalizer.normalize(texto, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "");
+        return sinTildes.toLowerCase(Locale.ROOT)
+                .replaceAll("[^a-z0-9]+", "-")
+                .replaceAll("^-|-$", "");
+    }
+
     private String construirNombre(EstacionCV estacion) {
         String municipio = estacion.getMunicipio();
         if (municipio != null && !municipio.trim().isEmpty()) {
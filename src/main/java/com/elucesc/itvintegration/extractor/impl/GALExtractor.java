@@ -17,6 +17,7 @@ import java.util.stream.Collectors;
 public class GALExtractor implements ItvDataExtractor {
 
     private final List<EstacionGAL> estacionesGAL;
+    private OyenteExtraccion oyenteProgreso = OyenteExtraccion.NINGUNO;
     private final Map<String, Long> provinciaCodigoMap = new HashMap<>();
     private final Map<String, Long> localidadCodigoMap = new HashMap<>();
     private Long localidadCodigoCounter = 1L;
@@ -80,6 +81,11 @@ public class GALExtractor implements ItvDataExtractor {
         return localidades;
     }
 
+    @Override
+    public void setOyenteProgreso(OyenteExtraccion oyente) {
+        this.oyenteProgreso = oyente;
+    }
+
     @Override
     public List<Estacion> transformarEstaciones() {
         List<Estacion> estaciones = new ArrayList<>();
@@ -89,6 +95,7 @@ public class GALExtractor implements ItvDataExtractor {
             Double[] coordenadas = parsearCoordenadasGMaps(estacionGAL.getCoordenadasGmaps());
 
             Estacion estacion = Estacion.builder()
+                    .claveNatural(construirClaveNatural(estacionGAL))
                     .nombre(estacionGAL.getNomeDaEstacion())
                     .tipo(TipoEstacion.ESTACION_FIJA)
                     .direccion(estacionGAL.getEnderezo())
@@ -104,11 +111,17 @@ public class GALExtractor implements ItvDataExtractor {
                     .build();
 
             estaciones.add(estacion);
+            oyenteProgreso.estacionTransformada(estaciones.size(), estacion);
         }
 
         return estaciones;
     }
 
+    @Override
+    public int totalRegistros() {
+        return estacionesGAL.size();
+    }
+
     @Override
     public Map<Integer, String> obtenerMapaEstacionLocalidad() {
         Map<Integer, String> mapa = new HashMap<>();
@@ -227,6 +240,19 @@ public class GALExtractor implements ItvDataExtractor {
         }
     }
 
+    /**
+     * Clave natural de la estación: el origen gallego no tiene código, así que se usa nombre + CP
+     * (nombre en mayúsculas y con los espacios normalizados para que no cambie por el formato)
+     */
+    private String construirClaveNatural(EstacionGAL estacion) {
+        String nombre = estacion.getNomeDaEstacion();
+        if (nombre == null || nombre.trim().isEmpty()) {
+            return null;
+        }
+        String nombreNormalizado = nombre.trim().replaceAll("\\s+", " ").toUpperCase(Locale.ROOT);
+        return "GAL-" + nombreNormalizado + "-" + (estacion.getCodigoPostal() != null ? estacion.getCodigoPostal() : "");
+    }
+
     private String extraerUrl(String solicitudCitaPrevia) {
         if (solicitudCitaPrevia == null || solicitudCitaPrevia.trim().isEmpty()) {
             return null;
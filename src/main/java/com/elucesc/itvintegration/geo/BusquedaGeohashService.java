@@ -0,0 +1,57 @@
+package com.elucesc.itvintegration.geo;
+
+import com.elucesc.itvintegration.model.TipoEstacion;
+import com.elucesc.itvintegration.repository.EstacionGeoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Búsqueda de estaciones por rectángulo (viewport de mapa) en la BD
+ * El rectángulo se traduce a unos pocos rangos de geohash, así que la consulta recorre solo
+ * esos tramos del índice en vez de filtrar latitud/longitud en toda la tabla
+ */
+@Slf4j
+@Service
+public class BusquedaGeohashService {
+
+    private final EstacionGeoRepository estacionGeoRepository;
+
+    @Value("${geo.bbox.max-cells:32}")
+    private int maxCeldas;
+
+    public BusquedaGeohashService(EstacionGeoRepository estacionGeoRepository) {
+        this.estacionGeoRepository = estacionGeoRepository;
+    }
+
+    public List<PuntoEstacion> buscarEnRectangulo(double latMin, double lonMin, double latMax, double lonMax,
+                                                  TipoEstacion tipo, int limite) {
+        List<String[]> rangos = Geohash.rangos(latMin, lonMin, latMax, lonMax, maxCeldas);
+        log.debug("Rectángulo [{}, {}] - [{}, {}] cubierto con {} rangos de geohash",
+                latMin, lonMin, latMax, lonMax, rangos.size());
+        return estacionGeoRepository.buscarEnRangos(rangos, latMin, lonMin, latMax, lonMax, tipo, limite);
+    }
+
+    /**
+     * Rellena el geohash de las estaciones guardadas antes de que existiera la columna
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rellenarGeohashPendientes() {
+        try {
+            List<Object[]> pendientes = estacionGeoRepository.buscarSinGeohash().stream()
+                    .map(p -> new Object[]{Geohash.codificar(p.latitud(), p.longitud()), p.codEstacion()})
+                    .toList();
+            if (!pendientes.isEmpty()) {
+                estacionGeoRepository.actualizarGeohash(pendientes);
+                log.info("Geohash calculado para {} estaciones existentes", pendientes.size());
+            }
+        } catch (DataAccessException e) {
+            log.warn("No se pudo rellenar el geohash de las estaciones existentes: {}", e.getMessage());
+        }
+    }
+}
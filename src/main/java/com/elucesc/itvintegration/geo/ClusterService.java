@@ -0,0 +1,85 @@
+package com.elucesc.itvintegration.geo;
+
+import com.elucesc.itvintegration.event.IntegracionCompletadaEvent;
+import com.elucesc.itvintegration.repository.EstacionGeoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Clusters de estaciones para mapas, precalculados por nivel de zoom
+ * La jerarquía se reconstruye al arrancar y tras cada integración y se publica de golpe
+ */
+@Slf4j
+@Service
+public class ClusterService {
+
+    private final EstacionGeoRepository estacionGeoRepository;
+    private final AtomicReference<JerarquiaClusters> jerarquia = new AtomicReference<>(JerarquiaClusters.vacia());
+
+    public ClusterService(EstacionGeoRepository estacionGeoRepository) {
+        this.estacionGeoRepository = estacionGeoRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alArrancar() {
+        reconstruir();
+    }
+
+    @EventListener
+    public void alCompletarIntegracion(IntegracionCompletadaEvent evento) {
+        reconstruir();
+    }
+
+    public synchronized void reconstruir() {
+        try {
+            long inicio = System.currentTimeMillis();
+            List<PuntoEstacion> puntos = estacionGeoRepository.buscarPuntos();
+            jerarquia.set(JerarquiaClusters.construir(puntos));
+            log.info("🗺️ Clusters reconstruidos: {} estaciones, zoom 0-{} en {} ms",
+                    puntos.size(), JerarquiaClusters.ZOOM_MAXIMO, System.currentTimeMillis() - inicio);
+        } catch (DataAccessException e) {
+            log.error("No se pudieron reconstruir los clusters, se mantienen los anteriores: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Clusters del viewport como FeatureCollection GeoJSON: un Point por cluster en su centroide,
+     * con el número de estaciones y su rectángulo [lonMin, latMin, lonMax, latMax] como propiedades
+     */
+    public Map<String, Object> clustersGeoJson(double latMin, double lonMin, double latMax, double lonMax, int zoom) {
+        List<JerarquiaClusters.Cluster> clusters = jerarquia.get().consultar(latMin, lonMin, latMax, lonMax, zoom);
+
+        List<Map<String, Object>> features = new ArrayList<>(clusters.size());
+        for (JerarquiaClusters.Cluster cluster : clusters) {
+            Map<String, Object> propiedades = new LinkedHashMap<>();
+            propiedades.put("numero", cluster.numero());
+            propiedades.put("bbox", List.of(cluster.lonMin(), cluster.latMin(), cluster.lonMax(), cluster.latMax()));
+            if (cluster.codEstacion() != null) {
+                propiedades.put("codEstacion", cluster.codEstacion());
+                propiedades.put("nombre", cluster.nombre());
+            }
+
+            Map<String, Object> feature = new LinkedHashMap<>();
+            feature.put("type", "Feature");
+            feature.put("geometry", Map.of("type", "Point",
+                    "coordinates", List.of(cluster.longitud(), cluster.latitud())));
+            feature.put("properties", propiedades);
+            features.add(feature);
+        }
+
+        Map<String, Object> coleccion = new LinkedHashMap<>();
+        coleccion.put("type", "FeatureCollection");
+        coleccion.put("zoom", Math.max(0, Math.min(zoom, JerarquiaClusters.ZOOM_MAXIMO)));
+        coleccion.put("features", features);
+        return coleccion;
+    }
+}
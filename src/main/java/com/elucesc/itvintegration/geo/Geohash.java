@@ -0,0 +1,148 @@
+package com.elucesc.itvintegration.geo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Codificación geohash y cobertura de un rectángulo con rangos de prefijos
+ * Un geohash intercala los bits de longitud y latitud (curva Z), así que las estaciones de una misma
+ * celda comparten prefijo y quedan contiguas en un índice B-tree ordenado por bytes (COLLATE "C")
+ */
+public final class Geohash {
+
+    public static final int PRECISION_MAXIMA = 12;
+
+    private static final String ALFABETO = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+    // Mayor que cualquier geohash en orden de bytes: límite superior cuando el prefijo es todo 'z'
+    private static final String FIN = "{";
+
+    private Geohash() {
+    }
+
+    public static String codificar(double latitud, double longitud) {
+        return codificar(latitud, longitud, PRECISION_MAXIMA);
+    }
+
+    public static String codificar(double latitud, double longitud, int precision) {
+        double latMin = -90, latMax = 90;
+        double lonMin = -180, lonMax = 180;
+        StringBuilder sb = new StringBuilder(precision);
+        boolean esLongitud = true;
+        int bits = 0;
+        int valor = 0;
+
+        while (sb.length() < precision) {
+            if (esLongitud) {
+                double medio = (lonMin + lonMax) / 2;
+                if (longitud >= medio) {
+                    valor = (valor << 1) | 1;
+                    lonMin = medio;
+                } else {
+                    valor <<= 1;
+                    lonMax = medio;
+                }
+            } else {
+                double medio = (latMin + latMax) / 2;
+                if (latitud >= medio) {
+                    valor = (valor << 1) | 1;
+                    latMin = medio;
+                } else {
+                    valor <<= 1;
+                    latMax = medio;
+                }
+            }
+            esLongitud = !esLongitud;
+
+            if (++bits == 5) {
+                sb.append(ALFABETO.charAt(valor));
+                bits = 0;
+                valor = 0;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Cubre el rectángulo con celdas geohash de la mayor precisión que no pase de maxCeldas
+     * y fusiona las celdas consecutivas en rangos [desde, hasta) para consultas por rango en el índice
+     */
+    public static List<String[]> rangos(double latMin, double lonMin, double latMax, double lonMax, int maxCeldas) {
+        int precision = 1;
+        for (int p = PRECISION_MAXIMA; p >= 1; p--) {
+            if (numeroCeldas(latMin, lonMin, latMax, lonMax, p) <= maxCeldas) {
+                precision = p;
+                break;
+            }
+        }
+
+        double ancho = anchoCelda(precision);
+        double alto = altoCelda(precision);
+        TreeSet<String> celdas = new TreeSet<>();
+        for (long i = indice(latMin, -90, alto); i <= indice(latMax, -90, alto); i++) {
+            for (long j = indice(lonMin, -180, ancho); j <= indice(lonMax, -180, ancho); j++) {
+                double latCentro = Math.min(90, -90 + (i + 0.5) * alto);
+                double lonCentro = Math.min(180, -180 + (j + 0.5) * ancho);
+                celdas.add(codificar(latCentro, lonCentro, precision));
+            }
+        }
+
+        List<String[]> rangos = new ArrayList<>();
+        String desde = null;
+        String hasta = null;
+        for (String celda : celdas) {
+            if (hasta != null && hasta.equals(celda)) {
+                hasta = siguiente(celda);
+                continue;
+            }
+            if (desde != null) {
+                rangos.add(new String[]{desde, hasta});
+            }
+            desde = celda;
+            hasta = siguiente(celda);
+        }
+        if (desde != null) {
+            rangos.add(new String[]{desde, hasta});
+        }
+        return rangos;
+    }
+
+    /**
+     * Menor cadena mayor que todas las que empiezan por el prefijo ("bz" → "c", "zz" → FIN)
+     */
+    static String siguiente(String prefijo) {
+        StringBuilder sb = new StringBuilder(prefijo);
+        while (sb.length() > 0) {
+            int ultimo = sb.length() - 1;
+            int posicion = ALFABETO.indexOf(sb.charAt(ultimo));
+            if (posicion < ALFABETO.length() - 1) {
+                sb.setCharAt(ultimo, ALFABETO.charAt(posicion + 1));
+                return sb.toString();
+            }
+            sb.setLength(ultimo);
+        }
+        return FIN;
+    }
+
+    private static long numeroCeldas(double latMin, double lonMin, double latMax, double lonMax, int precision) {
+        double ancho = anchoCelda(precision);
+        double alto = altoCelda(precision);
+        long filas = indice(latMax, -90, alto) - indice(latMin, -90, alto) + 1;
+        long columnas = indice(lonMax, -180, ancho) - indice(lonMin, -180, ancho) + 1;
+        return filas * columnas;
+    }
+
+    private static long indice(double valor, double origen, double tamano) {
+        return (long) Math.floor((valor - origen) / tamano);
+    }
+
+    // Con 5 bits por carácter, la longitud recibe ceil(5p/2) bits y la latitud floor(5p/2)
+    private static double anchoCelda(int precision) {
+        return 360.0 / (1L << ((5 * precision + 1) / 2));
+    }
+
+    private static double altoCelda(int precision) {
+        return 180.0 / (1L << (5 * precision / 2));
+    }
+}
@@ -0,0 +1,339 @@
+package com.elucesc.itvintegration.geo;
+
+import com.elucesc.itvintegration.dto.consulta.EstacionCercana;
+import com.elucesc.itvintegration.model.TipoEstacion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Índice espacial inmutable (k-d tree) sobre las coordenadas de las estaciones
+ * - Cada estación se guarda como punto (x, y, z) de la esfera unidad: la distancia euclídea (cuerda)
+ *   crece igual que la ortodrómica, así que no hay casos especiales en el antimeridiano ni en los polos
+ * - El árbol es implícito: los arrays están reordenados de forma que el nodo de cada rango [desde, hasta)
+ *   es su elemento central, sin un objeto por nodo
+ */
+public final class IndiceEspacial {
+
+    static final double RADIO_TIERRA_KM = 6371.0088;
+
+    private static final int DIMENSIONES = 3;
+
+    // Coordenadas intercaladas: x, y, z de la estación i en [3i, 3i + 2]
+    private final double[] coordenadas;
+    private final long[] codigos;
+    private final String[] nombres;
+    private final TipoEstacion[] tipos;
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    private IndiceEspacial(int tamano) {
+        this.coordenadas = new double[tamano * DIMENSIONES];
+        this.codigos = new long[tamano];
+        this.nombres = new String[tamano];
+        this.tipos = new TipoEstacion[tamano];
+        this.latitudes = new double[tamano];
+        this.longitudes = new double[tamano];
+    }
+
+    public static IndiceEspacial vacio() {
+        return new IndiceEspacial(0);
+    }
+
+    /**
+     * Construye el árbol en O(n log n) colocando la mediana de cada rango (quickselect) en su centro
+     */
+    public static IndiceEspacial construir(List<PuntoEstacion> puntos) {
+        int n = puntos.size();
+        double[] coordenadasEntrada = new double[n * DIMENSIONES];
+        int[] orden = new int[n];
+        for (int i = 0; i < n; i++) {
+            PuntoEstacion punto = puntos.get(i);
+            escribirUnitario(coordenadasEntrada, i, punto.latitud(), punto.longitud());
+            orden[i] = i;
+        }
+
+        ordenar(orden, coordenadasEntrada, 0, n, 0);
+
+        IndiceEspacial indice = new IndiceEspacial(n);
+        for (int i = 0; i < n; i++) {
+            int origen = orden[i];
+            PuntoEstacion punto = puntos.get(origen);
+            System.arraycopy(coordenadasEntrada, origen * DIMENSIONES, indice.coordenadas, i * DIMENSIONES, DIMENSIONES);
+            indice.codigos[i] = punto.codEstacion();
+            indice.nombres[i] = punto.nombre();
+            indice.tipos[i] = punto.tipo();
+            indice.latitudes[i] = punto.latitud();
+            indice.longitudes[i] = punto.longitud();
+        }
+        return indice;
+    }
+
+    public int tamano() {
+        return codigos.length;
+    }
+
+    /**
+     * Las k estaciones más cercanas al punto (opcionalmente solo de un tipo), de la más cercana a la más lejana
+     */
+    public List<EstacionCercana> masCercanas(double latitud, double longitud, int k, TipoEstacion tipo) {
+        if (k <= 0 || tamano() == 0) {
+            return List.of();
+        }
+
+        double[] consulta = new double[DIMENSIONES];
+        escribirUnitario(consulta, 0, latitud, longitud);
+
+        Candidatos candidatos = new Candidatos(Math.min(k, tamano()));
+        buscarCercanas(0, tamano(), 0, consulta, tipo, candidatos);
+        return resultados(candidatos.indices, candidatos.distancias, candidatos.tamano);
+    }
+
+    /**
+     * Estaciones a menos de radioKm del punto (opcionalmente solo de un tipo), ordenadas por distancia
+     */
+    public List<EstacionCercana> enRadio(double latitud, double longitud, double radioKm, TipoEstacion tipo) {
+        if (radioKm < 0 || tamano() == 0) {
+            return List.of();
+        }
+
+        double[] consulta = new double[DIMENSIONES];
+        escribirUnitario(consulta, 0, latitud, longitud);
+
+        // Radio en km → ángulo central → cuerda en la esfera unidad (se compara al cuadrado)
+        double angulo = Math.min(radioKm / RADIO_TIERRA_KM, Math.PI);
+        double cuerda = 2 * Math.sin(angulo / 2);
+
+        Acumulador acumulador = new Acumulador();
+        buscarEnRadio(0, tamano(), 0, consulta, cuerda * cuerda, tipo, acumulador);
+        return resultados(acumulador.indices, acumulador.distancias, acumulador.tamano);
+    }
+
+    private void buscarCercanas(int desde, int hasta, int eje, double[] consulta, TipoEstacion tipo,
+                                Candidatos candidatos) {
+        if (desde >= hasta) {
+            return;
+        }
+        int medio = (desde + hasta) >>> 1;
+        if (tipo == null || tipos[medio] == tipo) {
+            candidatos.ofrecer(medio, distancia2(medio, consulta));
+        }
+
+        double diferencia = consulta[eje] - coordenadas[medio * DIMENSIONES + eje];
+        int siguienteEje = (eje + 1) % DIMENSIONES;
+        if (diferencia < 0) {
+            buscarCercanas(desde, medio, siguienteEje, consulta, tipo, candidatos);
+            if (diferencia * diferencia < candidatos.peor()) {
+                buscarCercanas(medio + 1, hasta, siguienteEje, consulta, tipo, candidatos);
+            }
+        } else {
+            buscarCercanas(medio + 1, hasta, siguienteEje, consulta, tipo, candidatos);
+            if (diferencia * diferencia < candidatos.peor()) {
+                buscarCercanas(desde, medio, siguienteEje, consulta, tipo, candidatos);
+            }
+        }
+    }
+
+    private void buscarEnRadio(int desde, int hasta, int eje, double[] consulta, double limite2, TipoEstacion tipo,
+                               Acumulador acumulador) {
+        if (desde >= hasta) {
+            return;
+        }
+        int medio = (desde + hasta) >>> 1;
+        double d2 = distancia2(medio, consulta);
+        if (d2 <= limite2 && (tipo == null || tipos[medio] == tipo)) {
+            acumulador.anadir(medio, d2);
+        }
+
+        double diferencia = consulta[eje] - coordenadas[medio * DIMENSIONES + eje];
+        int siguienteEje = (eje + 1) % DIMENSIONES;
+        boolean izquierdaCerca = diferencia < 0;
+        buscarEnRadio(izquierdaCerca ? desde : medio + 1, izquierdaCerca ? medio : hasta,
+                siguienteEje, consulta, limite2, tipo, acumulador);
+        if (diferencia * diferencia <= limite2) {
+            buscarEnRadio(izquierdaCerca ? medio + 1 : desde, izquierdaCerca ? hasta : medio,
+                    siguienteEje, consulta, limite2, tipo, acumulador);
+        }
+    }
+
+    private double distancia2(int indice, double[] consulta) {
+        int base = indice * DIMENSIONES;
+        double dx = coordenadas[base] - consulta[0];
+        double dy = coordenadas[base + 1] - consulta[1];
+        double dz = coordenadas[base + 2] - consulta[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private List<EstacionCercana> resultados(int[] indices, double[] distancias2, int tamano) {
+        Integer[] posiciones = new Integer[tamano];
+        for (int i = 0; i < tamano; i++) {
+            posiciones[i] = i;
+        }
+        Arrays.sort(posiciones, Comparator.comparingDouble(i -> distancias2[i]));
+
+        List<EstacionCercana> resultado = new ArrayList<>(tamano);
+        for (int posicion : posiciones) {
+            int i = indices[posicion];
+            resultado.add(new EstacionCercana(codigos[i], nombres[i], tipos[i], latitudes[i], longitudes[i],
+                    kilometros(distancias2[posicion])));
+        }
+        return resultado;
+    }
+
+    /**
+     * Cuerda al cuadrado en la esfera unidad → distancia ortodrómica en km
+     */
+    static double kilometros(double cuerda2) {
+        double mediaCuerda = Math.min(1.0, Math.sqrt(cuerda2) / 2);
+        return 2 * RADIO_TIERRA_KM * Math.asin(mediaCuerda);
+    }
+
+    private static void escribirUnitario(double[] destino, int indice, double latitud, double longitud) {
+        double lat = Math.toRadians(latitud);
+        double lon = Math.toRadians(longitud);
+        double cosLat = Math.cos(lat);
+        int base = indice * DIMENSIONES;
+        destino[base] = cosLat * Math.cos(lon);
+        destino[base + 1] = cosLat * Math.sin(lon);
+        destino[base + 2] = Math.sin(lat);
+    }
+
+    private static void ordenar(int[] orden, double[] coordenadas, int desde, int hasta, int eje) {
+        if (hasta - desde <= 1) {
+            return;
+        }
+        int medio = (desde + hasta) >>> 1;
+        seleccionar(orden, coordenadas, eje, desde, hasta - 1, medio);
+
+        int siguienteEje = (eje + 1) % DIMENSIONES;
+        ordenar(orden, coordenadas, desde, medio, siguienteEje);
+        ordenar(orden, coordenadas, medio + 1, hasta, siguienteEje);
+    }
+
+    /**
+     * Quickselect: deja en k el elemento que ocuparía esa posición ordenando por el eje,
+     * con los menores o iguales a su izquierda y los mayores o iguales a su derecha
+     */
+    private static void seleccionar(int[] orden, double[] coordenadas, int eje, int izquierda, int derecha, int k) {
+        while (derecha > izquierda) {
+            int pivote = particionar(orden, coordenadas, eje, izquierda, derecha, (izquierda + derecha) >>> 1);
+            if (pivote == k) {
+                return;
+            } else if (k < pivote) {
+                derecha = pivote - 1;
+            } else {
+                izquierda = pivote + 1;
+            }
+        }
+    }
+
+    private static int particionar(int[] orden, double[] coordenadas, int eje, int izquierda, int derecha,
+                                   int indicePivote) {
+        double valorPivote = coordenadas[orden[indicePivote] * DIMENSIONES + eje];
+        intercambiar(orden, indicePivote, derecha);
+        int almacen = izquierda;
+        for (int i = izquierda; i < derecha; i++) {
+            if (coordenadas[orden[i] * DIMENSIONES + eje] < valorPivote) {
+                intercambiar(orden, almacen++, i);
+            }
+        }
+        intercambiar(orden, derecha, almacen);
+        return almacen;
+    }
+
+    private static void intercambiar(int[] valores, int i, int j) {
+        int tmp = valores[i];
+        valores[i] = valores[j];
+        valores[j] = tmp;
+    }
+
+    /**
+     * Montículo de máximos acotado a k elementos: la raíz es el peor candidato actual
+     */
+    private static final class Candidatos {
+        private final int[] indices;
+        private final double[] distancias;
+        private int tamano;
+
+        Candidatos(int capacidad) {
+            this.indices = new int[capacidad];
+            this.distancias = new double[capacidad];
+        }
+
+        double peor() {
+            return tamano < indices.length ? Double.POSITIVE_INFINITY : distancias[0];
+        }
+
+        void ofrecer(int indice, double distancia2) {
+            if (tamano < indices.length) {
+                indices[tamano] = indice;
+                distancias[tamano] = distancia2;
+                subir(tamano++);
+            } else if (distancia2 < distancias[0]) {
+                indices[0] = indice;
+                distancias[0] = distancia2;
+                bajar(0);
+            }
+        }
+
+        private void subir(int i) {
+            while (i > 0) {
+                int padre = (i - 1) / 2;
+                if (distancias[padre] >= distancias[i]) {
+                    return;
+                }
+                intercambiar(i, padre);
+                i = padre;
+            }
+        }
+
+        private void bajar(int i) {
+            while (true) {
+                int mayor = i;
+                int izquierdo = 2 * i + 1;
+                int derecho = izquierdo + 1;
+                if (izquierdo < tamano && distancias[izquierdo] > distancias[mayor]) {
+                    mayor = izquierdo;
+                }
+                if (derecho < tamano && distancias[derecho] > distancias[mayor]) {
+                    mayor = derecho;
+                }
+                if (mayor == i) {
+                    return;
+                }
+                intercambiar(i, mayor);
+                i = mayor;
+            }
+        }
+
+        private void intercambiar(int i, int j) {
+            int indice = indices[i];
+            indices[i] = indices[j];
+            indices[j] = indice;
+            double distancia = distancias[i];
+            distancias[i] = distancias[j];
+            distancias[j] = distancia;
+        }
+    }
+
+    /**
+     * Lista creciente de (índice, distancia²) sin objetos por resultado
+     */
+    private static final class Acumulador {
+        private int[] indices = new int[16];
+        private double[] distancias = new double[16];
+        private int tamano;
+
+        void anadir(int indice, double distancia2) {
+            if (tamano == indices.length) {
+                indices = Arrays.copyOf(indices, tamano * 2);
+                distancias = Arrays.copyOf(distancias, tamano * 2);
+            }
+            indices[tamano] = indice;
+            distancias[tamano] = distancia2;
+            tamano++;
+        }
+    }
+}
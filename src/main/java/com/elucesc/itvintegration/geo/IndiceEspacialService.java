@@ -0,0 +1,70 @@
+package com.elucesc.itvintegration.geo;
+
+import com.elucesc.itvintegration.dto.consulta.EstacionCercana;
+import com.elucesc.itvintegration.event.IntegracionCompletadaEvent;
+import com.elucesc.itvintegration.model.TipoEstacion;
+import com.elucesc.itvintegration.repository.EstacionGeoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Mantiene el índice espacial de estaciones en memoria
+ * Se construye al arrancar y tras cada integración completada: el índice nuevo se construye aparte
+ * y se publica de golpe, así que las consultas siempre ven un índice completo (el anterior o el nuevo)
+ */
+@Slf4j
+@Service
+public class IndiceEspacialService {
+
+    private final EstacionGeoRepository estacionGeoRepository;
+    private final AtomicReference<IndiceEspacial> indice = new AtomicReference<>(IndiceEspacial.vacio());
+
+    public IndiceEspacialService(EstacionGeoRepository estacionGeoRepository) {
+        this.estacionGeoRepository = estacionGeoRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void alArrancar() {
+        reconstruir();
+    }
+
+    @EventListener
+    public void alCompletarIntegracion(IntegracionCompletadaEvent evento) {
+        log.info("Integración de {} completada, reconstruyendo índice espacial", evento.origen());
+        reconstruir();
+    }
+
+    /**
+     * Construye el índice a partir del catálogo persistido y lo publica. Si falla se mantiene el anterior
+     */
+    public synchronized void reconstruir() {
+        try {
+            long inicio = System.currentTimeMillis();
+            List<PuntoEstacion> puntos = estacionGeoRepository.buscarPuntos();
+
+            indice.set(IndiceEspacial.construir(puntos));
+            log.info("🗺️ Índice espacial reconstruido: {} estaciones en {} ms",
+                    puntos.size(), System.currentTimeMillis() - inicio);
+        } catch (DataAccessException e) {
+            log.error("No se pudo reconstruir el índice espacial, se mantiene el anterior: {}", e.getMessage());
+        }
+    }
+
+    public List<EstacionCercana> masCercanas(double latitud, double longitud, int k, TipoEstacion tipo) {
+        return indice.get().masCercanas(latitud, longitud, k, tipo);
+    }
+
+    public List<EstacionCercana> enRadio(double latitud, double longitud, double radioKm, TipoEstacion tipo) {
+        return indice.get().enRadio(latitud, longitud, radioKm, tipo);
+    }
+
+    public int tamano() {
+        return indice.get().tamano();
+    }
+}
@@ -0,0 +1,168 @@
+package com.elucesc.itvintegration.geo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Jerarquía inmutable de clusters de estaciones por nivel de zoom
+ * En cada zoom z el mundo (proyección Web Mercator) se divide en una rejilla de celdas de
+ * TAMANO_CELDA_PX píxeles, es decir 2^(z + BITS_CELDA) celdas por eje, y las estaciones de cada celda
+ * se agregan en un cluster (número, centroide y rectángulo). Una consulta devuelve como mucho tantos
+ * clusters como celdas caben en el viewport, sea cual sea el tamaño del catálogo
+ */
+public final class JerarquiaClusters {
+
+    public static final int ZOOM_MAXIMO = 18;
+
+    // Celdas de 64 px con teselas de 256 px: 4 celdas por tesela en cada eje
+    private static final int BITS_CELDA = 2;
+    public static final int TAMANO_CELDA_PX = 256 >> BITS_CELDA;
+
+    private static final double LATITUD_MAXIMA_MERCATOR = 85.05112878;
+
+    private final Nivel[] niveles;
+
+    private JerarquiaClusters(Nivel[] niveles) {
+        this.niveles = niveles;
+    }
+
+    public static JerarquiaClusters vacia() {
+        return construir(List.of());
+    }
+
+    public static JerarquiaClusters construir(List<PuntoEstacion> puntos) {
+        Nivel[] niveles = new Nivel[ZOOM_MAXIMO + 1];
+        for (int zoom = 0; zoom <= ZOOM_MAXIMO; zoom++) {
+            niveles[zoom] = Nivel.construir(puntos, zoom);
+        }
+        return new JerarquiaClusters(niveles);
+    }
+
+    /**
+     * Clusters del nivel de zoom indicado cuyas celdas intersectan el rectángulo
+     */
+    public List<Cluster> consultar(double latMin, double lonMin, double latMax, double lonMax, int zoom) {
+        int nivel = Math.max(0, Math.min(zoom, ZOOM_MAXIMO));
+        int celdasPorEje = 1 << (nivel + BITS_CELDA);
+
+        // En Mercator la y crece hacia el sur: la latitud máxima da la fila mínima
+        int xMin = celda(mercatorX(lonMin), celdasPorEje);
+        int xMax = celda(mercatorX(lonMax), celdasPorEje);
+        int yMin = celda(mercatorY(latMax), celdasPorEje);
+        int yMax = celda(mercatorY(latMin), celdasPorEje);
+        return niveles[nivel].consultar(xMin, xMax, yMin, yMax);
+    }
+
+    static double mercatorX(double longitud) {
+        return (longitud + 180.0) / 360.0;
+    }
+
+    static double mercatorY(double latitud) {
+        double lat = Math.toRadians(Math.max(-LATITUD_MAXIMA_MERCATOR, Math.min(LATITUD_MAXIMA_MERCATOR, latitud)));
+        return (1 - Math.log(Math.tan(lat) + 1 / Math.cos(lat)) / Math.PI) / 2;
+    }
+
+    private static int celda(double coordenada, int celdasPorEje) {
+        return Math.max(0, Math.min(celdasPorEje - 1, (int) Math.floor(coordenada * celdasPorEje)));
+    }
+
+    /**
+     * Agregado de las estaciones de una celda. Si solo contiene una estación lleva su código y nombre
+     */
+    public record Cluster(int numero, double latitud, double longitud,
+                          double latMin, double lonMin, double latMax, double lonMax,
+                          Long codEstacion, String nombre) {
+    }
+
+    /**
+     * Clusters de un nivel ordenados por celda (x, y) para localizar las columnas del viewport por búsqueda binaria
+     */
+    private static final class Nivel {
+        private final int[] xs;
+        private final int[] ys;
+        private final Cluster[] clusters;
+
+        private Nivel(int[] xs, int[] ys, Cluster[] clusters) {
+            this.xs = xs;
+            this.ys = ys;
+            this.clusters = clusters;
+        }
+
+        static Nivel construir(List<PuntoEstacion> puntos, int zoom) {
+            int celdasPorEje = 1 << (zoom + BITS_CELDA);
+            Map<Long, Agregado> agregados = new HashMap<>();
+            for (PuntoEstacion punto : puntos) {
+                int x = celda(mercatorX(punto.longitud()), celdasPorEje);
+                int y = celda(mercatorY(punto.latitud()), celdasPorEje);
+                agregados.computeIfAbsent(((long) x << 32) | y, k -> new Agregado()).anadir(punto);
+            }
+
+            long[] claves = agregados.keySet().stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(claves);
+
+            int[] xs = new int[claves.length];
+            int[] ys = new int[claves.length];
+            Cluster[] clusters = new Cluster[claves.length];
+            for (int i = 0; i < claves.length; i++) {
+                xs[i] = (int) (claves[i] >>> 32);
+                ys[i] = (int) claves[i];
+                clusters[i] = agregados.get(claves[i]).aCluster();
+            }
+            return new Nivel(xs, ys, clusters);
+        }
+
+        List<Cluster> consultar(int xMin, int xMax, int yMin, int yMax) {
+            List<Cluster> resultado = new ArrayList<>();
+            for (int i = primeraColumna(xMin); i < xs.length && xs[i] <= xMax; i++) {
+                if (ys[i] >= yMin && ys[i] <= yMax) {
+                    resultado.add(clusters[i]);
+                }
+            }
+            return resultado;
+        }
+
+        private int primeraColumna(int x) {
+            int izquierda = 0;
+            int derecha = xs.length;
+            while (izquierda < derecha) {
+                int medio = (izquierda + derecha) >>> 1;
+                if (xs[medio] < x) {
+                    izquierda = medio + 1;
+                } else {
+                    derecha = medio;
+                }
+            }
+            return izquierda;
+        }
+    }
+
+    private static final class Agregado {
+        private int numero;
+        private double sumaLat;
+        private double sumaLon;
+        private double latMin = Double.POSITIVE_INFINITY;
+        private double lonMin = Double.POSITIVE_INFINITY;
+        private double latMax = Double.NEGATIVE_INFINITY;
+        private double lonMax = Double.NEGATIVE_INFINITY;
+        private PuntoEstacion unico;
+
+        void anadir(PuntoEstacion punto) {
+            numero++;
+            sumaLat += punto.latitud();
+            sumaLon += punto.longitud();
+            latMin = Math.min(latMin, punto.latitud());
+            lonMin = Math.min(lonMin, punto.longitud());
+            latMax = Math.max(latMax, punto.latitud());
+            lonMax = Math.max(lonMax, punto.longitud());
+            unico = numero == 1 ? punto : null;
+        }
+
+        Cluster aCluster() {
+            return new Cluster(numero, sumaLat / numero, sumaLon / numero, latMin, lonMin, latMax, lonMax,
+                    unico != null ? unico.codEstacion() : null, unico != null ? unico.nombre() : null);
+        }
+    }
+}
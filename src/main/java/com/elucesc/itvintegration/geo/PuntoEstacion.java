@@ -0,0 +1,9 @@
+package com.elucesc.itvintegration.geo;
+
+import com.elucesc.itvintegration.model.TipoEstacion;
+
+/**
+ * Datos mínimos de una estación con coordenadas para construir los índices en memoria
+ */
+public record PuntoEstacion(long codEstacion, String nombre, TipoEstacion tipo, double latitud, double longitud) {
+}
@@ -14,11 +14,17 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class Estacion {
 
+    // Las filas se insertan por JDBC; allocationSize solo refleja el INCREMENT BY 50 de la secuencia
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "estacion_seq")
+    @SequenceGenerator(name = "estacion_seq", sequenceName = "estacion_seq", schema = "public", allocationSize = 50)
     @Column(name = "cod_estacion")
     private Long codEstacion;
 
+    // Identificador estable de la estación en su origen (CV-, GAL-, CAT-), destino del upsert
+    @Column(name = "clave_natural", unique = true, nullable = false)
+    private String claveNatural;
+
     @Column(name = "nombre", nullable = false)
     private String nombre;
 
@@ -38,6 +44,10 @@ public class Estacion {
     @Column(name = "latitud")
     private Double latitud;
 
+    // Geohash de (latitud, longitud) con 12 caracteres, indexado para búsquedas por rectángulo
+    @Column(name = "geohash", length = 12)
+    private String geohash;
+
     @Column(name = "descripcion")
     private String descripcion;
 
@@ -5,8 +5,12 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "localidad", schema = "public")
 @Data
 @Builder
@@ -14,8 +18,10 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class Localidad {
 
+    // Las filas se insertan por JDBC; allocationSize solo refleja el INCREMENT BY 50 de la secuencia
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "localidad_seq")
+    @SequenceGenerator(name = "localidad_seq", sequenceName = "localidad_seq", schema = "public", allocationSize = 50)
     @Column(name = "codigo")
     private Long codigo;
 
@@ -0,0 +1,178 @@
+package com.elucesc.itvintegration.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tablas de la carga en sombra:
+ * - prepararEntrada: crea la tabla de entrada de un origen (public.estacion_entrada_<origen>), vacía y con
+ *   la estructura de public.estacion; cada origen escribe en la suya, así que las cargas largas no se esperan
+ * - preparar: crea public.estacion_sombra como copia de public.estacion (columnas, índices, CHECK)
+ * - validar: comprueba el recuento y añade las claves ajenas de la tabla real (que se validan al añadirlas)
+ * - intercambiar: en una transacción corta renombra la sombra a public.estacion y borra la anterior,
+ *   dejando índices y restricciones con sus nombres originales
+ * Mientras se carga la sombra, public.estacion no recibe escrituras ni bloqueos de escritura
+ */
+@Slf4j
+@Repository
+public class CatalogoSombraRepository {
+
+    public static final String TABLA_SOMBRA = "public.estacion_sombra";
+
+    private static final String SUFIJO_SOMBRA = "_sombra";
+
+    private static final String PREFIJO_ENTRADA = "public.estacion_entrada_";
+
+    private static final String SQL_INDICES =
+            "SELECT indexname, indexdef FROM pg_indexes WHERE schemaname = 'public' AND tablename = ?";
+
+    private static final String SQL_CLAVES_AJENAS =
+            "SELECT conname, pg_get_constraintdef(oid) AS definicion FROM pg_constraint " +
+            "WHERE conrelid = 'public.estacion'::regclass AND contype = 'f'";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CatalogoSombraRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Crea (vacía) la tabla de entrada del origen, con la clave natural única que necesita el upsert
+     * @return nombre de la tabla
+     */
+    public String prepararEntrada(String origen) {
+        String tabla = tablaEntrada(origen);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + tabla);
+        jdbcTemplate.execute("CREATE TABLE " + tabla + " (LIKE public.estacion INCLUDING ALL)");
+        return tabla;
+    }
+
+    public void descartarEntrada(String origen) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + tablaEntrada(origen));
+    }
+
+    /**
+     * Crea la tabla sombra con el catálogo actual (las demás fuentes deben seguir tras el intercambio)
+     * @return número de estaciones copiadas
+     */
+    public int preparar() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + TABLA_SOMBRA);
+        jdbcTemplate.execute("CREATE TABLE " + TABLA_SOMBRA + " (LIKE public.estacion INCLUDING ALL)");
+        return jdbcTemplate.update("INSERT INTO " + TABLA_SOMBRA + " SELECT * FROM public.estacion");
+    }
+
+    /**
+     * Valida la sombra antes del intercambio. Las estaciones nunca se borran, así que la sombra debe
+     * tener al menos las copiadas y como mucho las copiadas más las guardadas en esta carga
+     */
+    public void validar(int copiadas, int guardadas) {
+        Integer total = jdbcTemplate.queryForObject("SELECT count(*) FROM " + TABLA_SOMBRA, Integer.class);
+        if (total == null || total < copiadas || total > copiadas + guardadas) {
+            throw new IllegalStateException(String.format(
+                    "Recuento inválido en la tabla sombra: %s (copiadas %d, guardadas %d)", total, copiadas, guardadas));
+        }
+
+        // Añadir una clave ajena comprueba todas las filas: si alguna no cumple, falla la validación
+        for (Map<String, Object> claveAjena : jdbcTemplate.queryForList(SQL_CLAVES_AJENAS)) {
+            String nombre = (String) claveAjena.get("conname");
+            jdbcTemplate.execute("ALTER TABLE " + TABLA_SOMBRA + " ADD CONSTRAINT " +
+                    identificador(nombre + SUFIJO_SOMBRA) + " " + claveAjena.get("definicion"));
+        }
+
+        jdbcTemplate.execute("ANALYZE " + TABLA_SOMBRA);
+        log.info("Tabla sombra validada: {} estaciones", total);
+    }
+
+    /**
+     * Sustituye public.estacion por la sombra. Debe ejecutarse en una transacción: los lectores
+     * ven el catálogo anterior completo hasta el COMMIT y el nuevo completo después
+     */
+    public void intercambiar(String lockTimeout) {
+        // Emparejar los índices de la sombra con los de la tabla real por su definición
+        Map<String, String> renombrarIndices = emparejarIndices();
+        List<String> clavesAjenas = jdbcTemplate.queryForList(
+                "SELECT conname FROM pg_constraint WHERE conrelid = 'public.estacion'::regclass AND contype = 'f'",
+                String.class);
+
+        // Sin esperar indefinidamente detrás de una lectura larga (y bloquear a las que lleguen detrás)
+        jdbcTemplate.execute("SET LOCAL lock_timeout = '" + lockTimeout.replace("'", "") + "'");
+        jdbcTemplate.execute("LOCK TABLE public.estacion IN ACCESS EXCLUSIVE MODE");
+        jdbcTemplate.execute("ALTER TABLE public.estacion RENAME TO estacion_anterior");
+        jdbcTemplate.execute("ALTER TABLE " + TABLA_SOMBRA + " RENAME TO estacion");
+        jdbcTemplate.execute("DROP TABLE public.estacion_anterior");
+
+        renombrarIndices.forEach((indiceSombra, indiceOriginal) -> jdbcTemplate.execute(
+                "ALTER INDEX public." + identificador(indiceSombra) + " RENAME TO " + identificador(indiceOriginal)));
+        for (String nombre : clavesAjenas) {
+            jdbcTemplate.execute("ALTER TABLE public.estacion RENAME CONSTRAINT " +
+                    identificador(nombre + SUFIJO_SOMBRA) + " TO " + identificador(nombre));
+        }
+    }
+
+    /**
+     * Borra la tabla sombra si una carga falla antes del intercambio
+     */
+    public void descartar() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + TABLA_SOMBRA);
+    }
+
+    /**
+     * Devuelve nombre del índice en la sombra → nombre del índice equivalente en public.estacion
+     */
+    private Map<String, String> emparejarIndices() {
+        Map<String, Deque<String>> originalesPorDefinicion = new HashMap<>();
+        jdbcTemplate.query(SQL_INDICES, rs -> {
+            originalesPorDefinicion
+                    .computeIfAbsent(definicionSinNombre(rs.getString("indexdef")), k -> new ArrayDeque<>())
+                    .add(rs.getString("indexname"));
+        }, "estacion");
+
+        Map<String, String> emparejados = new HashMap<>();
+        List<String> sinPareja = new ArrayList<>();
+        jdbcTemplate.query(SQL_INDICES, rs -> {
+            String indiceSombra = rs.getString("indexname");
+            Deque<String> candidatos = originalesPorDefinicion.get(definicionSinNombre(rs.getString("indexdef")));
+            if (candidatos != null && !candidatos.isEmpty()) {
+                emparejados.put(indiceSombra, candidatos.poll());
+            } else {
+                sinPareja.add(indiceSombra);
+            }
+        }, "estacion_sombra");
+
+        if (!sinPareja.isEmpty()) {
+            log.warn("⚠️ Índices de la tabla sombra sin equivalente en public.estacion: {}", sinPareja);
+        }
+        return emparejados;
+    }
+
+    /**
+     * "CREATE UNIQUE INDEX nombre ON public.tabla USING btree (col)" → "UNIQUE|btree (col)"
+     */
+    private String definicionSinNombre(String definicion) {
+        int using = definicion.indexOf(" USING ");
+        boolean unico = definicion.startsWith("CREATE UNIQUE");
+        return (unico ? "UNIQUE|" : "|") + (using >= 0 ? definicion.substring(using + 7) : definicion);
+    }
+
+    /**
+     * El origen forma parte del nombre de la tabla: solo se admiten letras minúsculas, dígitos y '_'
+     */
+    private String tablaEntrada(String origen) {
+        if (!origen.matches("[a-z0-9_]+")) {
+            throw new IllegalArgumentException("Origen no válido para la tabla de entrada: " + origen);
+        }
+        return PREFIJO_ENTRADA + origen;
+    }
+
+    private String identificador(String nombre) {
+        return '"' + nombre.replace("\"", "\"\"") + '"';
+    }
+}
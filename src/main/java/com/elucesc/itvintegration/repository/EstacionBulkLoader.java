@@ -0,0 +1,457 @@
+package com.elucesc.itvintegration.repository;
+
+import com.elucesc.itvintegration.model.Estacion;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Escritura masiva de estaciones por JDBC, como upsert sobre la clave natural (clave_natural):
+ * - COPY ... FROM STDIN (formato CSV) del driver de PostgreSQL a una tabla temporal y de ahí un único upsert
+ * - INSERT ... ON CONFLICT agrupados en batches JDBC para el resto (y UPDATE + INSERT estándar en BD
+ *   sin PostgreSQL, como H2 en tests)
+ * Una estación que ya existe solo se reescribe si ha cambiado algún campo, así que reintegrar
+ * el mismo archivo no duplica filas ni genera escrituras; las filas heredadas sin clave (LEGADO-) se vinculan
+ * antes a la estación de origen con el mismo nombre y CP
+ * Ambos usan la conexión de la transacción en curso, así que la escritura se confirma o revierte con ella
+ * La tabla destino es public.estacion o, en la carga en sombra, la tabla de entrada del origen, que luego
+ * se fusiona en la tabla sombra (ver CatalogoSombraRepository)
+ */
+@Slf4j
+@Repository
+public class EstacionBulkLoader {
+
+    // Debe coincidir con el INCREMENT BY de estacion_seq (y con el allocationSize de Estacion, que Hibernate valida)
+    private static final int TAMANO_BLOQUE_IDS = 50;
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    public static final String TABLA = "public.estacion";
+
+    private static final String COLUMNAS = "cod_estacion, clave_natural, nombre, tipo, direccion, codigo_postal, " +
+            "longitud, latitud, geohash, descripcion, horario, contacto, url, cod_localidad";
+
+    // El ID de una estación existente se conserva; solo se actualiza si el contenido es distinto
+    private static final String ON_CONFLICT = " ON CONFLICT (clave_natural) DO UPDATE SET " +
+            "nombre = EXCLUDED.nombre, tipo = EXCLUDED.tipo, direccion = EXCLUDED.direccion, " +
+            "codigo_postal = EXCLUDED.codigo_postal, longitud = EXCLUDED.longitud, latitud = EXCLUDED.latitud, " +
+            "geohash = EXCLUDED.geohash, " +
+            "descripcion = EXCLUDED.descripcion, horario = EXCLUDED.horario, contacto = EXCLUDED.contacto, " +
+            "url = EXCLUDED.url, cod_localidad = EXCLUDED.cod_localidad " +
+            "WHERE (e.nombre, e.tipo, e.direccion, e.codigo_postal, e.longitud, e.latitud, e.descripcion, " +
+            "e.horario, e.contacto, e.url, e.cod_localidad, e.geohash) IS DISTINCT FROM (EXCLUDED.nombre, " +
+            "EXCLUDED.tipo, EXCLUDED.direccion, EXCLUDED.codigo_postal, EXCLUDED.longitud, EXCLUDED.latitud, " +
+            "EXCLUDED.descripcion, EXCLUDED.horario, EXCLUDED.contacto, EXCLUDED.url, EXCLUDED.cod_localidad, " +
+            "EXCLUDED.geohash)";
+
+
+    // Tabla temporal de carga: se vacía antes de cada COPY y desaparece al confirmar la transacción
+    private static final String SQL_CREAR_CARGA = "CREATE TEMP TABLE IF NOT EXISTS estacion_carga " +
+            "(LIKE public.estacion INCLUDING DEFAULTS) ON COMMIT DROP";
+
+    private static final String SQL_VACIAR_CARGA = "TRUNCATE estacion_carga";
+
+    private static final String SQL_COPY = "COPY estacion_carga (" + COLUMNAS + ") FROM STDIN WITH (FORMAT csv)";
+
+
+    // Filas heredadas con clave provisional LEGADO-<id> (ver schema-postgresql.sql)
+    private static final String PREFIJO_LEGADO = "LEGADO-";
+
+    private static final String SQL_BLOQUES_IDS =
+            "SELECT nextval('public.estacion_seq') FROM generate_series(1, ?)";
+
+    private static final String SQL_SIGUIENTE_ID = "SELECT NEXT VALUE FOR public.estacion_seq";
+
+    // Columnas que reescribe el upsert portable (mismo orden que fijarParametrosActualizacion)
+    private static final String SET_ACTUALIZACION = "nombre = ?, tipo = ?, direccion = ?, codigo_postal = ?, " +
+            "longitud = ?, latitud = ?, geohash = ?, descripcion = ?, horario = ?, contacto = ?, url = ?, " +
+            "cod_localidad = ?";
+
+    private final DataSource dataSource;
+
+    // Las filas heredadas solo se crean al migrar el esquema: una tabla sin ellas no vuelve a consultarse
+    // (las tablas de entrada de la carga en sombra nacen vacías y la sombra se copia de public.estacion)
+    private final Set<String> tablasSinLegado = ConcurrentHashMap.newKeySet();
+
+    public EstacionBulkLoader(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Indica si la conexión actual es de PostgreSQL y admite COPY
+     */
+    public boolean soportaCopy() {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            return connection.isWrapperFor(PGConnection.class);
+        } catch (SQLException e) {
+            return false;
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * Vuelca las estaciones con un único COPY a la tabla temporal y las fusiona con un upsert.
+     * Asigna los IDs desde estacion_seq (en bloques, igual que Hibernate); en las estaciones que ya
+     * existían ese ID se descarta y se conserva el de la fila
+     * @return número de filas escritas (nuevas o con cambios)
+     */
+    public long cargar(List<Estacion> estaciones, String tabla) throws SQLException {
+        if (estaciones.isEmpty()) {
+            return 0;
+        }
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            asignarIds(connection, estaciones);
+            adoptarLegado(connection, estaciones, tabla);
+
+            try (Statement st = connection.createStatement()) {
+                st.execute(SQL_CREAR_CARGA);
+                st.execute(SQL_VACIAR_CARGA);
+            }
+
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            CopyIn copyIn = copyManager.copyIn(SQL_COPY);
+
+            try {
+                StringBuilder buffer = new StringBuilder(TAMANO_BUFFER + 1024);
+                for (Estacion estacion : estaciones) {
+                    escribirFila(buffer, estacion);
+                    if (buffer.length() >= TAMANO_BUFFER) {
+                        enviar(copyIn, buffer);
+                    }
+                }
+                enviar(copyIn, buffer);
+
+                long filas = copyIn.endCopy();
+                log.debug("COPY completado: {} estaciones en la tabla de carga", filas);
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+
+            try (Statement st = connection.createStatement()) {
+                int escritas = st.executeUpdate("INSERT INTO " + tabla + " AS e (" + COLUMNAS + ") " +
+                        "SELECT " + COLUMNAS + " FROM estacion_carga" + ON_CONFLICT);
+                log.info("Upsert desde COPY: {} de {} estaciones nuevas o con cambios", escritas, estaciones.size());
+                return escritas;
+            }
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * Hace upsert de las estaciones con INSERT ... ON CONFLICT agrupados en batches JDBC de tamanoLote filas
+     * (el driver los reescribe como INSERT multi-fila con reWriteBatchedInserts)
+     * En otras BD (H2 en tests) se usa SQL estándar: UPDATE por clave natural y INSERT de las que no existían
+     * @return número de estaciones procesadas
+     */
+    public int insertar(List<Estacion> estaciones, String tabla, int tamanoLote) throws SQLException {
+        if (estaciones.isEmpty()) {
+            return 0;
+        }
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            if (!connection.isWrapperFor(PGConnection.class)) {
+                return insertarPortable(connection, estaciones, tabla, tamanoLote);
+            }
+
+            asignarIds(connection, estaciones);
+            adoptarLegado(connection, estaciones, tabla);
+
+            String sql = "INSERT INTO " + tabla + " AS e (" + COLUMNAS + ") " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)" + ON_CONFLICT;
+
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                int pendientes = 0;
+                for (Estacion estacion : estaciones) {
+                    fijarParametros(ps, estacion);
+                    ps.addBatch();
+                    if (++pendientes >= tamanoLote) {
+                        ps.executeBatch();
+                        pendientes = 0;
+                    }
+                }
+                if (pendientes > 0) {
+                    ps.executeBatch();
+                }
+            }
+            return estaciones.size();
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * Upsert sin extensiones de PostgreSQL: por cada batch, UPDATE de las que ya existen (por clave natural)
+     * e INSERT de las que el UPDATE no encontró. Sin vinculación de filas heredadas (solo existen en PostgreSQL)
+     */
+    private int insertarPortable(Connection connection, List<Estacion> estaciones, String tabla,
+                                 int tamanoLote) throws SQLException {
+        asignarIdsPortable(connection, estaciones);
+
+        String sqlActualizar = "UPDATE " + tabla + " SET " + SET_ACTUALIZACION + " WHERE clave_natural = ?";
+        String sqlInsertar = "INSERT INTO " + tabla + " (" + COLUMNAS + ") " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (PreparedStatement actualizar = connection.prepareStatement(sqlActualizar);
+             PreparedStatement insertar = connection.prepareStatement(sqlInsertar)) {
+            for (int desde = 0; desde < estaciones.size(); desde += tamanoLote) {
+                List<Estacion> lote = estaciones.subList(desde, Math.min(desde + tamanoLote, estaciones.size()));
+
+                for (Estacion estacion : lote) {
+                    fijarParametrosActualizacion(actualizar, estacion);
+                    actualizar.addBatch();
+                }
+                int[] actualizadas = actualizar.executeBatch();
+
+                int nuevas = 0;
+                for (int i = 0; i < lote.size(); i++) {
+                    if (actualizadas[i] == 0) {
+                        fijarParametros(insertar, lote.get(i));
+                        insertar.addBatch();
+                        nuevas++;
+                    }
+                }
+                if (nuevas > 0) {
+                    insertar.executeBatch();
+                }
+            }
+        }
+        return estaciones.size();
+    }
+
+    /**
+     * Fusiona en 'destino' todas las estaciones de la tabla 'origen' con el mismo upsert que cargar/insertar
+     * (la carga en sombra pasa así la tabla de entrada de un origen a la tabla sombra)
+     * @return número de filas escritas (nuevas o con cambios)
+     */
+    public long fusionar(String origen, String destino) throws SQLException {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            adoptarLegado(connection, destino,
+                    "(SELECT clave_natural, nombre, codigo_postal FROM " + origen + ")", null);
+            try (Statement st = connection.createStatement()) {
+                return st.executeUpdate("INSERT INTO " + destino + " AS e (" + COLUMNAS + ") SELECT " +
+                        COLUMNAS + " FROM " + origen + ON_CONFLICT);
+            }
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * Da a cada fila heredada (clave LEGADO-) que coincide en nombre y CP con una estación del lote la clave
+     * natural de esa estación, para que el upsert siguiente la actualice en vez de insertar un duplicado
+     */
+    private void adoptarLegado(Connection connection, List<Estacion> estaciones, String tabla) throws SQLException {
+        if (tablasSinLegado.contains(tabla)) {
+            return;
+        }
+
+        int total = estaciones.size();
+        String[] claves = new String[total];
+        String[] nombres = new String[total];
+        Long[] codigosPostales = new Long[total];
+        for (int i = 0; i < total; i++) {
+            Estacion estacion = estaciones.get(i);
+            claves[i] = estacion.getClaveNatural();
+            nombres[i] = estacion.getNombre();
+            codigosPostales[i] = estacion.getCodigoPostal();
+        }
+
+        adoptarLegado(connection, tabla, "unnest(?::varchar[], ?::varchar[], ?::bigint[])", ps -> {
+            ps.setArray(1, connection.createArrayOf("varchar", claves));
+            ps.setArray(2, connection.createArrayOf("varchar", nombres));
+            ps.setArray(3, connection.createArrayOf("bigint", codigosPostales));
+        });
+    }
+
+    /**
+     * 'nuevas' es la fuente de las estaciones entrantes (clave, nombre, CP): el unnest de un lote o una tabla
+     */
+    private void adoptarLegado(Connection connection, String tabla, String nuevas,
+                               ParametrosAdopcion parametros) throws SQLException {
+        if (tablasSinLegado.contains(tabla)) {
+            return;
+        }
+
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT EXISTS (SELECT 1 FROM " + tabla + " WHERE clave_natural LIKE '" + PREFIJO_LEGADO + "%')");
+             ResultSet rs = ps.executeQuery()) {
+            if (rs.next() && !rs.getBoolean(1)) {
+                tablasSinLegado.add(tabla);
+                return;
+            }
+        }
+
+        // Cada fila heredada se asigna a una sola clave, y solo a claves que aún no están en la tabla
+        String sql = "WITH nuevas AS (" +
+                "SELECT n.clave, n.nombre, n.codigo_postal " +
+                "FROM " + nuevas + " AS n(clave, nombre, codigo_postal) " +
+                "WHERE NOT EXISTS (SELECT 1 FROM " + tabla + " k WHERE k.clave_natural = n.clave)), " +
+                "parejas AS (" +
+                "SELECT DISTINCT ON (l.cod_estacion) l.cod_estacion, n.clave " +
+                "FROM nuevas n JOIN " + tabla + " l ON l.clave_natural LIKE '" + PREFIJO_LEGADO + "%' " +
+                "AND l.nombre = n.nombre AND l.codigo_postal IS NOT DISTINCT FROM n.codigo_postal " +
+                "ORDER BY l.cod_estacion, n.clave) " +
+                "UPDATE " + tabla + " AS e SET clave_natural = p.clave FROM parejas p " +
+                "WHERE e.cod_estacion = p.cod_estacion";
+
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            if (parametros != null) {
+                parametros.asignar(ps);
+            }
+            int adoptadas = ps.executeUpdate();
+            if (adoptadas > 0) {
+                log.info("♻️ {} estaciones heredadas sin clave natural vinculadas a su estación de origen", adoptadas);
+            }
+        }
+    }
+
+    /**
+     * Pide a la secuencia un bloque de IDs por cada 50 estaciones en una sola consulta
+     */
+    private void asignarIds(Connection connection, List<Estacion> estaciones) throws SQLException {
+        int bloques = (estaciones.size() + TAMANO_BLOQUE_IDS - 1) / TAMANO_BLOQUE_IDS;
+        List<Long> inicios = new ArrayList<>(bloques);
+
+        try (PreparedStatement ps = connection.prepareStatement(SQL_BLOQUES_IDS)) {
+            ps.setInt(1, bloques);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    inicios.add(rs.getLong(1));
+                }
+            }
+        }
+
+        for (int i = 0; i < estaciones.size(); i++) {
+            long inicioBloque = inicios.get(i / TAMANO_BLOQUE_IDS);
+            estaciones.get(i).setCodEstacion(inicioBloque + (i % TAMANO_BLOQUE_IDS));
+        }
+    }
+
+    /**
+     * Igual que asignarIds con NEXT VALUE FOR (SQL estándar), una consulta por bloque
+     */
+    private void asignarIdsPortable(Connection connection, List<Estacion> estaciones) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(SQL_SIGUIENTE_ID)) {
+            long inicioBloque = 0;
+            for (int i = 0; i < estaciones.size(); i++) {
+                if (i % TAMANO_BLOQUE_IDS == 0) {
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        inicioBloque = rs.getLong(1);
+                    }
+                }
+                estaciones.get(i).setCodEstacion(inicioBloque + (i % TAMANO_BLOQUE_IDS));
+            }
+        }
+    }
+
+    private void fijarParametrosActualizacion(PreparedStatement ps, Estacion estacion) throws SQLException {
+        ps.setString(1, estacion.getNombre());
+        ps.setString(2, estacion.getTipo() != null ? estacion.getTipo().name() : null);
+        ps.setString(3, estacion.getDireccion());
+        ps.setObject(4, estacion.getCodigoPostal(), Types.BIGINT);
+        ps.setObject(5, estacion.getLongitud(), Types.DOUBLE);
+        ps.setObject(6, estacion.getLatitud(), Types.DOUBLE);
+        ps.setString(7, estacion.getGeohash());
+        ps.setString(8, estacion.getDescripcion());
+        ps.setString(9, estacion.getHorario());
+        ps.setString(10, estacion.getContacto());
+        ps.setString(11, estacion.getUrl());
+        ps.setObject(12, estacion.getCodLocalidad(), Types.BIGINT);
+        ps.setString(13, estacion.getClaveNatural());
+    }
+
+    private void fijarParametros(PreparedStatement ps, Estacion estacion) throws SQLException {
+        ps.setLong(1, estacion.getCodEstacion());
+        ps.setString(2, estacion.getClaveNatural());
+        ps.setString(3, estacion.getNombre());
+        ps.setString(4, estacion.getTipo() != null ? estacion.getTipo().name() : null);
+        ps.setString(5, estacion.getDireccion());
+        ps.setObject(6, estacion.getCodigoPostal(), Types.BIGINT);
+        ps.setObject(7, estacion.getLongitud(), Types.DOUBLE);
+        ps.setObject(8, estacion.getLatitud(), Types.DOUBLE);
+        ps.setString(9, estacion.getGeohash());
+        ps.setString(10, estacion.getDescripcion());
+        ps.setString(11, estacion.getHorario());
+        ps.setString(12, estacion.getContacto());
+        ps.setString(13, estacion.getUrl());
+        ps.setObject(14, estacion.getCodLocalidad(), Types.BIGINT);
+    }
+
+    private void escribirFila(StringBuilder sb, Estacion estacion) {
+        sb.append(estacion.getCodEstacion()).append(',');
+        texto(sb, estacion.getClaveNatural()).append(',');
+        texto(sb, estacion.getNombre()).append(',');
+        texto(sb, estacion.getTipo() != null ? estacion.getTipo().name() : null).append(',');
+        texto(sb, estacion.getDireccion()).append(',');
+        valor(sb, estacion.getCodigoPostal()).append(',');
+        valor(sb, estacion.getLongitud()).append(',');
+        valor(sb, estacion.getLatitud()).append(',');
+        texto(sb, estacion.getGeohash()).append(',');
+        texto(sb, estacion.getDescripcion()).append(',');
+        texto(sb, estacion.getHorario()).append(',');
+        texto(sb, estacion.getContacto()).append(',');
+        texto(sb, estacion.getUrl()).append(',');
+        valor(sb, estacion.getCodLocalidad()).append('\n');
+    }
+
+    /**
+     * En CSV de COPY un campo vacío sin comillas es NULL, así que los textos siempre van entre comillas
+     */
+    private StringBuilder texto(StringBuilder sb, String valor) {
+        if (valor == null) {
+            return sb;
+        }
+        sb.append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '"') {
+                sb.append('"');
+            }
+            sb.append(c);
+        }
+        return sb.append('"');
+    }
+
+    private StringBuilder valor(StringBuilder sb, Object valor) {
+        return valor == null ? sb : sb.append(valor);
+    }
+
+    private void enviar(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        if (buffer.length() == 0) {
+            return;
+        }
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    @FunctionalInterface
+    private interface ParametrosAdopcion {
+        void asignar(PreparedStatement ps) throws SQLException;
+    }
+}
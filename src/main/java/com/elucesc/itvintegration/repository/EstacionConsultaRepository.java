@@ -0,0 +1,107 @@
+package com.elucesc.itvintegration.repository;
+
+import com.elucesc.itvintegration.dto.consulta.EstacionResumen;
+import com.elucesc.itvintegration.model.TipoEstacion;
+import lombok.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Búsqueda paginada por cursor de estaciones con filtros opcionales
+ * El SQL solo lleva las condiciones de los filtros indicados: cada combinación tiene su propia consulta
+ * (y su propio plan), así que PostgreSQL puede usar el índice (filtro, cod_estacion) correspondiente
+ * en vez de un plan genérico con condiciones "? IS NULL OR ..." que no usa ninguno
+ */
+@Repository
+public class EstacionConsultaRepository {
+
+    private static final String SQL_BASE =
+            "SELECT e.cod_estacion, e.nombre, e.tipo, e.direccion, e.codigo_postal, e.longitud, e.latitud, " +
+            "e.horario, e.contacto, e.url, e.cod_localidad, l.nombre AS localidad, l.cod_provincia, " +
+            "p.nombre AS provincia " +
+            "FROM public.estacion e " +
+            "LEFT JOIN public.localidad l ON l.codigo = e.cod_localidad " +
+            "LEFT JOIN public.provincia p ON p.codigo = l.cod_provincia " +
+            "WHERE e.cod_estacion > ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public EstacionConsultaRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Devuelve como mucho 'limite' estaciones con código mayor que 'despues', en orden de código,
+     * así cada página es un recorrido del índice sin OFFSET. Los filtros a null no se aplican
+     */
+    public List<EstacionResumen> buscarResumenes(long despues, Long codProvincia, Long codLocalidad,
+                                                 TipoEstacion tipo, Long codigoPostal, int limite) {
+        StringBuilder sql = new StringBuilder(SQL_BASE);
+        List<Object> parametros = new ArrayList<>();
+        parametros.add(despues);
+
+        if (codProvincia != null) {
+            sql.append(" AND l.cod_provincia = ?");
+            parametros.add(codProvincia);
+        }
+        if (codLocalidad != null) {
+            sql.append(" AND e.cod_localidad = ?");
+            parametros.add(codLocalidad);
+        }
+        if (tipo != null) {
+            sql.append(" AND e.tipo = ?");
+            parametros.add(tipo.name());
+        }
+        if (codigoPostal != null) {
+            sql.append(" AND e.codigo_postal = ?");
+            parametros.add(codigoPostal);
+        }
+
+        sql.append(" ORDER BY e.cod_estacion LIMIT ?");
+        parametros.add(limite);
+
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> mapearResumen(rs), parametros.toArray());
+    }
+
+    private EstacionResumen mapearResumen(ResultSet rs) throws SQLException {
+        String tipo = rs.getString("tipo");
+        return new Resumen(
+                rs.getLong("cod_estacion"),
+                rs.getString("nombre"),
+                tipo != null ? TipoEstacion.valueOf(tipo) : null,
+                rs.getString("direccion"),
+                rs.getObject("codigo_postal", Long.class),
+                rs.getObject("longitud", Double.class),
+                rs.getObject("latitud", Double.class),
+                rs.getString("horario"),
+                rs.getString("contacto"),
+                rs.getString("url"),
+                rs.getObject("cod_localidad", Long.class),
+                rs.getString("localidad"),
+                rs.getObject("cod_provincia", Long.class),
+                rs.getString("provincia"));
+    }
+
+    @Value
+    private static class Resumen implements EstacionResumen {
+        Long codEstacion;
+        String nombre;
+        TipoEstacion tipo;
+        String direccion;
+        Long codigoPostal;
+        Double longitud;
+        Double latitud;
+        String horario;
+        String contacto;
+        String url;
+        Long codLocalidad;
+        String localidad;
+        Long codProvincia;
+        String provincia;
+    }
+}
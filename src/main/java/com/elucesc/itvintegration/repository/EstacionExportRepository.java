@@ -0,0 +1,40 @@
+package com.elucesc.itvintegration.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+
+/**
+ * Lectura en streaming del catálogo completo para exportarlo
+ * Con fetchSize y dentro de una transacción (autocommit desactivado) el driver de PostgreSQL usa
+ * un cursor y trae las filas de fetchSize en fetchSize, sin cargar todo el resultado en memoria
+ */
+@Repository
+public class EstacionExportRepository {
+
+    private static final String SQL_CATALOGO =
+            "SELECT e.cod_estacion, e.nombre, e.tipo, e.direccion, e.codigo_postal, e.latitud, e.longitud, " +
+            "e.descripcion, e.horario, e.contacto, e.url, l.nombre AS localidad, p.nombre AS provincia " +
+            "FROM public.estacion e " +
+            "LEFT JOIN public.localidad l ON l.codigo = e.cod_localidad " +
+            "LEFT JOIN public.provincia p ON p.codigo = l.cod_provincia " +
+            "ORDER BY e.cod_estacion";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public EstacionExportRepository(DataSource dataSource,
+                                    @Value("${integration.export.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Recorre todas las estaciones (con localidad y provincia) fila a fila. Debe llamarse dentro de una transacción
+     */
+    public void recorrer(RowCallbackHandler manejador) {
+        jdbcTemplate.query(SQL_CATALOGO, manejador);
+    }
+}
@@ -0,0 +1,96 @@
+package com.elucesc.itvintegration.repository;
+
+import com.elucesc.itvintegration.geo.PuntoEstacion;
+import com.elucesc.itvintegration.model.TipoEstacion;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Consultas espaciales sobre public.estacion apoyadas en la columna geohash
+ */
+@Repository
+public class EstacionGeoRepository {
+
+    // Un recorrido del índice por rango (unnest → nested loop) y después el filtro exacto del rectángulo
+    private static final String SQL_BBOX =
+            "SELECT e.cod_estacion, e.nombre, e.tipo, e.latitud, e.longitud " +
+            "FROM unnest(?::text[], ?::text[]) AS r(desde, hasta) " +
+            "JOIN public.estacion e ON e.geohash >= r.desde AND e.geohash < r.hasta " +
+            "WHERE e.latitud BETWEEN ? AND ? AND e.longitud BETWEEN ? AND ? " +
+            "AND (?::text IS NULL OR e.tipo = ?::text) " +
+            "ORDER BY e.cod_estacion LIMIT ?";
+
+    private static final String SQL_PUNTOS = "SELECT cod_estacion, nombre, tipo, latitud, longitud " +
+            "FROM public.estacion WHERE latitud IS NOT NULL AND longitud IS NOT NULL";
+
+    private static final String SQL_SIN_GEOHASH = "SELECT cod_estacion, latitud, longitud FROM public.estacion " +
+            "WHERE geohash IS NULL AND latitud IS NOT NULL AND longitud IS NOT NULL";
+
+    private static final String SQL_ACTUALIZAR_GEOHASH =
+            "UPDATE public.estacion SET geohash = ? WHERE cod_estacion = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public EstacionGeoRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Estaciones dentro del rectángulo, buscando solo en los rangos de geohash [desde, hasta) indicados
+     */
+    public List<PuntoEstacion> buscarEnRangos(List<String[]> rangos, double latMin, double lonMin,
+                                              double latMax, double lonMax, TipoEstacion tipo, int limite) {
+        String[] desde = rangos.stream().map(r -> r[0]).toArray(String[]::new);
+        String[] hasta = rangos.stream().map(r -> r[1]).toArray(String[]::new);
+        String tipoTexto = tipo != null ? tipo.name() : null;
+
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_BBOX);
+            ps.setArray(1, con.createArrayOf("text", desde));
+            ps.setArray(2, con.createArrayOf("text", hasta));
+            ps.setDouble(3, latMin);
+            ps.setDouble(4, latMax);
+            ps.setDouble(5, lonMin);
+            ps.setDouble(6, lonMax);
+            ps.setObject(7, tipoTexto, Types.VARCHAR);
+            ps.setObject(8, tipoTexto, Types.VARCHAR);
+            ps.setInt(9, limite);
+            return ps;
+        }, (rs, rowNum) -> mapearPunto(rs));
+    }
+
+    /**
+     * Todas las estaciones con coordenadas (para construir los índices en memoria)
+     */
+    public List<PuntoEstacion> buscarPuntos() {
+        return jdbcTemplate.query(SQL_PUNTOS, (rs, rowNum) -> mapearPunto(rs));
+    }
+
+    /**
+     * Estaciones con coordenadas pero sin geohash (cargadas antes de existir la columna)
+     */
+    public List<PuntoEstacion> buscarSinGeohash() {
+        return jdbcTemplate.query(SQL_SIN_GEOHASH, (rs, rowNum) -> new PuntoEstacion(
+                rs.getLong("cod_estacion"), null, null, rs.getDouble("latitud"), rs.getDouble("longitud")));
+    }
+
+    public void actualizarGeohash(List<Object[]> geohashYCodigo) {
+        jdbcTemplate.batchUpdate(SQL_ACTUALIZAR_GEOHASH, geohashYCodigo);
+    }
+
+    private PuntoEstacion mapearPunto(ResultSet rs) throws SQLException {
+        String tipo = rs.getString("tipo");
+        return new PuntoEstacion(
+                rs.getLong("cod_estacion"),
+                rs.getString("nombre"),
+                tipo != null ? TipoEstacion.valueOf(tipo) : null,
+                rs.getDouble("latitud"),
+                rs.getDouble("longitud"));
+    }
+}
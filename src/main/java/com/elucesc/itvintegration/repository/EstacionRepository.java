@@ -1,7 +1,9 @@
 package com.elucesc.itvintegration.repository;
+import com.elucesc.itvintegration.dto.consulta.EstacionResumen;
 import com.elucesc.itvintegration.model.Estacion;
 import com.elucesc.itvintegration.model.TipoEstacion;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 
@@ -9,4 +11,14 @@ import java.util.List;
 public interface EstacionRepository extends JpaRepository<Estacion, Long> {
     List<Estacion> findByTipo(TipoEstacion tipo);
     List<Estacion> findByCodLocalidad(Long codLocalidad);
-}
\ No newline at end of file
+
+    /**
+     * Todas las estaciones con los nombres de su localidad y provincia (para los índices en memoria)
+     */
+    @Query("SELECT e.codEstacion AS codEstacion, e.nombre AS nombre, e.tipo AS tipo, e.direccion AS direccion, " +
+            "e.codigoPostal AS codigoPostal, e.longitud AS longitud, e.latitud AS latitud, e.horario AS horario, " +
+            "e.contacto AS contacto, e.url AS url, e.codLocalidad AS codLocalidad, l.nombre AS localidad, " +
+            "l.codProvincia AS codProvincia, p.nombre AS provincia " +
+            "FROM Estacion e LEFT JOIN e.localidad l LEFT JOIN l.provincia p ORDER BY e.codEstacion")
+    List<EstacionResumen> listarResumenes();
+}
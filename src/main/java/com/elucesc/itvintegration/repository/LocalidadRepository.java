@@ -1,9 +1,11 @@
 package com.elucesc.itvintegration.repository;
+import com.elucesc.itvintegration.dto.consulta.LocalidadResumen;
 import com.elucesc.itvintegration.model.Localidad;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+import java.util.List;
 
 @Repository
 public interface LocalidadRepository extends JpaRepository<Localidad, Long> {
-    Localidad findByNombreAndCodProvincia(String nombre, Long codProvincia);
-}
\ No newline at end of file
+    List<LocalidadResumen> findByCodProvinciaOrderByNombre(Long codProvincia);
+}
@@ -2,9 +2,9 @@ package com.elucesc.itvintegration.repository;
 import com.elucesc.itvintegration.model.Provincia;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+import java.util.List;
 
 @Repository
 public interface ProvinciaRepository extends JpaRepository<Provincia, Long> {
-    boolean existsByCodigo(Long codigo);
-    Provincia findByCodigo(Long codigo);
-}
\ No newline at end of file
+    List<Provincia> findAllByOrderByNombre();
+}
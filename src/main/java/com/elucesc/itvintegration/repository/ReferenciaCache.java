@@ -0,0 +1,66 @@
+package com.elucesc.itvintegration.repository;
+
+import com.elucesc.itvintegration.model.Localidad;
+import com.elucesc.itvintegration.model.Provincia;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Caché en memoria de provincias y localidades para una única ejecución de integración
+ * Se precarga con una consulta al empezar y se actualiza con cada fila nueva que se escribe,
+ * de forma que todas las comprobaciones de existencia durante la ejecución no tocan la BD
+ */
+public class ReferenciaCache {
+
+    /**
+     * Clave natural de una localidad: nombre + código de provincia
+     */
+    public record ClaveLocalidad(String nombre, Long codProvincia) {
+    }
+
+    private final Map<Long, String> provincias = new HashMap<>();
+    private final Map<ClaveLocalidad, Long> localidades = new HashMap<>();
+
+    public boolean existeProvincia(Long codigo) {
+        return provincias.containsKey(codigo);
+    }
+
+    public void registrarProvincia(Long codigo, String nombre) {
+        provincias.put(codigo, nombre);
+    }
+
+    public void registrarProvincia(Provincia provincia) {
+        registrarProvincia(provincia.getCodigo(), provincia.getNombre());
+    }
+
+    /**
+     * Código de la localidad con ese nombre en esa provincia, o null si no existe
+     */
+    public Long codigoLocalidad(String nombre, Long codProvincia) {
+        return localidades.get(new ClaveLocalidad(nombre, codProvincia));
+    }
+
+    public void registrarLocalidad(Long codigo, String nombre, Long codProvincia) {
+        localidades.put(new ClaveLocalidad(nombre, codProvincia), codigo);
+    }
+
+    public void registrarLocalidad(Localidad localidad) {
+        registrarLocalidad(localidad.getCodigo(), localidad.getNombre(), localidad.getCodProvincia());
+    }
+
+    /**
+     * Resumen "código=nombre" de las provincias conocidas (para mensajes de error)
+     */
+    public Map<Long, String> getProvincias() {
+        return Map.copyOf(provincias);
+    }
+
+    public int totalProvincias() {
+        return provincias.size();
+    }
+
+    public int totalLocalidades() {
+        return localidades.size();
+    }
+}
@@ -0,0 +1,115 @@
+package com.elucesc.itvintegration.repository;
+
+import com.elucesc.itvintegration.model.Localidad;
+import com.elucesc.itvintegration.model.Provincia;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Upserts por conjuntos de los datos de referencia (provincias y localidades)
+ * Cada operación es una única sentencia con los valores pasados como arrays (unnest), así que
+ * el número de idas y vueltas a la BD no depende del número de filas
+ */
+@Repository
+public class ReferenciaUpsertRepository {
+
+    private static final String SQL_UPSERT_PROVINCIAS =
+            "INSERT INTO public.provincia (codigo, nombre) " +
+            "SELECT codigo, nombre FROM unnest(?::bigint[], ?::text[]) AS t(codigo, nombre) " +
+            "ON CONFLICT (codigo) DO NOTHING";
+
+    // Todas las provincias y, solo para las indicadas, sus localidades
+    private static final String SQL_PRECARGA =
+            "SELECT p.codigo, p.nombre, l.codigo AS cod_localidad, l.nombre AS nombre_localidad " +
+            "FROM public.provincia p " +
+            "LEFT JOIN public.localidad l ON l.cod_provincia = p.codigo AND p.codigo = ANY(?::bigint[])";
+
+    // DO UPDATE (aunque no cambie nada) hace que RETURNING devuelva también las que ya existían, incluidas
+    // las que otra ejecución confirma mientras tanto: el INSERT espera a esa transacción y devuelve su fila
+    // (un SELECT aparte usaría la instantánea de la sentencia y no las vería)
+    private static final String SQL_UPSERT_LOCALIDADES =
+            "INSERT INTO public.localidad (codigo, nombre, cod_provincia) " +
+            "SELECT nextval('public.localidad_seq'), nombre, cod_provincia " +
+            "FROM (SELECT DISTINCT nombre, cod_provincia " +
+            "      FROM unnest(?::text[], ?::bigint[]) AS t(nombre, cod_provincia)) AS entrada " +
+            "ON CONFLICT (nombre, cod_provincia) DO UPDATE SET nombre = EXCLUDED.nombre " +
+            "RETURNING codigo, nombre, cod_provincia";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ReferenciaUpsertRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserta las provincias que no existan (las existentes no se modifican)
+     * @return número de provincias nuevas
+     */
+    public int upsertProvincias(List<Provincia> provincias) {
+        if (provincias.isEmpty()) {
+            return 0;
+        }
+
+        Long[] codigos = provincias.stream().map(Provincia::getCodigo).toArray(Long[]::new);
+        String[] nombres = provincias.stream().map(Provincia::getNombre).toArray(String[]::new);
+
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_UPSERT_PROVINCIAS);
+            ps.setArray(1, con.createArrayOf("bigint", codigos));
+            ps.setArray(2, con.createArrayOf("text", nombres));
+            return ps;
+        });
+    }
+
+    /**
+     * Precarga en una sola consulta todas las provincias y las localidades de las provincias indicadas
+     */
+    public ReferenciaCache precargar(Collection<Long> codigosProvincia) {
+        ReferenciaCache cache = new ReferenciaCache();
+        Long[] array = codigosProvincia.toArray(new Long[0]);
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_PRECARGA);
+            ps.setArray(1, con.createArrayOf("bigint", array));
+            return ps;
+        }, rs -> {
+            long codProvincia = rs.getLong("codigo");
+            cache.registrarProvincia(codProvincia, rs.getString("nombre"));
+
+            long codLocalidad = rs.getLong("cod_localidad");
+            if (!rs.wasNull()) {
+                cache.registrarLocalidad(codLocalidad, rs.getString("nombre_localidad"), codProvincia);
+            }
+        });
+
+        return cache;
+    }
+
+    /**
+     * Inserta las localidades que no existan (clave natural: nombre + provincia) y devuelve
+     * todas las indicadas con su código, tanto las nuevas como las que ya estaban
+     */
+    public List<Localidad> upsertLocalidades(List<Localidad> localidades) {
+        if (localidades.isEmpty()) {
+            return List.of();
+        }
+
+        String[] nombres = localidades.stream().map(Localidad::getNombre).toArray(String[]::new);
+        Long[] provincias = localidades.stream().map(Localidad::getCodProvincia).toArray(Long[]::new);
+
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_UPSERT_LOCALIDADES);
+            ps.setArray(1, con.createArrayOf("text", nombres));
+            ps.setArray(2, con.createArrayOf("bigint", provincias));
+            return ps;
+        }, (rs, rowNum) -> Localidad.builder()
+                .codigo(rs.getLong("codigo"))
+                .nombre(rs.getString("nombre"))
+                .codProvincia(rs.getObject("cod_provincia", Long.class))
+                .build());
+    }
+}
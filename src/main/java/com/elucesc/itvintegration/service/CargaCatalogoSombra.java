@@ -0,0 +1,141 @@
+package com.elucesc.itvintegration.service;
+
+import com.elucesc.itvintegration.repository.CatalogoSombraRepository;
+import com.elucesc.itvintegration.repository.EstacionBulkLoader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Carga en sombra de estaciones: cada origen escribe su catálogo en su propia tabla de entrada (por bloques,
+ * igual que la carga directa) y al terminar, en una fase corta, se copia public.estacion a
+ * public.estacion_sombra, se fusiona en ella la entrada, se valida y se intercambia con public.estacion
+ * Los lectores nunca ven un catálogo a medio importar y la tabla real no tiene escrituras largas
+ * Varios orígenes pueden cargar a la vez: solo la fase final (la tabla sombra es común) se hace de uno en uno
+ */
+@Slf4j
+@Component
+public class CargaCatalogoSombra {
+
+    private static final int INTENTOS_INTERCAMBIO = 3;
+
+    private final CatalogoSombraRepository sombraRepository;
+    private final EstacionBulkLoader bulkLoader;
+    private final PersistenciaEstaciones persistenciaEstaciones;
+    private final TransactionTemplate transactionTemplate;
+    // Protege la tabla sombra, que comparten todos los orígenes
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @Value("${integration.persistence.shadow.lock-timeout:5s}")
+    private String lockTimeout;
+
+    public CargaCatalogoSombra(CatalogoSombraRepository sombraRepository,
+                               EstacionBulkLoader bulkLoader,
+                               PersistenciaEstaciones persistenciaEstaciones,
+                               PlatformTransactionManager transactionManager) {
+        this.sombraRepository = sombraRepository;
+        this.bulkLoader = bulkLoader;
+        this.persistenciaEstaciones = persistenciaEstaciones;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Carga en sombra por partes: prepara la tabla de entrada del origen, 'carga' escribe en ella a través
+     * de la sesión (el pipeline de integración lo hace según avanza) y al terminar se publica en public.estacion
+     * Dos cargas del mismo origen no pueden solaparse (ver CoordinadorIntegraciones)
+     */
+    public ResultadoPersistencia cargar(IntegrationService.TipoOrigen origen, int totalPrevisto,
+                                        PersistenciaEstaciones.OyentePersistencia oyente,
+                                        CargaPorPartes carga) throws IOException {
+        String claveOrigen = origen.name().toLowerCase(Locale.ROOT);
+        try {
+            String entrada = transactionTemplate.execute(status -> sombraRepository.prepararEntrada(claveOrigen));
+
+            PersistenciaEstaciones.Sesion sesion = persistenciaEstaciones.abrirSesion(entrada, totalPrevisto, oyente);
+            carga.cargar(sesion);
+            ResultadoPersistencia resultado = sesion.resultado();
+
+            publicar(entrada, resultado.getGuardadas());
+            log.info("✅ Catálogo intercambiado: public.estacion apunta ya a la carga nueva");
+            return resultado;
+        } catch (IOException | RuntimeException e) {
+            log.error("❌ Carga en sombra abortada, el catálogo actual no se modifica: {}", e.getMessage());
+            throw e;
+        } finally {
+            descartar("de entrada", () -> sombraRepository.descartarEntrada(claveOrigen));
+        }
+    }
+
+    /**
+     * Fase corta con la tabla sombra: copiar el catálogo actual, fusionar la entrada, validar e intercambiar
+     */
+    private void publicar(String entrada, int guardadas) {
+        lock.lock();
+        try {
+            Integer copiadas = transactionTemplate.execute(status -> {
+                int actuales = sombraRepository.preparar();
+                try {
+                    bulkLoader.fusionar(entrada, CatalogoSombraRepository.TABLA_SOMBRA);
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Error fusionando " + entrada + " en la tabla sombra: " +
+                            e.getMessage(), e);
+                }
+                return actuales;
+            });
+            log.info("Tabla sombra preparada con {} estaciones del catálogo actual y las de {}", copiadas, entrada);
+
+            transactionTemplate.executeWithoutResult(status -> sombraRepository.validar(copiadas, guardadas));
+            intercambiar();
+        } catch (RuntimeException e) {
+            descartar("sombra", sombraRepository::descartar);
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * El intercambio necesita un bloqueo exclusivo breve; si no se obtiene a tiempo se reintenta
+     */
+    private void intercambiar() {
+        for (int intento = 1; ; intento++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> sombraRepository.intercambiar(lockTimeout));
+                return;
+            } catch (DataAccessException e) {
+                if (intento >= INTENTOS_INTERCAMBIO) {
+                    throw e;
+                }
+                log.warn("⚠️ Intercambio no completado (intento {}/{}): {}. Reintentando...",
+                        intento, INTENTOS_INTERCAMBIO, e.getMessage());
+                try {
+                    Thread.sleep(1000L * intento);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void descartar(String tabla, Runnable borrado) {
+        try {
+            borrado.run();
+        } catch (DataAccessException e) {
+            log.warn("No se pudo borrar la tabla {}: {}", tabla, e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    public interface CargaPorPartes {
+        void cargar(PersistenciaEstaciones.Sesion sesion) throws IOException;
+    }
+}
@@ -0,0 +1,220 @@
+package com.elucesc.itvintegration.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Circuit breaker por proveedor de geocoding
+ * - CERRADO: las llamadas pasan y se registran en una ventana deslizante de tamaño fijo
+ * - ABIERTO: si la tasa de fallos de la ventana supera el umbral, se rechazan llamadas sin tocar el backend
+ * - SEMI_ABIERTO: pasado el tiempo de apertura se dejan pasar unas pocas sondas;
+ *   si todas van bien se cierra, si alguna falla se vuelve a abrir
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum Estado {
+        CERRADO,
+        ABIERTO,
+        SEMI_ABIERTO
+    }
+
+    private final String nombre;
+    private final int tamanoVentana;
+    private final int llamadasMinimas;
+    private final double umbralFallos;
+    private final Duration duracionApertura;
+    private final int sondasSemiAbierto;
+    private final Clock reloj;
+
+    // Ventana circular: true = fallo
+    private final boolean[] ventana;
+    private int posicion = 0;
+    private int llamadasEnVentana = 0;
+    private int fallosEnVentana = 0;
+
+    private Estado estado = Estado.CERRADO;
+    private Instant ultimoCambio;
+    private int sondasEmitidas = 0;
+    private int sondasExitosas = 0;
+
+    private long totalLlamadas = 0;
+    private long totalFallos = 0;
+    private long totalRechazadas = 0;
+    private String ultimoError;
+    private Instant ultimoFallo;
+
+    public CircuitBreaker(String nombre, int tamanoVentana, int llamadasMinimas,
+                          double umbralFallos, Duration duracionApertura, int sondasSemiAbierto) {
+        this(nombre, tamanoVentana, llamadasMinimas, umbralFallos, duracionApertura, sondasSemiAbierto,
+                Clock.systemUTC());
+    }
+
+    /**
+     * Con un reloj propio (los tests avanzan el tiempo de apertura sin esperar)
+     */
+    CircuitBreaker(String nombre, int tamanoVentana, int llamadasMinimas, double umbralFallos,
+                   Duration duracionApertura, int sondasSemiAbierto, Clock reloj) {
+        this.nombre = nombre;
+        this.tamanoVentana = Math.max(1, tamanoVentana);
+        this.llamadasMinimas = Math.max(1, Math.min(llamadasMinimas, this.tamanoVentana));
+        this.umbralFallos = umbralFallos;
+        this.duracionApertura = duracionApertura;
+        this.sondasSemiAbierto = Math.max(1, sondasSemiAbierto);
+        this.ventana = new boolean[this.tamanoVentana];
+        this.reloj = reloj;
+        this.ultimoCambio = reloj.instant();
+    }
+
+    /**
+     * Indica si se puede llamar al backend. En SEMI_ABIERTO consume una de las sondas disponibles,
+     * por lo que cada llamada permitida debe cerrarse con registrarExito(), registrarFallo() o liberarLlamada()
+     */
+    public synchronized boolean permiteLlamada() {
+        if (estado == Estado.ABIERTO) {
+            if (!aperturaExpirada()) {
+                totalRechazadas++;
+                return false;
+            }
+            cambiarEstado(Estado.SEMI_ABIERTO);
+        }
+
+        if (estado == Estado.SEMI_ABIERTO) {
+            if (sondasEmitidas >= sondasSemiAbierto) {
+                totalRechazadas++;
+                return false;
+            }
+            sondasEmitidas++;
+            log.debug("Circuito '{}': sonda {}/{} en estado semi-abierto", nombre, sondasEmitidas, sondasSemiAbierto);
+        }
+
+        return true;
+    }
+
+    /**
+     * Indica si el circuito está abierto y todavía no toca probar de nuevo (no consume sondas)
+     */
+    public synchronized boolean estaAbierto() {
+        return estado == Estado.ABIERTO && !aperturaExpirada();
+    }
+
+    public synchronized void registrarExito() {
+        totalLlamadas++;
+
+        if (estado == Estado.SEMI_ABIERTO) {
+            sondasExitosas++;
+            if (sondasExitosas >= sondasSemiAbierto) {
+                reiniciarVentana();
+                cambiarEstado(Estado.CERRADO);
+                log.info("✅ Circuito '{}' cerrado: el backend ha vuelto a responder", nombre);
+            }
+            return;
+        }
+
+        registrarEnVentana(false);
+    }
+
+    public synchronized void registrarFallo(String error) {
+        totalLlamadas++;
+        totalFallos++;
+        ultimoError = error;
+        ultimoFallo = reloj.instant();
+
+        if (estado == Estado.SEMI_ABIERTO) {
+            cambiarEstado(Estado.ABIERTO);
+            log.warn("⚠️ Circuito '{}' reabierto: falló la sonda ({})", nombre, error);
+            return;
+        }
+
+        registrarEnVentana(true);
+
+        if (estado == Estado.CERRADO && llamadasEnVentana >= llamadasMinimas && tasaFallos() >= umbralFallos) {
+            cambiarEstado(Estado.ABIERTO);
+            log.error("❌ Circuito '{}' abierto: tasa de fallos {}% en las últimas {} llamadas. Reintento en {} s",
+                    nombre, Math.round(tasaFallos()), llamadasEnVentana, duracionApertura.toSeconds());
+        }
+    }
+
+    /**
+     * Cierra una llamada permitida que no llegó a tener resultado (p. ej. el hilo se interrumpió):
+     * no cuenta como éxito ni como fallo y, en SEMI_ABIERTO, devuelve la sonda para que otra llamada la use
+     */
+    public synchronized void liberarLlamada() {
+        if (estado == Estado.SEMI_ABIERTO && sondasEmitidas > sondasExitosas) {
+            sondasEmitidas--;
+        }
+    }
+
+    /**
+     * Resumen del estado para el endpoint de salud
+     */
+    public synchronized Map<String, Object> resumen() {
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("estado", estado == Estado.ABIERTO && aperturaExpirada() ? Estado.SEMI_ABIERTO : estado);
+        resumen.put("tasaFallos", Math.round(tasaFallos() * 100.0) / 100.0);
+        resumen.put("llamadasEnVentana", llamadasEnVentana);
+        resumen.put("totalLlamadas", totalLlamadas);
+        resumen.put("totalFallos", totalFallos);
+        resumen.put("totalRechazadas", totalRechazadas);
+        resumen.put("ultimoCambio", ultimoCambio.toString());
+        if (ultimoFallo != null) {
+            resumen.put("ultimoFallo", ultimoFallo.toString());
+            resumen.put("ultimoError", ultimoError);
+        }
+        return resumen;
+    }
+
+    public synchronized Estado getEstado() {
+        return estado;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    private void registrarEnVentana(boolean fallo) {
+        if (llamadasEnVentana == tamanoVentana) {
+            // La ventana está llena: sale la llamada más antigua
+            if (ventana[posicion]) {
+                fallosEnVentana--;
+            }
+        } else {
+            llamadasEnVentana++;
+        }
+
+        ventana[posicion] = fallo;
+        if (fallo) {
+            fallosEnVentana++;
+        }
+        posicion = (posicion + 1) % tamanoVentana;
+    }
+
+    private void reiniciarVentana() {
+        for (int i = 0; i < tamanoVentana; i++) {
+            ventana[i] = false;
+        }
+        posicion = 0;
+        llamadasEnVentana = 0;
+        fallosEnVentana = 0;
+    }
+
+    private double tasaFallos() {
+        return llamadasEnVentana == 0 ? 0.0 : fallosEnVentana * 100.0 / llamadasEnVentana;
+    }
+
+    private boolean aperturaExpirada() {
+        return Duration.between(ultimoCambio, reloj.instant()).compareTo(duracionApertura) >= 0;
+    }
+
+    private void cambiarEstado(Estado nuevo) {
+        estado = nuevo;
+        ultimoCambio = reloj.instant();
+        sondasEmitidas = 0;
+        sondasExitosas = 0;
+    }
+}
@@ -0,0 +1,70 @@
+package com.elucesc.itvintegration.service;
+
+import com.elucesc.itvintegration.trabajo.EtapaIntegracion;
+import com.elucesc.itvintegration.trabajo.ProgresoIntegracion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Como mucho una integración en curso por origen
+ * Si llega otra petición para un origen que ya se está integrando, no se repite el trabajo (ni el geocoding
+ * ni las escrituras): espera a que termine la ejecución en curso y recibe su mismo resultado o error
+ * Los orígenes distintos se siguen integrando en paralelo
+ */
+@Slf4j
+@Component
+public class CoordinadorIntegraciones {
+
+    private final Map<IntegrationService.TipoOrigen, CompletableFuture<ResultadoIntegracion>> enCurso =
+            new ConcurrentHashMap<>();
+
+    public ResultadoIntegracion ejecutar(IntegrationService.TipoOrigen origen, ProgresoIntegracion progreso,
+                                         EjecucionOrigen ejecucion) throws IOException {
+        CompletableFuture<ResultadoIntegracion> propia = new CompletableFuture<>();
+        CompletableFuture<ResultadoIntegracion> existente = enCurso.putIfAbsent(origen, propia);
+        if (existente != null) {
+            log.info("🔗 Ya hay una integración de {} en curso: se espera a su resultado en vez de repetirla", origen);
+            progreso.etapa(EtapaIntegracion.ESPERANDO_EJECUCION_EN_CURSO, 0);
+            ResultadoIntegracion resultado = esperar(origen, existente);
+            progreso.resultado(resultado.guardadas(), resultado.rechazadas(), resultado.fallidas());
+            return resultado;
+        }
+
+        try {
+            ResultadoIntegracion resultado = ejecucion.ejecutar();
+            propia.complete(resultado);
+            return resultado;
+        } catch (Throwable e) {
+            // También los Error (OutOfMemoryError...): quien ya espera a esta ejecución no debe quedarse bloqueado
+            propia.completeExceptionally(e);
+            throw e;
+        } finally {
+            enCurso.remove(origen, propia);
+        }
+    }
+
+    private static ResultadoIntegracion esperar(IntegrationService.TipoOrigen origen,
+                                                CompletableFuture<ResultadoIntegracion> ejecucion) throws IOException {
+        try {
+            return ejecucion.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrumpida la espera a la integración en curso de " + origen);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            throw new IOException("La integración en curso de " + origen + " ha fallado: " + causa.getMessage(), causa);
+        }
+    }
+
+    @FunctionalInterface
+    public interface EjecucionOrigen {
+        ResultadoIntegracion ejecutar() throws IOException;
+    }
+}
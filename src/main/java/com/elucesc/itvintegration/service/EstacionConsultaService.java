@@ -0,0 +1,59 @@
+package com.elucesc.itvintegration.service;
+
+import com.elucesc.itvintegration.cache.CatalogoCache;
+import com.elucesc.itvintegration.dto.consulta.EstacionResumen;
+import com.elucesc.itvintegration.dto.consulta.PaginaEstaciones;
+import com.elucesc.itvintegration.model.TipoEstacion;
+import com.elucesc.itvintegration.repository.EstacionConsultaRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Consultas de lectura sobre el catálogo de estaciones integrado (a través de la caché del catálogo)
+ */
+@Service
+public class EstacionConsultaService {
+
+    private final EstacionConsultaRepository consultaRepository;
+    private final CatalogoCache catalogoCache;
+
+    @Value("${api.estaciones.max-page-size:500}")
+    private int tamanoMaximoPagina;
+
+    public EstacionConsultaService(EstacionConsultaRepository consultaRepository, CatalogoCache catalogoCache) {
+        this.consultaRepository = consultaRepository;
+        this.catalogoCache = catalogoCache;
+    }
+
+    /**
+     * Devuelve una página de estaciones a partir del cursor 'despues' (código de la última estación vista)
+     * Sin transacción propia: si la página está en caché no se abre conexión con la BD
+     */
+    public PaginaEstaciones buscar(Long codProvincia, Long codLocalidad, TipoEstacion tipo, Long codigoPostal,
+                                   Long despues, int tamanoPagina) {
+        int tamano = Math.max(1, Math.min(tamanoPagina, tamanoMaximoPagina));
+        long cursor = despues != null ? despues : 0L;
+
+        String consulta = "estaciones:" + codProvincia + ":" + codLocalidad + ":" + tipo + ":" + codigoPostal
+                + ":" + cursor + ":" + tamano;
+        return catalogoCache.obtener(consulta,
+                () -> cargarPagina(codProvincia, codLocalidad, tipo, codigoPostal, cursor, tamano),
+                pagina -> CatalogoCache.estimarBytes(pagina.getEstaciones(), CatalogoCache.BYTES_POR_ESTACION));
+    }
+
+    private PaginaEstaciones cargarPagina(Long codProvincia, Long codLocalidad, TipoEstacion tipo, Long codigoPostal,
+                                          long cursor, int tamano) {
+        // Se pide una fila de más para saber si hay página siguiente sin hacer un COUNT
+        List<EstacionResumen> estaciones = consultaRepository.buscarResumenes(
+                cursor, codProvincia, codLocalidad, tipo, codigoPostal, tamano + 1);
+
+        Long siguiente = null;
+        if (estaciones.size() > tamano) {
+            estaciones = estaciones.subList(0, tamano);
+            siguiente = estaciones.get(tamano - 1).getCodEstacion();
+        }
+        return new PaginaEstaciones(estaciones, siguiente);
+    }
+}
@@ -15,74 +15,81 @@ import java.util.List;
  * 2. EXCEPCIÓN: Estaciones MÓVILES o OTROS de Valencia pueden tener estos campos nulos
  * 3. CP debe tener formato español válido (01000-52999)
  * 4. Localidad es OBLIGATORIA solo para estaciones FIJAS
+ *
+ * Las reglas están precompiladas (ver ErrorValidacion) y comprobar devuelve una máscara de bits con los
+ * errores: validar una estación correcta no crea ningún objeto. Los mensajes legibles solo se generan
+ * cuando hace falta un informe (mensajes, generarInforme). Sin estado: se puede usar desde varios hilos
  */
 @Slf4j
 @Component
 public class EstacionValidador {
 
+    // values() copia el array en cada llamada: se recorre siempre esta copia
+    private static final ErrorValidacion[] REGLAS = ErrorValidacion.values();
+
+    // Errores que intentarCorregir sabe corregir
+    private static final int CORREGIBLES = ErrorValidacion.COORDENADAS_FUERA_DE_RANGO.bit();
+
     /**
-     * Valida una estación y retorna la lista de errores encontrados
-     * @return Lista de errores (vacía si no hay errores)
+     * Comprueba todas las reglas sobre la estación
+     * @return Máscara de bits de ErrorValidacion (0 si no hay errores)
      */
-    public List<String> validar(Estacion estacion) {
-        List<String> errores = new ArrayList<>();
-
+    public int comprobar(Estacion estacion) {
         // Detectar si es estación móvil/otros de Valencia (ÚNICA EXCEPCIÓN permitida)
         boolean esExcepcionValenciana = esEstacionExcepcionValenciana(estacion);
 
-        // 1. VALIDACIÓN DE COORDENADAS (OBLIGATORIAS excepto móviles/otros de Valencia)
-        if (estacion.getLatitud() == null || estacion.getLongitud() == null) {
-            if (!esExcepcionValenciana) {
-                errores.add("Coordenadas nulas (obligatorias). Latitud: " + estacion.getLatitud() +
-                        ", Longitud: " + estacion.getLongitud());
-            }
-        } else {
-            // Si existen coordenadas, validar que sean correctas
-            if (!esCoordenadaValida(estacion.getLatitud(), estacion.getLongitud())) {
-                errores.add(String.format("Coordenadas fuera de rango válido (lat=%.6f, lon=%.6f)",
-                        estacion.getLatitud(), estacion.getLongitud()));
-            }
-        }
-
-        // 2. VALIDACIÓN DE CÓDIGO POSTAL (OBLIGATORIO excepto móviles/otros de Valencia)
-        if (estacion.getCodigoPostal() == null) {
-            if (!esExcepcionValenciana) {
-                errores.add("Código postal nulo (obligatorio)");
-            }
-        } else {
-            // Validar formato del CP
-            if (!validarCodigoPostal(estacion.getCodigoPostal())) {
-                errores.add("Código postal inválido: " + estacion.getCodigoPostal() +
-                        " (debe ser 5 dígitos entre 01000-52999)");
+        int errores = 0;
+        for (ErrorValidacion regla : REGLAS) {
+            if (regla.falla(estacion, esExcepcionValenciana)) {
+                errores |= regla.bit();
             }
         }
+        return errores;
+    }
 
-        // 3. VALIDACIÓN DE CONTACTO (OBLIGATORIO excepto móviles/otros de Valencia)
-        if (estacion.getContacto() == null || estacion.getContacto().trim().isEmpty()) {
-            if (!esExcepcionValenciana) {
-                errores.add("Contacto nulo o vacío (obligatorio)");
-            }
-        }
+    /**
+     * Valida una estación y retorna la lista de errores encontrados
+     * @return Lista de errores (vacía si no hay errores)
+     */
+    public List<String> validar(Estacion estacion) {
+        return mensajes(estacion, comprobar(estacion));
+    }
 
-        // 4. VALIDACIÓN DE VINCULACIÓN CON LOCALIDAD (OBLIGATORIO solo para estaciones fijas)
-        if (estacion.getCodLocalidad() == null) {
-            // Solo es obligatorio para estaciones fijas
-            if (estacion.getTipo() == TipoEstacion.ESTACION_FIJA) {
-                errores.add("Estación sin vincular a ninguna localidad (cod_localidad nulo)");
+    /**
+     * Mensajes legibles de los errores de la máscara, con los valores actuales de la estación
+     */
+    public List<String> mensajes(Estacion estacion, int errores) {
+        List<String> mensajes = new ArrayList<>(Integer.bitCount(errores));
+        for (ErrorValidacion regla : REGLAS) {
+            if (regla.esta(errores)) {
+                mensajes.add(regla.mensaje(estacion));
             }
-            // Las estaciones móviles y otros no requieren localidad específica
         }
+        return mensajes;
+    }
 
-        // 5. VALIDACIÓN DE CAMPOS BÁSICOS OBLIGATORIOS
-        if (estacion.getNombre() == null || estacion.getNombre().trim().isEmpty()) {
-            errores.add("Nombre de estación vacío");
-        }
+    /**
+     * Indica si algún error de la máscara se puede corregir automáticamente
+     */
+    public boolean esCorregible(int errores) {
+        return (errores & CORREGIBLES) != 0;
+    }
 
-        if (estacion.getTipo() == null) {
-            errores.add("Tipo de estación no especificado");
+    /**
+     * Intenta corregir automáticamente algunos errores comunes (modifica la estación)
+     * IMPORTANTE: Solo corrige errores obvios, no inventa datos
+     * @return Máscara de los errores que quedan; solo se vuelve a comprobar si se ha corregido algo
+     */
+    public int intentarCorregir(Estacion estacion, int errores) {
+        if (!esCorregible(errores)) {
+            // NO intentar corregir campos nulos - si son obligatorios y están nulos, rechazar
+            // NO intentar corregir CPs inválidos - si el formato es incorrecto, rechazar
+            return errores;
         }
 
-        return errores;
+        // Corregir coordenadas claramente erróneas (ej: 412.xxx → rechazar)
+        corregirCoordenadas(estacion);
+        return comprobar(estacion);
     }
 
     /**
@@ -106,9 +113,7 @@ public class EstacionValidador {
     private boolean esDeValencia(Estacion estacion) {
         // 1. Intentar detectar por código postal si existe
         if (estacion.getCodigoPostal() != null) {
-            String cp = String.format("%05d", estacion.getCodigoPostal());
-            String prefijo = cp.substring(0, 2);
-            int provincia = Integer.parseInt(prefijo);
+            int provincia = prefijoProvincia(estacion.getCodigoPostal());
 
             // Provincias de Valencia: 03 (Alicante), 12 (Castellón), 46 (Valencia)
             if (provincia == 3 || provincia == 12 || provincia == 46) {
@@ -122,15 +127,8 @@ public class EstacionValidador {
             return true;
         }
 
-        // 3. Detectar por dirección/nombre
-        String texto = (estacion.getDireccion() != null ? estacion.getDireccion() : "") + " " +
-                (estacion.getNombre() != null ? estacion.getNombre() : "");
-        texto = texto.toLowerCase();
-
-        boolean detectadaPorTexto = texto.contains("valencia") ||
-                texto.contains("alicante") ||
-                texto.contains("castellón") ||
-                texto.contains("castellon");
+        // 3. Detectar por dirección/nombre (sin concatenar ni pasar a minúsculas)
+        boolean detectadaPorTexto = mencionaValencia(estacion.getDireccion()) || mencionaValencia(estacion.getNombre());
 
         if (detectadaPorTexto) {
             log.debug("Estación detectada como valenciana por texto: {}", estacion.getNombre());
@@ -139,112 +137,87 @@ public class EstacionValidador {
         return detectadaPorTexto;
     }
 
-    /**
-     * Valida que las coordenadas estén dentro de rangos válidos
-     * - Rango global: lat [-90, 90], lon [-180, 180]
-     * - Rango España (con margen): lat [27, 44], lon [-19, 5]
-     */
-    private boolean esCoordenadaValida(Double lat, Double lon) {
-        if (lat == null || lon == null) {
-            return false;
-        }
-
-        // Validación de rangos globales (CRÍTICO)
-        if (lat < -90 || lat > 90) {
-            log.error("⚠️ Latitud {} fuera del rango global [-90, 90]", lat);
-            return false;
-        }
+    private static boolean mencionaValencia(String texto) {
+        return contieneSinMayusculas(texto, "valencia") ||
+                contieneSinMayusculas(texto, "alicante") ||
+                contieneSinMayusculas(texto, "castellón") ||
+                contieneSinMayusculas(texto, "castellon");
+    }
 
-        if (lon < -180 || lon > 180) {
-            log.error("⚠️ Longitud {} fuera del rango global [-180, 180]", lon);
+    private static boolean contieneSinMayusculas(String texto, String buscado) {
+        if (texto == null) {
             return false;
         }
-
-        // Validación de rango para España (con margen para Canarias, etc.)
-        if (lat < 27 || lat > 44) {
-            log.warn("⚠️ Latitud {} fuera del rango típico de España (27-44)", lat);
-            // No rechazar, solo advertir
-        }
-
-        if (lon < -19 || lon > 5) {
-            log.warn("⚠️ Longitud {} fuera del rango típico de España (-19 a 5)", lon);
-            // No rechazar, solo advertir
+        for (int i = 0; i + buscado.length() <= texto.length(); i++) {
+            if (texto.regionMatches(true, i, buscado, 0, buscado.length())) {
+                return true;
+            }
         }
-
-        return true;
+        return false;
     }
 
     /**
-     * Valida que el código postal tenga formato español correcto
-     * CP español: 5 dígitos (01000 - 52999)
+     * Dos primeras cifras del CP escrito con 5 dígitos (con ceros a la izquierda), o -1 si es negativo
      */
-    private boolean validarCodigoPostal(Long codigoPostal) {
-        if (codigoPostal == null) {
-            return false;
-        }
-
-        // Validar que no sea negativo
+    private static int prefijoProvincia(long codigoPostal) {
         if (codigoPostal < 0) {
-            log.error("⚠️ Código postal negativo: {}", codigoPostal);
-            return false;
+            return -1;
         }
-
-        // Formatear con ceros a la izquierda
-        String cp = String.format("%05d", codigoPostal);
-
-        // Validar longitud (debe ser exactamente 5 dígitos)
-        if (cp.length() != 5) {
-            log.error("⚠️ Código postal con longitud incorrecta: {} (formateado: {})", codigoPostal, cp);
-            return false;
+        long prefijo = codigoPostal < 100_000 ? codigoPostal / 1000 : codigoPostal;
+        while (prefijo >= 100) {
+            prefijo /= 10;
         }
+        return (int) prefijo;
+    }
 
-        // Validar rango de provincia (01 a 52)
-        try {
-            int provincia = Integer.parseInt(cp.substring(0, 2));
-            if (provincia < 1 || provincia > 52) {
-                log.error("⚠️ Código de provincia inválido: {} (CP: {})", provincia, cp);
-                return false;
-            }
-        } catch (NumberFormatException e) {
-            log.error("⚠️ Error parseando código de provincia del CP: {}", cp);
+    /**
+     * Valida que las coordenadas estén dentro de rangos válidos
+     * - Rango global: lat [-90, 90], lon [-180, 180]
+     * - Rango España (con margen): lat [27, 44], lon [-19, 5]
+     */
+    private static boolean esCoordenadaValida(double lat, double lon) {
+        // Validación de rangos globales (CRÍTICO)
+        if (lat < -90 || lat > 90 || lon < -180 || lon > 180) {
             return false;
         }
 
-        // Validar que el CP completo esté en rango válido
-        long cpNumerico = Long.parseLong(cp);
-        if (cpNumerico < 1000 || cpNumerico > 52999) {
-            log.error("⚠️ Código postal fuera del rango español (01000-52999): {}", cp);
-            return false;
+        // Validación de rango para España (con margen para Canarias, etc.): no rechazar, solo advertir
+        if (lat < 27 || lat > 44 || lon < -19 || lon > 5) {
+            log.warn("⚠️ Coordenadas ({}, {}) fuera del rango típico de España (lat 27-44, lon -19 a 5)", lat, lon);
         }
 
         return true;
     }
 
     /**
-     * Intenta corregir automáticamente algunos errores comunes
-     * IMPORTANTE: Solo corrige errores obvios, no inventa datos
+     * Valida que el código postal tenga formato español correcto
+     * CP español: 5 dígitos (01000 - 52999), es decir provincia 01-52 y número dentro de su rango
      */
-    public Estacion intentarCorregir(Estacion estacion, List<String> errores) {
-        Estacion corregida = estacion;
+    private static boolean validarCodigoPostal(long codigoPostal) {
+        return codigoPostal >= 1000 && codigoPostal <= 52999;
+    }
 
-        for (String error : errores) {
-            // Corregir coordenadas claramente erróneas (ej: 412.xxx → rechazar)
-            if (error.contains("Coordenadas fuera de rango")) {
-                corregida = corregirCoordenadas(corregida);
+    /**
+     * Mismo criterio que trim().isEmpty() (caracteres <= ' '), no isBlank(): isBlank también trata como
+     * vacíos los espacios Unicode y cambiaría qué estaciones se rechazan
+     */
+    private static boolean esVacio(String texto) {
+        if (texto == null) {
+            return true;
+        }
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) > ' ') {
+                return false;
             }
-
-            // NO intentar corregir campos nulos - si son obligatorios y están nulos, rechazar
-            // NO intentar corregir CPs inválidos - si el formato es incorrecto, rechazar
         }
-
-        return corregida;
+        return true;
     }
 
     /**
      * Corrige coordenadas obviamente erróneas estableciéndolas a null
      * Si las coordenadas son inválidas y la estación NO es excepción valenciana, será rechazada
      */
-    private Estacion corregirCoordenadas(Estacion estacion) {
+    private void corregirCoordenadas(Estacion estacion) {
         Double lat = estacion.getLatitud();
         Double lon = estacion.getLongitud();
 
@@ -266,14 +239,12 @@ public class EstacionValidador {
             estacion.setLatitud(null);
             estacion.setLongitud(null);
         }
-
-        return estacion;
     }
 
     /**
      * Genera un informe de validación legible
      */
-    public String generarInforme(Estacion estacion, List<String> errores) {
+    public String generarInforme(Estacion estacion, int errores) {
         StringBuilder sb = new StringBuilder();
         sb.append("\n❌ ESTACIÓN DEFECTUOSA: ").append(estacion.getNombre());
         sb.append("\n   Tipo: ").append(estacion.getTipo());
@@ -290,12 +261,128 @@ public class EstacionValidador {
         sb.append("\n   Contacto: ").append(estacion.getContacto());
         sb.append("\n   Cod Localidad: ").append(estacion.getCodLocalidad());
 
-        sb.append("\n   Errores encontrados (").append(errores.size()).append("):");
+        List<String> mensajes = mensajes(estacion, errores);
+        sb.append("\n   Errores encontrados (").append(mensajes.size()).append("):");
 
-        for (int i = 0; i < errores.size(); i++) {
-            sb.append("\n     ").append(i + 1).append(". ").append(errores.get(i));
+        for (int i = 0; i < mensajes.size(); i++) {
+            sb.append("\n     ").append(i + 1).append(". ").append(mensajes.get(i));
         }
 
         return sb.toString();
     }
-}
\ No newline at end of file
+
+    /**
+     * Reglas de validación. Cada una ocupa un bit de la máscara que devuelve comprobar
+     */
+    public enum ErrorValidacion {
+        // 1. Coordenadas (obligatorias excepto móviles/otros de Valencia) y, si existen, dentro de rango
+        COORDENADAS_NULAS {
+            @Override
+            boolean falla(Estacion e, boolean excepcionValenciana) {
+                return !excepcionValenciana && (e.getLatitud() == null || e.getLongitud() == null);
+            }
+
+            @Override
+            String mensaje(Estacion e) {
+                return "Coordenadas nulas (obligatorias). Latitud: " + e.getLatitud() +
+                        ", Longitud: " + e.getLongitud();
+            }
+        },
+        COORDENADAS_FUERA_DE_RANGO {
+            @Override
+            boolean falla(Estacion e, boolean excepcionValenciana) {
+                return e.getLatitud() != null && e.getLongitud() != null
+                        && !esCoordenadaValida(e.getLatitud(), e.getLongitud());
+            }
+
+            @Override
+            String mensaje(Estacion e) {
+                return String.format("Coordenadas fuera de rango válido (lat=%.6f, lon=%.6f)",
+                        e.getLatitud(), e.getLongitud());
+            }
+        },
+        // 2. Código postal (obligatorio excepto móviles/otros de Valencia) con formato válido
+        CODIGO_POSTAL_NULO {
+            @Override
+            boolean falla(Estacion e, boolean excepcionValenciana) {
+                return !excepcionValenciana && e.getCodigoPostal() == null;
+            }
+
+            @Override
+            String mensaje(Estacion e) {
+                return "Código postal nulo (obligatorio)";
+            }
+        },
+        CODIGO_POSTAL_INVALIDO {
+            @Override
+            boolean falla(Estacion e, boolean excepcionValenciana) {
+                return e.getCodigoPostal() != null && !validarCodigoPostal(e.getCodigoPostal());
+            }
+
+            @Override
+            String mensaje(Estacion e) {
+                return "Código postal inválido: " + e.getCodigoPostal() +
+                        " (debe ser 5 dígitos entre 01000-52999)";
+            }
+        },
+        // 3. Contacto (obligatorio excepto móviles/otros de Valencia)
+        CONTACTO_VACIO {
+            @Override
+            boolean falla(Estacion e, boolean excepcionValenciana) {
+                return !excepcionValenciana && esVacio(e.getContacto());
+            }
+
+            @Override
+            String mensaje(Estacion e) {
+                return "Contacto nulo o vacío (obligatorio)";
+            }
+        },
+        // 4. Vinculación con localidad (obligatoria solo para estaciones fijas)
+        SIN_LOCALIDAD {
+            @Override
+            boolean falla(Estacion e, boolean excepcionValenciana) {
+                return e.getCodLocalidad() == null && e.getTipo() == TipoEstacion.ESTACION_FIJA;
+            }
+
+            @Override
+            String mensaje(Estacion e) {
+                return "Estación sin vincular a ninguna localidad (cod_localidad nulo)";
+            }
+        },
+        // 5. Campos básicos obligatorios
+        NOMBRE_VACIO {
+            @Override
+            boolean falla(Estacion e, boolean excepcionValenciana) {
+                return esVacio(e.getNombre());
+            }
+
+            @Override
+            String mensaje(Estacion e) {
+                return "Nombre de estación vacío";
+            }
+        },
+        TIPO_NULO {
+            @Override
+            boolean falla(Estacion e, boolean excepcionValenciana) {
+                return e.getTipo() == null;
+            }
+
+            @Override
+            String mensaje(Estacion e) {
+                return "Tipo de estación no especificado";
+            }
+        };
+
+        abstract boolean falla(Estacion e, boolean excepcionValenciana);
+
+        abstract String mensaje(Estacion e);
+
+        public int bit() {
+            return 1 << ordinal();
+        }
+
+        public boolean esta(int errores) {
+            return (errores & bit()) != 0;
+        }
+    }
+}
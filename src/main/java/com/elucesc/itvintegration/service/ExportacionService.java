@@ -0,0 +1,297 @@
+package com.elucesc.itvintegration.service;
+
+import com.elucesc.itvintegration.repository.EstacionExportRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Exportación del catálogo de estaciones en streaming (NDJSON, CSV o GeoJSON)
+ * Cada fila se escribe en la salida según llega del cursor, así que la memoria usada no depende
+ * del tamaño del catálogo y los primeros bytes salen en cuanto llega la primera fila
+ */
+@Slf4j
+@Service
+public class ExportacionService {
+
+    // Cada cuántas filas se vacía el buffer hacia el cliente
+    private static final int FILAS_POR_FLUSH = 500;
+
+    private static final String[] COLUMNAS = {"cod_estacion", "nombre", "tipo", "direccion", "codigo_postal",
+            "latitud", "longitud", "descripcion", "horario", "contacto", "url", "localidad", "provincia"};
+
+    private final EstacionExportRepository exportRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    public ExportacionService(EstacionExportRepository exportRepository,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager) {
+        this.exportRepository = exportRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Escribe el catálogo completo en la salida (no la cierra)
+     */
+    public void exportar(Formato formato, OutputStream salida) {
+        long inicio = System.currentTimeMillis();
+        EscritorFilas escritor = switch (formato) {
+            case NDJSON -> new EscritorNdjson(salida);
+            case CSV -> new EscritorCsv(salida);
+            case GEOJSON -> new EscritorGeoJson(salida);
+        };
+
+        int[] filas = {0};
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                escritor.inicio();
+                exportRepository.recorrer(rs -> {
+                    try {
+                        escritor.fila(rs);
+                        if (++filas[0] % FILAS_POR_FLUSH == 1) {
+                            escritor.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                escritor.fin();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        log.info("Exportadas {} estaciones en {} en {} ms", filas[0], formato, System.currentTimeMillis() - inicio);
+    }
+
+    public enum Formato {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv"),
+        GEOJSON("application/geo+json", "geojson");
+
+        private final String tipoContenido;
+        private final String extension;
+
+        Formato(String tipoContenido, String extension) {
+            this.tipoContenido = tipoContenido;
+            this.extension = extension;
+        }
+
+        public String getTipoContenido() {
+            return tipoContenido;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Formato fromString(String texto) {
+            for (Formato formato : values()) {
+                if (formato.name().equalsIgnoreCase(texto) || formato.extension.equalsIgnoreCase(texto)) {
+                    return formato;
+                }
+            }
+            throw new IllegalArgumentException("Formato de exportación no soportado: " + texto);
+        }
+    }
+
+    private interface EscritorFilas {
+        void inicio() throws IOException;
+
+        void fila(ResultSet rs) throws SQLException, IOException;
+
+        void fin() throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    /**
+     * Un objeto JSON por línea
+     */
+    private class EscritorNdjson implements EscritorFilas {
+        private final OutputStream salida;
+        private JsonGenerator generador;
+
+        EscritorNdjson(OutputStream salida) {
+            this.salida = salida;
+        }
+
+        @Override
+        public void inicio() throws IOException {
+            generador = crearGenerador(salida);
+            // Sin el espacio que Jackson pone entre valores raíz: el separador es el salto de línea
+            generador.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void fila(ResultSet rs) throws SQLException, IOException {
+            generador.writeStartObject();
+            escribirPropiedades(generador, rs);
+            generador.writeEndObject();
+            generador.writeRaw('\n');
+        }
+
+        @Override
+        public void fin() throws IOException {
+            generador.close();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generador.flush();
+        }
+    }
+
+    /**
+     * FeatureCollection con un Point por estación (geometry null si no tiene coordenadas)
+     */
+    private class EscritorGeoJson implements EscritorFilas {
+        private final OutputStream salida;
+        private JsonGenerator generador;
+
+        EscritorGeoJson(OutputStream salida) {
+            this.salida = salida;
+        }
+
+        @Override
+        public void inicio() throws IOException {
+            generador = crearGenerador(salida);
+            generador.writeStartObject();
+            generador.writeStringField("type", "FeatureCollection");
+            generador.writeArrayFieldStart("features");
+        }
+
+        @Override
+        public void fila(ResultSet rs) throws SQLException, IOException {
+            generador.writeStartObject();
+            generador.writeStringField("type", "Feature");
+
+            double latitud = rs.getDouble("latitud");
+            boolean sinLatitud = rs.wasNull();
+            double longitud = rs.getDouble("longitud");
+            if (sinLatitud || rs.wasNull()) {
+                generador.writeNullField("geometry");
+            } else {
+                generador.writeObjectFieldStart("geometry");
+                generador.writeStringField("type", "Point");
+                generador.writeArrayFieldStart("coordinates");
+                generador.writeNumber(longitud);
+                generador.writeNumber(latitud);
+                generador.writeEndArray();
+                generador.writeEndObject();
+            }
+
+            generador.writeObjectFieldStart("properties");
+            escribirPropiedades(generador, rs);
+            generador.writeEndObject();
+            generador.writeEndObject();
+        }
+
+        @Override
+        public void fin() throws IOException {
+            generador.writeEndArray();
+            generador.writeEndObject();
+            generador.close();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generador.flush();
+        }
+    }
+
+    /**
+     * CSV (RFC 4180) con cabecera; los campos con separador, comillas o saltos de línea van entre comillas
+     */
+    private static class EscritorCsv implements EscritorFilas {
+        private final Writer escritor;
+
+        EscritorCsv(OutputStream salida) {
+            this.escritor = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void inicio() throws IOException {
+            escritor.write(String.join(",", COLUMNAS));
+            escritor.write("\r\n");
+        }
+
+        @Override
+        public void fila(ResultSet rs) throws SQLException, IOException {
+            for (int i = 0; i < COLUMNAS.length; i++) {
+                if (i > 0) {
+                    escritor.write(',');
+                }
+                Object valor = rs.getObject(COLUMNAS[i]);
+                if (valor != null) {
+                    escribirCampo(valor.toString());
+                }
+            }
+            escritor.write("\r\n");
+        }
+
+        @Override
+        public void fin() throws IOException {
+            escritor.flush();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            escritor.flush();
+        }
+
+        private void escribirCampo(String valor) throws IOException {
+            boolean comillas = valor.indexOf(',') >= 0 || valor.indexOf('"') >= 0
+                    || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0;
+            if (!comillas) {
+                escritor.write(valor);
+                return;
+            }
+            escritor.write('"');
+            escritor.write(valor.replace("\"", "\"\""));
+            escritor.write('"');
+        }
+    }
+
+    private JsonGenerator crearGenerador(OutputStream salida) throws IOException {
+        JsonGenerator generador = objectMapper.getFactory().createGenerator(salida);
+        // La salida es del contenedor: el generador no debe cerrarla
+        generador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return generador;
+    }
+
+    private static void escribirPropiedades(JsonGenerator generador, ResultSet rs) throws SQLException, IOException {
+        for (String columna : COLUMNAS) {
+            Object valor = rs.getObject(columna);
+            if (valor == null) {
+                continue;
+            }
+            generador.writeFieldName(columna);
+            if (valor instanceof Number numero) {
+                if (numero instanceof Double || numero instanceof Float) {
+                    generador.writeNumber(numero.doubleValue());
+                } else {
+                    generador.writeNumber(numero.longValue());
+                }
+            } else {
+                generador.writeString(valor.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.elucesc.itvintegration.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checkpoint de geocoding de una ejecución concreta (un archivo de origen)
+ * Cada registro geocodificado se añade como una línea JSON al final del fichero y se fuerza a disco,
+ * de modo que si el proceso muere a mitad la siguiente ejecución con el mismo archivo retoma desde ahí
+ */
+@Slf4j
+public class GeocodingCheckpoint {
+
+    private final String idEjecucion;
+    private final Path fichero;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Double[]> resultados = new HashMap<>();
+    private FileChannel canal;
+
+    private GeocodingCheckpoint(String idEjecucion, Path fichero, ObjectMapper objectMapper) {
+        this.idEjecucion = idEjecucion;
+        this.fichero = fichero;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Abre (o retoma) el checkpoint guardado en el fichero indicado
+     */
+    static GeocodingCheckpoint abrir(String idEjecucion, Path fichero, ObjectMapper objectMapper) throws IOException {
+        GeocodingCheckpoint checkpoint = new GeocodingCheckpoint(idEjecucion, fichero, objectMapper);
+
+        if (Files.exists(fichero)) {
+            checkpoint.cargar();
+        }
+
+        checkpoint.canal = FileChannel.open(fichero,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return checkpoint;
+    }
+
+    /**
+     * Checkpoint que no persiste nada (para extractores creados sin almacén de checkpoints)
+     */
+    public static GeocodingCheckpoint enMemoria() {
+        return new GeocodingCheckpoint("memoria", null, null);
+    }
+
+    /**
+     * Devuelve las coordenadas [longitud, latitud] ya obtenidas para un registro, o null si está pendiente
+     */
+    public synchronized Double[] obtener(String clave) {
+        return resultados.get(clave);
+    }
+
+    /**
+     * Registra el resultado de un registro y lo fuerza a disco
+     */
+    public synchronized void registrar(String clave, Double[] coordenadas) {
+        resultados.put(clave, coordenadas);
+
+        if (canal == null) {
+            return;
+        }
+
+        try {
+            ObjectNode linea = objectMapper.createObjectNode();
+            linea.put("clave", clave);
+            linea.put("lon", coordenadas[0]);
+            linea.put("lat", coordenadas[1]);
+
+            byte[] bytes = (objectMapper.writeValueAsString(linea) + "\n").getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            canal.force(false);
+        } catch (IOException e) {
+            // Un fallo del checkpoint no debe tumbar la integración: solo se pierde la reanudación
+            log.warn("⚠️ No se pudo escribir el checkpoint {}: {}", fichero, e.getMessage());
+        }
+    }
+
+    /**
+     * Número de registros ya resueltos (incluidos los recuperados de una ejecución anterior)
+     */
+    public synchronized int registrosCompletados() {
+        return resultados.size();
+    }
+
+    /**
+     * La ejecución ha terminado y sus datos están confirmados en BD: el checkpoint ya no hace falta
+     */
+    public synchronized void completar() {
+        cerrar();
+        if (fichero == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(fichero);
+            log.info("Checkpoint de geocoding {} completado y eliminado", idEjecucion);
+        } catch (IOException e) {
+            log.warn("⚠️ No se pudo eliminar el checkpoint {}: {}", fichero, e.getMessage());
+        }
+    }
+
+    /**
+     * Cierra el fichero conservando su contenido para una ejecución posterior
+     */
+    public synchronized void cerrar() {
+        if (canal == null) {
+            return;
+        }
+        try {
+            canal.close();
+        } catch (IOException e) {
+            log.warn("⚠️ Error cerrando el checkpoint {}: {}", fichero, e.getMessage());
+        }
+        canal = null;
+    }
+
+    public String getIdEjecucion() {
+        return idEjecucion;
+    }
+
+    private void cargar() throws IOException {
+        List<String> lineas = Files.readAllLines(fichero, StandardCharsets.UTF_8);
+
+        for (String linea : lineas) {
+            if (linea.isBlank()) {
+                continue;
+            }
+            try {
+                JsonNode nodo = objectMapper.readTree(linea);
+                Double lon = nodo.path("lon").isNumber() ? nodo.get("lon").asDouble() : null;
+                Double lat = nodo.path("lat").isNumber() ? nodo.get("lat").asDouble() : null;
+                resultados.put(nodo.get("clave").asText(), new Double[]{lon, lat});
+            } catch (Exception e) {
+                // Última línea a medio escribir si el proceso murió durante la escritura
+                log.warn("Línea de checkpoint ignorada en {}: {}", fichero, e.getMessage());
+            }
+        }
+
+        log.info("♻️ Retomando checkpoint de geocoding {}: {} registros ya geocodificados",
+                idEjecucion, resultados.size());
+    }
+}
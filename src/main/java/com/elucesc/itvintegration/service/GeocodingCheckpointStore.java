@@ -0,0 +1,96 @@
+package com.elucesc.itvintegration.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Almacén de checkpoints de geocoding en disco
+ * El identificador de ejecución se deriva del origen y del hash del contenido del archivo,
+ * así que relanzar la integración del mismo archivo retoma el checkpoint pendiente
+ * Al empezar una ejecución nueva (archivo con otro contenido) se borran los checkpoints anteriores
+ * del mismo origen: ya no se van a retomar y, si no, se acumularían en el directorio
+ */
+@Slf4j
+@Component
+public class GeocodingCheckpointStore {
+
+    private static final String EXTENSION = ".ndjson";
+    // 8 bytes del SHA-256 en hexadecimal (ver hash)
+    private static final Pattern FORMATO_HASH = Pattern.compile("[0-9a-f]{16}");
+
+    private final Path directorio;
+    private final ObjectMapper objectMapper;
+
+    public GeocodingCheckpointStore(
+            @Value("${integration.checkpoints.dir:checkpoints}") String directorio,
+            ObjectMapper objectMapper) {
+        this.directorio = Paths.get(directorio);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Abre el checkpoint de la ejecución correspondiente a este origen y contenido.
+     * Si no se puede usar el disco se devuelve un checkpoint en memoria (la integración sigue sin reanudación)
+     */
+    public GeocodingCheckpoint abrir(String origen, String contenido) {
+        String prefijo = origen.toLowerCase() + "-";
+        String idEjecucion = prefijo + hash(contenido);
+
+        try {
+            Files.createDirectories(directorio);
+            Path fichero = directorio.resolve(idEjecucion + EXTENSION);
+            if (!Files.exists(fichero)) {
+                borrarAnteriores(prefijo);
+            }
+            return GeocodingCheckpoint.abrir(idEjecucion, fichero, objectMapper);
+        } catch (IOException e) {
+            log.warn("⚠️ No se pudo abrir el checkpoint {} en {}: {}. Se continúa sin reanudación",
+                    idEjecucion, directorio, e.getMessage());
+            return GeocodingCheckpoint.enMemoria();
+        }
+    }
+
+    /**
+     * Borra los checkpoints del origen ('<origen>-<hash>.ndjson'). Si alguno no se puede borrar solo se avisa
+     */
+    private void borrarAnteriores(String prefijo) throws IOException {
+        try (DirectoryStream<Path> ficheros = Files.newDirectoryStream(directorio, prefijo + "*" + EXTENSION)) {
+            for (Path fichero : ficheros) {
+                String hash = fichero.getFileName().toString();
+                hash = hash.substring(prefijo.length(), hash.length() - EXTENSION.length());
+                if (!FORMATO_HASH.matcher(hash).matches()) {
+                    continue;
+                }
+                try {
+                    Files.deleteIfExists(fichero);
+                    log.info("Checkpoint de geocoding anterior {} eliminado", fichero.getFileName());
+                } catch (IOException e) {
+                    log.warn("⚠️ No se pudo eliminar el checkpoint anterior {}: {}", fichero, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private String hash(String contenido) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] bytes = digest.digest(contenido.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(bytes, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.elucesc.itvintegration.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de circuit breakers por proveedor de geocoding (selenium, opencage...)
+ * Todos comparten la misma configuración definida en application.yml
+ */
+@Component
+public class GeocodingHealthRegistry {
+
+    public static final String SELENIUM = "selenium";
+    public static final String OPENCAGE = "opencage";
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    private final int tamanoVentana;
+    private final int llamadasMinimas;
+    private final double umbralFallos;
+    private final Duration duracionApertura;
+    private final int sondasSemiAbierto;
+
+    public GeocodingHealthRegistry(
+            @Value("${geocoding.circuit-breaker.window-size:10}") int tamanoVentana,
+            @Value("${geocoding.circuit-breaker.minimum-calls:5}") int llamadasMinimas,
+            @Value("${geocoding.circuit-breaker.failure-rate-threshold:50}") double umbralFallos,
+            @Value("${geocoding.circuit-breaker.open-duration-seconds:60}") long segundosApertura,
+            @Value("${geocoding.circuit-breaker.half-open-probes:2}") int sondasSemiAbierto) {
+        this.tamanoVentana = tamanoVentana;
+        this.llamadasMinimas = llamadasMinimas;
+        this.umbralFallos = umbralFallos;
+        this.duracionApertura = Duration.ofSeconds(segundosApertura);
+        this.sondasSemiAbierto = sondasSemiAbierto;
+    }
+
+    /**
+     * Obtiene (o crea) el circuit breaker de un proveedor
+     */
+    public CircuitBreaker obtener(String proveedor) {
+        return breakers.computeIfAbsent(proveedor, nombre -> new CircuitBreaker(
+                nombre, tamanoVentana, llamadasMinimas, umbralFallos, duracionApertura, sondasSemiAbierto));
+    }
+
+    /**
+     * Estado de salud de todos los proveedores registrados
+     */
+    public Map<String, Object> estadoProveedores() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        breakers.values().stream()
+                .sorted((a, b) -> a.getNombre().compareTo(b.getNombre()))
+                .forEach(breaker -> estado.put(breaker.getNombre(), breaker.resumen()));
+        return estado;
+    }
+}
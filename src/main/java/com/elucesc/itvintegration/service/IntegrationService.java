@@ -1,16 +1,18 @@
 package com.elucesc.itvintegration.service;
 
+import com.elucesc.itvintegration.cache.CacheSegundoNivel;
 import com.elucesc.itvintegration.dto.cat.EstacionCAT;
 import com.elucesc.itvintegration.dto.cv.EstacionCV;
 import com.elucesc.itvintegration.dto.gal.EstacionGAL;
+import com.elucesc.itvintegration.event.IntegracionCompletadaEvent;
 import com.elucesc.itvintegration.extractor.ItvDataExtractor;
 import com.elucesc.itvintegration.extractor.impl.CATExtractor;
-import com.elucesc.itvintegration.model.Estacion;
 import com.elucesc.itvintegration.model.Localidad;
 import com.elucesc.itvintegration.model.Provincia;
-import com.elucesc.itvintegration.repository.EstacionRepository;
-import com.elucesc.itvintegration.repository.LocalidadRepository;
-import com.elucesc.itvintegration.repository.ProvinciaRepository;
+import com.elucesc.itvintegration.repository.ReferenciaCache;
+import com.elucesc.itvintegration.repository.ReferenciaUpsertRepository;
+import com.elucesc.itvintegration.trabajo.EtapaIntegracion;
+import com.elucesc.itvintegration.trabajo.ProgresoIntegracion;
 import com.elucesc.itvintegration.extractor.impl.CVExtractor;
 import com.elucesc.itvintegration.extractor.impl.GALExtractor;
 import com.elucesc.itvintegration.wrapper.Wrapper;
@@ -19,100 +21,181 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
-import com.elucesc.itvintegration.service.EstacionValidador;
-
 @Slf4j
 @Service
 public class IntegrationService {
 
-    private final ProvinciaRepository provinciaRepository;
-    private final LocalidadRepository localidadRepository;
-    private final EstacionRepository estacionRepository;
     private final SeleniumGeocodingService seleniumGeocodingService;
     private final ObjectMapper objectMapper;
     private final ResourceLoader resourceLoader;
     private final WrapperFactory wrapperFactory;
-    private final EstacionValidador estacionValidator;
+    private final GeocodingCheckpointStore checkpointStore;
+    private final ReferenciaUpsertRepository referenciaUpsertRepository;
+    private final PipelineEstaciones pipelineEstaciones;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CacheSegundoNivel cacheSegundoNivel;
+    private final CoordinadorIntegraciones coordinadorIntegraciones;
 
     @Autowired
     public IntegrationService(
-            ProvinciaRepository provinciaRepository,
-            LocalidadRepository localidadRepository,
-            EstacionRepository estacionRepository,
             SeleniumGeocodingService seleniumGeocodingService,
             ObjectMapper objectMapper,
             ResourceLoader resourceLoader,
             WrapperFactory wrapperFactory,
-            EstacionValidador estacionValidador) {
-        this.provinciaRepository = provinciaRepository;
-        this.localidadRepository = localidadRepository;
-        this.estacionRepository = estacionRepository;
+            GeocodingCheckpointStore checkpointStore,
+            ReferenciaUpsertRepository referenciaUpsertRepository,
+            PipelineEstaciones pipelineEstaciones,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventPublisher,
+            CacheSegundoNivel cacheSegundoNivel,
+            CoordinadorIntegraciones coordinadorIntegraciones) {
         this.seleniumGeocodingService = seleniumGeocodingService;
         this.objectMapper = objectMapper;
         this.resourceLoader = resourceLoader;
         this.wrapperFactory = wrapperFactory;
-        this.estacionValidator = estacionValidador;
+        this.checkpointStore = checkpointStore;
+        this.referenciaUpsertRepository = referenciaUpsertRepository;
+        this.pipelineEstaciones = pipelineEstaciones;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.cacheSegundoNivel = cacheSegundoNivel;
+        this.coordinadorIntegraciones = coordinadorIntegraciones;
     }
 
     /**
      * Integra datos de un archivo (CSV, XML o JSON) según su tipo
+     * No hay una transacción global: los datos de referencia se guardan en una transacción corta
+     * y las estaciones en bloques que se confirman por separado (ver PersistenciaEstaciones)
      */
-    @Transactional
     public void integrarArchivo(String rutaArchivo, TipoOrigen tipoOrigen) throws IOException {
-        log.info("Iniciando integración de archivo: {} (Tipo: {})", rutaArchivo, tipoOrigen);
-
-        ItvDataExtractor extractor = crearExtractor(rutaArchivo, tipoOrigen);
+        integrarArchivo(rutaArchivo, tipoOrigen, ProgresoIntegracion.NINGUNO);
+    }
 
-        // 1. Transformar y guardar provincias
-        List<Provincia> provincias = extractor.transformarProvincias();
-        log.info("Transformadas {} provincias", provincias.size());
-        guardarProvincias(provincias);
+    /**
+     * Integra un archivo notificando el avance de cada etapa (ver TrabajosIntegracionService)
+     */
+    public void integrarArchivo(String rutaArchivo, TipoOrigen tipoOrigen, ProgresoIntegracion progreso)
+            throws IOException {
+        progreso.origen(tipoOrigen);
+        // Si el origen ya se está integrando se espera a esa ejecución en vez de lanzar otra
+        coordinadorIntegraciones.ejecutar(tipoOrigen, progreso,
+                () -> ejecutarIntegracion(rutaArchivo, tipoOrigen, progreso));
+    }
 
-        // 2. Transformar y guardar localidades
-        List<Localidad> localidades = extractor.transformarLocalidades();
-        log.info("Transformadas {} localidades", localidades.size());
-        Map<String, Long> localidadNombreACodigo = guardarLocalidades(localidades);
+    private ResultadoIntegracion ejecutarIntegracion(String rutaArchivo, TipoOrigen tipoOrigen,
+                                                     ProgresoIntegracion progreso) throws IOException {
+        log.info("Iniciando integración de archivo: {} (Tipo: {})", rutaArchivo, tipoOrigen);
+        progreso.etapa(EtapaIntegracion.LEYENDO_ARCHIVO, 0);
 
-        // 3. Transformar estaciones
-        List<Estacion> estaciones = extractor.transformarEstaciones();
-        log.info("Transformadas {} estaciones", estaciones.size());
+        ItvDataExtractor extractor = crearExtractor(rutaArchivo, tipoOrigen);
+        boolean exito = false;
+        boolean referenciasNuevas = false;
+        // Estaciones ya confirmadas en public.estacion, aunque la integración falle después
+        AtomicInteger estacionesConfirmadas = new AtomicInteger();
+        ResultadoIntegracion resultado;
+
+        try {
+            // 1. Transformar provincias y localidades
+            List<Provincia> provincias = extractor.transformarProvincias();
+            log.info("Transformadas {} provincias", provincias.size());
+            List<Localidad> localidades = extractor.transformarLocalidades();
+            log.info("Transformadas {} localidades", localidades.size());
+
+            // 2. Precargar los datos de referencia de la ejecución (una consulta) y guardar solo lo nuevo
+            progreso.etapa(EtapaIntegracion.GUARDANDO_REFERENCIAS, provincias.size() + localidades.size());
+            ReferenciasGuardadas referencias = transactionTemplate.execute(status -> {
+                ReferenciaCache cache = precargarReferencias(provincias, localidades);
+                int existentes = cache.totalProvincias() + cache.totalLocalidades();
+                guardarProvincias(provincias, cache);
+                Map<String, Long> nombreACodigo = guardarLocalidades(localidades, cache);
+                return new ReferenciasGuardadas(nombreACodigo,
+                        cache.totalProvincias() + cache.totalLocalidades() > existentes);
+            });
+            referenciasNuevas = referencias.hayNuevas();
+            // Los upserts JDBC no pasan por Hibernate: lo cacheado de provincias y localidades ya no vale
+            cacheSegundoNivel.invalidarReferencias();
+
+            // 3. Transformar, vincular, validar y guardar estaciones en un pipeline con las etapas solapadas
+            // (fuera de transacción: el geocoding puede tardar minutos)
+            resultado = pipelineEstaciones.ejecutar(tipoOrigen, extractor, referencias.localidadNombreACodigo(),
+                    progreso, estacionesConfirmadas);
+
+            exito = true;
+            log.info("Integración completada exitosamente");
+        } finally {
+            extractor.finalizar(exito);
+            // Avisar a los índices en memoria de que el catálogo ha cambiado: también si la integración
+            // falló a medias, porque los bloques y las referencias ya confirmados no se revierten
+            if (exito || referenciasNuevas || estacionesConfirmadas.get() > 0) {
+                publicarCambios(tipoOrigen, estacionesConfirmadas.get(), exito);
+            }
+        }
 
-        // 4. Vincular estaciones con localidades
-        vincularEstacionesConLocalidades(estaciones, extractor, localidadNombreACodigo);
+        return resultado;
+    }
 
-        // 5. Guardar estaciones
-        guardarEstaciones(estaciones);
+    private void publicarCambios(TipoOrigen tipoOrigen, int estacionesGuardadas, boolean exito) {
+        if (exito) {
+            eventPublisher.publishEvent(new IntegracionCompletadaEvent(tipoOrigen, estacionesGuardadas));
+            return;
+        }
+        log.warn("⚠️ Integración de {} fallida con datos ya confirmados ({} estaciones): se actualizan los índices",
+                tipoOrigen, estacionesGuardadas);
+        try {
+            eventPublisher.publishEvent(new IntegracionCompletadaEvent(tipoOrigen, estacionesGuardadas));
+        } catch (RuntimeException e) {
+            // Que un oyente falle no debe ocultar el error original de la integración
+            log.error("❌ Error al actualizar los índices tras la integración fallida: {}", e.getMessage(), e);
+        }
+    }
 
-        log.info("Integración completada exitosamente");
+    /**
+     * Códigos de las localidades del archivo y si la transacción de referencias creó alguna fila
+     */
+    private record ReferenciasGuardadas(Map<String, Long> localidadNombreACodigo, boolean hayNuevas) {
     }
 
     /**
-     * Integra todos los archivos de una vez
+     * Integra todos los archivos de una vez (cada archivo se confirma de forma independiente)
      */
-    @Transactional
     public void integrarTodosLosArchivos(
             String rutaCV,
             String rutaGAL,
             String rutaCAT) throws IOException {
+        integrarTodosLosArchivos(rutaCV, rutaGAL, rutaCAT, ProgresoIntegracion.NINGUNO);
+    }
+
+    public void integrarTodosLosArchivos(
+            String rutaCV,
+            String rutaGAL,
+            String rutaCAT,
+            ProgresoIntegracion progreso) throws IOException {
 
         log.info("Iniciando integración completa de todos los archivos");
 
-        integrarArchivo(rutaCV, TipoOrigen.COMUNIDAD_VALENCIANA);
-        integrarArchivo(rutaGAL, TipoOrigen.GALICIA);
-        integrarArchivo(rutaCAT, TipoOrigen.CATALUNA);
+        integrarArchivo(rutaCV, TipoOrigen.COMUNIDAD_VALENCIANA, progreso);
+        integrarArchivo(rutaGAL, TipoOrigen.GALICIA, progreso);
+        integrarArchivo(rutaCAT, TipoOrigen.CATALUNA, progreso);
 
         log.info("Integración completa finalizada");
     }
@@ -150,7 +233,8 @@ public class IntegrationService {
                         new TypeReference<List<EstacionCV>>() {}
                 );
                 log.info("Parseadas {} estaciones de Comunidad Valenciana", estacionesCV.size());
-                return new CVExtractor(estacionesCV, seleniumGeocodingService);
+                GeocodingCheckpoint checkpoint = checkpointStore.abrir(tipoOrigen.name(), jsonContent);
+                return new CVExtractor(estacionesCV, seleniumGeocodingService, checkpoint);
 
             case GALICIA:
                 List<EstacionGAL> estacionesGAL = objectMapper.readValue(
@@ -173,155 +257,85 @@ public class IntegrationService {
         }
     }
 
-    private void guardarProvincias(List<Provincia> provincias) {
+    /**
+     * Carga en memoria todas las provincias y las localidades de las provincias que aparecen en el archivo.
+     * Durante el resto de la ejecución las comprobaciones de existencia se resuelven contra esta caché
+     */
+    private ReferenciaCache precargarReferencias(List<Provincia> provincias, List<Localidad> localidades) {
+        Set<Long> codigosProvincia = new HashSet<>();
+        provincias.forEach(p -> codigosProvincia.add(p.getCodigo()));
+        localidades.stream()
+                .map(Localidad::getCodProvincia)
+                .filter(Objects::nonNull)
+                .forEach(codigosProvincia::add);
+
+        ReferenciaCache referencias = referenciaUpsertRepository.precargar(codigosProvincia);
+        log.info("Datos de referencia precargados: {} provincias, {} localidades",
+                referencias.totalProvincias(), referencias.totalLocalidades());
+        return referencias;
+    }
+
+    private void guardarProvincias(List<Provincia> provincias, ReferenciaCache referencias) {
         log.info("=== GUARDANDO PROVINCIAS ===");
 
-        for (Provincia provincia : provincias) {
-            log.debug("Intentando guardar provincia: código={}, nombre='{}'",
-                    provincia.getCodigo(), provincia.getNombre());
+        List<Provincia> nuevas = provincias.stream()
+                .filter(p -> !referencias.existeProvincia(p.getCodigo()))
+                .collect(Collectors.toList());
 
-            if (!provinciaRepository.existsByCodigo(provincia.getCodigo())) {
-                provinciaRepository.save(provincia);
-                log.info("✅ Provincia guardada: {} (código: {})",
-                        provincia.getNombre(), provincia.getCodigo());
-            } else {
-                log.debug("⚠️ Provincia {} (código: {}) ya existe, omitiendo",
-                        provincia.getNombre(), provincia.getCodigo());
-            }
+        if (!nuevas.isEmpty()) {
+            referenciaUpsertRepository.upsertProvincias(nuevas);
+            nuevas.forEach(referencias::registrarProvincia);
+            nuevas.forEach(p -> log.info("✅ Provincia guardada: {} (código: {})", p.getNombre(), p.getCodigo()));
         }
 
-        // Mostrar todas las provincias guardadas
-        List<Provincia> todasProvincias = provinciaRepository.findAll();
-        log.info("=== PROVINCIAS EN BD: {} ===", todasProvincias.size());
-        todasProvincias.forEach(p ->
-                log.debug("  - Código: {}, Nombre: {}", p.getCodigo(), p.getNombre())
-        );
+        log.info("=== PROVINCIAS: {} nuevas, {} ya existían ===", nuevas.size(), provincias.size() - nuevas.size());
     }
 
-    private Map<String, Long> guardarLocalidades(List<Localidad> localidades) {
+    private Map<String, Long> guardarLocalidades(List<Localidad> localidades, ReferenciaCache referencias) {
         Map<String, Long> nombreACodigo = new HashMap<>();
+        List<Localidad> nuevas = new ArrayList<>();
+        boolean hayProvinciasInvalidas = false;
 
         log.info("=== GUARDANDO LOCALIDADES ===");
 
         for (Localidad localidad : localidades) {
             // VALIDACIÓN: Verificar que la provincia existe
-            if (localidad.getCodProvincia() != null &&
-                    !provinciaRepository.existsByCodigo(localidad.getCodProvincia())) {
-
+            if (localidad.getCodProvincia() != null && !referencias.existeProvincia(localidad.getCodProvincia())) {
                 log.error("❌ ERROR: Localidad '{}' referencia provincia inexistente: código={}",
                         localidad.getNombre(), localidad.getCodProvincia());
-                log.error("   Provincias disponibles en BD: {}",
-                        provinciaRepository.findAll().stream()
-                                .map(p -> p.getCodigo() + "=" + p.getNombre())
-                                .collect(Collectors.joining(", ")));
 
                 // Saltar esta localidad en lugar de fallar
                 log.warn("⚠️ Saltando localidad '{}' por provincia inválida", localidad.getNombre());
+                hayProvinciasInvalidas = true;
                 continue;
             }
 
-            Localidad existente = localidadRepository.findByNombreAndCodProvincia(
-                    localidad.getNombre(),
-                    localidad.getCodProvincia()
-            );
-
+            Long existente = referencias.codigoLocalidad(localidad.getNombre(), localidad.getCodProvincia());
             if (existente != null) {
-                nombreACodigo.put(localidad.getNombre(), existente.getCodigo());
-                log.debug("Localidad {} ya existe con código {}",
-                        localidad.getNombre(), existente.getCodigo());
+                nombreACodigo.put(localidad.getNombre(), existente);
+                log.debug("Localidad {} ya existe con código {}", localidad.getNombre(), existente);
             } else {
-                Localidad guardada = localidadRepository.save(localidad);
-                nombreACodigo.put(guardada.getNombre(), guardada.getCodigo());
-                log.debug("✅ Localidad guardada: {} con código {} (provincia: {})",
-                        guardada.getNombre(), guardada.getCodigo(), guardada.getCodProvincia());
+                nuevas.add(localidad);
             }
         }
 
-        return nombreACodigo;
-    }
-
-    private void vincularEstacionesConLocalidades(
-            List<Estacion> estaciones,
-            ItvDataExtractor extractor,
-            Map<String, Long> localidadNombreACodigo) {
-
-        Map<Integer, String> indiceEstacionALocalidad = extractor.obtenerMapaEstacionLocalidad();
-
-        for (int i = 0; i < estaciones.size(); i++) {
-            Estacion estacion = estaciones.get(i);
-            String nombreLocalidad = indiceEstacionALocalidad.get(i);
-
-            if (nombreLocalidad != null && localidadNombreACodigo.containsKey(nombreLocalidad)) {
-                Long codLocalidad = localidadNombreACodigo.get(nombreLocalidad);
-                estacion.setCodLocalidad(codLocalidad);
-                log.debug("Vinculada estación '{}' con localidad '{}' (código: {})",
-                        estacion.getNombre(), nombreLocalidad, codLocalidad);
-            } else {
-                log.warn("No se pudo vincular estación '{}' con localidad '{}'",
-                        estacion.getNombre(), nombreLocalidad);
-            }
+        if (hayProvinciasInvalidas) {
+            log.error("   Provincias disponibles en BD: {}", referencias.getProvincias());
         }
-    }
-
-    private void guardarEstaciones(List<Estacion> estaciones) {
-        int guardadas = 0;
-        int fallidas = 0;
-        int rechazadas = 0;
-        List<String> estacionesProblematicas = new ArrayList<>();
-
-        log.info("=== VALIDANDO Y GUARDANDO ESTACIONES ===");
-
-        for (Estacion estacion : estaciones) {
-            // Validar estación
-            List<String> errores = estacionValidator.validar(estacion);
-
-            if (!errores.isEmpty()) {
-                // Intentar corregir automáticamente
-                Estacion estacionCorregida = estacionValidator.intentarCorregir(estacion, errores);
-
-                // Validar de nuevo después de correcciones
-                List<String> erroresDespuesCorreccion = estacionValidator.validar(estacionCorregida);
-
-                if (!erroresDespuesCorreccion.isEmpty()) {
-                    // No se pudo corregir - rechazar estación
-                    rechazadas++;
-                    String informe = estacionValidator.generarInforme(estacion, erroresDespuesCorreccion);
-                    estacionesProblematicas.add(informe);
-                    log.warn("⚠️ Estación rechazada por errores de validación: {}",
-                            estacion.getNombre());
-                    continue; // No guardar esta estación
-                } else {
-                    log.info("✅ Estación corregida automáticamente: {}", estacion.getNombre());
-                    estacion = estacionCorregida;
-                }
-            }
 
-            // Intentar guardar
-            try {
-                estacionRepository.save(estacion);
-                guardadas++;
-                log.debug("Estación guardada: {}", estacion.getNombre());
-            } catch (Exception e) {
-                fallidas++;
-                log.error("Error guardando estación '{}': {}",
-                        estacion.getNombre(), e.getMessage());
+        // Upsert en bloque de las que faltan: devuelve el código de todas, también de las que otra ejecución
+        // haya creado desde la precarga (ver ReferenciaUpsertRepository)
+        if (!nuevas.isEmpty()) {
+            for (Localidad guardada : referenciaUpsertRepository.upsertLocalidades(nuevas)) {
+                referencias.registrarLocalidad(guardada);
+                nombreACodigo.put(guardada.getNombre(), guardada.getCodigo());
+                log.debug("✅ Localidad guardada: {} con código {} (provincia: {})",
+                        guardada.getNombre(), guardada.getCodigo(), guardada.getCodProvincia());
             }
         }
 
-        // Resumen final
-        log.info("=== RESUMEN DE GUARDADO ===");
-        log.info("✅ Guardadas: {}", guardadas);
-        log.info("❌ Fallidas (error BD): {}", fallidas);
-        log.info("⚠️ Rechazadas (validación): {}", rechazadas);
-
-        // Mostrar informe detallado de estaciones problemáticas
-        if (!estacionesProblematicas.isEmpty()) {
-            log.warn("\n\n╔════════════════════════════════════════════════════════════╗");
-            log.warn("║  INFORME DE ESTACIONES RECHAZADAS POR VALIDACIÓN          ║");
-            log.warn("╚════════════════════════════════════════════════════════════╝");
-            estacionesProblematicas.forEach(log::warn);
-            log.warn("\n⚠️ Total de estaciones rechazadas: {}\n", rechazadas);
-        }
+        log.info("=== LOCALIDADES: {} nuevas, {} resueltas en total ===", nuevas.size(), nombreACodigo.size());
+        return nombreACodigo;
     }
 
     public enum TipoOrigen {
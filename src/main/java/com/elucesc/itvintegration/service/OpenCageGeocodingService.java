@@ -25,9 +25,11 @@ public class OpenCageGeocodingService {
     private String apiKey;
 
     private final RestTemplate restTemplate;
+    private final CircuitBreaker circuitBreaker;
 
-    public OpenCageGeocodingService() {
+    public OpenCageGeocodingService(GeocodingHealthRegistry geocodingHealthRegistry) {
         this.restTemplate = new RestTemplate();
+        this.circuitBreaker = geocodingHealthRegistry.obtener(GeocodingHealthRegistry.OPENCAGE);
     }
 
     /**
@@ -44,6 +46,11 @@ public class OpenCageGeocodingService {
             return new Double[]{null, null};
         }
 
+        if (!circuitBreaker.permiteLlamada()) {
+            log.debug("Circuito de OpenCage abierto, omitiendo geocoding de: {}", direccion);
+            return new Double[]{null, null};
+        }
+
         try {
             // Construir URL con parámetros
             URI uri = UriComponentsBuilder.fromHttpUrl(OPENCAGE_URL)
@@ -67,6 +74,7 @@ public class OpenCageGeocodingService {
                 Integer code = (Integer) status.get("code");
 
                 if (code == 200) {
+                    circuitBreaker.registrarExito();
                     List<Map<String, Object>> results = (List<Map<String, Object>>) response.get("results");
 
                     if (results != null && !results.isEmpty()) {
@@ -82,20 +90,27 @@ public class OpenCageGeocodingService {
                     }
                 } else if (code == 402) {
                     log.error("Límite de peticiones diarias excedido (2,500/día)");
+                    circuitBreaker.registrarFallo("Límite diario excedido (402)");
                 } else if (code == 403) {
                     log.error("API Key inválida o acceso denegado");
+                    circuitBreaker.registrarFallo("Acceso denegado (403)");
                 } else if (code == 429) {
                     log.warn("Demasiadas peticiones por segundo. Máximo: 1 req/seg");
+                    circuitBreaker.registrarFallo("Demasiadas peticiones (429)");
                 } else {
                     String message = (String) status.get("message");
                     log.warn("Error de OpenCage API (código {}): {}", code, message);
+                    circuitBreaker.registrarFallo("Código " + code + ": " + message);
                 }
+            } else {
+                circuitBreaker.registrarFallo("Respuesta vacía");
             }
 
             return new Double[]{null, null};
 
         } catch (Exception e) {
             log.error("Error al obtener coordenadas de OpenCage para: {}", direccion, e);
+            circuitBreaker.registrarFallo(e.getClass().getSimpleName() + ": " + e.getMessage());
             return new Double[]{null, null};
         }
     }
@@ -134,6 +149,10 @@ public class OpenCageGeocodingService {
      * IMPORTANTE: OpenCage límite es 1 req/seg (más estricto que Google)
      */
     public Double[] obtenerCoordenadasConDelay(String direccion) {
+        if (circuitBreaker.estaAbierto()) {
+            return new Double[]{null, null};
+        }
+
         try {
             Thread.sleep(1100); // 1.1 segundos para estar seguros
         } catch (InterruptedException e) {
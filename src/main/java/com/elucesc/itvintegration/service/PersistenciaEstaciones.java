@@ -0,0 +1,242 @@
+package com.elucesc.itvintegration.service;
+
+import com.elucesc.itvintegration.model.Estacion;
+import com.elucesc.itvintegration.repository.EstacionBulkLoader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persistencia de estaciones por bloques (chunks), cada uno en su propia transacción
+ * - Cada escritura se protege con un savepoint: si falla solo se deshace ese lote, no la transacción
+ * - Un lote fallido se divide en dos mitades y se reintenta (bisección) hasta aislar las filas
+ *   que fallan por sí solas, que se descartan (dead-letter) sin afectar al resto
+ * Así la duración de los bloqueos y el volumen de WAL por transacción quedan acotados por el tamaño del bloque
+ */
+@Slf4j
+@Component
+public class PersistenciaEstaciones {
+
+    private final EstacionBulkLoader estacionBulkLoader;
+    private final DataSource dataSource;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${integration.persistence.chunk-size:500}")
+    private int tamanoBloque;
+
+    @Value("${integration.persistence.batch-size:50}")
+    private int tamanoLote;
+
+    @Value("${integration.persistence.copy-threshold:1000}")
+    private int umbralCopy;
+
+    public PersistenciaEstaciones(EstacionBulkLoader estacionBulkLoader,
+                                  DataSource dataSource,
+                                  PlatformTransactionManager transactionManager) {
+        this.estacionBulkLoader = estacionBulkLoader;
+        this.dataSource = dataSource;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Persiste las estaciones ya validadas en public.estacion confirmando cada bloque por separado
+     */
+    public ResultadoPersistencia persistir(List<Estacion> entrada) {
+        return persistir(entrada, EstacionBulkLoader.TABLA);
+    }
+
+    /**
+     * Igual que persistir(List) pero sobre la tabla indicada (la tabla sombra en la carga en sombra)
+     */
+    public ResultadoPersistencia persistir(List<Estacion> entrada, String tabla) {
+        return persistir(entrada, tabla, OyentePersistencia.NINGUNO);
+    }
+
+    /**
+     * Igual que persistir(List, String) notificando cada estación en cuanto su bloque se confirma
+     */
+    public ResultadoPersistencia persistir(List<Estacion> entrada, String tabla, OyentePersistencia oyente) {
+        int tamano = Math.max(1, tamanoBloque);
+        log.info("Persistiendo {} estaciones en bloques de hasta {}", entrada.size(), tamano);
+
+        Sesion sesion = abrirSesion(tabla, entrada.size(), oyente);
+        sesion.persistir(entrada);
+        return sesion.resultado();
+    }
+
+    /**
+     * Abre una persistencia por partes: las estaciones llegan en varias llamadas (ver PipelineEstaciones)
+     * Las claves repetidas se detectan en toda la sesión y el uso de COPY se decide con el total previsto
+     */
+    public Sesion abrirSesion(String tabla, int totalPrevisto, OyentePersistencia oyente) {
+        // Por encima del umbral se usa COPY (si la BD es PostgreSQL); si no, inserts por lotes
+        boolean usarCopy = totalPrevisto >= umbralCopy && estacionBulkLoader.soportaCopy();
+        log.debug("Sesión de persistencia sobre {} ({})", tabla, usarCopy ? "COPY" : "inserts por lotes");
+        return new Sesion(tabla, usarCopy, oyente);
+    }
+
+    /**
+     * Solo tras confirmar el bloque: antes, una estación escrita en un savepoint aún podía revertirse
+     */
+    private void notificar(List<Estacion> estaciones, ResultadoPersistencia resultado, OyentePersistencia oyente) {
+        for (Estacion estacion : estaciones) {
+            String motivo = resultado.motivoDescarte(estacion);
+            if (motivo == null) {
+                oyente.guardada(estacion);
+            } else {
+                oyente.descartada(estacion, motivo);
+            }
+        }
+    }
+
+    /**
+     * El upsert necesita una clave natural única por fila: una misma sentencia no puede tocar dos veces
+     * la misma fila, así que las repetidas en el archivo (y las que no tienen clave) se descartan aquí
+     */
+    private List<Estacion> filtrarPorClaveNatural(List<Estacion> estaciones, Set<String> claves,
+                                                  ResultadoPersistencia resultado) {
+        List<Estacion> unicas = new ArrayList<>(estaciones.size());
+
+        for (Estacion estacion : estaciones) {
+            if (estacion.getClaveNatural() == null) {
+                log.warn("❌ Estación sin clave natural descartada: '{}'", estacion.getNombre());
+                resultado.descartar(estacion, "Sin clave natural en el origen");
+            } else if (!claves.add(estacion.getClaveNatural())) {
+                log.warn("❌ Estación con clave natural repetida descartada: '{}' ({})",
+                        estacion.getNombre(), estacion.getClaveNatural());
+                resultado.descartar(estacion, "Clave natural repetida: " + estacion.getClaveNatural());
+            } else {
+                unicas.add(estacion);
+            }
+        }
+        return unicas;
+    }
+
+    /**
+     * Escribe un lote dentro de un savepoint. Si falla, vuelve al savepoint y reintenta cada mitad
+     */
+    private void escribirConAislamiento(List<Estacion> lote, String tabla, boolean usarCopy,
+                                        ResultadoPersistencia resultado) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                escribir(lote, tabla, usarCopy);
+                connection.releaseSavepoint(savepoint);
+                resultado.sumarGuardadas(lote.size());
+                return;
+            } catch (Exception e) {
+                connection.rollback(savepoint);
+
+                if (lote.size() == 1) {
+                    log.warn("❌ Estación descartada por error de BD '{}': {}", lote.get(0).getNombre(), e.getMessage());
+                    resultado.descartar(lote.get(0), e.getMessage());
+                    return;
+                }
+                log.debug("Lote de {} estaciones fallido ({}), dividiendo", lote.size(), e.getMessage());
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error gestionando el savepoint: " + e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+
+        int mitad = lote.size() / 2;
+        escribirConAislamiento(lote.subList(0, mitad), tabla, usarCopy, resultado);
+        escribirConAislamiento(lote.subList(mitad, lote.size()), tabla, usarCopy, resultado);
+    }
+
+    private void escribir(List<Estacion> lote, String tabla, boolean usarCopy) throws SQLException {
+        if (usarCopy) {
+            estacionBulkLoader.cargar(lote, tabla);
+        } else {
+            estacionBulkLoader.insertar(lote, tabla, Math.max(1, tamanoLote));
+        }
+    }
+
+    /**
+     * Persistencia por partes sobre una tabla. Admite llamadas desde varios hilos a la vez: cada llamada
+     * confirma sus propios bloques y el oyente recibe las notificaciones desde el hilo que confirmó el bloque
+     */
+    public final class Sesion {
+        private final String tabla;
+        private final boolean usarCopy;
+        private final OyentePersistencia oyente;
+        private final Set<String> claves = ConcurrentHashMap.newKeySet();
+        private final ResultadoPersistencia resultado = new ResultadoPersistencia();
+        private final AtomicInteger bloques = new AtomicInteger();
+
+        private Sesion(String tabla, boolean usarCopy, OyentePersistencia oyente) {
+            this.tabla = tabla;
+            this.usarCopy = usarCopy;
+            this.oyente = oyente;
+        }
+
+        public void persistir(List<Estacion> entrada) {
+            ResultadoPersistencia filtrado = new ResultadoPersistencia();
+            List<Estacion> estaciones = filtrarPorClaveNatural(entrada, claves, filtrado);
+            acumular(filtrado);
+            notificar(entrada.stream().filter(e -> filtrado.motivoDescarte(e) != null).toList(), filtrado, oyente);
+
+            int tamano = Math.max(1, tamanoBloque);
+            for (int inicio = 0; inicio < estaciones.size(); inicio += tamano) {
+                List<Estacion> estacionesBloque = estaciones.subList(inicio, Math.min(inicio + tamano, estaciones.size()));
+                int bloque = bloques.incrementAndGet();
+                ResultadoPersistencia parcial = new ResultadoPersistencia();
+
+                try {
+                    transactionTemplate.executeWithoutResult(status ->
+                            escribirConAislamiento(estacionesBloque, tabla, usarCopy, parcial));
+                    acumular(parcial);
+                    notificar(estacionesBloque, parcial, oyente);
+                    log.debug("Bloque {} confirmado: {} guardadas, {} descartadas",
+                            bloque, parcial.getGuardadas(), parcial.getFallidas());
+                } catch (Exception e) {
+                    // Fallo al confirmar: el bloque entero se ha revertido
+                    log.error("Error confirmando el bloque {}: {}", bloque, e.getMessage());
+                    ResultadoPersistencia revertido = new ResultadoPersistencia();
+                    revertido.descartarTodas(estacionesBloque, "Error al confirmar el bloque: " + e.getMessage());
+                    acumular(revertido);
+                    notificar(estacionesBloque, revertido, oyente);
+                }
+            }
+        }
+
+        public synchronized ResultadoPersistencia resultado() {
+            return resultado;
+        }
+
+        private synchronized void acumular(ResultadoPersistencia parcial) {
+            resultado.sumar(parcial);
+        }
+    }
+
+    /**
+     * Recibe el resultado de cada estación según se confirman los bloques
+     */
+    public interface OyentePersistencia {
+        OyentePersistencia NINGUNO = new OyentePersistencia() {
+        };
+
+        default void guardada(Estacion estacion) {
+        }
+
+        default void descartada(Estacion estacion, String motivo) {
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package com.elucesc.itvintegration.service;
+
+import com.elucesc.itvintegration.extractor.ItvDataExtractor;
+import com.elucesc.itvintegration.model.Estacion;
+import com.elucesc.itvintegration.repository.EstacionBulkLoader;
+import com.elucesc.itvintegration.trabajo.EtapaIntegracion;
+import com.elucesc.itvintegration.trabajo.ProgresoIntegracion;
+import com.elucesc.itvintegration.trabajo.TipoEventoIntegracion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Procesa las estaciones de un archivo como un pipeline de etapas unidas por colas acotadas:
+ *   transformar (mapeo + geocoding) → validar → persistir
+ * - Las etapas se solapan: mientras se geocodifica una estación las anteriores ya se validan y se guardan,
+ *   así que la integración tarda lo que la etapa más lenta (normalmente el geocoding) y no la suma de todas
+ * - Si una etapa se atrasa, la anterior se bloquea al encolar (backpressure) en vez de acumular en memoria
+ * - Transformar usa un único hilo: el extractor recorre el archivo en orden y Selenium maneja un solo navegador
+ * - Validar toma de la cola lotes de hasta validation-batch estaciones y los reparte en un ForkJoinPool
+ *   (ver ValidacionEstaciones); las válidas pasan a persistir en el orden del archivo
+ * - Persistir usa los hilos configurados (persistence-workers)
+ * - Persistir agrupa en bloques de chunk-size; un bloque incompleto se confirma al pasar flush-interval
+ *   para no retener estaciones mientras el geocoding avanza despacio
+ * Si una etapa falla se cancelan las demás y el error se propaga a quien lanzó la integración
+ */
+@Slf4j
+@Component
+public class PipelineEstaciones {
+
+    // Marca de fin de flujo en las colas (se compara por identidad)
+    private static final Estacion FIN = new Estacion();
+
+    private final ValidacionEstaciones validacionEstaciones;
+    private final PersistenciaEstaciones persistenciaEstaciones;
+    private final CargaCatalogoSombra cargaCatalogoSombra;
+    private final int capacidadCola;
+    private final int tamanoLoteValidacion;
+    private final int hilosPersistencia;
+    private final long intervaloVaciadoMs;
+    private final int tamanoBloque;
+    private final boolean cargaEnSombra;
+
+    public PipelineEstaciones(ValidacionEstaciones validacionEstaciones,
+                              PersistenciaEstaciones persistenciaEstaciones,
+                              CargaCatalogoSombra cargaCatalogoSombra,
+                              @Value("${integration.pipeline.queue-capacity:1000}") int capacidadCola,
+                              @Value("${integration.pipeline.validation-batch:1000}") int tamanoLoteValidacion,
+                              @Value("${integration.pipeline.persistence-workers:1}") int hilosPersistencia,
+                              @Value("${integration.pipeline.flush-interval:2s}") Duration intervaloVaciado,
+                              @Value("${integration.persistence.chunk-size:500}") int tamanoBloque,
+                              @Value("${integration.persistence.shadow.enabled:false}") boolean cargaEnSombra) {
+        this.validacionEstaciones = validacionEstaciones;
+        this.persistenciaEstaciones = persistenciaEstaciones;
+        this.cargaCatalogoSombra = cargaCatalogoSombra;
+        this.capacidadCola = positivo("integration.pipeline.queue-capacity", capacidadCola);
+        this.tamanoLoteValidacion = positivo("integration.pipeline.validation-batch", tamanoLoteValidacion);
+        this.hilosPersistencia = positivo("integration.pipeline.persistence-workers", hilosPersistencia);
+        // Con 0 los hilos de persistencia esperarían en bucle sin pausa y cada estación sería un bloque
+        this.intervaloVaciadoMs = positivo("integration.pipeline.flush-interval", intervaloVaciado.toMillis());
+        this.tamanoBloque = positivo("integration.persistence.chunk-size", tamanoBloque);
+        this.cargaEnSombra = cargaEnSombra;
+    }
+
+    /**
+     * Transforma, vincula con su localidad, valida y persiste (en la tabla real o, en sombra, en la tabla de
+     * entrada del origen) las estaciones del extractor. Los datos de referencia deben estar ya guardados
+     * En 'confirmadas' se van sumando las estaciones que ya son visibles en public.estacion, también si
+     * el pipeline acaba fallando: con carga directa cada bloque confirmado, con carga en sombra todas al intercambiar
+     */
+    public ResultadoIntegracion ejecutar(IntegrationService.TipoOrigen origen, ItvDataExtractor extractor,
+                                         Map<String, Long> localidadNombreACodigo, ProgresoIntegracion progreso,
+                                         AtomicInteger confirmadas) throws IOException {
+        Ejecucion ejecucion = new Ejecucion(extractor, localidadNombreACodigo, progreso);
+        int total = extractor.totalRegistros();
+
+        ResultadoPersistencia persistencia;
+        if (cargaEnSombra) {
+            persistencia = cargaCatalogoSombra.cargar(origen, total, ejecucion.oyentePersistencia(null),
+                    ejecucion::ejecutar);
+            confirmadas.addAndGet(persistencia.getGuardadas());
+        } else {
+            PersistenciaEstaciones.Sesion sesion = persistenciaEstaciones.abrirSesion(
+                    EstacionBulkLoader.TABLA, total, ejecucion.oyentePersistencia(confirmadas));
+            ejecucion.ejecutar(sesion);
+            persistencia = sesion.resultado();
+        }
+
+        return ejecucion.informar(persistencia);
+    }
+
+    /**
+     * Estado de una ejecución del pipeline (colas, contadores y tiempos de cada etapa)
+     */
+    private final class Ejecucion {
+        private final ItvDataExtractor extractor;
+        private final Map<Integer, String> indiceEstacionALocalidad;
+        private final Map<String, Long> localidadNombreACodigo;
+        private final ProgresoIntegracion progreso;
+
+        private final BlockingQueue<Estacion> colaValidacion = new ArrayBlockingQueue<>(capacidadCola);
+        private final BlockingQueue<Estacion> colaPersistencia = new ArrayBlockingQueue<>(capacidadCola);
+        private final AtomicInteger persistenciasActivas = new AtomicInteger(hilosPersistencia);
+
+        private final AtomicInteger rechazadas = new AtomicInteger();
+        private final AtomicInteger terminadas = new AtomicInteger();
+        private final Queue<String> informesRechazo = new ConcurrentLinkedQueue<>();
+        private volatile boolean transformacionTerminada;
+
+        private final long inicio = System.currentTimeMillis();
+        private volatile long msTransformar;
+        private volatile long msValidar;
+        private volatile long msPersistir;
+
+        Ejecucion(ItvDataExtractor extractor, Map<String, Long> localidadNombreACodigo,
+                  ProgresoIntegracion progreso) {
+            this.extractor = extractor;
+            this.indiceEstacionALocalidad = extractor.obtenerMapaEstacionLocalidad();
+            this.localidadNombreACodigo = localidadNombreACodigo;
+            this.progreso = progreso;
+        }
+
+        /**
+         * Arranca las etapas y espera a que terminen todas (o a que falle la primera)
+         */
+        void ejecutar(PersistenciaEstaciones.Sesion sesion) throws IOException {
+            AtomicInteger contador = new AtomicInteger();
+            ExecutorService hilos = Executors.newFixedThreadPool(2 + hilosPersistencia, tarea -> {
+                Thread hilo = new Thread(tarea, "pipeline-" + contador.incrementAndGet());
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            ExecutorCompletionService<Void> etapas = new ExecutorCompletionService<>(hilos);
+
+            int tareas = 0;
+            etapas.submit(this::transformar);
+            tareas++;
+            etapas.submit(this::validar);
+            tareas++;
+            for (int i = 0; i < hilosPersistencia; i++, tareas++) {
+                etapas.submit(() -> persistir(sesion));
+            }
+
+            try {
+                for (int i = 0; i < tareas; i++) {
+                    etapas.take().get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Integración interrumpida");
+            } catch (ExecutionException e) {
+                Throwable causa = e.getCause();
+                if (causa instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                if (causa instanceof Error error) {
+                    throw error;
+                }
+                throw new IOException("Error en el pipeline de estaciones: " + causa.getMessage(), causa);
+            } finally {
+                detener(hilos);
+            }
+        }
+
+        /**
+         * Etapa 1: el extractor transforma (y geocodifica) en orden; cada estación se vincula y se encola
+         */
+        private Void transformar() throws InterruptedException {
+            progreso.etapa(EtapaIntegracion.TRANSFORMANDO_ESTACIONES, extractor.totalRegistros());
+            extractor.setOyenteProgreso((procesadas, estacion) -> {
+                progreso.procesadas(procesadas);
+                // El índice de la estación en el archivo es procesadas - 1 (ver obtenerMapaEstacionLocalidad)
+                vincular(estacion, procesadas - 1);
+                progreso.registro(TipoEventoIntegracion.TRANSFORMADA, estacion, null);
+                encolar(colaValidacion, estacion);
+            });
+            List<Estacion> estaciones = extractor.transformarEstaciones();
+            log.info("Transformadas {} estaciones", estaciones.size());
+
+            // Lo que queda es vaciar las colas: el avance pasa a contar las estaciones ya terminadas
+            progreso.etapa(EtapaIntegracion.GUARDANDO_ESTACIONES, estaciones.size());
+            transformacionTerminada = true;
+            progreso.procesadas(terminadas.get());
+
+            colaValidacion.put(FIN);
+            msTransformar = System.currentTimeMillis() - inicio;
+            return null;
+        }
+
+        /**
+         * Etapa 2: toma lo que haya en la cola (hasta validation-batch) y lo valida en paralelo;
+         * las válidas pasan a persistir
+         */
+        private Void validar() throws InterruptedException {
+            log.debug("Validación en lotes de hasta {} estaciones con paralelismo {}",
+                    tamanoLoteValidacion, validacionEstaciones.paralelismo());
+            List<Estacion> lote = new ArrayList<>(tamanoLoteValidacion);
+            boolean fin = false;
+
+            while (!fin) {
+                lote.add(colaValidacion.take());
+                colaValidacion.drainTo(lote, tamanoLoteValidacion - 1);
+                // Un único productor pone FIN al terminar: si ha llegado, es el último del lote
+                if (lote.get(lote.size() - 1) == FIN) {
+                    lote.remove(lote.size() - 1);
+                    fin = true;
+                }
+
+                if (!lote.isEmpty()) {
+                    ValidacionEstaciones.LoteValidado validado = validacionEstaciones.validar(lote, progreso);
+                    if (validado.rechazadas() > 0) {
+                        rechazadas.addAndGet(validado.rechazadas());
+                        informesRechazo.addAll(validado.informesRechazo());
+                        terminadas(validado.rechazadas());
+                    }
+                    for (Estacion valida : validado.validas()) {
+                        colaPersistencia.put(valida);
+                    }
+                    lote.clear();
+                }
+            }
+
+            for (int i = 0; i < hilosPersistencia; i++) {
+                colaPersistencia.put(FIN);
+            }
+            msValidar = System.currentTimeMillis() - inicio;
+            return null;
+        }
+
+        /**
+         * Etapa 3: agrupa en bloques y los confirma (bloque lleno, intervalo agotado o fin del flujo)
+         */
+        private Void persistir(PersistenciaEstaciones.Sesion sesion) throws InterruptedException {
+            List<Estacion> bloque = new ArrayList<>(tamanoBloque);
+            long limite = 0;
+
+            while (true) {
+                long espera = bloque.isEmpty() ? intervaloVaciadoMs : Math.max(0, limite - System.currentTimeMillis());
+                Estacion estacion = colaPersistencia.poll(espera, TimeUnit.MILLISECONDS);
+                if (estacion == FIN) {
+                    break;
+                }
+                if (estacion != null) {
+                    if (bloque.isEmpty()) {
+                        limite = System.currentTimeMillis() + intervaloVaciadoMs;
+                    }
+                    bloque.add(estacion);
+                }
+                if (bloque.size() >= tamanoBloque || (!bloque.isEmpty() && System.currentTimeMillis() >= limite)) {
+                    sesion.persistir(bloque);
+                    bloque = new ArrayList<>(tamanoBloque);
+                }
+            }
+            if (!bloque.isEmpty()) {
+                sesion.persistir(bloque);
+            }
+
+            if (persistenciasActivas.decrementAndGet() == 0) {
+                msPersistir = System.currentTimeMillis() - inicio;
+            }
+            return null;
+        }
+
+        private void vincular(Estacion estacion, int indice) {
+            String nombreLocalidad = indiceEstacionALocalidad.get(indice);
+            Long codLocalidad = nombreLocalidad != null ? localidadNombreACodigo.get(nombreLocalidad) : null;
+
+            if (codLocalidad != null) {
+                estacion.setCodLocalidad(codLocalidad);
+                log.debug("Vinculada estación '{}' con localidad '{}' (código: {})",
+                        estacion.getNombre(), nombreLocalidad, codLocalidad);
+            } else {
+                log.warn("No se pudo vincular estación '{}' con localidad '{}'",
+                        estacion.getNombre(), nombreLocalidad);
+            }
+        }
+
+        /**
+         * Se llama desde los hilos de persistencia según se confirman los bloques
+         * (si 'confirmadas' no es null, cuenta además cada estación guardada)
+         */
+        PersistenciaEstaciones.OyentePersistencia oyentePersistencia(AtomicInteger confirmadas) {
+            return new PersistenciaEstaciones.OyentePersistencia() {
+                @Override
+                public void guardada(Estacion estacion) {
+                    if (confirmadas != null) {
+                        confirmadas.incrementAndGet();
+                    }
+                    terminadas(1);
+                    progreso.registro(TipoEventoIntegracion.GUARDADA, estacion, null);
+                }
+
+                @Override
+                public void descartada(Estacion estacion, String motivo) {
+                    terminadas(1);
+                    progreso.registro(TipoEventoIntegracion.DESCARTADA, estacion, List.of(motivo));
+                }
+            };
+        }
+
+        private void terminadas(int cantidad) {
+            int total = terminadas.addAndGet(cantidad);
+            if (transformacionTerminada) {
+                progreso.procesadas(total);
+            }
+        }
+
+        /**
+         * Resumen de la ejecución en el log y en el progreso del trabajo
+         */
+        ResultadoIntegracion informar(ResultadoPersistencia persistencia) {
+            int guardadas = persistencia.getGuardadas();
+            int fallidas = persistencia.getFallidas();
+            int rechazadasTotal = rechazadas.get();
+            progreso.resultado(guardadas, rechazadasTotal, fallidas);
+
+            log.info("⏱️ Pipeline terminado en {} ms (fin de transformar: {} ms, validar: {} ms, persistir: {} ms)",
+                    System.currentTimeMillis() - inicio, msTransformar, msValidar, msPersistir);
+
+            // Resumen final
+            log.info("=== RESUMEN DE GUARDADO ===");
+            log.info("✅ Guardadas: {}", guardadas);
+            log.info("❌ Fallidas (error BD): {}", fallidas);
+            log.info("⚠️ Rechazadas (validación): {}", rechazadasTotal);
+
+            // Mostrar informe detallado de estaciones problemáticas
+            if (!informesRechazo.isEmpty()) {
+                log.warn("\n\n╔════════════════════════════════════════════════════════════╗");
+                log.warn("║  INFORME DE ESTACIONES RECHAZADAS POR VALIDACIÓN          ║");
+                log.warn("╚════════════════════════════════════════════════════════════╝");
+                informesRechazo.forEach(log::warn);
+                log.warn("\n⚠️ Total de estaciones rechazadas: {}\n", rechazadasTotal);
+            }
+
+            // Estaciones descartadas por error de BD (aisladas por bisección, el resto del bloque se guardó)
+            if (!persistencia.getDescartadas().isEmpty()) {
+                log.error("=== ESTACIONES DESCARTADAS POR ERROR DE BD: {} ===", fallidas);
+                persistencia.getDescartadas().forEach(descarte -> log.error("  - {}", descarte));
+            }
+
+            return new ResultadoIntegracion(guardadas, rechazadasTotal, fallidas);
+        }
+    }
+
+    private static int positivo(String propiedad, int valor) {
+        return (int) positivo(propiedad, (long) valor);
+    }
+
+    private static long positivo(String propiedad, long valor) {
+        if (valor <= 0) {
+            throw new IllegalArgumentException(propiedad + " debe ser mayor que 0 (valor: " + valor + ")");
+        }
+        return valor;
+    }
+
+    /**
+     * El oyente del extractor no puede lanzar InterruptedException: si se cancela el pipeline mientras
+     * espera hueco en la cola, se corta la transformación con una CancellationException
+     */
+    private static void encolar(BlockingQueue<Estacion> cola, Estacion estacion) {
+        try {
+            cola.put(estacion);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Pipeline de estaciones cancelado");
+        }
+    }
+
+    /**
+     * Interrumpe las etapas que sigan en marcha y espera a que suelten el extractor y las conexiones
+     */
+    private static void detener(ExecutorService hilos) {
+        hilos.shutdownNow();
+        // Si nos han interrumpido se espera igualmente y se restaura la interrupción al terminar
+        boolean interrumpido = Thread.interrupted();
+        try {
+            if (!hilos.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("⚠️ Quedan etapas del pipeline en marcha tras cancelarlo");
+            }
+        } catch (InterruptedException e) {
+            interrumpido = true;
+        } finally {
+            if (interrumpido) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.elucesc.itvintegration.service;
+
+import com.elucesc.itvintegration.cache.CatalogoCache;
+import com.elucesc.itvintegration.dto.consulta.LocalidadResumen;
+import com.elucesc.itvintegration.model.Provincia;
+import com.elucesc.itvintegration.repository.LocalidadRepository;
+import com.elucesc.itvintegration.repository.ProvinciaRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Consultas de lectura de provincias y localidades (a través de la caché del catálogo)
+ * Sin transacción propia: si el resultado está en caché no se abre conexión con la BD
+ */
+@Service
+public class ReferenciaConsultaService {
+
+    private final ProvinciaRepository provinciaRepository;
+    private final LocalidadRepository localidadRepository;
+    private final CatalogoCache catalogoCache;
+
+    public ReferenciaConsultaService(ProvinciaRepository provinciaRepository,
+                                     LocalidadRepository localidadRepository,
+                                     CatalogoCache catalogoCache) {
+        this.provinciaRepository = provinciaRepository;
+        this.localidadRepository = localidadRepository;
+        this.catalogoCache = catalogoCache;
+    }
+
+    public List<Provincia> provincias() {
+        return catalogoCache.obtener("provincias",
+                provinciaRepository::findAllByOrderByNombre,
+                lista -> CatalogoCache.estimarBytes(lista, CatalogoCache.BYTES_POR_REFERENCIA));
+    }
+
+    public List<LocalidadResumen> localidades(Long codProvincia) {
+        return catalogoCache.obtener("localidades:" + codProvincia,
+                () -> localidadRepository.findByCodProvinciaOrderByNombre(codProvincia),
+                lista -> CatalogoCache.estimarBytes(lista, CatalogoCache.BYTES_POR_REFERENCIA));
+    }
+}
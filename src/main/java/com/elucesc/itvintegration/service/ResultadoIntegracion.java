@@ -0,0 +1,7 @@
+package com.elucesc.itvintegration.service;
+
+/**
+ * Recuento de estaciones de la integración de un archivo
+ */
+public record ResultadoIntegracion(int guardadas, int rechazadas, int fallidas) {
+}
@@ -0,0 +1,55 @@
+package com.elucesc.itvintegration.service;
+
+import com.elucesc.itvintegration.model.Estacion;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de persistir un conjunto de estaciones: cuántas se guardaron y cuáles
+ * se descartaron (dead-letter) junto con el error de BD que provocaron
+ */
+@Getter
+public class ResultadoPersistencia {
+
+    private int guardadas;
+    private final List<String> descartadas = new ArrayList<>();
+
+    // Motivo de descarte de cada estación (por identidad: Estacion compara por valor)
+    @Getter(AccessLevel.NONE)
+    private final Map<Estacion, String> motivos = new IdentityHashMap<>();
+
+    void sumarGuardadas(int cantidad) {
+        guardadas += cantidad;
+    }
+
+    void descartar(Estacion estacion, String error) {
+        descartadas.add("'" + estacion.getNombre() + "': " + error);
+        motivos.put(estacion, error);
+    }
+
+    void descartarTodas(List<Estacion> estaciones, String error) {
+        estaciones.forEach(estacion -> descartar(estacion, error));
+    }
+
+    void sumar(ResultadoPersistencia otro) {
+        guardadas += otro.guardadas;
+        descartadas.addAll(otro.descartadas);
+        motivos.putAll(otro.motivos);
+    }
+
+    /**
+     * Motivo por el que se descartó la estación, o null si se guardó
+     */
+    public String motivoDescarte(Estacion estacion) {
+        return motivos.get(estacion);
+    }
+
+    public int getFallidas() {
+        return descartadas.size();
+    }
+}
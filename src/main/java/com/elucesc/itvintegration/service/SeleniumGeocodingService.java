@@ -32,6 +32,12 @@ public class SeleniumGeocodingService {
     private static final int MAX_RETRIES = 3;
     private static final int WAIT_TIMEOUT = 10; // segundos
 
+    private final CircuitBreaker circuitBreaker;
+
+    public SeleniumGeocodingService(GeocodingHealthRegistry geocodingHealthRegistry) {
+        this.circuitBreaker = geocodingHealthRegistry.obtener(GeocodingHealthRegistry.SELENIUM);
+    }
+
     /**
      * Inicializa el WebDriver de Chrome en modo headless con cookies de consentimiento
      */
@@ -101,6 +107,7 @@ public class SeleniumGeocodingService {
 
     /**
      * Obtiene coordenadas (longitud, latitud) usando Google Maps con Selenium
+     * Si el circuit breaker está abierto se devuelve null inmediatamente sin tocar el navegador
      */
     public Double[] obtenerCoordenadas(String direccion) {
         if (direccion == null || direccion.trim().isEmpty()) {
@@ -110,6 +117,11 @@ public class SeleniumGeocodingService {
 
         int intentos = 0;
         while (intentos < MAX_RETRIES) {
+            if (!circuitBreaker.permiteLlamada()) {
+                log.debug("Circuito de Selenium abierto, omitiendo geocoding de: {}", direccion);
+                return new Double[]{null, null};
+            }
+
             try {
                 initializeDriver();
 
@@ -142,17 +154,28 @@ public class SeleniumGeocodingService {
                 currentUrl = driver.getCurrentUrl();
                 Double[] coordenadas = extraerCoordenadasDeUrl(currentUrl);
 
+                // Google ha respondido: aunque no haya coordenadas el backend está sano
+                circuitBreaker.registrarExito();
+
                 if (coordenadas[0] != null && coordenadas[1] != null) {
                     log.debug("✅ Coordenadas obtenidas: [{}, {}] para: {}",
                             coordenadas[0], coordenadas[1], direccion);
                     return coordenadas;
                 }
 
+                // Repetir la misma búsqueda daría la misma respuesta: no es un fallo que merezca reintento
                 log.warn("No se pudieron extraer coordenadas de la URL: {}", currentUrl);
-                intentos++;
+                break;
+
+            } catch (InterruptedException e) {
+                // Nos han pedido parar: no dice nada de la salud de Google
+                circuitBreaker.liberarLlamada();
+                Thread.currentThread().interrupt();
+                return new Double[]{null, null};
 
             } catch (Exception e) {
                 intentos++;
+                circuitBreaker.registrarFallo(e.getClass().getSimpleName() + ": " + e.getMessage());
                 log.warn("Error en intento {}/{} para dirección '{}': {}",
                         intentos, MAX_RETRIES, direccion, e.getMessage());
 
@@ -161,22 +184,41 @@ public class SeleniumGeocodingService {
                             MAX_RETRIES, direccion);
                 }
 
-                // Si estamos atascados en consentimiento, reiniciar driver
-                try {
-                    if (driver != null && driver.getCurrentUrl().contains("consent.google.com")) {
-                        log.info("Reiniciando driver por página de consentimiento...");
-                        driver.quit();
-                        driver = null;
-                    }
-                } catch (Exception ex) {
-                    // Ignorar errores al verificar URL
-                }
+                reiniciarDriverSiEsNecesario();
             }
         }
 
         return new Double[]{null, null};
     }
 
+    /**
+     * Reinicia el driver si está atascado en la página de consentimiento o si ha dejado de responder
+     * (Chrome caído, sesión perdida...). Un driver roto haría fallar todos los intentos siguientes
+     */
+    private void reiniciarDriverSiEsNecesario() {
+        if (driver == null) {
+            return;
+        }
+
+        String motivo;
+        try {
+            if (!driver.getCurrentUrl().contains("consent.google.com")) {
+                return;
+            }
+            motivo = "página de consentimiento";
+        } catch (Exception e) {
+            motivo = "driver sin respuesta";
+        }
+
+        log.info("Reiniciando driver por {}...", motivo);
+        try {
+            driver.quit();
+        } catch (Exception ex) {
+            // Ignorar errores al cerrar un driver roto
+        }
+        driver = null;
+    }
+
     /**
      * Extrae coordenadas de la URL de Google Maps
      * Formato típico: https://www.google.com/maps/place/.../@40.4167754,-3.7037902,15z/...
@@ -243,6 +285,11 @@ public class SeleniumGeocodingService {
      * Versión con delay para evitar bloqueos por peticiones rápidas
      */
     public Double[] obtenerCoordenadasConDelay(String direccion) {
+        // Con el circuito abierto no tiene sentido esperar: se devuelve null al momento
+        if (circuitBreaker.estaAbierto()) {
+            return new Double[]{null, null};
+        }
+
         try {
             Thread.sleep(1500); // 1.5 segundos entre peticiones
         } catch (InterruptedException e) {
@@ -270,6 +317,8 @@ public class SeleniumGeocodingService {
 
     /**
      * Verifica si el servicio está disponible
+     * Solo comprueba que el navegador local arranca, no llama al backend: queda fuera del circuit breaker
+     * (registrar aquí un fallo sin haber pasado por permiteLlamada reabriría el circuito sin sonda)
      */
     public boolean isAvailable() {
         try {
@@ -0,0 +1,149 @@
+package com.elucesc.itvintegration.service;
+
+import com.elucesc.itvintegration.geo.Geohash;
+import com.elucesc.itvintegration.model.Estacion;
+import com.elucesc.itvintegration.trabajo.ProgresoIntegracion;
+import com.elucesc.itvintegration.trabajo.TipoEventoIntegracion;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Validación y corrección de lotes de estaciones en paralelo sobre un ForkJoinPool propio
+ * - El lote se divide recursivamente en tramos; cada tramo valida, corrige y calcula el geohash
+ *   de sus estaciones acumulando en sus propias listas, sin estructuras compartidas entre hilos
+ * - Al unir las tareas los resultados se concatenan en orden, así que las válidas salen en el orden del archivo
+ * - Los lotes pequeños se validan en el propio hilo: no compensa repartirlos
+ * EstacionValidador no tiene estado, así que sus comprobaciones se pueden ejecutar desde cualquier hilo
+ */
+@Slf4j
+@Component
+public class ValidacionEstaciones {
+
+    // Por debajo de este tamaño un tramo se valida secuencialmente
+    private static final int TRAMO_SECUENCIAL = 128;
+
+    private final EstacionValidador estacionValidador;
+    private final ForkJoinPool pool;
+
+    public ValidacionEstaciones(EstacionValidador estacionValidador,
+                                @Value("${integration.pipeline.validation-parallelism:0}") int paralelismo) {
+        this.estacionValidador = estacionValidador;
+        AtomicInteger contador = new AtomicInteger();
+        this.pool = new ForkJoinPool(paralelismo > 0 ? paralelismo : Runtime.getRuntime().availableProcessors(),
+                forkJoinPool -> {
+                    ForkJoinWorkerThread hilo = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                    hilo.setName("validacion-" + contador.incrementAndGet());
+                    return hilo;
+                },
+                null, false);
+    }
+
+    /**
+     * Valida (y corrige si se puede) el lote y devuelve las estaciones listas para guardar y los rechazos
+     */
+    public LoteValidado validar(List<Estacion> estaciones, ProgresoIntegracion progreso) {
+        if (estaciones.size() <= TRAMO_SECUENCIAL) {
+            return validarTramo(estaciones, 0, estaciones.size(), progreso);
+        }
+        return pool.invoke(new ValidarTramo(estaciones, 0, estaciones.size(), progreso));
+    }
+
+    public int paralelismo() {
+        return pool.getParallelism();
+    }
+
+    @PreDestroy
+    public void detener() {
+        pool.shutdownNow();
+    }
+
+    private LoteValidado validarTramo(List<Estacion> estaciones, int desde, int hasta, ProgresoIntegracion progreso) {
+        List<Estacion> validas = new ArrayList<>(hasta - desde);
+        List<String> informesRechazo = new ArrayList<>();
+
+        for (int i = desde; i < hasta; i++) {
+            Estacion estacion = estaciones.get(i);
+            int errores = estacionValidador.comprobar(estacion);
+
+            if (errores != 0) {
+                // Los motivos de una corrección citan los valores originales: se generan antes de corregir
+                List<String> corregidos = estacionValidador.esCorregible(errores)
+                        ? estacionValidador.mensajes(estacion, errores)
+                        : null;
+                int erroresDespuesCorreccion = estacionValidador.intentarCorregir(estacion, errores);
+
+                if (erroresDespuesCorreccion != 0) {
+                    // No se pudo corregir - rechazar estación
+                    informesRechazo.add(estacionValidador.generarInforme(estacion, erroresDespuesCorreccion));
+                    log.warn("⚠️ Estación rechazada por errores de validación: {}", estacion.getNombre());
+                    progreso.registro(TipoEventoIntegracion.RECHAZADA, estacion,
+                            estacionValidador.mensajes(estacion, erroresDespuesCorreccion));
+                    continue;
+                }
+                log.info("✅ Estación corregida automáticamente: {}", estacion.getNombre());
+                progreso.registro(TipoEventoIntegracion.CORREGIDA, estacion, corregidos);
+            } else {
+                progreso.registro(TipoEventoIntegracion.VALIDADA, estacion, null);
+            }
+
+            // Geohash derivado de las coordenadas ya validadas (índice para búsquedas por rectángulo)
+            estacion.setGeohash(estacion.getLatitud() != null && estacion.getLongitud() != null
+                    ? Geohash.codificar(estacion.getLatitud(), estacion.getLongitud())
+                    : null);
+            validas.add(estacion);
+        }
+
+        return new LoteValidado(validas, informesRechazo);
+    }
+
+    /**
+     * Estaciones válidas (o corregidas) en el orden de entrada e informes de las rechazadas
+     */
+    public record LoteValidado(List<Estacion> validas, List<String> informesRechazo) {
+
+        public int rechazadas() {
+            return informesRechazo.size();
+        }
+
+        LoteValidado unir(LoteValidado siguiente) {
+            validas.addAll(siguiente.validas);
+            informesRechazo.addAll(siguiente.informesRechazo);
+            return this;
+        }
+    }
+
+    private final class ValidarTramo extends RecursiveTask<LoteValidado> {
+        private final List<Estacion> estaciones;
+        private final int desde;
+        private final int hasta;
+        private final ProgresoIntegracion progreso;
+
+        ValidarTramo(List<Estacion> estaciones, int desde, int hasta, ProgresoIntegracion progreso) {
+            this.estaciones = estaciones;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.progreso = progreso;
+        }
+
+        @Override
+        protected LoteValidado compute() {
+            if (hasta - desde <= TRAMO_SECUENCIAL) {
+                return validarTramo(estaciones, desde, hasta, progreso);
+            }
+            int mitad = (desde + hasta) >>> 1;
+            ValidarTramo segunda = new ValidarTramo(estaciones, mitad, hasta, progreso);
+            segunda.fork();
+            LoteValidado primera = new ValidarTramo(estaciones, desde, mitad, progreso).compute();
+            return primera.unir(segunda.join());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.elucesc.itvintegration.service;
+
+import com.elucesc.itvintegration.event.IntegracionCompletadaEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Versión del catálogo integrado: aumenta con cada integración completada
+ * - Las cachés de lectura la incluyen en sus claves, así que al cambiar dejan de verse todas las entradas anteriores
+ * - Se guarda en public.catalogo_version para que no retroceda al reiniciar: es el ETag y el Last-Modified
+ *   de la API de lectura, y un cliente no debe recibir el mismo ETag para dos catálogos distintos
+ */
+@Slf4j
+@Component
+public class VersionCatalogo {
+
+    private static final RowMapper<Estado> MAPEADOR = (rs, fila) ->
+            new Estado(rs.getLong("version"), rs.getTimestamp("actualizado").toInstant());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicReference<Estado> estado;
+
+    public VersionCatalogo(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.estado = new AtomicReference<>(jdbcTemplate.queryForObject(
+                "SELECT version, actualizado FROM public.catalogo_version WHERE id = 1", MAPEADOR));
+        log.info("Versión del catálogo: {}", estado.get().version());
+    }
+
+    public long actual() {
+        return estado.get().version();
+    }
+
+    public Estado estado() {
+        return estado.get();
+    }
+
+    // Antes que el resto de oyentes: al reconstruir sus datos ya deben ver la versión nueva
+    @EventListener
+    @Order(0)
+    public void alCompletarIntegracion(IntegracionCompletadaEvent evento) {
+        Estado nuevo = subirVersion();
+        // Con dos integraciones a la vez nunca se retrocede a la versión más antigua
+        Estado vigente = estado.accumulateAndGet(nuevo,
+                (actual, candidato) -> candidato.version() > actual.version() ? candidato : actual);
+        log.info("Catálogo actualizado a la versión {}", vigente.version());
+    }
+
+    private Estado subirVersion() {
+        try {
+            return jdbcTemplate.queryForObject("""
+                    UPDATE public.catalogo_version SET version = version + 1, actualizado = now()
+                    WHERE id = 1
+                    RETURNING version, actualizado""", MAPEADOR);
+        } catch (DataAccessException e) {
+            // Las cachés deben invalidarse igualmente: se sube solo en memoria hasta la próxima integración
+            log.error("❌ No se pudo guardar la versión del catálogo: {}", e.getMessage());
+            return new Estado(estado.get().version() + 1, Instant.now());
+        }
+    }
+
+    public record Estado(long version, Instant actualizado) {
+    }
+}
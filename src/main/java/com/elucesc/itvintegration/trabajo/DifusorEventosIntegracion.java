@@ -0,0 +1,164 @@
+package com.elucesc.itvintegration.trabajo;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reparte los eventos de las integraciones a los suscriptores SSE
+ * - Publicar nunca bloquea: cada suscriptor tiene una cola acotada y, si está llena (cliente lento),
+ *   el evento se pierde para ese suscriptor y se le avisa después con un evento PERDIDOS
+ * - Cada suscriptor tiene su propio hilo de envío, así que un cliente lento no retrasa a los demás
+ * - Sin suscriptores, los trabajos ni siquiera construyen los eventos (ver hayOyentes)
+ */
+@Slf4j
+@Component
+public class DifusorEventosIntegracion {
+
+    private final List<Suscripcion> suscripciones = new CopyOnWriteArrayList<>();
+    private final AtomicLong secuencia = new AtomicLong();
+    private final ThreadPoolExecutor emisores;
+    private final int capacidadCola;
+    private final long timeoutMs;
+    private final long latidoMs;
+
+    public DifusorEventosIntegracion(@Value("${integration.events.max-subscribers:10}") int maxSuscriptores,
+                                     @Value("${integration.events.buffer-size:1000}") int capacidadCola,
+                                     @Value("${integration.events.timeout:30m}") Duration timeout,
+                                     @Value("${integration.events.heartbeat:15s}") Duration latido) {
+        AtomicInteger contador = new AtomicInteger();
+        // Sin cola: un hilo por suscriptor y, si no quedan, se rechaza la suscripción
+        this.emisores = new ThreadPoolExecutor(0, maxSuscriptores, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                tarea -> {
+                    Thread hilo = new Thread(tarea, "eventos-sse-" + contador.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+        this.capacidadCola = capacidadCola;
+        this.timeoutMs = timeout.toMillis();
+        this.latidoMs = latido.toMillis();
+    }
+
+    /**
+     * Abre un flujo SSE con los eventos del trabajo indicado (o de todos si es null)
+     *
+     * @throws RejectedExecutionException si ya hay demasiados suscriptores
+     */
+    public SseEmitter suscribir(String trabajo) {
+        SseEmitter emisor = new SseEmitter(timeoutMs);
+        Suscripcion suscripcion = new Suscripcion(emisor, trabajo, new ArrayBlockingQueue<>(capacidadCola));
+        emisor.onCompletion(suscripcion::cerrar);
+        emisor.onTimeout(suscripcion::cerrar);
+        emisor.onError(error -> suscripcion.cerrar());
+
+        suscripciones.add(suscripcion);
+        try {
+            emisores.execute(() -> enviar(suscripcion));
+        } catch (RejectedExecutionException e) {
+            suscripciones.remove(suscripcion);
+            throw e;
+        }
+        log.info("📡 Nuevo suscriptor de eventos de integración ({}), total: {}",
+                trabajo != null ? "trabajo " + trabajo : "todos los trabajos", suscripciones.size());
+        return emisor;
+    }
+
+    public boolean hayOyentes() {
+        return !suscripciones.isEmpty();
+    }
+
+    long siguienteSecuencia() {
+        return secuencia.incrementAndGet();
+    }
+
+    void publicar(EventoIntegracion evento) {
+        for (Suscripcion suscripcion : suscripciones) {
+            if (suscripcion.acepta(evento) && !suscripcion.cola.offer(evento)) {
+                suscripcion.perdidos.incrementAndGet();
+            }
+        }
+    }
+
+    private void enviar(Suscripcion suscripcion) {
+        try {
+            while (!suscripcion.cerrada) {
+                EventoIntegracion evento = suscripcion.cola.poll(latidoMs, TimeUnit.MILLISECONDS);
+
+                long perdidos = suscripcion.perdidos.getAndSet(0);
+                if (perdidos > 0) {
+                    enviarEvento(suscripcion.emisor, EventoIntegracion.perdidos(siguienteSecuencia(), perdidos));
+                }
+
+                if (evento != null) {
+                    enviarEvento(suscripcion.emisor, evento);
+                } else {
+                    // Latido: mantiene la conexión abierta a través de proxies y detecta clientes desconectados
+                    suscripcion.emisor.send(SseEmitter.event().comment("latido"));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Suscriptor de eventos desconectado: {}", e.getMessage());
+            suscripcion.emisor.completeWithError(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            suscripcion.emisor.complete();
+        } finally {
+            suscripcion.cerrar();
+            suscripciones.remove(suscripcion);
+        }
+    }
+
+    private static void enviarEvento(SseEmitter emisor, EventoIntegracion evento) throws IOException {
+        emisor.send(SseEmitter.event()
+                .id(String.valueOf(evento.secuencia()))
+                .name(evento.tipo().name())
+                .data(evento, MediaType.APPLICATION_JSON));
+    }
+
+    @PreDestroy
+    public void detener() {
+        suscripciones.forEach(suscripcion -> {
+            suscripcion.cerrar();
+            suscripcion.emisor.complete();
+        });
+        emisores.shutdownNow();
+    }
+
+    private static final class Suscripcion {
+        private final SseEmitter emisor;
+        private final String trabajo;
+        private final BlockingQueue<EventoIntegracion> cola;
+        private final AtomicLong perdidos = new AtomicLong();
+        private volatile boolean cerrada;
+
+        Suscripcion(SseEmitter emisor, String trabajo, BlockingQueue<EventoIntegracion> cola) {
+            this.emisor = emisor;
+            this.trabajo = trabajo;
+            this.cola = cola;
+        }
+
+        boolean acepta(EventoIntegracion evento) {
+            return trabajo == null || trabajo.equals(evento.trabajo());
+        }
+
+        void cerrar() {
+            cerrada = true;
+        }
+    }
+}
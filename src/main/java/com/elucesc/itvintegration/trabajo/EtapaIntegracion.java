@@ -0,0 +1,22 @@
+package com.elucesc.itvintegration.trabajo;
+
+/**
+ * Etapas por las que pasa un trabajo de integración (en una integración completa se repiten por archivo)
+ */
+public enum EtapaIntegracion {
+    EN_COLA,
+    // Otra petición ya está integrando el mismo origen: se espera a su resultado
+    ESPERANDO_EJECUCION_EN_CURSO,
+    LEYENDO_ARCHIVO,
+    GUARDANDO_REFERENCIAS,
+    // Validar y guardar se solapan con la transformación (ver PipelineEstaciones);
+    // al acabar de transformar se pasa a GUARDANDO_ESTACIONES mientras se vacían las colas
+    TRANSFORMANDO_ESTACIONES,
+    GUARDANDO_ESTACIONES,
+    COMPLETADO,
+    FALLIDO;
+
+    public boolean esFinal() {
+        return this == COMPLETADO || this == FALLIDO;
+    }
+}
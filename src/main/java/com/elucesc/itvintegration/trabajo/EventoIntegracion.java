@@ -0,0 +1,45 @@
+package com.elucesc.itvintegration.trabajo;
+
+import com.elucesc.itvintegration.model.Estacion;
+import com.elucesc.itvintegration.service.IntegrationService;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Evento del flujo de una integración. Los campos de estación solo van en los eventos por registro
+ */
+public record EventoIntegracion(long secuencia,
+                                String trabajo,
+                                TipoEventoIntegracion tipo,
+                                IntegrationService.TipoOrigen origen,
+                                EtapaIntegracion etapa,
+                                String estacion,
+                                String claveNatural,
+                                Double latitud,
+                                Double longitud,
+                                List<String> motivos,
+                                Integer procesadas,
+                                Integer total,
+                                Instant instante) {
+
+    static EventoIntegracion deEtapa(long secuencia, String trabajo, TipoEventoIntegracion tipo,
+                                     IntegrationService.TipoOrigen origen, EtapaIntegracion etapa,
+                                     int procesadas, int total, List<String> motivos) {
+        return new EventoIntegracion(secuencia, trabajo, tipo, origen, etapa, null, null, null, null,
+                motivos, procesadas, total, Instant.now());
+    }
+
+    static EventoIntegracion deRegistro(long secuencia, String trabajo, TipoEventoIntegracion tipo,
+                                        IntegrationService.TipoOrigen origen, EtapaIntegracion etapa,
+                                        Estacion estacion, List<String> motivos) {
+        return new EventoIntegracion(secuencia, trabajo, tipo, origen, etapa, estacion.getNombre(),
+                estacion.getClaveNatural(), estacion.getLatitud(), estacion.getLongitud(), motivos,
+                null, null, Instant.now());
+    }
+
+    static EventoIntegracion perdidos(long secuencia, long perdidos) {
+        return new EventoIntegracion(secuencia, null, TipoEventoIntegracion.PERDIDOS, null, null, null, null,
+                null, null, null, (int) Math.min(Integer.MAX_VALUE, perdidos), null, Instant.now());
+    }
+}
@@ -0,0 +1,40 @@
+package com.elucesc.itvintegration.trabajo;
+
+import com.elucesc.itvintegration.model.Estacion;
+import com.elucesc.itvintegration.service.IntegrationService;
+
+import java.util.List;
+
+/**
+ * Receptor del avance de una integración. IntegrationService lo notifica en cada etapa;
+ * por defecto no hace nada, así que la integración síncrona no cambia
+ */
+public interface ProgresoIntegracion {
+
+    ProgresoIntegracion NINGUNO = new ProgresoIntegracion() {
+    };
+
+    default void origen(IntegrationService.TipoOrigen origen) {
+    }
+
+    /**
+     * Empieza una etapa con el número de elementos a procesar (0 si no se conoce)
+     */
+    default void etapa(EtapaIntegracion etapa, int total) {
+    }
+
+    default void procesadas(int procesadas) {
+    }
+
+    /**
+     * Recuento de un archivo al terminar de guardar sus estaciones
+     */
+    default void resultado(int guardadas, int rechazadas, int fallidas) {
+    }
+
+    /**
+     * Resultado de un registro concreto (transformado, validado, rechazado, guardado...)
+     */
+    default void registro(TipoEventoIntegracion tipo, Estacion estacion, List<String> motivos) {
+    }
+}
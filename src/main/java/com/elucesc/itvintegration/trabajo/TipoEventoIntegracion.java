@@ -0,0 +1,25 @@
+package com.elucesc.itvintegration.trabajo;
+
+/**
+ * Tipos de evento del flujo de eventos de integración (nombre del evento SSE)
+ */
+public enum TipoEventoIntegracion {
+    // Cambio de etapa del trabajo
+    ETAPA,
+    // Registro transformado a estación (con coordenadas si se obtuvieron o geocodificaron)
+    TRANSFORMADA,
+    // Estación válida tal cual
+    VALIDADA,
+    // Estación corregida automáticamente (motivos: errores corregidos)
+    CORREGIDA,
+    // Estación rechazada por validación (motivos: errores que no se pudieron corregir)
+    RECHAZADA,
+    // Estación guardada: su bloque ya está confirmado
+    GUARDADA,
+    // Estación descartada por error de BD o clave natural inválida
+    DESCARTADA,
+    // Fin del trabajo (etapa COMPLETADO o FALLIDO)
+    FIN,
+    // Eventos perdidos por un suscriptor lento (ver DifusorEventosIntegracion)
+    PERDIDOS
+}
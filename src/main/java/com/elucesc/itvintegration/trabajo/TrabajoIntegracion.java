@@ -0,0 +1,144 @@
+package com.elucesc.itvintegration.trabajo;
+
+import com.elucesc.itvintegration.model.Estacion;
+import com.elucesc.itvintegration.service.IntegrationService;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estado de un trabajo de integración lanzado en segundo plano
+ * Lo actualiza el hilo que ejecuta la integración y lo leen las peticiones de consulta de estado;
+ * además reenvía cada cambio como evento a los suscriptores SSE (si los hay)
+ */
+public class TrabajoIntegracion implements ProgresoIntegracion {
+
+    private final String id;
+    private final String descripcion;
+    private final DifusorEventosIntegracion difusor;
+    private final Instant creado = Instant.now();
+
+    private EtapaIntegracion etapa = EtapaIntegracion.EN_COLA;
+    private IntegrationService.TipoOrigen origen;
+    private int total;
+    private int procesadas;
+    private int guardadas;
+    private int rechazadas;
+    private int fallidas;
+    private Instant iniciado;
+    private Instant finalizado;
+    private String error;
+
+    public TrabajoIntegracion(String id, String descripcion, DifusorEventosIntegracion difusor) {
+        this.id = id;
+        this.descripcion = descripcion;
+        this.difusor = difusor;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getDescripcion() {
+        return descripcion;
+    }
+
+    public Instant getCreado() {
+        return creado;
+    }
+
+    public synchronized EtapaIntegracion getEtapa() {
+        return etapa;
+    }
+
+    public synchronized Instant getFinalizado() {
+        return finalizado;
+    }
+
+    synchronized void iniciar() {
+        iniciado = Instant.now();
+    }
+
+    synchronized void completar() {
+        etapa = EtapaIntegracion.COMPLETADO;
+        finalizado = Instant.now();
+        publicarEtapa(TipoEventoIntegracion.FIN, null);
+    }
+
+    synchronized void fallar(String mensaje) {
+        etapa = EtapaIntegracion.FALLIDO;
+        error = mensaje;
+        finalizado = Instant.now();
+        publicarEtapa(TipoEventoIntegracion.FIN, mensaje != null ? List.of(mensaje) : null);
+    }
+
+    @Override
+    public synchronized void origen(IntegrationService.TipoOrigen origen) {
+        this.origen = origen;
+    }
+
+    @Override
+    public synchronized void etapa(EtapaIntegracion etapa, int total) {
+        this.etapa = etapa;
+        this.total = total;
+        this.procesadas = 0;
+        publicarEtapa(TipoEventoIntegracion.ETAPA, null);
+    }
+
+    @Override
+    public synchronized void procesadas(int procesadas) {
+        this.procesadas = procesadas;
+    }
+
+    // En una integración completa se acumulan los recuentos de todos los archivos
+    @Override
+    public synchronized void resultado(int guardadas, int rechazadas, int fallidas) {
+        this.guardadas += guardadas;
+        this.rechazadas += rechazadas;
+        this.fallidas += fallidas;
+    }
+
+    // Se llama desde los hilos de validación en paralelo: sin oyentes no se toma el monitor
+    @Override
+    public void registro(TipoEventoIntegracion tipo, Estacion estacion, List<String> motivos) {
+        if (!difusor.hayOyentes()) {
+            return;
+        }
+        synchronized (this) {
+            difusor.publicar(EventoIntegracion.deRegistro(difusor.siguienteSecuencia(), id, tipo, origen, etapa,
+                    estacion, motivos));
+        }
+    }
+
+    private void publicarEtapa(TipoEventoIntegracion tipo, List<String> motivos) {
+        if (difusor.hayOyentes()) {
+            difusor.publicar(EventoIntegracion.deEtapa(difusor.siguienteSecuencia(), id, tipo, origen, etapa,
+                    procesadas, total, motivos));
+        }
+    }
+
+    public synchronized Map<String, Object> describir() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("id", id);
+        estado.put("descripcion", descripcion);
+        estado.put("etapa", etapa);
+        estado.put("origen", origen);
+        estado.put("procesadas", procesadas);
+        estado.put("total", total);
+        estado.put("guardadas", guardadas);
+        estado.put("rechazadas", rechazadas);
+        estado.put("fallidas", fallidas);
+        estado.put("creado", creado);
+        estado.put("iniciado", iniciado);
+        estado.put("finalizado", finalizado);
+        if (iniciado != null) {
+            Instant fin = finalizado != null ? finalizado : Instant.now();
+            estado.put("duracionMs", Duration.between(iniciado, fin).toMillis());
+        }
+        estado.put("error", error);
+        return estado;
+    }
+}
@@ -0,0 +1,154 @@
+package com.elucesc.itvintegration.trabajo;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ejecuta las integraciones como trabajos en segundo plano
+ * - Pool propio y acotado: como mucho max-concurrent integraciones a la vez y queue-capacity en espera;
+ *   si no caben se rechaza el trabajo en vez de acumularlo sin límite
+ * - Los hilos de Tomcat solo encolan el trabajo y devuelven su id; el estado se consulta por id
+ * - Se conservan los últimos 'retention' trabajos terminados para poder consultar su resultado
+ * - Una petición igual a un trabajo que aún no ha terminado se une a ese trabajo en vez de encolar otro
+ */
+@Slf4j
+@Service
+public class TrabajosIntegracionService {
+
+    private final ThreadPoolExecutor ejecutor;
+    private final DifusorEventosIntegracion difusor;
+    private final int retencion;
+    private final Map<String, TrabajoIntegracion> trabajos = new ConcurrentHashMap<>();
+    // Trabajo en cola o en curso por clave de petición ("cv", "gal", "cat", "all")
+    private final Map<String, TrabajoIntegracion> activos = new HashMap<>();
+
+    public TrabajosIntegracionService(DifusorEventosIntegracion difusor,
+                                      @Value("${integration.jobs.max-concurrent:2}") int maxConcurrentes,
+                                      @Value("${integration.jobs.queue-capacity:10}") int capacidadCola,
+                                      @Value("${integration.jobs.retention:100}") int retencion) {
+        AtomicInteger contador = new AtomicInteger();
+        this.ejecutor = new ThreadPoolExecutor(maxConcurrentes, maxConcurrentes, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola),
+                tarea -> {
+                    Thread hilo = new Thread(tarea, "integracion-" + contador.incrementAndGet());
+                    hilo.setDaemon(false);
+                    return hilo;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.retencion = retencion;
+        this.difusor = difusor;
+    }
+
+    /**
+     * Encola la tarea y devuelve el trabajo que la representa
+     * Si ya hay un trabajo con la misma clave en cola o en curso no se encola nada y se devuelve ese trabajo
+     *
+     * @throws RejectedExecutionException si ya hay demasiadas integraciones en curso o en cola
+     */
+    public synchronized Lanzamiento lanzar(String clave, String descripcion, TareaIntegracion tarea) {
+        TrabajoIntegracion activo = activos.get(clave);
+        if (activo != null) {
+            log.info("🔗 Ya hay un trabajo de {} sin terminar ({}): se une la petición a él", descripcion, activo.getId());
+            return new Lanzamiento(activo, false);
+        }
+
+        TrabajoIntegracion trabajo = new TrabajoIntegracion(UUID.randomUUID().toString(), descripcion, difusor);
+        trabajos.put(trabajo.getId(), trabajo);
+        activos.put(clave, trabajo);
+        try {
+            ejecutor.execute(() -> ejecutar(clave, trabajo, tarea));
+        } catch (RejectedExecutionException e) {
+            trabajos.remove(trabajo.getId());
+            activos.remove(clave);
+            throw e;
+        }
+        return new Lanzamiento(trabajo, true);
+    }
+
+    public Optional<TrabajoIntegracion> buscar(String id) {
+        return Optional.ofNullable(trabajos.get(id));
+    }
+
+    /**
+     * Trabajos conocidos, los más recientes primero
+     */
+    public List<Map<String, Object>> listar() {
+        return trabajos.values().stream()
+                .sorted(Comparator.comparing(TrabajoIntegracion::getCreado).reversed())
+                .map(TrabajoIntegracion::describir)
+                .toList();
+    }
+
+    private void ejecutar(String clave, TrabajoIntegracion trabajo, TareaIntegracion tarea) {
+        trabajo.iniciar();
+        log.info("▶️ Trabajo {} iniciado: {}", trabajo.getId(), trabajo.getDescripcion());
+        try {
+            tarea.ejecutar(trabajo);
+            trabajo.completar();
+            log.info("✅ Trabajo {} completado", trabajo.getId());
+        } catch (Exception e) {
+            log.error("❌ Trabajo {} fallido", trabajo.getId(), e);
+            trabajo.fallar(e.getMessage());
+        } finally {
+            synchronized (this) {
+                activos.remove(clave, trabajo);
+            }
+            purgarTerminados();
+        }
+    }
+
+    private void purgarTerminados() {
+        List<TrabajoIntegracion> terminados = new ArrayList<>();
+        for (TrabajoIntegracion trabajo : trabajos.values()) {
+            if (trabajo.getEtapa().esFinal()) {
+                terminados.add(trabajo);
+            }
+        }
+        if (terminados.size() <= retencion) {
+            return;
+        }
+        terminados.sort(Comparator.comparing(TrabajoIntegracion::getFinalizado));
+        for (TrabajoIntegracion trabajo : terminados.subList(0, terminados.size() - retencion)) {
+            trabajos.remove(trabajo.getId());
+        }
+    }
+
+    /**
+     * Al parar la aplicación se interrumpen las integraciones en curso; la de la Comunidad Valenciana
+     * conserva su checkpoint de geocoding y se reanuda en la siguiente ejecución
+     */
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        ejecutor.shutdownNow();
+        if (!ejecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("⚠️ Quedan integraciones en curso al detener la aplicación");
+        }
+    }
+
+    /**
+     * Trabajo que atiende una petición y si se ha encolado para ella (nuevo) o ya existía
+     */
+    public record Lanzamiento(TrabajoIntegracion trabajo, boolean nuevo) {
+    }
+
+    @FunctionalInterface
+    public interface TareaIntegracion {
+        void ejecutar(ProgresoIntegracion progreso) throws Exception;
+    }
+}
@@ -0,0 +1,44 @@
+package com.elucesc.itvintegration.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+
+import java.util.Locale;
+
+/**
+ * Validadores y negociación de codificación compartidos por el filtro condicional y los controladores
+ */
+public final class CabecerasHttp {
+
+    private CabecerasHttp() {
+    }
+
+    /**
+     * ETag fuerte de una versión del catálogo; la representación gzip lleva su propio ETag
+     */
+    public static String etag(long version, boolean gzip) {
+        return "\"" + version + (gzip ? "-gzip" : "") + "\"";
+    }
+
+    public static boolean aceptaGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String codificacion : acceptEncoding.split(",")) {
+            String[] partes = codificacion.trim().split(";");
+            String nombre = partes[0].trim().toLowerCase(Locale.ROOT);
+            if (!nombre.equals("gzip") && !nombre.equals("*")) {
+                continue;
+            }
+            // gzip;q=0 lo rechaza explícitamente
+            for (int i = 1; i < partes.length; i++) {
+                if (partes[i].replace(" ", "").matches("q=0(\\.0{0,3})?")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
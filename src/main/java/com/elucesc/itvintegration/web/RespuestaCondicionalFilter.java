@@ -0,0 +1,363 @@
+package com.elucesc.itvintegration.web;
+
+import com.elucesc.itvintegration.service.VersionCatalogo;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Peticiones condicionales y compresión de la API de lectura a partir de la versión del catálogo
+ * - ETag fuerte "<versión>" (o "<versión>-gzip" si el cuerpo va comprimido) y Last-Modified de la última integración
+ * - If-None-Match / If-Modified-Since con la versión vigente se responden con 304 sin ejecutar el controlador
+ * - If-None-Match: * solo se responde con 304 si el controlador devuelve un 200 (un 404 o un 400 se mantienen)
+ * - Las respuestas de más de api.compression.min-size se comprimen con gzip si el cliente lo acepta
+ * La compresión se hace aquí y no con server.compression porque Tomcat no comprime respuestas con ETag fuerte
+ */
+@Component
+public class RespuestaCondicionalFilter extends OncePerRequestFilter {
+
+    private static final List<String> RUTAS_LECTURA = List.of("/api/estaciones", "/api/provincias", "/api/exportacion");
+
+    // La exportación comprime ella misma (parámetro gzip) y escribe en streaming desde otro hilo
+    private static final String RUTA_EXPORTACION = "/api/exportacion";
+
+    private static final Set<String> TIPOS_COMPRIMIBLES = Set.of(
+            "application/json", "application/geo+json", "application/x-ndjson", "text/csv");
+
+    private static final int TAMANO_BUFFER_GZIP = 8192;
+
+    private final VersionCatalogo versionCatalogo;
+    private final int tamanoMinimoGzip;
+
+    public RespuestaCondicionalFilter(VersionCatalogo versionCatalogo,
+                                      @Value("${api.compression.min-size:2KB}") DataSize tamanoMinimoGzip) {
+        this.versionCatalogo = versionCatalogo;
+        this.tamanoMinimoGzip = (int) tamanoMinimoGzip.toBytes();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String metodo = request.getMethod();
+        if (!"GET".equals(metodo) && !"HEAD".equals(metodo)) {
+            return true;
+        }
+        String ruta = request.getRequestURI().substring(request.getContextPath().length());
+        return RUTAS_LECTURA.stream().noneMatch(ruta::startsWith);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        // La versión se toma antes de ejecutar el controlador: si cambia entretanto, el ETag es el de la
+        // versión anterior y el cliente solo volverá a descargar el catálogo en su siguiente consulta
+        VersionCatalogo.Estado estado = versionCatalogo.estado();
+        String etag = CabecerasHttp.etag(estado.version(), false);
+        String etagGzip = CabecerasHttp.etag(estado.version(), true);
+        // Last-Modified va en segundos: se trunca para comparar con If-Modified-Since
+        long ultimaModificacion = estado.actualizado().toEpochMilli() / 1000 * 1000;
+
+        String ruta = request.getRequestURI().substring(request.getContextPath().length());
+        boolean compresionPropia = ruta.startsWith(RUTA_EXPORTACION);
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        String etagVigente = ifNoneMatch != null ? coincidencia(ifNoneMatch, etag, etagGzip) : null;
+        boolean siExiste = etagVigente == null && ifNoneMatch != null && contieneComodin(ifNoneMatch);
+        boolean noModificado = etagVigente != null
+                || (ifNoneMatch == null && noModificadoDesde(request, ultimaModificacion));
+        if (noModificado) {
+            // Las dos codificaciones tienen el mismo contenido: vale la que tenga el cliente
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            response.setHeader(HttpHeaders.ETAG, etagVigente != null ? etagVigente : etag);
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, ultimaModificacion);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+            if (!compresionPropia) {
+                response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+            return;
+        }
+
+        boolean gzipAceptado = !compresionPropia && CabecerasHttp.aceptaGzip(request);
+        RespuestaVersionada respuesta = new RespuestaVersionada(response, etag, etagGzip, ultimaModificacion,
+                gzipAceptado, !compresionPropia, siExiste);
+        chain.doFilter(request, respuesta);
+        // Las respuestas en streaming asíncrono se escriben después sin buffer ni gzip: no hay nada que cerrar
+        if (!request.isAsyncStarted()) {
+            respuesta.finalizar();
+        }
+    }
+
+    /**
+     * ETag de la lista If-None-Match que corresponde a la versión vigente (comparación débil, RFC 9110)
+     */
+    private static String coincidencia(String ifNoneMatch, String etag, String etagGzip) {
+        for (String candidato : ifNoneMatch.split(",")) {
+            String valor = candidato.trim();
+            if (valor.startsWith("W/")) {
+                valor = valor.substring(2);
+            }
+            if (valor.equals(etag) || valor.equals(etagGzip)) {
+                return valor;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * If-None-Match: * coincide con cualquier versión, pero solo si el recurso existe: eso lo decide el controlador
+     */
+    private static boolean contieneComodin(String ifNoneMatch) {
+        for (String candidato : ifNoneMatch.split(",")) {
+            if (candidato.trim().equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean noModificadoDesde(HttpServletRequest request, long ultimaModificacion) {
+        try {
+            long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+            return ifModifiedSince != -1 && ultimaModificacion <= ifModifiedSince;
+        } catch (IllegalArgumentException e) {
+            // Fecha mal formada: se ignora la cabecera
+            return false;
+        }
+    }
+
+    /**
+     * Respuesta que retiene el cuerpo hasta saber si supera el tamaño mínimo de compresión
+     * y entonces añade las cabeceras de validación (solo en 200) y decide la codificación
+     */
+    private final class RespuestaVersionada extends HttpServletResponseWrapper {
+        private final String etag;
+        private final String etagGzip;
+        private final long ultimaModificacion;
+        private final boolean gzipAceptado;
+        private final boolean variaPorCodificacion;
+        // If-None-Match: *: un 200 del controlador se convierte en 304 sin cuerpo
+        private final boolean noModificadoSiExiste;
+
+        private ByteArrayOutputStream pendiente = new ByteArrayOutputStream();
+        private OutputStream destino;
+        private GZIPOutputStream gzip;
+        private ServletOutputStream salida;
+        private PrintWriter escritor;
+        private long longitudDeclarada = -1;
+
+        RespuestaVersionada(HttpServletResponse response, String etag, String etagGzip, long ultimaModificacion,
+                            boolean gzipAceptado, boolean variaPorCodificacion, boolean noModificadoSiExiste) {
+            super(response);
+            this.etag = etag;
+            this.etagGzip = etagGzip;
+            this.ultimaModificacion = ultimaModificacion;
+            this.gzipAceptado = gzipAceptado;
+            this.variaPorCodificacion = variaPorCodificacion;
+            this.noModificadoSiExiste = noModificadoSiExiste;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            if (escritor != null) {
+                throw new IllegalStateException("getWriter() ya se ha llamado en esta respuesta");
+            }
+            if (salida == null) {
+                salida = new SalidaVersionada();
+            }
+            return salida;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (salida != null && escritor == null) {
+                throw new IllegalStateException("getOutputStream() ya se ha llamado en esta respuesta");
+            }
+            if (escritor == null) {
+                salida = new SalidaVersionada();
+                escritor = new PrintWriter(new OutputStreamWriter(salida, getCharacterEncoding()));
+            }
+            return escritor;
+        }
+
+        // La longitud solo se conoce si el cuerpo sale sin comprimir
+        @Override
+        public void setContentLength(int longitud) {
+            setContentLengthLong(longitud);
+        }
+
+        @Override
+        public void setContentLengthLong(long longitud) {
+            if (destino == null) {
+                longitudDeclarada = longitud;
+            } else if (gzip == null) {
+                super.setContentLengthLong(longitud);
+            }
+        }
+
+        @Override
+        public void setHeader(String nombre, String valor) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(nombre)) {
+                setContentLengthLong(Long.parseLong(valor));
+            } else {
+                super.setHeader(nombre, valor);
+            }
+        }
+
+        @Override
+        public void addHeader(String nombre, String valor) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(nombre)) {
+                setContentLengthLong(Long.parseLong(valor));
+            } else {
+                super.addHeader(nombre, valor);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (escritor != null) {
+                escritor.flush();
+            }
+            // Un vaciado explícito de la respuesta indica streaming: se decide ya, con lo que haya
+            if (destino == null) {
+                decidir(comprimible());
+            }
+            destino.flush();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void resetBuffer() {
+            if (destino == null) {
+                pendiente.reset();
+            }
+            super.resetBuffer();
+        }
+
+        @Override
+        public void reset() {
+            if (destino == null) {
+                pendiente.reset();
+                longitudDeclarada = -1;
+            }
+            super.reset();
+        }
+
+        void finalizar() throws IOException {
+            if (escritor != null) {
+                escritor.flush();
+            }
+            // Si no ha llegado al tamaño mínimo se envía tal cual
+            if (destino == null) {
+                decidir(false);
+            }
+            if (gzip != null) {
+                gzip.finish();
+            }
+        }
+
+        private void escribir(byte[] datos, int desde, int longitud) throws IOException {
+            if (destino == null) {
+                if (comprimible() && pendiente.size() + longitud < tamanoMinimoGzip) {
+                    pendiente.write(datos, desde, longitud);
+                    return;
+                }
+                decidir(comprimible());
+            }
+            destino.write(datos, desde, longitud);
+        }
+
+        private boolean comprimible() {
+            if (!gzipAceptado || getStatus() != HttpServletResponse.SC_OK
+                    || getHeader(HttpHeaders.CONTENT_ENCODING) != null || getContentType() == null) {
+                return false;
+            }
+            String tipo = getContentType().split(";")[0].trim().toLowerCase(Locale.ROOT);
+            return TIPOS_COMPRIMIBLES.contains(tipo);
+        }
+
+        private void decidir(boolean comprimir) throws IOException {
+            boolean noModificado = noModificadoSiExiste && getStatus() == HttpServletResponse.SC_OK;
+            if (noModificado) {
+                comprimir = false;
+            }
+            // Si el controlador ya puso sus validadores (snapshots) se respetan, igual que un cuerpo ya comprimido
+            boolean cuerpoGzip = comprimir || "gzip".equalsIgnoreCase(getHeader(HttpHeaders.CONTENT_ENCODING));
+            if (getStatus() == HttpServletResponse.SC_OK && getHeader(HttpHeaders.ETAG) == null) {
+                super.setHeader(HttpHeaders.ETAG, cuerpoGzip ? etagGzip : etag);
+                super.setDateHeader(HttpHeaders.LAST_MODIFIED, ultimaModificacion);
+                // El cliente puede guardar la respuesta pero debe revalidarla siempre (304 si no ha cambiado)
+                super.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+            }
+            if (variaPorCodificacion) {
+                super.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+
+            if (noModificado) {
+                // El cuerpo generado se descarta; tampoco se declara su longitud
+                super.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                destino = OutputStream.nullOutputStream();
+            } else if (comprimir) {
+                super.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                // syncFlush: un flush envía ya lo comprimido hasta ese punto
+                gzip = new GZIPOutputStream(super.getOutputStream(), TAMANO_BUFFER_GZIP, true);
+                destino = gzip;
+            } else {
+                if (longitudDeclarada >= 0) {
+                    super.setContentLengthLong(longitudDeclarada);
+                }
+                destino = super.getOutputStream();
+            }
+            pendiente.writeTo(destino);
+            pendiente = null;
+        }
+
+        private final class SalidaVersionada extends ServletOutputStream {
+
+            @Override
+            public void write(int b) throws IOException {
+                escribir(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] datos, int desde, int longitud) throws IOException {
+                escribir(datos, desde, longitud);
+            }
+
+            // Mientras se retiene el cuerpo el flush no hace nada: los conversores JSON vacían siempre al terminar
+            @Override
+            public void flush() throws IOException {
+                if (destino != null) {
+                    destino.flush();
+                }
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+                throw new UnsupportedOperationException("Escritura no bloqueante no soportada");
+            }
+        }
+    }
+}
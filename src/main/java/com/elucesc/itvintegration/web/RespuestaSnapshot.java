@@ -0,0 +1,66 @@
+package com.elucesc.itvintegration.web;
+
+import com.elucesc.itvintegration.cache.SnapshotJson;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Respuesta HTTP con los bytes de un snapshot tal cual: sin serializar y, si el cliente acepta gzip,
+ * ya comprimidos. Los validadores son los de la versión del snapshot, no los de la versión vigente,
+ * para que un cliente nunca guarde un listado antiguo con el ETag de uno nuevo
+ */
+public final class RespuestaSnapshot {
+
+    private RespuestaSnapshot() {
+    }
+
+    public static ResponseEntity<Resource> de(SnapshotJson snapshot, HttpServletRequest request) {
+        boolean gzip = CabecerasHttp.aceptaGzip(request);
+        ByteBuffer cuerpo = snapshot.cuerpo(gzip);
+
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(cuerpo.remaining())
+                .eTag(CabecerasHttp.etag(snapshot.version(), gzip))
+                .lastModified(snapshot.actualizado())
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache");
+        if (gzip) {
+            respuesta.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return respuesta.body(new BufferResource(cuerpo));
+    }
+
+    /**
+     * Recurso sobre un buffer (directo) de solo lectura: cada lectura parte de una vista nueva
+     */
+    private static final class BufferResource extends AbstractResource {
+        private final ByteBuffer buffer;
+
+        BufferResource(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return DefaultDataBufferFactory.sharedInstance.wrap(buffer.duplicate()).asInputStream();
+        }
+
+        @Override
+        public long contentLength() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public String getDescription() {
+            return "Snapshot JSON del catálogo (" + buffer.remaining() + " bytes)";
+        }
+    }
+}
@@ -0,0 +1,38 @@
+-- Migración única (Flyway): limpieza de datos anteriores a las claves naturales de localidad y estación
+-- Se ejecuta una sola vez por base de datos; el DDL idempotente sigue en schema-postgresql.sql
+-- Las columnas e índices se crean aquí con IF NOT EXISTS para no depender del orden con ese script
+
+-- Localidades repetidas (mismo nombre y provincia) creadas antes del índice único, que no se podría crear:
+-- sus estaciones pasan a la de menor código y las demás se borran (sin repetidas no hace nada)
+UPDATE public.estacion e SET cod_localidad = d.conservar
+FROM (SELECT codigo, MIN(codigo) OVER (PARTITION BY nombre, cod_provincia) AS conservar
+      FROM public.localidad) d
+WHERE e.cod_localidad = d.codigo AND d.codigo <> d.conservar;
+DELETE FROM public.localidad l
+USING public.localidad o
+WHERE o.nombre = l.nombre AND o.cod_provincia IS NOT DISTINCT FROM l.cod_provincia AND o.codigo < l.codigo;
+
+-- Clave natural de localidad (nombre + provincia) usada como destino de INSERT ... ON CONFLICT
+-- NULLS NOT DISTINCT (PostgreSQL 15+) evita duplicados de localidades sin provincia
+CREATE UNIQUE INDEX IF NOT EXISTS ux_localidad_nombre_provincia
+    ON public.localidad (nombre, cod_provincia) NULLS NOT DISTINCT;
+
+-- Clave natural de estación
+ALTER TABLE public.estacion ADD COLUMN IF NOT EXISTS clave_natural varchar(255);
+CREATE UNIQUE INDEX IF NOT EXISTS ux_estacion_clave_natural ON public.estacion (clave_natural);
+
+-- Filas heredadas sin clave natural (integradas antes de existir la columna), que el upsert no reconoce:
+-- 1) Las móviles valencianas con la clave antigua (solo el número, compartido entre ubicaciones) vuelven a quedar sin clave
+UPDATE public.estacion SET clave_natural = NULL
+WHERE clave_natural ~ '^CV-[^-]+$' AND tipo IS DISTINCT FROM 'ESTACION_FIJA';
+-- 2) Se borran las que ya tienen gemela con clave (mismo nombre y CP; el CP fija la provincia y con ella el origen)
+--    y, entre las heredadas repetidas, todas menos la de menor ID
+DELETE FROM public.estacion l
+WHERE l.clave_natural IS NULL
+  AND EXISTS (SELECT 1 FROM public.estacion o
+              WHERE o.nombre = l.nombre AND o.codigo_postal IS NOT DISTINCT FROM l.codigo_postal
+                AND (o.clave_natural IS NOT NULL OR o.cod_estacion < l.cod_estacion));
+-- 3) El resto recibe una clave provisional LEGADO-<id>: la primera integración que traiga una estación con el
+--    mismo nombre y CP se queda con esa fila (ver EstacionBulkLoader) en vez de crear otra
+UPDATE public.estacion SET clave_natural = 'LEGADO-' || cod_estacion WHERE clave_natural IS NULL;
+ALTER TABLE public.estacion ALTER COLUMN clave_natural SET NOT NULL;
@@ -0,0 +1,44 @@
+-- Script idempotente que Spring Boot ejecuta en cada arranque (spring.sql.init.platform = postgresql)
+-- antes de que Hibernate valide el esquema (ddl-auto: validate)
+-- Solo DDL repetible: los cambios de datos que deben hacerse una única vez van en db/migration (Flyway)
+-- Requiere PostgreSQL 15 o superior (índices únicos con NULLS NOT DISTINCT en db/migration)
+
+-- Secuencias para generar IDs en bloques de 50 (optimizador pooled-lo) y poder agrupar INSERTs en lotes JDBC
+CREATE SEQUENCE IF NOT EXISTS public.estacion_seq INCREMENT BY 50 START WITH 1;
+CREATE SEQUENCE IF NOT EXISTS public.localidad_seq INCREMENT BY 50 START WITH 1;
+
+-- Situar las secuencias por encima de los IDs existentes (los generados antes por IDENTITY) sin retrocederlas nunca
+SELECT setval('public.estacion_seq',
+              GREATEST((SELECT COALESCE(MAX(cod_estacion), 0) FROM public.estacion),
+                       (SELECT last_value FROM public.estacion_seq)));
+SELECT setval('public.localidad_seq',
+              GREATEST((SELECT COALESCE(MAX(codigo), 0) FROM public.localidad),
+                       (SELECT last_value FROM public.localidad_seq)));
+
+-- Clave natural de localidad (nombre + provincia), destino de INSERT ... ON CONFLICT: el índice único se crea
+-- en la migración V1__claves_naturales.sql, después de fusionar las localidades repetidas
+
+-- Clave natural de estación (identificador estable en su origen): reintegrar un archivo hace upsert en vez de duplicar
+ALTER TABLE public.estacion ADD COLUMN IF NOT EXISTS clave_natural varchar(255);
+CREATE UNIQUE INDEX IF NOT EXISTS ux_estacion_clave_natural ON public.estacion (clave_natural);
+
+-- Las filas heredadas sin clave y el NOT NULL se resuelven en la migración V1__claves_naturales.sql
+
+-- Índices de la API de consulta: cada filtro seguido de cod_estacion para paginar por cursor sin ordenar
+CREATE INDEX IF NOT EXISTS ix_estacion_localidad_codigo ON public.estacion (cod_localidad, cod_estacion);
+CREATE INDEX IF NOT EXISTS ix_estacion_tipo_codigo ON public.estacion (tipo, cod_estacion);
+CREATE INDEX IF NOT EXISTS ix_estacion_cp_codigo ON public.estacion (codigo_postal, cod_estacion);
+CREATE INDEX IF NOT EXISTS ix_localidad_provincia ON public.localidad (cod_provincia, codigo);
+
+-- Geohash de las coordenadas para búsquedas por rectángulo como rangos de prefijo sobre un B-tree
+-- (COLLATE "C": orden por bytes, que coincide con el del alfabeto geohash)
+ALTER TABLE public.estacion ADD COLUMN IF NOT EXISTS geohash varchar(12) COLLATE "C";
+CREATE INDEX IF NOT EXISTS ix_estacion_geohash ON public.estacion (geohash);
+
+-- Versión del catálogo (una sola fila): la sube cada integración completada y es el ETag / Last-Modified de la API de lectura
+CREATE TABLE IF NOT EXISTS public.catalogo_version (
+    id          smallint PRIMARY KEY CHECK (id = 1),
+    version     bigint      NOT NULL,
+    actualizado timestamptz NOT NULL DEFAULT now()
+);
+INSERT INTO public.catalogo_version (id, version) VALUES (1, 1) ON CONFLICT (id) DO NOTHING;
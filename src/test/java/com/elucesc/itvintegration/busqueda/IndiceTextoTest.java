@@ -0,0 +1,250 @@
+package com.elucesc.itvintegration.busqueda;
+
+import com.elucesc.itvintegration.dto.consulta.EstacionResumen;
+import com.elucesc.itvintegration.dto.consulta.SugerenciaEstacion;
+import com.elucesc.itvintegration.model.TipoEstacion;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IndiceTextoTest {
+
+    @Test
+    void tokenizarQuitaAcentosMayusculasYSignos() {
+        assertThat(IndiceTexto.tokenizar("L'Hospitalet de Llobregat"))
+                .containsExactly("l", "hospitalet", "de", "llobregat");
+        assertThat(IndiceTexto.tokenizar("Castelló de la Plana")).containsExactly("castello", "de", "la", "plana");
+        assertThat(IndiceTexto.tokenizar("ESPÍRITO Santo, 3")).containsExactly("espirito", "santo", "3");
+        assertThat(IndiceTexto.tokenizar("  ")).isEmpty();
+    }
+
+    @Test
+    void elPuntoVoladoNoParteLaPalabra() {
+        assertThat(IndiceTexto.tokenizar("Av. del Paral·lel")).containsExactly("av", "del", "parallel");
+
+        IndiceTexto indice = IndiceTexto.construir(List.of(
+                estacion(1, "ITV Paral·lel", "Barcelona"),
+                estacion(2, "ITV Sants", "Barcelona")));
+
+        assertThat(codigos(indice.buscar("paral·lel", 10))).containsExactly(1L);
+        assertThat(codigos(indice.buscar("parallel", 10))).containsExactly(1L);
+        assertThat(codigos(indice.buscar("paral", 10))).containsExactly(1L);
+    }
+
+    @Test
+    void buscaSinDistinguirAcentosNiMayusculas() {
+        IndiceTexto indice = IndiceTexto.construir(List.of(
+                estacion(1, "ITV Castelló", "Castelló de la Plana"),
+                estacion(2, "ITV Vila-real", "Vila-real")));
+
+        assertThat(codigos(indice.buscar("castello", 10))).containsExactly(1L);
+        assertThat(codigos(indice.buscar("CASTELLÓ", 10))).containsExactly(1L);
+        assertThat(codigos(indice.buscar("Castéllo", 10))).containsExactly(1L);
+    }
+
+    @Test
+    void todasLasPalabrasDebenCoincidir() {
+        IndiceTexto indice = IndiceTexto.construir(List.of(
+                estacion(1, "ITV Vigo", "Vigo"),
+                estacion(2, "ITV Lugo", "Lugo")));
+
+        assertThat(codigos(indice.buscar("itv", 10))).containsExactly(1L, 2L);
+        assertThat(codigos(indice.buscar("itv vigo", 10))).containsExactly(1L);
+        assertThat(indice.buscar("vigo lugo", 10)).isEmpty();
+    }
+
+    @Test
+    void ordenaPorPesoDelCampoYDespuesPorCodigo() {
+        IndiceTexto indice = IndiceTexto.construir(List.of(
+                estacion(1, "ITV Norte", "Lugo"),
+                estacion(2, "Lugo Sur", "Sarria"),
+                estacion(3, "Lugo Este", "Monforte")));
+
+        // Nombre (3) antes que localidad (2); a igual puntuación, por código
+        List<SugerenciaEstacion> sugerencias = indice.buscar("lugo", 10);
+        assertThat(codigos(sugerencias)).containsExactly(2L, 3L, 1L);
+        assertThat(sugerencias.get(0).getPuntuacion()).isEqualTo(3.5f);
+        assertThat(sugerencias.get(2).getPuntuacion()).isEqualTo(2.5f);
+    }
+
+    @Test
+    void elPrefijoIncluyeTodosLosTerminosAunqueSeanMuchos() {
+        List<EstacionResumen> estaciones = new ArrayList<>();
+        for (int i = 0; i < 800; i++) {
+            estaciones.add(estacion(i + 1, String.format("Estación prueba%03d", i), "Ourense"));
+        }
+        IndiceTexto indice = IndiceTexto.construir(estaciones);
+
+        assertThat(indice.buscar("prueba", 1000)).hasSize(800);
+        // Las 800 empatan: el límite se queda con los códigos más bajos
+        assertThat(codigos(indice.buscar("prueba", 5))).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(codigos(indice.buscar("prueba79", 100))).containsExactly(791L, 792L, 793L, 794L, 795L,
+                796L, 797L, 798L, 799L, 800L);
+    }
+
+    @Test
+    void aceptaUnaErrataSiNingunTerminoEmpiezaPorLaPalabra() {
+        IndiceTexto indice = IndiceTexto.construir(List.of(
+                estacion(1, "ITV Zona Franca", "Barcelona"),
+                estacion(2, "ITV Montigalà", "Badalona")));
+
+        // Sustitución, borrado e inserción
+        assertThat(codigos(indice.buscar("bercelona", 10))).containsExactly(1L);
+        assertThat(codigos(indice.buscar("barcelna", 10))).containsExactly(1L);
+        assertThat(codigos(indice.buscar("barcellona", 10))).containsExactly(1L);
+        // La errata también vale sobre un prefijo del término
+        assertThat(codigos(indice.buscar("badalpn", 10))).containsExactly(2L);
+        // Una coincidencia con errata puntúa la mitad, sin bonificación por palabra completa
+        assertThat(indice.buscar("barcelna", 10).get(0).getPuntuacion()).isEqualTo(1f);
+        // Con menos de 4 letras no se buscan erratas
+        assertThat(indice.buscar("bqr", 10)).isEmpty();
+    }
+
+    @Test
+    void prefijoADistanciaUno() {
+        assertThat(IndiceTexto.prefijoADistanciaUno("hospitalet", "hospitalet")).isTrue();
+        assertThat(IndiceTexto.prefijoADistanciaUno("hospitalez", "hospitalet")).isTrue();
+        assertThat(IndiceTexto.prefijoADistanciaUno("hospitlet", "hospitalet")).isTrue();
+        assertThat(IndiceTexto.prefijoADistanciaUno("hosspitalet", "hospitalet")).isTrue();
+        assertThat(IndiceTexto.prefijoADistanciaUno("hospx", "hospitalet")).isTrue();
+        assertThat(IndiceTexto.prefijoADistanciaUno("barcelonaa", "barcelona")).isTrue();
+        // Una transposición son dos ediciones
+        assertThat(IndiceTexto.prefijoADistanciaUno("hopsitalet", "hospitalet")).isFalse();
+        assertThat(IndiceTexto.prefijoADistanciaUno("madird", "madrid")).isFalse();
+        assertThat(IndiceTexto.prefijoADistanciaUno("barcelona", "bar")).isFalse();
+    }
+
+    @Test
+    void lasErratasCoincidenConRecorrerTodosLosTerminos() {
+        Random random = new Random(7);
+        List<EstacionResumen> estaciones = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            estaciones.add(estacion(i + 1, palabraAleatoria(random, 2, 7) + " " + palabraAleatoria(random, 2, 7),
+                    palabraAleatoria(random, 3, 8)));
+        }
+        IndiceTexto indice = IndiceTexto.construir(estaciones);
+        TreeSet<String> terminos = new TreeSet<>();
+        estaciones.forEach(estacion -> terminos.addAll(terminosDe(estacion)));
+
+        int comprobadas = 0;
+        for (int i = 0; i < 2000; i++) {
+            String palabra = palabraAleatoria(random, 4, 7);
+            if (terminos.stream().anyMatch(termino -> termino.startsWith(palabra))) {
+                continue;
+            }
+            List<Long> esperados = new ArrayList<>();
+            for (EstacionResumen estacion : estaciones) {
+                if (terminosDe(estacion).stream().anyMatch(t -> IndiceTexto.prefijoADistanciaUno(palabra, t))) {
+                    esperados.add(estacion.getCodEstacion());
+                }
+            }
+
+            assertThat(codigos(indice.buscar(palabra, 1000))).as(palabra)
+                    .containsExactlyInAnyOrderElementsOf(esperados);
+            comprobadas++;
+        }
+        assertThat(comprobadas).isGreaterThan(100);
+    }
+
+    private static List<Long> codigos(List<SugerenciaEstacion> sugerencias) {
+        return sugerencias.stream().map(SugerenciaEstacion::getCodEstacion).toList();
+    }
+
+    private static List<String> terminosDe(EstacionResumen estacion) {
+        return Stream.of(estacion.getNombre(), estacion.getLocalidad())
+                .flatMap(texto -> IndiceTexto.tokenizar(texto).stream())
+                .toList();
+    }
+
+    // Alfabeto pequeño para que abunden los términos parecidos
+    private static String palabraAleatoria(Random random, int minimo, int maximo) {
+        StringBuilder palabra = new StringBuilder();
+        int longitud = minimo + random.nextInt(maximo - minimo + 1);
+        for (int i = 0; i < longitud; i++) {
+            palabra.append("abcde".charAt(random.nextInt(5)));
+        }
+        return palabra.toString();
+    }
+
+    private static EstacionResumen estacion(long codigo, String nombre, String localidad) {
+        return new Resumen(codigo, nombre, localidad);
+    }
+
+    private record Resumen(long codigo, String nombre, String localidad) implements EstacionResumen {
+        @Override
+        public Long getCodEstacion() {
+            return codigo;
+        }
+
+        @Override
+        public String getNombre() {
+            return nombre;
+        }
+
+        @Override
+        public TipoEstacion getTipo() {
+            return TipoEstacion.ESTACION_FIJA;
+        }
+
+        @Override
+        public String getDireccion() {
+            return null;
+        }
+
+        @Override
+        public Long getCodigoPostal() {
+            return null;
+        }
+
+        @Override
+        public Double getLongitud() {
+            return null;
+        }
+
+        @Override
+        public Double getLatitud() {
+            return null;
+        }
+
+        @Override
+        public String getHorario() {
+            return null;
+        }
+
+        @Override
+        public String getContacto() {
+            return null;
+        }
+
+        @Override
+        public String getUrl() {
+            return null;
+        }
+
+        @Override
+        public Long getCodLocalidad() {
+            return null;
+        }
+
+        @Override
+        public String getLocalidad() {
+            return localidad;
+        }
+
+        @Override
+        public Long getCodProvincia() {
+            return null;
+        }
+
+        @Override
+        public String getProvincia() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.elucesc.itvintegration.extractor.impl;
+
+import com.elucesc.itvintegration.dto.cv.EstacionCV;
+import com.elucesc.itvintegration.model.Estacion;
+import com.elucesc.itvintegration.service.GeocodingCheckpoint;
+import com.elucesc.itvintegration.service.SeleniumGeocodingService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CVExtractorTest {
+
+    @Test
+    void clavesNaturalesDelArchivoValencianoSonUnicas() throws Exception {
+        List<EstacionCV> estacionesCV = leer("/data/estaciones_cv.json");
+
+        List<Estacion> estaciones = crearExtractor(estacionesCV).transformarEstaciones();
+
+        assertThat(estaciones).hasSize(estacionesCV.size());
+        assertThat(estaciones).extracting(Estacion::getClaveNatural).doesNotContainNull();
+
+        Map<String, Long> repetidas = estaciones.stream()
+                .collect(Collectors.groupingBy(Estacion::getClaveNatural, Collectors.counting()))
+                .entrySet().stream()
+                .filter(e -> e.getValue() > 1)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        assertThat(repetidas).isEmpty();
+    }
+
+    @Test
+    void estacionFijaConservaSuNumeroComoClave() {
+        EstacionCV fija = estacion("Estación Fija", "0301", "Alicante", "Ctra. Nacional 340, Km 2");
+
+        Estacion estacion = crearExtractor(List.of(fija)).transformarEstaciones().get(0);
+
+        assertThat(estacion.getClaveNatural()).isEqualTo("CV-0301");
+    }
+
+    @Test
+    void estacionesMovilesConElMismoNumeroSeDistinguenPorUbicacion() {
+        EstacionCV calpe = estacion("Estación Móvil", "0351", "Calpe", "I.T.V. Móvil Carpa Calpe");
+        EstacionCV santaPola = estacion("Estación Móvil", "0351", "Santa Pola", "I.T.V. Móvil Carpa Santa Pola");
+        EstacionCV sinMunicipio = estacion("Estación Móvil", "0352", "", "I.T.V. Móvil 06");
+
+        Map<String, Estacion> porClave = crearExtractor(List.of(calpe, santaPola, sinMunicipio))
+                .transformarEstaciones().stream()
+                .collect(Collectors.toMap(Estacion::getClaveNatural, Function.identity()));
+
+        assertThat(porClave).containsOnlyKeys(
+                "CV-0351-calpe-i-t-v-movil-carpa-calpe",
+                "CV-0351-santa-pola-i-t-v-movil-carpa-santa-pola",
+                "CV-0352--i-t-v-movil-06");
+    }
+
+    private CVExtractor crearExtractor(List<EstacionCV> estacionesCV) {
+        SeleniumGeocodingService geocoding = mock(SeleniumGeocodingService.class);
+        when(geocoding.isAvailable()).thenReturn(true);
+        when(geocoding.obtenerCoordenadasConDelay(anyString())).thenReturn(new Double[]{null, null});
+        return new CVExtractor(estacionesCV, geocoding, GeocodingCheckpoint.enMemoria());
+    }
+
+    private List<EstacionCV> leer(String recurso) throws Exception {
+        try (InputStream entrada = getClass().getResourceAsStream(recurso)) {
+            assertThat(entrada).as("recurso %s", recurso).isNotNull();
+            return new ObjectMapper().readValue(entrada, new TypeReference<List<EstacionCV>>() {});
+        }
+    }
+
+    private EstacionCV estacion(String tipo, String numero, String municipio, String direccion) {
+        EstacionCV estacion = new EstacionCV();
+        estacion.setTipoEstacion(tipo);
+        estacion.setNumeroEstacion(numero);
+        estacion.setMunicipio(municipio);
+        estacion.setDireccion(direccion);
+        estacion.setProvincia("Alicante");
+        estacion.setCodigoPostal("03700");
+        return estacion;
+    }
+}
@@ -0,0 +1,134 @@
+package com.elucesc.itvintegration.geo;
+
+import com.elucesc.itvintegration.model.TipoEstacion;
+import com.elucesc.itvintegration.repository.EstacionGeoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * El repositorio simulado aplica la misma consulta que SQL_BBOX sobre una lista en memoria:
+ * si los rangos de geohash dejaran fuera alguna celda del rectángulo, faltarían estaciones
+ * respecto al filtro directo por latitud y longitud
+ */
+class BusquedaGeohashServiceTest {
+
+    private static final TipoEstacion[] TIPOS = TipoEstacion.values();
+
+    private final List<PuntoGeohash> puntos = new ArrayList<>();
+    private BusquedaGeohashService servicio;
+
+    @BeforeEach
+    void preparar() {
+        Random random = new Random(5);
+        long codigo = 1;
+        for (int i = 0; i < 2000; i++) {
+            anadir(codigo++, 36 + random.nextDouble() * 8, -9.5 + random.nextDouble() * 13, random);
+        }
+        for (int i = 0; i < 500; i++) {
+            anadir(codigo++, -90 + random.nextDouble() * 180, -180 + random.nextDouble() * 360, random);
+        }
+        // Bordes del mundo: antimeridiano y polos
+        anadir(codigo++, 0, 180, random);
+        anadir(codigo++, 0, -180, random);
+        anadir(codigo++, 90, 0, random);
+        anadir(codigo++, -90, 0, random);
+        anadir(codigo++, 90, 180, random);
+
+        EstacionGeoRepository repositorio = mock(EstacionGeoRepository.class);
+        when(repositorio.buscarEnRangos(anyList(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), any(), anyInt()))
+                .thenAnswer(invocacion -> buscarEnMemoria(invocacion.getArgument(0), invocacion.getArgument(1),
+                        invocacion.getArgument(2), invocacion.getArgument(3), invocacion.getArgument(4),
+                        invocacion.getArgument(5), invocacion.getArgument(6)));
+
+        servicio = new BusquedaGeohashService(repositorio);
+        ReflectionTestUtils.setField(servicio, "maxCeldas", 32);
+    }
+
+    @Test
+    void devuelveLasMismasEstacionesQueElFiltroDirecto() {
+        Random random = new Random(9);
+        double[] tamanos = {0.05, 0.5, 2, 10, 60};
+
+        for (int i = 0; i < 500; i++) {
+            double tamano = tamanos[random.nextInt(tamanos.length)];
+            double latMin = random.nextBoolean() ? 35 + random.nextDouble() * 9 : -90 + random.nextDouble() * 180;
+            double lonMin = random.nextBoolean() ? -10 + random.nextDouble() * 13 : -180 + random.nextDouble() * 360;
+            double latMax = Math.min(90, latMin + random.nextDouble() * tamano);
+            double lonMax = Math.min(180, lonMin + random.nextDouble() * tamano);
+            TipoEstacion tipo = random.nextInt(3) == 0 ? TIPOS[random.nextInt(TIPOS.length)] : null;
+
+            comprobar(latMin, lonMin, latMax, lonMax, tipo);
+        }
+    }
+
+    @Test
+    void encuentraLasEstacionesDeLosBordesDelMundo() {
+        assertThat(comprobar(-1, 179, 1, 180, null)).extracting(PuntoEstacion::longitud).contains(180.0);
+        assertThat(comprobar(-1, -180, 1, -179, null)).extracting(PuntoEstacion::longitud).contains(-180.0);
+        assertThat(comprobar(89, -180, 90, 180, null)).extracting(PuntoEstacion::latitud).contains(90.0);
+        assertThat(comprobar(-90, -180, -89, 180, null)).extracting(PuntoEstacion::latitud).contains(-90.0);
+        assertThat(comprobar(-90, -180, 90, 180, null)).hasSize(puntos.size());
+    }
+
+    private List<PuntoEstacion> comprobar(double latMin, double lonMin, double latMax, double lonMax,
+                                          TipoEstacion tipo) {
+        int limite = puntos.size();
+        List<PuntoEstacion> resultado = servicio.buscarEnRectangulo(latMin, lonMin, latMax, lonMax, tipo, limite);
+
+        List<Long> esperadas = puntos.stream()
+                .map(PuntoGeohash::punto)
+                .filter(p -> dentro(p, latMin, lonMin, latMax, lonMax, tipo))
+                .map(PuntoEstacion::codEstacion)
+                .sorted()
+                .toList();
+        assertThat(resultado).extracting(PuntoEstacion::codEstacion)
+                .as("rectángulo [%s, %s] - [%s, %s], tipo %s", latMin, lonMin, latMax, lonMax, tipo)
+                .containsExactlyElementsOf(esperadas);
+        return resultado;
+    }
+
+    /**
+     * Equivalente en memoria de EstacionGeoRepository.SQL_BBOX
+     */
+    private List<PuntoEstacion> buscarEnMemoria(List<String[]> rangos, double latMin, double lonMin, double latMax,
+                                                double lonMax, TipoEstacion tipo, int limite) {
+        return puntos.stream()
+                .filter(p -> rangos.stream().anyMatch(r ->
+                        p.geohash().compareTo(r[0]) >= 0 && p.geohash().compareTo(r[1]) < 0))
+                .map(PuntoGeohash::punto)
+                .filter(p -> dentro(p, latMin, lonMin, latMax, lonMax, tipo))
+                .sorted(Comparator.comparingLong(PuntoEstacion::codEstacion))
+                .limit(limite)
+                .toList();
+    }
+
+    private static boolean dentro(PuntoEstacion p, double latMin, double lonMin, double latMax, double lonMax,
+                                  TipoEstacion tipo) {
+        return p.latitud() >= latMin && p.latitud() <= latMax
+                && p.longitud() >= lonMin && p.longitud() <= lonMax
+                && (tipo == null || p.tipo() == tipo);
+    }
+
+    private void anadir(long codigo, double latitud, double longitud, Random random) {
+        PuntoEstacion punto = new PuntoEstacion(codigo, "Estación " + codigo, TIPOS[random.nextInt(TIPOS.length)],
+                latitud, longitud);
+        puntos.add(new PuntoGeohash(punto, Geohash.codificar(latitud, longitud)));
+    }
+
+    private record PuntoGeohash(PuntoEstacion punto, String geohash) {
+    }
+}
@@ -0,0 +1,131 @@
+package com.elucesc.itvintegration.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GeohashTest {
+
+    private static final int MAX_CELDAS = 32;
+
+    @Test
+    void codificaPuntosConocidos() {
+        assertThat(Geohash.codificar(57.64911, 10.40744, 11)).isEqualTo("u4pruydqqvj");
+        assertThat(Geohash.codificar(-90, -180, 6)).isEqualTo("000000");
+        assertThat(Geohash.codificar(90, 180, 6)).isEqualTo("zzzzzz");
+        assertThat(Geohash.codificar(40.4168, -3.7038)).hasSize(Geohash.PRECISION_MAXIMA).startsWith("ezjmgt");
+    }
+
+    @Test
+    void siguienteDevuelveElMenorPrefijoPosterior() {
+        assertThat(Geohash.siguiente("0")).isEqualTo("1");
+        assertThat(Geohash.siguiente("9")).isEqualTo("b");
+        assertThat(Geohash.siguiente("bz")).isEqualTo("c");
+        assertThat(Geohash.siguiente("ezz")).isEqualTo("f");
+        // Un prefijo todo 'z' no tiene siguiente en el alfabeto: se usa '{', mayor que cualquier geohash
+        assertThat(Geohash.siguiente("z")).isEqualTo("{");
+        assertThat(Geohash.siguiente("zzzz")).isEqualTo("{");
+        assertThat("zzzzzzzzzzzz").isLessThan("{");
+    }
+
+    @Test
+    void elMundoEnteroEsUnUnicoRango() {
+        List<String[]> rangos = Geohash.rangos(-90, -180, 90, 180, MAX_CELDAS);
+
+        assertThat(rangos).hasSize(1);
+        assertThat(rangos.get(0)).containsExactly("0", "{");
+    }
+
+    @Test
+    void lasCeldasConsecutivasSeFusionan() {
+        // Dentro de la celda "ez": a precisión 3 son las 8 celdas "ezs" a "ezz", que forman un único rango
+        assertThat(Geohash.rangos(42.3, -5.5, 44.9, -0.1, MAX_CELDAS))
+                .singleElement().satisfies(r -> assertThat(r).containsExactly("ezs", "f"));
+        // Con un rectángulo mayor son 32 celdas: "ez" entera
+        assertThat(Geohash.rangos(40, -10, 44, -1, MAX_CELDAS))
+                .singleElement().satisfies(r -> assertThat(r).containsExactly("ez0", "f"));
+    }
+
+    @Test
+    void lasEsquinasNoresteDelMundoAcabanEnElLimiteSuperior() {
+        List<String[]> rangos = Geohash.rangos(89.9, 179.9, 90, 180, MAX_CELDAS);
+
+        comprobarBienFormados(rangos);
+        assertThat(rangos.get(rangos.size() - 1)[1]).isEqualTo("{");
+        assertThat(cubre(rangos, Geohash.codificar(90, 180))).isTrue();
+        assertThat(cubre(rangos, Geohash.codificar(89.95, 179.95))).isTrue();
+    }
+
+    @Test
+    void cubreLosBordesDelAntimeridianoYLosPolos() {
+        double[][] rectangulos = {
+                {-10, 170, 10, 180},      // pegado al antimeridiano por el este
+                {-10, -180, 10, -170},    // pegado al antimeridiano por el oeste
+                {85, -180, 90, 180},      // casquete norte
+                {-90, -180, -85, 180},    // casquete sur
+                {89.999, -0.001, 90, 0.001},
+                {-90, 179.999, -89.999, 180}
+        };
+        Random random = new Random(3);
+        for (double[] r : rectangulos) {
+            List<String[]> rangos = Geohash.rangos(r[0], r[1], r[2], r[3], MAX_CELDAS);
+            comprobarBienFormados(rangos);
+            comprobarCobertura(rangos, r[0], r[1], r[2], r[3], random);
+        }
+    }
+
+    @Test
+    void todoPuntoDelRectanguloCaeEnAlgunRango() {
+        Random random = new Random(11);
+        double[] tamanos = {0.001, 0.05, 0.5, 5, 40};
+
+        for (int i = 0; i < 2000; i++) {
+            double tamano = tamanos[random.nextInt(tamanos.length)];
+            double latMin = -90 + random.nextDouble() * 180;
+            double lonMin = -180 + random.nextDouble() * 360;
+            double latMax = Math.min(90, latMin + random.nextDouble() * tamano);
+            double lonMax = Math.min(180, lonMin + random.nextDouble() * tamano);
+
+            List<String[]> rangos = Geohash.rangos(latMin, lonMin, latMax, lonMax, MAX_CELDAS);
+            comprobarBienFormados(rangos);
+            comprobarCobertura(rangos, latMin, lonMin, latMax, lonMax, random);
+        }
+    }
+
+    private void comprobarCobertura(List<String[]> rangos, double latMin, double lonMin, double latMax, double lonMax,
+                                    Random random) {
+        double[][] esquinas = {{latMin, lonMin}, {latMin, lonMax}, {latMax, lonMin}, {latMax, lonMax}};
+        for (double[] esquina : esquinas) {
+            String geohash = Geohash.codificar(esquina[0], esquina[1]);
+            assertThat(cubre(rangos, geohash)).as("esquina %s,%s (%s)", esquina[0], esquina[1], geohash).isTrue();
+        }
+        for (int i = 0; i < 50; i++) {
+            double latitud = latMin + random.nextDouble() * (latMax - latMin);
+            double longitud = lonMin + random.nextDouble() * (lonMax - lonMin);
+            String geohash = Geohash.codificar(latitud, longitud);
+            assertThat(cubre(rangos, geohash)).as("punto %s,%s (%s)", latitud, longitud, geohash).isTrue();
+        }
+    }
+
+    /**
+     * Rangos no vacíos, ordenados, sin solaparse y sin dos consecutivos que se pudieran fusionar
+     */
+    private void comprobarBienFormados(List<String[]> rangos) {
+        assertThat(rangos).isNotEmpty();
+        String anterior = null;
+        for (String[] rango : rangos) {
+            assertThat(rango[0]).isLessThan(rango[1]);
+            if (anterior != null) {
+                assertThat(rango[0]).isGreaterThan(anterior);
+            }
+            anterior = rango[1];
+        }
+    }
+
+    private boolean cubre(List<String[]> rangos, String geohash) {
+        return rangos.stream().anyMatch(r -> geohash.compareTo(r[0]) >= 0 && geohash.compareTo(r[1]) < 0);
+    }
+}
@@ -0,0 +1,207 @@
+package com.elucesc.itvintegration.geo;
+
+import com.elucesc.itvintegration.dto.consulta.EstacionCercana;
+import com.elucesc.itvintegration.model.TipoEstacion;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Compara las búsquedas del k-d tree con un recorrido completo de los puntos
+ */
+class IndiceEspacialTest {
+
+    private static final double TOLERANCIA_KM = 1e-6;
+    private static final TipoEstacion[] TIPOS = TipoEstacion.values();
+
+    @Test
+    void masCercanasCoincideConRecorridoCompleto() {
+        Random random = new Random(42);
+        List<PuntoEstacion> puntos = puntosAleatorios(random, 3000);
+        IndiceEspacial indice = IndiceEspacial.construir(puntos);
+
+        for (int i = 0; i < 300; i++) {
+            double latitud = latitudAleatoria(random);
+            double longitud = longitudAleatoria(random);
+            int k = 1 + random.nextInt(20);
+            TipoEstacion tipo = random.nextBoolean() ? null : TIPOS[random.nextInt(TIPOS.length)];
+
+            comprobarMasCercanas(indice, puntos, latitud, longitud, k, tipo);
+        }
+    }
+
+    @Test
+    void enRadioCoincideConRecorridoCompleto() {
+        Random random = new Random(7);
+        List<PuntoEstacion> puntos = puntosAleatorios(random, 3000);
+        IndiceEspacial indice = IndiceEspacial.construir(puntos);
+
+        for (int i = 0; i < 300; i++) {
+            double latitud = latitudAleatoria(random);
+            double longitud = longitudAleatoria(random);
+            double radioKm = random.nextDouble() * 1500;
+            TipoEstacion tipo = random.nextBoolean() ? null : TIPOS[random.nextInt(TIPOS.length)];
+
+            comprobarEnRadio(indice, puntos, latitud, longitud, radioKm, tipo);
+        }
+    }
+
+    @Test
+    void laMasCercanaPuedeEstarAlOtroLadoDelAntimeridiano() {
+        List<PuntoEstacion> puntos = List.of(
+                punto(1, 0, 179.9, TipoEstacion.ESTACION_FIJA),
+                punto(2, 0, -179.9, TipoEstacion.ESTACION_FIJA),
+                punto(3, 0, 170, TipoEstacion.ESTACION_FIJA));
+        IndiceEspacial indice = IndiceEspacial.construir(puntos);
+
+        List<EstacionCercana> cercanas = indice.masCercanas(0, -179.95, 2, null);
+
+        assertThat(cercanas).extracting(EstacionCercana::getCodEstacion).containsExactly(2L, 1L);
+        comprobarMasCercanas(indice, puntos, 0, -179.95, 3, null);
+        comprobarEnRadio(indice, puntos, 0, 180, 20, null);
+    }
+
+    @Test
+    void cercaDeLosPolosTodasLasLongitudesEstanJuntas() {
+        List<PuntoEstacion> puntos = new ArrayList<>();
+        for (int i = 0; i < 36; i++) {
+            puntos.add(punto(i, 89.99, -180 + i * 10, TipoEstacion.ESTACION_MOVIL));
+            puntos.add(punto(100 + i, -89.99, -180 + i * 10, TipoEstacion.ESTACION_MOVIL));
+        }
+        puntos.add(punto(200, 80, 0, TipoEstacion.ESTACION_FIJA));
+        IndiceEspacial indice = IndiceEspacial.construir(puntos);
+
+        // A 0,01° del polo todas las estaciones de ese anillo están a menos de 2,3 km entre sí
+        assertThat(indice.enRadio(90, 0, 3, null)).hasSize(36);
+        assertThat(indice.enRadio(-90, 123, 3, null)).hasSize(36);
+        comprobarMasCercanas(indice, puntos, 90, 0, 40, null);
+        comprobarMasCercanas(indice, puntos, -89.995, 45, 5, TipoEstacion.ESTACION_MOVIL);
+        comprobarEnRadio(indice, puntos, 89, 77, 1200, null);
+    }
+
+    @Test
+    void indiceVacioOConsultasDegeneradas() {
+        IndiceEspacial indice = IndiceEspacial.construir(List.of(punto(1, 40, -3, TipoEstacion.ESTACION_FIJA)));
+
+        assertThat(IndiceEspacial.vacio().masCercanas(40, -3, 5, null)).isEmpty();
+        assertThat(indice.masCercanas(40, -3, 0, null)).isEmpty();
+        assertThat(indice.enRadio(40, -3, -1, null)).isEmpty();
+        assertThat(indice.masCercanas(40, -3, 10, null)).hasSize(1);
+        assertThat(indice.masCercanas(40, -3, 10, TipoEstacion.OTROS)).isEmpty();
+    }
+
+    private void comprobarMasCercanas(IndiceEspacial indice, List<PuntoEstacion> puntos, double latitud,
+                                      double longitud, int k, TipoEstacion tipo) {
+        List<EstacionCercana> resultado = indice.masCercanas(latitud, longitud, k, tipo);
+        List<Double> esperadas = puntos.stream()
+                .filter(p -> tipo == null || p.tipo() == tipo)
+                .map(p -> distanciaKm(latitud, longitud, p.latitud(), p.longitud()))
+                .sorted()
+                .limit(k)
+                .toList();
+
+        // Con empates el orden entre estaciones puede variar: se comparan las distancias
+        assertThat(resultado).hasSize(esperadas.size());
+        assertThat(resultado).isSortedAccordingTo(Comparator.comparingDouble(EstacionCercana::getDistanciaKm));
+        for (int i = 0; i < esperadas.size(); i++) {
+            assertThat(resultado.get(i).getDistanciaKm()).isCloseTo(esperadas.get(i), within(TOLERANCIA_KM));
+        }
+        comprobarDistanciasYTipos(resultado, puntos, latitud, longitud, tipo);
+    }
+
+    private void comprobarEnRadio(IndiceEspacial indice, List<PuntoEstacion> puntos, double latitud,
+                                  double longitud, double radioKm, TipoEstacion tipo) {
+        List<EstacionCercana> resultado = indice.enRadio(latitud, longitud, radioKm, tipo);
+        Set<Long> codigos = new HashSet<>();
+        resultado.forEach(e -> codigos.add(e.getCodEstacion()));
+
+        assertThat(codigos).hasSameSizeAs(resultado);
+        assertThat(resultado).isSortedAccordingTo(Comparator.comparingDouble(EstacionCercana::getDistanciaKm));
+        for (PuntoEstacion punto : puntos) {
+            if (tipo != null && punto.tipo() != tipo) {
+                assertThat(codigos).doesNotContain(punto.codEstacion());
+                continue;
+            }
+            // Justo en el borde el redondeo puede decidir en cualquier sentido
+            double distancia = distanciaKm(latitud, longitud, punto.latitud(), punto.longitud());
+            if (distancia < radioKm - TOLERANCIA_KM) {
+                assertThat(codigos).contains(punto.codEstacion());
+            } else if (distancia > radioKm + TOLERANCIA_KM) {
+                assertThat(codigos).doesNotContain(punto.codEstacion());
+            }
+        }
+        comprobarDistanciasYTipos(resultado, puntos, latitud, longitud, tipo);
+    }
+
+    private void comprobarDistanciasYTipos(List<EstacionCercana> resultado, List<PuntoEstacion> puntos,
+                                           double latitud, double longitud, TipoEstacion tipo) {
+        Map<Long, PuntoEstacion> porCodigo = new HashMap<>();
+        puntos.forEach(p -> porCodigo.put(p.codEstacion(), p));
+
+        for (EstacionCercana estacion : resultado) {
+            PuntoEstacion punto = porCodigo.get(estacion.getCodEstacion());
+            assertThat(punto).isNotNull();
+            assertThat(estacion.getLatitud()).isEqualTo(punto.latitud());
+            assertThat(estacion.getLongitud()).isEqualTo(punto.longitud());
+            assertThat(estacion.getDistanciaKm())
+                    .isCloseTo(distanciaKm(latitud, longitud, punto.latitud(), punto.longitud()), within(TOLERANCIA_KM));
+            if (tipo != null) {
+                assertThat(estacion.getTipo()).isEqualTo(tipo);
+            }
+        }
+    }
+
+    /**
+     * Mitad repartidos por todo el globo (incluidos polos y antimeridiano) y mitad concentrados en la península
+     */
+    private List<PuntoEstacion> puntosAleatorios(Random random, int cantidad) {
+        List<PuntoEstacion> puntos = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            double latitud;
+            double longitud;
+            if (i % 2 == 0) {
+                latitud = latitudAleatoria(random);
+                longitud = longitudAleatoria(random);
+            } else {
+                latitud = 36 + random.nextDouble() * 7.8;
+                longitud = -9.3 + random.nextDouble() * 12.6;
+            }
+            puntos.add(punto(i, latitud, longitud, TIPOS[random.nextInt(TIPOS.length)]));
+        }
+        return puntos;
+    }
+
+    private double latitudAleatoria(Random random) {
+        return Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+    }
+
+    private double longitudAleatoria(Random random) {
+        return -180 + random.nextDouble() * 360;
+    }
+
+    private PuntoEstacion punto(long codigo, double latitud, double longitud, TipoEstacion tipo) {
+        return new PuntoEstacion(codigo, "Estación " + codigo, tipo, latitud, longitud);
+    }
+
+    /**
+     * Fórmula del haversine, independiente de la representación en la esfera unidad del índice
+     */
+    private static double distanciaKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * IndiceEspacial.RADIO_TIERRA_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,108 @@
+package com.elucesc.itvintegration.repository;
+
+import com.elucesc.itvintegration.model.Estacion;
+import com.elucesc.itvintegration.model.TipoEstacion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Upsert por batches sin PostgreSQL (ruta de insertar en H2)
+ */
+class EstacionBulkLoaderTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private EstacionBulkLoader bulkLoader;
+
+    @BeforeEach
+    void preparar() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:bulkloader;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE SEQUENCE public.estacion_seq START WITH 1 INCREMENT BY 50");
+        jdbcTemplate.execute("CREATE TABLE public.estacion (cod_estacion BIGINT PRIMARY KEY, " +
+                "clave_natural VARCHAR(100) NOT NULL UNIQUE, nombre VARCHAR(255) NOT NULL, tipo VARCHAR(20), " +
+                "direccion VARCHAR(255), codigo_postal BIGINT, longitud DOUBLE PRECISION, latitud DOUBLE PRECISION, " +
+                "geohash VARCHAR(12), descripcion VARCHAR(255), horario VARCHAR(255), contacto VARCHAR(255), " +
+                "url VARCHAR(255), cod_localidad BIGINT)");
+        bulkLoader = new EstacionBulkLoader(dataSource);
+    }
+
+    @AfterEach
+    void limpiar() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void enH2NoSeUsaCopy() {
+        assertThat(bulkLoader.soportaCopy()).isFalse();
+    }
+
+    @Test
+    void insertaEnBatchesConIdsDeLaSecuencia() throws SQLException {
+        List<Estacion> estaciones = estaciones(120, "Estación");
+
+        int procesadas = bulkLoader.insertar(estaciones, EstacionBulkLoader.TABLA, 50);
+
+        assertThat(procesadas).isEqualTo(120);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM public.estacion", Integer.class)).isEqualTo(120);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(DISTINCT cod_estacion) FROM public.estacion",
+                Integer.class)).isEqualTo(120);
+        // Los IDs asignados a las estaciones son los de sus filas
+        for (Estacion estacion : estaciones) {
+            assertThat(jdbcTemplate.queryForObject("SELECT cod_estacion FROM public.estacion WHERE clave_natural = ?",
+                    Long.class, estacion.getClaveNatural())).isEqualTo(estacion.getCodEstacion());
+        }
+        Map<String, Object> fila = jdbcTemplate.queryForMap(
+                "SELECT * FROM public.estacion WHERE clave_natural = 'CV-7'");
+        assertThat(fila.get("TIPO")).isEqualTo("ESTACION_FIJA");
+        assertThat(fila.get("CODIGO_POSTAL")).isEqualTo(46007L);
+        assertThat(fila.get("COD_LOCALIDAD")).isNull();
+    }
+
+    @Test
+    void reintegrarActualizaPorClaveNaturalSinDuplicarNiCambiarIds() throws SQLException {
+        bulkLoader.insertar(estaciones(30, "Estación"), EstacionBulkLoader.TABLA, 8);
+        Map<String, Long> idsOriginales = new HashMap<>();
+        jdbcTemplate.query("SELECT clave_natural, cod_estacion FROM public.estacion",
+                rs -> {
+                    idsOriginales.put(rs.getString(1), rs.getLong(2));
+                });
+
+        // Las 30 anteriores con otro nombre y 10 nuevas, mezcladas en los mismos batches
+        List<Estacion> reintegradas = estaciones(40, "Renombrada");
+        bulkLoader.insertar(reintegradas, EstacionBulkLoader.TABLA, 8);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM public.estacion", Integer.class)).isEqualTo(40);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM public.estacion WHERE nombre LIKE 'Renombrada%'",
+                Integer.class)).isEqualTo(40);
+        idsOriginales.forEach((clave, id) -> assertThat(jdbcTemplate.queryForObject(
+                "SELECT cod_estacion FROM public.estacion WHERE clave_natural = ?", Long.class, clave))
+                .as(clave).isEqualTo(id));
+    }
+
+    private List<Estacion> estaciones(int total, String nombre) {
+        List<Estacion> estaciones = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            estaciones.add(Estacion.builder()
+                    .claveNatural("CV-" + i)
+                    .nombre(nombre + " " + i)
+                    .tipo(TipoEstacion.ESTACION_FIJA)
+                    .codigoPostal(46000L + i)
+                    .latitud(39.0)
+                    .longitud(-0.5)
+                    .build());
+        }
+        return estaciones;
+    }
+}
@@ -0,0 +1,142 @@
+package com.elucesc.itvintegration.repository;
+
+import com.elucesc.itvintegration.dto.consulta.EstacionResumen;
+import com.elucesc.itvintegration.model.TipoEstacion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cada combinación de filtros (su SQL se genera por separado) frente al filtrado en memoria, sobre H2
+ */
+class EstacionConsultaRepositoryTest {
+
+    // codigo → provincia
+    private static final long[][] LOCALIDADES = {{1, 3}, {2, 3}, {3, 46}};
+    private static final TipoEstacion[] TIPOS = TipoEstacion.values();
+    private static final Long[] CODIGOS_POSTALES = {3001L, 3002L, 46001L, null};
+
+    private JdbcTemplate jdbcTemplate;
+    private EstacionConsultaRepository repository;
+    private final List<long[]> estaciones = new ArrayList<>();
+
+    @BeforeEach
+    void preparar() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:consulta;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE public.provincia (codigo BIGINT PRIMARY KEY, nombre VARCHAR(100))");
+        jdbcTemplate.execute("CREATE TABLE public.localidad (codigo BIGINT PRIMARY KEY, nombre VARCHAR(100), " +
+                "cod_provincia BIGINT)");
+        jdbcTemplate.execute("CREATE TABLE public.estacion (cod_estacion BIGINT PRIMARY KEY, nombre VARCHAR(100), " +
+                "tipo VARCHAR(20), direccion VARCHAR(100), codigo_postal BIGINT, longitud DOUBLE PRECISION, " +
+                "latitud DOUBLE PRECISION, horario VARCHAR(100), contacto VARCHAR(100), url VARCHAR(100), " +
+                "cod_localidad BIGINT)");
+
+        jdbcTemplate.update("INSERT INTO public.provincia VALUES (3, 'Alicante'), (46, 'Valencia')");
+        for (long[] localidad : LOCALIDADES) {
+            jdbcTemplate.update("INSERT INTO public.localidad VALUES (?, ?, ?)",
+                    localidad[0], "Localidad " + localidad[0], localidad[1]);
+        }
+
+        // Estaciones con todas las combinaciones de localidad, tipo y CP (y alguna sin localidad)
+        long codigo = 1;
+        for (int l = 0; l <= LOCALIDADES.length; l++) {
+            for (int t = 0; t < TIPOS.length; t++) {
+                for (int c = 0; c < CODIGOS_POSTALES.length; c++) {
+                    Long codLocalidad = l < LOCALIDADES.length ? LOCALIDADES[l][0] : null;
+                    jdbcTemplate.update("INSERT INTO public.estacion (cod_estacion, nombre, tipo, codigo_postal, " +
+                                    "cod_localidad) VALUES (?, ?, ?, ?, ?)",
+                            codigo, "Estación " + codigo, TIPOS[t].name(), CODIGOS_POSTALES[c], codLocalidad);
+                    estaciones.add(new long[]{codigo, l, t, c});
+                    codigo += 2;
+                }
+            }
+        }
+
+        repository = new EstacionConsultaRepository(jdbcTemplate);
+    }
+
+    @AfterEach
+    void limpiar() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void cadaCombinacionDeFiltrosDevuelveLoMismoQueElFiltradoEnMemoria() {
+        Long[] provincias = {null, 3L, 46L};
+        Long[] localidades = {null, 1L, 3L};
+        TipoEstacion[] tipos = {null, TipoEstacion.ESTACION_MOVIL};
+        Long[] codigosPostales = {null, 3002L};
+
+        for (Long codProvincia : provincias) {
+            for (Long codLocalidad : localidades) {
+                for (TipoEstacion tipo : tipos) {
+                    for (Long codigoPostal : codigosPostales) {
+                        assertThat(recorrer(codProvincia, codLocalidad, tipo, codigoPostal))
+                                .as("provincia %s, localidad %s, tipo %s, CP %s",
+                                        codProvincia, codLocalidad, tipo, codigoPostal)
+                                .isEqualTo(esperadas(codProvincia, codLocalidad, tipo, codigoPostal));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void rellenaLosNombresDeLocalidadYProvincia() {
+        List<EstacionResumen> pagina = repository.buscarResumenes(0, 46L, null, TipoEstacion.ESTACION_FIJA,
+                46001L, 10);
+
+        assertThat(pagina).hasSize(1);
+        EstacionResumen estacion = pagina.get(0);
+        assertThat(estacion.getTipo()).isEqualTo(TipoEstacion.ESTACION_FIJA);
+        assertThat(estacion.getCodigoPostal()).isEqualTo(46001L);
+        assertThat(estacion.getCodLocalidad()).isEqualTo(3L);
+        assertThat(estacion.getLocalidad()).isEqualTo("Localidad 3");
+        assertThat(estacion.getCodProvincia()).isEqualTo(46L);
+        assertThat(estacion.getProvincia()).isEqualTo("Valencia");
+        assertThat(estacion.getLatitud()).isNull();
+    }
+
+    /**
+     * Recorre todas las páginas (de 4 en 4) siguiendo el cursor
+     */
+    private List<Long> recorrer(Long codProvincia, Long codLocalidad, TipoEstacion tipo, Long codigoPostal) {
+        List<Long> codigos = new ArrayList<>();
+        long cursor = 0;
+        while (true) {
+            List<EstacionResumen> pagina = repository.buscarResumenes(
+                    cursor, codProvincia, codLocalidad, tipo, codigoPostal, 4);
+            pagina.forEach(estacion -> codigos.add(estacion.getCodEstacion()));
+            if (pagina.size() < 4) {
+                return codigos;
+            }
+            cursor = pagina.get(3).getCodEstacion();
+        }
+    }
+
+    private List<Long> esperadas(Long codProvincia, Long codLocalidad, TipoEstacion tipo, Long codigoPostal) {
+        List<Long> codigos = new ArrayList<>();
+        for (long[] estacion : estaciones) {
+            int l = (int) estacion[1];
+            Long localidad = l < LOCALIDADES.length ? LOCALIDADES[l][0] : null;
+            Long provincia = l < LOCALIDADES.length ? LOCALIDADES[l][1] : null;
+            Long codigoPostalEstacion = CODIGOS_POSTALES[(int) estacion[3]];
+
+            if ((codProvincia == null || codProvincia.equals(provincia))
+                    && (codLocalidad == null || codLocalidad.equals(localidad))
+                    && (tipo == null || tipo == TIPOS[(int) estacion[2]])
+                    && (codigoPostal == null || codigoPostal.equals(codigoPostalEstacion))) {
+                codigos.add(estacion[0]);
+            }
+        }
+        return codigos;
+    }
+}
@@ -0,0 +1,220 @@
+package com.elucesc.itvintegration.service;
+
+import com.elucesc.itvintegration.service.CircuitBreaker.Estado;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private static final Duration APERTURA = Duration.ofSeconds(60);
+
+    private final RelojManual reloj = new RelojManual();
+
+    @Test
+    void noSeAbreSinLasLlamadasMinimas() {
+        CircuitBreaker breaker = crear(4, 4, 50, 2);
+
+        fallos(breaker, 3);
+
+        assertThat(breaker.getEstado()).isEqualTo(Estado.CERRADO);
+        fallos(breaker, 1);
+        assertThat(breaker.getEstado()).isEqualTo(Estado.ABIERTO);
+    }
+
+    @Test
+    void seAbreAlAlcanzarElUmbralEnLaVentana() {
+        CircuitBreaker breaker = crear(4, 2, 50, 2);
+
+        exitos(breaker, 4);
+        fallos(breaker, 1);
+        // 1 de 4 (25%)
+        assertThat(breaker.getEstado()).isEqualTo(Estado.CERRADO);
+
+        fallos(breaker, 1);
+        // 2 de 4 (50%): el umbral se incluye
+        assertThat(breaker.getEstado()).isEqualTo(Estado.ABIERTO);
+    }
+
+    @Test
+    void losFallosAntiguosSalenDeLaVentana() {
+        CircuitBreaker breaker = crear(4, 4, 50, 2);
+
+        fallos(breaker, 3);
+        exitos(breaker, 4);
+        // La ventana solo guarda los 4 éxitos: con un recuento acumulado serían 4 fallos de 8 (50%)
+        fallos(breaker, 1);
+
+        assertThat(breaker.getEstado()).isEqualTo(Estado.CERRADO);
+        assertThat(breaker.resumen())
+                .containsEntry("llamadasEnVentana", 4)
+                .containsEntry("tasaFallos", 25.0)
+                .containsEntry("totalLlamadas", 8L)
+                .containsEntry("totalFallos", 4L);
+    }
+
+    @Test
+    void abiertoRechazaLlamadasHastaQuePasaElTiempoDeApertura() {
+        CircuitBreaker breaker = abierto(2);
+
+        assertThat(breaker.estaAbierto()).isTrue();
+        assertThat(breaker.permiteLlamada()).isFalse();
+
+        reloj.avanzar(APERTURA.minusMillis(1));
+        assertThat(breaker.estaAbierto()).isTrue();
+        assertThat(breaker.permiteLlamada()).isFalse();
+        assertThat(breaker.resumen()).containsEntry("totalRechazadas", 2L);
+
+        reloj.avanzar(Duration.ofMillis(1));
+        assertThat(breaker.estaAbierto()).isFalse();
+        assertThat(breaker.resumen()).containsEntry("estado", Estado.SEMI_ABIERTO);
+        assertThat(breaker.permiteLlamada()).isTrue();
+        assertThat(breaker.getEstado()).isEqualTo(Estado.SEMI_ABIERTO);
+    }
+
+    @Test
+    void semiAbiertoSoloDejaPasarLasSondasConfiguradas() {
+        CircuitBreaker breaker = abierto(2);
+        reloj.avanzar(APERTURA);
+
+        assertThat(breaker.permiteLlamada()).isTrue();
+        assertThat(breaker.permiteLlamada()).isTrue();
+        assertThat(breaker.permiteLlamada()).isFalse();
+
+        breaker.registrarExito();
+        assertThat(breaker.getEstado()).isEqualTo(Estado.SEMI_ABIERTO);
+        assertThat(breaker.permiteLlamada()).isFalse();
+
+        breaker.registrarExito();
+        assertThat(breaker.getEstado()).isEqualTo(Estado.CERRADO);
+        assertThat(breaker.permiteLlamada()).isTrue();
+        assertThat(breaker.permiteLlamada()).isTrue();
+    }
+
+    @Test
+    void unaSondaFallidaReabreElCircuitoOtroPeriodoCompleto() {
+        CircuitBreaker breaker = abierto(2);
+        reloj.avanzar(APERTURA);
+
+        assertThat(breaker.permiteLlamada()).isTrue();
+        breaker.registrarFallo("timeout");
+
+        assertThat(breaker.getEstado()).isEqualTo(Estado.ABIERTO);
+        reloj.avanzar(APERTURA.minusSeconds(1));
+        assertThat(breaker.permiteLlamada()).isFalse();
+        reloj.avanzar(Duration.ofSeconds(1));
+        assertThat(breaker.permiteLlamada()).isTrue();
+    }
+
+    @Test
+    void unaSondaLiberadaNoCuentaYQuedaDisponible() {
+        CircuitBreaker breaker = abierto(1);
+        reloj.avanzar(APERTURA);
+
+        assertThat(breaker.permiteLlamada()).isTrue();
+        assertThat(breaker.permiteLlamada()).isFalse();
+        breaker.liberarLlamada();
+
+        assertThat(breaker.getEstado()).isEqualTo(Estado.SEMI_ABIERTO);
+        assertThat(breaker.resumen()).containsEntry("totalLlamadas", 4L).containsEntry("totalFallos", 4L);
+        assertThat(breaker.permiteLlamada()).isTrue();
+        breaker.registrarExito();
+        assertThat(breaker.getEstado()).isEqualTo(Estado.CERRADO);
+    }
+
+    @Test
+    void liberarConElCircuitoCerradoNoCambiaLaVentana() {
+        CircuitBreaker breaker = crear(4, 4, 50, 2);
+        fallos(breaker, 3);
+
+        assertThat(breaker.permiteLlamada()).isTrue();
+        breaker.liberarLlamada();
+
+        assertThat(breaker.getEstado()).isEqualTo(Estado.CERRADO);
+        assertThat(breaker.resumen()).containsEntry("llamadasEnVentana", 3);
+    }
+
+    @Test
+    void alCerrarseEmpiezaConLaVentanaVacia() {
+        CircuitBreaker breaker = abierto(1);
+        reloj.avanzar(APERTURA);
+        assertThat(breaker.permiteLlamada()).isTrue();
+        breaker.registrarExito();
+        assertThat(breaker.getEstado()).isEqualTo(Estado.CERRADO);
+
+        // Los fallos que lo abrieron ya no cuentan: hace falta volver a reunir las llamadas mínimas
+        fallos(breaker, 3);
+        assertThat(breaker.getEstado()).isEqualTo(Estado.CERRADO);
+        fallos(breaker, 1);
+        assertThat(breaker.getEstado()).isEqualTo(Estado.ABIERTO);
+    }
+
+    @Test
+    void elResumenIncluyeElUltimoError() {
+        CircuitBreaker breaker = crear(4, 4, 50, 2);
+        breaker.registrarFallo("TimeoutException: sin respuesta");
+
+        Map<String, Object> resumen = breaker.resumen();
+
+        assertThat(resumen)
+                .containsEntry("estado", Estado.CERRADO)
+                .containsEntry("ultimoError", "TimeoutException: sin respuesta")
+                .containsEntry("ultimoFallo", reloj.instant().toString());
+    }
+
+    private CircuitBreaker crear(int ventana, int minimas, double umbral, int sondas) {
+        return new CircuitBreaker("prueba", ventana, minimas, umbral, APERTURA, sondas, reloj);
+    }
+
+    private CircuitBreaker abierto(int sondas) {
+        CircuitBreaker breaker = crear(4, 4, 50, sondas);
+        fallos(breaker, 4);
+        assertThat(breaker.getEstado()).isEqualTo(Estado.ABIERTO);
+        return breaker;
+    }
+
+    private void fallos(CircuitBreaker breaker, int cantidad) {
+        for (int i = 0; i < cantidad; i++) {
+            breaker.registrarFallo("error " + i);
+        }
+    }
+
+    private void exitos(CircuitBreaker breaker, int cantidad) {
+        for (int i = 0; i < cantidad; i++) {
+            breaker.registrarExito();
+        }
+    }
+
+    /**
+     * Reloj que solo avanza cuando el test lo pide
+     */
+    private static final class RelojManual extends Clock {
+        private Instant ahora = Instant.parse("2025-01-01T10:00:00Z");
+
+        void avanzar(Duration duracion) {
+            ahora = ahora.plus(duracion);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return ahora;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.elucesc.itvintegration.service;
+
+import com.elucesc.itvintegration.service.IntegrationService.TipoOrigen;
+import com.elucesc.itvintegration.trabajo.EtapaIntegracion;
+import com.elucesc.itvintegration.trabajo.ProgresoIntegracion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CoordinadorIntegracionesTest {
+
+    private static final long ESPERA_SEGUNDOS = 10;
+
+    private final CoordinadorIntegraciones coordinador = new CoordinadorIntegraciones();
+    private final ExecutorService hilos = Executors.newFixedThreadPool(2);
+    private final CountDownLatch primeraEnCurso = new CountDownLatch(1);
+    private final CountDownLatch liberarPrimera = new CountDownLatch(1);
+    private final CountDownLatch segundaEsperando = new CountDownLatch(1);
+    private final AtomicInteger ejecuciones = new AtomicInteger();
+
+    @AfterEach
+    void cerrar() {
+        hilos.shutdownNow();
+    }
+
+    @Test
+    void laSegundaPeticionRecibeElResultadoDeLaPrimera() throws Exception {
+        ResultadoIntegracion esperado = new ResultadoIntegracion(10, 2, 1);
+
+        Future<ResultadoIntegracion> primera = lanzarPrimera(() -> esperado);
+        Future<ResultadoIntegracion> segunda = lanzarSegunda();
+        liberarPrimera.countDown();
+
+        assertThat(primera.get(ESPERA_SEGUNDOS, TimeUnit.SECONDS)).isEqualTo(esperado);
+        assertThat(segunda.get(ESPERA_SEGUNDOS, TimeUnit.SECONDS)).isSameAs(esperado);
+        assertThat(ejecuciones).hasValue(1);
+    }
+
+    @Test
+    void laSegundaPeticionRecibeElErrorDeLaPrimera() throws Exception {
+        IOException error = new IOException("archivo corrupto");
+
+        Future<ResultadoIntegracion> primera = lanzarPrimera(() -> {
+            throw error;
+        });
+        Future<ResultadoIntegracion> segunda = lanzarSegunda();
+        liberarPrimera.countDown();
+
+        assertThatThrownBy(() -> primera.get(ESPERA_SEGUNDOS, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class).hasCause(error);
+        assertThatThrownBy(() -> segunda.get(ESPERA_SEGUNDOS, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .cause().isInstanceOf(IOException.class).hasCause(error);
+        assertThat(ejecuciones).hasValue(1);
+    }
+
+    @Test
+    void unErrorDeLaPrimeraNoDejaBloqueadaALaSegunda() throws Exception {
+        StackOverflowError error = new StackOverflowError();
+
+        Future<ResultadoIntegracion> primera = lanzarPrimera(() -> {
+            throw error;
+        });
+        Future<ResultadoIntegracion> segunda = lanzarSegunda();
+        liberarPrimera.countDown();
+
+        assertThatThrownBy(() -> primera.get(ESPERA_SEGUNDOS, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class).hasCause(error);
+        assertThatThrownBy(() -> segunda.get(ESPERA_SEGUNDOS, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .cause().isInstanceOf(IOException.class).hasCause(error);
+    }
+
+    @Test
+    void alTerminarSePuedeVolverAIntegrarElOrigen() throws IOException {
+        ProgresoIntegracion progreso = ProgresoIntegracion.NINGUNO;
+        coordinador.ejecutar(TipoOrigen.GALICIA, progreso, () -> contar(new ResultadoIntegracion(1, 0, 0)));
+        assertThatThrownBy(() -> coordinador.ejecutar(TipoOrigen.GALICIA, progreso, () -> {
+            ejecuciones.incrementAndGet();
+            throw new IllegalStateException("fallo");
+        })).isInstanceOf(IllegalStateException.class);
+        coordinador.ejecutar(TipoOrigen.GALICIA, progreso, () -> contar(new ResultadoIntegracion(2, 0, 0)));
+
+        assertThat(ejecuciones).hasValue(3);
+    }
+
+    @Test
+    void origenesDistintosNoSeEsperan() throws Exception {
+        Future<ResultadoIntegracion> primera = lanzarPrimera(() -> new ResultadoIntegracion(1, 0, 0));
+
+        ResultadoIntegracion otro = coordinador.ejecutar(TipoOrigen.CATALUNA, ProgresoIntegracion.NINGUNO,
+                () -> contar(new ResultadoIntegracion(5, 0, 0)));
+
+        assertThat(otro.guardadas()).isEqualTo(5);
+        assertThat(primera.isDone()).isFalse();
+        liberarPrimera.countDown();
+        primera.get(ESPERA_SEGUNDOS, TimeUnit.SECONDS);
+        assertThat(ejecuciones).hasValue(2);
+    }
+
+    /**
+     * Integración de Galicia que se queda en curso hasta liberarPrimera
+     */
+    private Future<ResultadoIntegracion> lanzarPrimera(CoordinadorIntegraciones.EjecucionOrigen ejecucion)
+            throws InterruptedException {
+        Future<ResultadoIntegracion> primera = hilos.submit(() ->
+                coordinador.ejecutar(TipoOrigen.GALICIA, ProgresoIntegracion.NINGUNO, () -> {
+                    ejecuciones.incrementAndGet();
+                    primeraEnCurso.countDown();
+                    esperarLiberacion();
+                    return ejecucion.ejecutar();
+                }));
+        assertThat(primeraEnCurso.await(ESPERA_SEGUNDOS, TimeUnit.SECONDS)).isTrue();
+        return primera;
+    }
+
+    /**
+     * Segunda petición de Galicia: no debe ejecutar nada, solo esperar a la primera
+     */
+    private Future<ResultadoIntegracion> lanzarSegunda() throws InterruptedException {
+        ProgresoIntegracion progreso = new ProgresoIntegracion() {
+            @Override
+            public void etapa(EtapaIntegracion etapa, int total) {
+                if (etapa == EtapaIntegracion.ESPERANDO_EJECUCION_EN_CURSO) {
+                    segundaEsperando.countDown();
+                }
+            }
+        };
+        Future<ResultadoIntegracion> segunda = hilos.submit(() ->
+                coordinador.ejecutar(TipoOrigen.GALICIA, progreso, () -> contar(new ResultadoIntegracion(0, 0, 0))));
+        assertThat(segundaEsperando.await(ESPERA_SEGUNDOS, TimeUnit.SECONDS)).isTrue();
+        return segunda;
+    }
+
+    private void esperarLiberacion() throws InterruptedIOException {
+        try {
+            liberarPrimera.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private ResultadoIntegracion contar(ResultadoIntegracion resultado) {
+        ejecuciones.incrementAndGet();
+        return resultado;
+    }
+}
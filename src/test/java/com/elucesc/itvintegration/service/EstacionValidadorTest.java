@@ -0,0 +1,293 @@
+package com.elucesc.itvintegration.service;
+
+import com.elucesc.itvintegration.model.Estacion;
+import com.elucesc.itvintegration.model.TipoEstacion;
+import com.elucesc.itvintegration.service.EstacionValidador.ErrorValidacion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static com.elucesc.itvintegration.service.EstacionValidador.ErrorValidacion.CODIGO_POSTAL_INVALIDO;
+import static com.elucesc.itvintegration.service.EstacionValidador.ErrorValidacion.CODIGO_POSTAL_NULO;
+import static com.elucesc.itvintegration.service.EstacionValidador.ErrorValidacion.CONTACTO_VACIO;
+import static com.elucesc.itvintegration.service.EstacionValidador.ErrorValidacion.COORDENADAS_FUERA_DE_RANGO;
+import static com.elucesc.itvintegration.service.EstacionValidador.ErrorValidacion.COORDENADAS_NULAS;
+import static com.elucesc.itvintegration.service.EstacionValidador.ErrorValidacion.NOMBRE_VACIO;
+import static com.elucesc.itvintegration.service.EstacionValidador.ErrorValidacion.SIN_LOCALIDAD;
+import static com.elucesc.itvintegration.service.EstacionValidador.ErrorValidacion.TIPO_NULO;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+class EstacionValidadorTest {
+
+    private final EstacionValidador validador = new EstacionValidador();
+
+    static Stream<Arguments> casos() {
+        return Stream.of(
+                arguments("fija completa",
+                        estacion(TipoEstacion.ESTACION_FIJA, 28001L, 40.4, -3.7, "itv@madrid.es", 1L, "ITV Madrid", "C/ Mayor 1"),
+                        EnumSet.noneOf(ErrorValidacion.class)),
+                arguments("fija sin datos obligatorios",
+                        estacion(TipoEstacion.ESTACION_FIJA, null, null, null, null, null, "ITV Lugo", null),
+                        EnumSet.of(COORDENADAS_NULAS, CODIGO_POSTAL_NULO, CONTACTO_VACIO, SIN_LOCALIDAD)),
+                arguments("fija valenciana: la excepción no aplica a las fijas",
+                        estacion(TipoEstacion.ESTACION_FIJA, 46001L, null, null, "itv0301@sitval.com", 1L, "ITV Valencia", null),
+                        EnumSet.of(COORDENADAS_NULAS)),
+                arguments("móvil valenciana por CP",
+                        estacion(TipoEstacion.ESTACION_MOVIL, 3700L, null, null, null, null, "ITV Móvil", null),
+                        EnumSet.noneOf(ErrorValidacion.class)),
+                arguments("otros valenciana por CP de Castellón",
+                        estacion(TipoEstacion.OTROS, 12100L, null, null, " ", null, "ITV Agrícola", null),
+                        EnumSet.noneOf(ErrorValidacion.class)),
+                arguments("móvil valenciana por correo de sitval",
+                        estacion(TipoEstacion.ESTACION_MOVIL, null, null, null, "itv0351@sitval.com", null, "ITV Móvil", null),
+                        EnumSet.noneOf(ErrorValidacion.class)),
+                arguments("móvil valenciana por dirección en mayúsculas",
+                        estacion(TipoEstacion.ESTACION_MOVIL, null, null, null, null, null, "ITV Móvil", "Polígono de ALICANTE"),
+                        EnumSet.noneOf(ErrorValidacion.class)),
+                arguments("otros valenciana por nombre con tilde",
+                        estacion(TipoEstacion.OTROS, null, null, null, null, null, "Estación ITV de CASTELLÓN", null),
+                        EnumSet.noneOf(ErrorValidacion.class)),
+                arguments("móvil fuera de Valencia",
+                        estacion(TipoEstacion.ESTACION_MOVIL, 28001L, null, null, null, null, "ITV Móvil Madrid", null),
+                        EnumSet.of(COORDENADAS_NULAS, CONTACTO_VACIO)),
+                arguments("CP de 6 cifras con prefijo valenciano: excepción, pero CP inválido",
+                        estacion(TipoEstacion.ESTACION_MOVIL, 460001L, null, null, null, null, "ITV Móvil", null),
+                        EnumSet.of(CODIGO_POSTAL_INVALIDO)),
+                arguments("CP de 7 cifras",
+                        estacion(TipoEstacion.ESTACION_FIJA, 1234567L, 40.0, -3.0, "a@b.es", 1L, "ITV", null),
+                        EnumSet.of(CODIGO_POSTAL_INVALIDO)),
+                arguments("CP por debajo de 01000",
+                        estacion(TipoEstacion.ESTACION_FIJA, 999L, 40.0, -3.0, "a@b.es", 1L, "ITV", null),
+                        EnumSet.of(CODIGO_POSTAL_INVALIDO)),
+                arguments("CP por encima de 52999",
+                        estacion(TipoEstacion.ESTACION_FIJA, 53000L, 40.0, -3.0, "a@b.es", 1L, "ITV", null),
+                        EnumSet.of(CODIGO_POSTAL_INVALIDO)),
+                arguments("CP negativo de una móvil",
+                        estacion(TipoEstacion.ESTACION_MOVIL, -3000L, null, null, null, null, "ITV Móvil", null),
+                        EnumSet.of(COORDENADAS_NULAS, CODIGO_POSTAL_INVALIDO, CONTACTO_VACIO)),
+                arguments("coordenadas fuera de rango",
+                        estacion(TipoEstacion.ESTACION_FIJA, 15001L, 412.5, -8.4, "a@b.es", 1L, "ITV Coruña", null),
+                        EnumSet.of(COORDENADAS_FUERA_DE_RANGO)),
+                arguments("coordenadas fuera de España pero válidas",
+                        estacion(TipoEstacion.ESTACION_FIJA, 15001L, 50.0, 10.0, "a@b.es", 1L, "ITV Coruña", null),
+                        EnumSet.noneOf(ErrorValidacion.class)),
+                arguments("una sola coordenada",
+                        estacion(TipoEstacion.ESTACION_FIJA, 15001L, 43.3, null, "a@b.es", 1L, "ITV Coruña", null),
+                        EnumSet.of(COORDENADAS_NULAS)),
+                arguments("sin nombre ni tipo",
+                        estacion(null, 15001L, 43.3, -8.4, "a@b.es", null, "  ", null),
+                        EnumSet.of(NOMBRE_VACIO, TIPO_NULO)),
+                arguments("contacto solo con espacios",
+                        estacion(TipoEstacion.ESTACION_FIJA, 15001L, 43.3, -8.4, " \t ", 1L, "ITV Coruña", null),
+                        EnumSet.of(CONTACTO_VACIO))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("casos")
+    void laMascaraContieneLosErroresEsperados(String descripcion, Estacion estacion, Set<ErrorValidacion> esperados) {
+        int mascara = validador.comprobar(estacion);
+
+        assertThat(mascara).isEqualTo(mascara(esperados));
+        assertThat(errores(mascara)).isEqualTo(esperados);
+        assertThat(validador.validar(estacion)).isEqualTo(ValidadorOriginal.validar(estacion));
+    }
+
+    @Test
+    void mismosMensajesQueElValidadorOriginalEnTodasLasCombinaciones() {
+        TipoEstacion[] tipos = {TipoEstacion.ESTACION_FIJA, TipoEstacion.ESTACION_MOVIL, TipoEstacion.OTROS, null};
+        Long[] codigosPostales = {null, 0L, 999L, 1000L, 3700L, 12100L, 28001L, 46001L, 52999L, 53000L,
+                99999L, 100000L, 460001L, 1234567L, -3000L};
+        Double[][] coordenadas = {{null, null}, {40.0, null}, {null, -3.0}, {40.4, -3.7}, {412.5, -3.7},
+                {40.0, 200.0}, {-91.0, 0.0}, {50.0, 10.0}, {Double.NaN, 0.0}};
+        String[] contactos = {null, "", "   ", " ", "\u0001", "\u2003", "itv0351@sitval.com", "itv@madrid.es"};
+        Long[] localidades = {null, 5L};
+        String[] nombres = {null, "", "ITV Madrid", "Estación ITV de Valencia"};
+        String[] direcciones = {null, "Calle de CASTELLÓN 3", "Polígono Industrial"};
+
+        int comparadas = 0;
+        for (TipoEstacion tipo : tipos) {
+            for (Long cp : codigosPostales) {
+                for (Double[] coordenada : coordenadas) {
+                    for (String contacto : contactos) {
+                        for (Long localidad : localidades) {
+                            for (String nombre : nombres) {
+                                for (String direccion : direcciones) {
+                                    Estacion estacion = estacion(tipo, cp, coordenada[0], coordenada[1],
+                                            contacto, localidad, nombre, direccion);
+                                    int mascara = validador.comprobar(estacion);
+
+                                    assertThat(validador.mensajes(estacion, mascara))
+                                            .as("%s", estacion)
+                                            .isEqualTo(ValidadorOriginal.validar(estacion));
+                                    comparadas++;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        assertThat(comparadas).isEqualTo(4 * 15 * 9 * 8 * 2 * 4 * 3);
+    }
+
+    @Test
+    void corregirAnulaLasCoordenadasFueraDeRango() {
+        Estacion fija = estacion(TipoEstacion.ESTACION_FIJA, 15001L, 412.5, -8.4, "a@b.es", 1L, "ITV", null);
+        int errores = validador.comprobar(fija);
+
+        assertThat(validador.esCorregible(errores)).isTrue();
+        // Sin coordenadas una fija sigue siendo inválida
+        assertThat(errores(validador.intentarCorregir(fija, errores))).containsExactly(COORDENADAS_NULAS);
+        assertThat(fija.getLatitud()).isNull();
+        assertThat(fija.getLongitud()).isNull();
+
+        // Una móvil valenciana sí puede quedarse sin coordenadas
+        Estacion movil = estacion(TipoEstacion.ESTACION_MOVIL, 46001L, 40.0, 200.0, null, null, "ITV Móvil", null);
+        assertThat(validador.intentarCorregir(movil, validador.comprobar(movil))).isZero();
+    }
+
+    @Test
+    void losErroresNoCorregiblesSeDevuelvenSinTocarLaEstacion() {
+        Estacion estacion = estacion(TipoEstacion.ESTACION_FIJA, 999L, 40.0, -3.0, null, 1L, "ITV", null);
+        int errores = validador.comprobar(estacion);
+
+        assertThat(validador.esCorregible(errores)).isFalse();
+        assertThat(validador.intentarCorregir(estacion, errores)).isEqualTo(errores);
+        assertThat(validador.generarInforme(estacion, errores))
+                .contains("CP: 00999")
+                .contains("Errores encontrados (2)")
+                .contains("1. Código postal inválido: 999")
+                .contains("2. Contacto nulo o vacío (obligatorio)");
+    }
+
+    private static int mascara(Set<ErrorValidacion> errores) {
+        return errores.stream().mapToInt(ErrorValidacion::bit).reduce(0, (a, b) -> a | b);
+    }
+
+    private static Set<ErrorValidacion> errores(int mascara) {
+        EnumSet<ErrorValidacion> errores = EnumSet.noneOf(ErrorValidacion.class);
+        Arrays.stream(ErrorValidacion.values()).filter(e -> e.esta(mascara)).forEach(errores::add);
+        return errores;
+    }
+
+    private static Estacion estacion(TipoEstacion tipo, Long codigoPostal, Double latitud, Double longitud,
+                                     String contacto, Long codLocalidad, String nombre, String direccion) {
+        return Estacion.builder()
+                .tipo(tipo)
+                .codigoPostal(codigoPostal)
+                .latitud(latitud)
+                .longitud(longitud)
+                .contacto(contacto)
+                .codLocalidad(codLocalidad)
+                .nombre(nombre)
+                .direccion(direccion)
+                .build();
+    }
+
+    /**
+     * Reglas de validar() tal como estaban antes de precompilarlas en máscaras de bits (sin los logs)
+     */
+    private static final class ValidadorOriginal {
+
+        static List<String> validar(Estacion estacion) {
+            List<String> errores = new ArrayList<>();
+            boolean esExcepcionValenciana = esEstacionExcepcionValenciana(estacion);
+
+            if (estacion.getLatitud() == null || estacion.getLongitud() == null) {
+                if (!esExcepcionValenciana) {
+                    errores.add("Coordenadas nulas (obligatorias). Latitud: " + estacion.getLatitud() +
+                            ", Longitud: " + estacion.getLongitud());
+                }
+            } else if (!esCoordenadaValida(estacion.getLatitud(), estacion.getLongitud())) {
+                errores.add(String.format("Coordenadas fuera de rango válido (lat=%.6f, lon=%.6f)",
+                        estacion.getLatitud(), estacion.getLongitud()));
+            }
+
+            if (estacion.getCodigoPostal() == null) {
+                if (!esExcepcionValenciana) {
+                    errores.add("Código postal nulo (obligatorio)");
+                }
+            } else if (!validarCodigoPostal(estacion.getCodigoPostal())) {
+                errores.add("Código postal inválido: " + estacion.getCodigoPostal() +
+                        " (debe ser 5 dígitos entre 01000-52999)");
+            }
+
+            if (estacion.getContacto() == null || estacion.getContacto().trim().isEmpty()) {
+                if (!esExcepcionValenciana) {
+                    errores.add("Contacto nulo o vacío (obligatorio)");
+                }
+            }
+
+            if (estacion.getCodLocalidad() == null && estacion.getTipo() == TipoEstacion.ESTACION_FIJA) {
+                errores.add("Estación sin vincular a ninguna localidad (cod_localidad nulo)");
+            }
+
+            if (estacion.getNombre() == null || estacion.getNombre().trim().isEmpty()) {
+                errores.add("Nombre de estación vacío");
+            }
+
+            if (estacion.getTipo() == null) {
+                errores.add("Tipo de estación no especificado");
+            }
+
+            return errores;
+        }
+
+        private static boolean esEstacionExcepcionValenciana(Estacion estacion) {
+            if (estacion.getTipo() != TipoEstacion.ESTACION_MOVIL && estacion.getTipo() != TipoEstacion.OTROS) {
+                return false;
+            }
+            return esDeValencia(estacion);
+        }
+
+        private static boolean esDeValencia(Estacion estacion) {
+            if (estacion.getCodigoPostal() != null) {
+                String cp = String.format("%05d", estacion.getCodigoPostal());
+                int provincia = Integer.parseInt(cp.substring(0, 2));
+                if (provincia == 3 || provincia == 12 || provincia == 46) {
+                    return true;
+                }
+            }
+
+            if (estacion.getContacto() != null && estacion.getContacto().contains("@sitval.com")) {
+                return true;
+            }
+
+            String texto = (estacion.getDireccion() != null ? estacion.getDireccion() : "") + " " +
+                    (estacion.getNombre() != null ? estacion.getNombre() : "");
+            texto = texto.toLowerCase();
+            return texto.contains("valencia") || texto.contains("alicante") ||
+                    texto.contains("castellón") || texto.contains("castellon");
+        }
+
+        private static boolean esCoordenadaValida(Double lat, Double lon) {
+            return !(lat < -90 || lat > 90) && !(lon < -180 || lon > 180);
+        }
+
+        private static boolean validarCodigoPostal(Long codigoPostal) {
+            if (codigoPostal < 0) {
+                return false;
+            }
+            String cp = String.format("%05d", codigoPostal);
+            if (cp.length() != 5) {
+                return false;
+            }
+            int provincia = Integer.parseInt(cp.substring(0, 2));
+            if (provincia < 1 || provincia > 52) {
+                return false;
+            }
+            long cpNumerico = Long.parseLong(cp);
+            return cpNumerico >= 1000 && cpNumerico <= 52999;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.elucesc.itvintegration.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GeocodingCheckpointStoreTest {
+
+    @TempDir
+    Path directorio;
+
+    private GeocodingCheckpointStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new GeocodingCheckpointStore(directorio.toString(), new ObjectMapper());
+    }
+
+    @Test
+    void unaEjecucionNuevaBorraLosCheckpointsAnterioresDelOrigen() throws IOException {
+        GeocodingCheckpoint anterior = store.abrir("GALICIA", "contenido v1");
+        anterior.registrar("GAL-1", new Double[]{-8.5, 42.8});
+        anterior.cerrar();
+        GeocodingCheckpoint otroOrigen = store.abrir("CATALUNA", "contenido v1");
+        otroOrigen.cerrar();
+
+        GeocodingCheckpoint nuevo = store.abrir("GALICIA", "contenido v2");
+        nuevo.cerrar();
+
+        assertThat(ficheros()).containsExactlyInAnyOrder(
+                nuevo.getIdEjecucion() + ".ndjson", otroOrigen.getIdEjecucion() + ".ndjson");
+    }
+
+    @Test
+    void retomarLaMismaEjecucionConservaSuCheckpoint() throws IOException {
+        GeocodingCheckpoint primera = store.abrir("GALICIA", "contenido");
+        primera.registrar("GAL-1", new Double[]{-8.5, 42.8});
+        primera.cerrar();
+
+        GeocodingCheckpoint retomada = store.abrir("GALICIA", "contenido");
+        retomada.cerrar();
+
+        assertThat(retomada.getIdEjecucion()).isEqualTo(primera.getIdEjecucion());
+        assertThat(retomada.obtener("GAL-1")).containsExactly(-8.5, 42.8);
+    }
+
+    @Test
+    void noBorraFicherosQueNoSonCheckpoints() throws IOException {
+        Files.writeString(directorio.resolve("galicia-notas.ndjson"), "{}");
+
+        store.abrir("GALICIA", "contenido").cerrar();
+
+        assertThat(ficheros()).contains("galicia-notas.ndjson");
+    }
+
+    private List<String> ficheros() throws IOException {
+        try (Stream<Path> ficheros = Files.list(directorio)) {
+            return ficheros.map(fichero -> fichero.getFileName().toString()).toList();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.elucesc.itvintegration.service;
+
+import com.elucesc.itvintegration.model.Estacion;
+import com.elucesc.itvintegration.repository.EstacionBulkLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Bisección de lotes fallidos: las transacciones y savepoints son reales (H2 en memoria) y el
+ * EstacionBulkLoader simulado rechaza cualquier lote que contenga una estación "envenenada"
+ */
+class PersistenciaEstacionesTest {
+
+    private static final String ERROR = "violates check constraint \"estacion_codigo_postal_check\"";
+
+    private final Set<Estacion> envenenadas = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<Estacion, Integer> escrituras = new IdentityHashMap<>();
+    private PersistenciaEstaciones persistencia;
+
+    @BeforeEach
+    void preparar() throws SQLException {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:persistencia;DB_CLOSE_DELAY=-1", "sa", "");
+
+        EstacionBulkLoader bulkLoader = mock(EstacionBulkLoader.class);
+        when(bulkLoader.soportaCopy()).thenReturn(false);
+        when(bulkLoader.insertar(anyList(), anyString(), anyInt())).thenAnswer(invocacion -> {
+            List<Estacion> lote = invocacion.getArgument(0);
+            if (lote.stream().anyMatch(envenenadas::contains)) {
+                throw new SQLException(ERROR);
+            }
+            synchronized (escrituras) {
+                lote.forEach(estacion -> escrituras.merge(estacion, 1, Integer::sum));
+            }
+            return lote.size();
+        });
+
+        persistencia = new PersistenciaEstaciones(bulkLoader, dataSource, new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(persistencia, "tamanoBloque", 16);
+        ReflectionTestUtils.setField(persistencia, "tamanoLote", 50);
+        ReflectionTestUtils.setField(persistencia, "umbralCopy", 1000);
+    }
+
+    @Test
+    void unaFilaEnvenenadaSeDescartaYElRestoSeGuarda() {
+        List<Estacion> estaciones = estaciones(40);
+        Estacion envenenada = estaciones.get(21);
+        envenenadas.add(envenenada);
+
+        Oyente oyente = new Oyente();
+        PersistenciaEstaciones.Sesion sesion = persistencia.abrirSesion(EstacionBulkLoader.TABLA, 40, oyente);
+        sesion.persistir(estaciones);
+        ResultadoPersistencia resultado = sesion.resultado();
+
+        assertThat(resultado.getGuardadas()).isEqualTo(39);
+        assertThat(resultado.getFallidas()).isEqualTo(1);
+        assertThat(resultado.getDescartadas()).containsExactly("'Estación 21': " + ERROR);
+        assertThat(resultado.motivoDescarte(envenenada)).isEqualTo(ERROR);
+        estaciones.stream().filter(e -> e != envenenada)
+                .forEach(e -> assertThat(resultado.motivoDescarte(e)).isNull());
+
+        // Cada estación sana se escribe exactamente una vez y la envenenada ninguna
+        assertThat(escrituras).hasSize(39).doesNotContainKey(envenenada);
+        assertThat(escrituras.values()).containsOnly(1);
+
+        assertThat(oyente.guardadas).hasSize(39).doesNotContain(envenenada);
+        assertThat(oyente.descartadas).containsExactly(envenenada);
+    }
+
+    @Test
+    void variasFilasEnvenenadasEnElMismoBloqueSeAislanPorSeparado() {
+        List<Estacion> estaciones = estaciones(16);
+        envenenadas.add(estaciones.get(0));
+        envenenadas.add(estaciones.get(7));
+        envenenadas.add(estaciones.get(15));
+
+        ResultadoPersistencia resultado = persistencia.persistir(estaciones);
+
+        assertThat(resultado.getGuardadas()).isEqualTo(13);
+        assertThat(resultado.getFallidas()).isEqualTo(3);
+        for (Estacion estacion : estaciones) {
+            boolean envenenada = envenenadas.contains(estacion);
+            assertThat(resultado.motivoDescarte(estacion) != null).isEqualTo(envenenada);
+            assertThat(escrituras.containsKey(estacion)).isNotEqualTo(envenenada);
+        }
+        assertThat(escrituras.values()).containsOnly(1);
+    }
+
+    @Test
+    void sinFilasEnvenenadasCadaBloqueSeEscribeDeUnaVez() {
+        List<Estacion> estaciones = estaciones(40);
+
+        ResultadoPersistencia resultado = persistencia.persistir(estaciones);
+
+        assertThat(resultado.getGuardadas()).isEqualTo(40);
+        assertThat(resultado.getFallidas()).isZero();
+        assertThat(escrituras).hasSize(40);
+        assertThat(escrituras.values()).containsOnly(1);
+    }
+
+    private List<Estacion> estaciones(int cantidad) {
+        List<Estacion> estaciones = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            estaciones.add(Estacion.builder()
+                    .claveNatural("TEST-" + i)
+                    .nombre("Estación " + i)
+                    .build());
+        }
+        return estaciones;
+    }
+
+    private static final class Oyente implements PersistenciaEstaciones.OyentePersistencia {
+        private final List<Estacion> guardadas = new ArrayList<>();
+        private final List<Estacion> descartadas = new ArrayList<>();
+
+        @Override
+        public void guardada(Estacion estacion) {
+            guardadas.add(estacion);
+        }
+
+        @Override
+        public void descartada(Estacion estacion, String motivo) {
+            descartadas.add(estacion);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.elucesc.itvintegration.service;
+
+import com.elucesc.itvintegration.extractor.ItvDataExtractor;
+import com.elucesc.itvintegration.model.Estacion;
+import com.elucesc.itvintegration.model.Localidad;
+import com.elucesc.itvintegration.model.Provincia;
+import com.elucesc.itvintegration.repository.EstacionBulkLoader;
+import com.elucesc.itvintegration.service.IntegrationService.TipoOrigen;
+import com.elucesc.itvintegration.trabajo.ProgresoIntegracion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pipeline completo con un extractor de prueba, la validación simulada y una Sesion simulada que
+ * registra los bloques que recibe y avisa al oyente de cada estación guardada
+ */
+@Timeout(30)
+class PipelineEstacionesTest {
+
+    private final ValidacionEstaciones validacion = mock(ValidacionEstaciones.class);
+    private final PersistenciaEstaciones persistencia = mock(PersistenciaEstaciones.class);
+    private final CargaCatalogoSombra cargaSombra = mock(CargaCatalogoSombra.class);
+    private final PersistenciaEstaciones.Sesion sesion = mock(PersistenciaEstaciones.Sesion.class);
+
+    private final List<List<Estacion>> bloques = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger guardadas = new AtomicInteger();
+    private PersistenciaEstaciones.OyentePersistencia oyente;
+
+    @BeforeEach
+    void preparar() {
+        // Valida todo salvo las estaciones con nombre "rechazada"
+        when(validacion.validar(anyList(), any())).thenAnswer(invocacion -> {
+            List<Estacion> lote = invocacion.getArgument(0);
+            List<Estacion> validas = new ArrayList<>();
+            List<String> informes = new ArrayList<>();
+            for (Estacion estacion : lote) {
+                if (estacion.getNombre().startsWith("rechazada")) {
+                    informes.add("rechazada: " + estacion.getNombre());
+                } else {
+                    validas.add(estacion);
+                }
+            }
+            return new ValidacionEstaciones.LoteValidado(validas, informes);
+        });
+
+        when(persistencia.abrirSesion(eq(EstacionBulkLoader.TABLA), anyInt(), any())).thenAnswer(invocacion -> {
+            oyente = invocacion.getArgument(2);
+            return sesion;
+        });
+        doAnswer(invocacion -> {
+            List<Estacion> bloque = new ArrayList<>(invocacion.<List<Estacion>>getArgument(0));
+            bloques.add(bloque);
+            bloque.forEach(oyente::guardada);
+            guardadas.addAndGet(bloque.size());
+            return null;
+        }).when(sesion).persistir(anyList());
+        when(sesion.resultado()).thenAnswer(invocacion -> {
+            ResultadoPersistencia resultado = new ResultadoPersistencia();
+            resultado.sumarGuardadas(guardadas.get());
+            return resultado;
+        });
+    }
+
+    @Test
+    void todasLasEstacionesValidasSeGuardanUnaVezEnBloquesEnOrden() throws Exception {
+        List<Estacion> estaciones = estaciones(95, 10);
+        AtomicInteger confirmadas = new AtomicInteger();
+
+        ResultadoIntegracion resultado = pipeline(1, 10, Duration.ofSeconds(10))
+                .ejecutar(TipoOrigen.GALICIA, new ExtractorPrueba(estaciones), Map.of(),
+                        ProgresoIntegracion.NINGUNO, confirmadas);
+
+        List<Estacion> validas = estaciones.stream().filter(e -> !e.getNombre().startsWith("rechazada")).toList();
+        assertThat(resultado).isEqualTo(new ResultadoIntegracion(validas.size(), 10, 0));
+        assertThat(confirmadas).hasValue(validas.size());
+        assertThat(bloques).allSatisfy(bloque -> assertThat(bloque).hasSizeLessThanOrEqualTo(10));
+        // Un solo hilo de persistencia: se guardan en el orden del archivo
+        assertThat(bloques.stream().flatMap(List::stream).toList()).containsExactlyElementsOf(validas);
+    }
+
+    @Test
+    void variosHilosDePersistenciaGuardanCadaEstacionExactamenteUnaVez() throws Exception {
+        List<Estacion> estaciones = estaciones(500, 0);
+
+        ResultadoIntegracion resultado = pipeline(4, 7, Duration.ofSeconds(10))
+                .ejecutar(TipoOrigen.GALICIA, new ExtractorPrueba(estaciones), Map.of(),
+                        ProgresoIntegracion.NINGUNO, new AtomicInteger());
+
+        assertThat(resultado.guardadas()).isEqualTo(500);
+        List<Estacion> escritas = bloques.stream().flatMap(List::stream).toList();
+        assertThat(escritas).hasSize(500).doesNotHaveDuplicates().containsExactlyInAnyOrderElementsOf(estaciones);
+    }
+
+    @Test
+    void unBloqueIncompletoSeConfirmaAlPasarElIntervalo() throws Exception {
+        CountDownLatch primerBloque = new CountDownLatch(1);
+        doAnswer(invocacion -> {
+            List<Estacion> bloque = new ArrayList<>(invocacion.<List<Estacion>>getArgument(0));
+            bloques.add(bloque);
+            bloque.forEach(oyente::guardada);
+            guardadas.addAndGet(bloque.size());
+            primerBloque.countDown();
+            return null;
+        }).when(sesion).persistir(anyList());
+
+        // El extractor se detiene tras 3 estaciones hasta que esas 3 se han guardado
+        ExtractorPrueba extractor = new ExtractorPrueba(estaciones(6, 0)) {
+            @Override
+            protected void despuesDe(int procesadas) {
+                if (procesadas == 3) {
+                    esperar(primerBloque);
+                }
+            }
+        };
+
+        pipeline(1, 100, Duration.ofMillis(50))
+                .ejecutar(TipoOrigen.GALICIA, extractor, Map.of(), ProgresoIntegracion.NINGUNO, new AtomicInteger());
+
+        assertThat(bloques.get(0)).hasSize(3);
+        assertThat(guardadas).hasValue(6);
+    }
+
+    @Test
+    void unErrorAlTransformarSePropagaYDetieneLasEtapas() {
+        ExtractorPrueba extractor = new ExtractorPrueba(estaciones(50, 0)) {
+            @Override
+            protected void despuesDe(int procesadas) {
+                if (procesadas == 20) {
+                    throw new IllegalStateException("archivo corrupto");
+                }
+            }
+        };
+
+        assertThatThrownBy(() -> pipeline(2, 10, Duration.ofSeconds(10))
+                .ejecutar(TipoOrigen.GALICIA, extractor, Map.of(), ProgresoIntegracion.NINGUNO, new AtomicInteger()))
+                .isInstanceOf(IllegalStateException.class).hasMessage("archivo corrupto");
+    }
+
+    @Test
+    void unErrorAlValidarSePropagaYDetieneLasEtapas() {
+        doThrow(new IllegalStateException("validador roto")).when(validacion).validar(anyList(), any());
+
+        assertThatThrownBy(() -> pipeline(2, 10, Duration.ofSeconds(10))
+                .ejecutar(TipoOrigen.GALICIA, new ExtractorPrueba(estaciones(5000, 0)), Map.of(),
+                        ProgresoIntegracion.NINGUNO, new AtomicInteger()))
+                .isInstanceOf(IllegalStateException.class).hasMessage("validador roto");
+        assertThat(bloques).isEmpty();
+    }
+
+    @Test
+    void unErrorAlPersistirSePropagaYDetieneLasEtapas() {
+        doAnswer(invocacion -> {
+            throw new IllegalStateException("BD caída");
+        }).when(sesion).persistir(anyList());
+
+        assertThatThrownBy(() -> pipeline(3, 10, Duration.ofSeconds(10))
+                .ejecutar(TipoOrigen.GALICIA, new ExtractorPrueba(estaciones(5000, 0)), Map.of(),
+                        ProgresoIntegracion.NINGUNO, new AtomicInteger()))
+                .isInstanceOf(IllegalStateException.class).hasMessage("BD caída");
+    }
+
+    @Test
+    void rechazaTamanosEIntervalosNoPositivos() {
+        assertThatThrownBy(() -> pipeline(1, 10, Duration.ZERO))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("flush-interval");
+        assertThatThrownBy(() -> pipeline(0, 10, Duration.ofSeconds(1)))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("persistence-workers");
+        assertThatThrownBy(() -> pipeline(1, -1, Duration.ofSeconds(1)))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("chunk-size");
+        assertThatThrownBy(() -> new PipelineEstaciones(validacion, persistencia, cargaSombra,
+                0, 10, 1, Duration.ofSeconds(1), 10, false))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("queue-capacity");
+        assertThatThrownBy(() -> new PipelineEstaciones(validacion, persistencia, cargaSombra,
+                10, 0, 1, Duration.ofSeconds(1), 10, false))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("validation-batch");
+    }
+
+    /**
+     * Cola y lotes de validación pequeños para que las etapas se bloqueen y se solapen
+     */
+    private PipelineEstaciones pipeline(int hilosPersistencia, int tamanoBloque, Duration intervalo) {
+        return new PipelineEstaciones(validacion, persistencia, cargaSombra,
+                16, 8, hilosPersistencia, intervalo, tamanoBloque, false);
+    }
+
+    /**
+     * 'total' estaciones; cada 'cadaRechazada' (si es mayor que 0) una se llama "rechazada"
+     */
+    private static List<Estacion> estaciones(int total, int cadaRechazada) {
+        List<Estacion> estaciones = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            boolean rechazada = cadaRechazada > 0 && i % cadaRechazada == 0;
+            estaciones.add(Estacion.builder()
+                    .claveNatural("GAL-" + i)
+                    .nombre((rechazada ? "rechazada " : "Estación ") + i)
+                    .build());
+        }
+        return estaciones;
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Extractor que entrega al oyente las estaciones indicadas, en orden, como lo hace el real al transformar
+     */
+    private static class ExtractorPrueba implements ItvDataExtractor {
+        private final List<Estacion> estaciones;
+        private OyenteExtraccion oyente = OyenteExtraccion.NINGUNO;
+
+        ExtractorPrueba(List<Estacion> estaciones) {
+            this.estaciones = estaciones;
+        }
+
+        protected void despuesDe(int procesadas) {
+        }
+
+        @Override
+        public List<Estacion> transformarEstaciones() {
+            for (int i = 0; i < estaciones.size(); i++) {
+                oyente.estacionTransformada(i + 1, estaciones.get(i));
+                despuesDe(i + 1);
+            }
+            return estaciones;
+        }
+
+        @Override
+        public List<Localidad> transformarLocalidades() {
+            return List.of();
+        }
+
+        @Override
+        public List<Provincia> transformarProvincias() {
+            return List.of();
+        }
+
+        @Override
+        public Map<Integer, String> obtenerMapaEstacionLocalidad() {
+            return Map.of();
+        }
+
+        @Override
+        public int totalRegistros() {
+            return estaciones.size();
+        }
+
+        @Override
+        public void setOyenteProgreso(OyenteExtraccion oyente) {
+            this.oyente = oyente;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.elucesc.itvintegration.web;
+
+import com.elucesc.itvintegration.cache.SnapshotJson;
+import com.elucesc.itvintegration.controller.ExportacionController;
+import com.elucesc.itvintegration.service.ExportacionService;
+import com.elucesc.itvintegration.service.VersionCatalogo;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Filtro condicional delante de controladores de prueba (y del de exportación real) con MockMvc
+ */
+class RespuestaCondicionalFilterTest {
+
+    private static final Instant ACTUALIZADO = Instant.parse("2025-03-01T10:15:30.250Z");
+    private static final String ETAG = "\"7\"";
+    private static final String ETAG_GZIP = "\"7-gzip\"";
+
+    // Por debajo y por encima de los 2 KB de min-size
+    private static final String JSON_PEQUENO = "[{\"codEstacion\":1}]";
+    private static final String JSON_GRANDE = "[" + "{\"codEstacion\":1,\"nombre\":\"Estación\"},".repeat(200) + "{}]";
+    private static final String NDJSON = "{\"codEstacion\":1}\n".repeat(300);
+
+    private final VersionCatalogo versionCatalogo = mock(VersionCatalogo.class);
+    private final ExportacionService exportacionService = mock(ExportacionService.class);
+    private final ControladorPrueba controlador = new ControladorPrueba();
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void preparar() {
+        when(versionCatalogo.estado()).thenReturn(new VersionCatalogo.Estado(7, ACTUALIZADO));
+        doAnswer(invocacion -> {
+            OutputStream salida = invocacion.getArgument(1);
+            salida.write(NDJSON.getBytes(StandardCharsets.UTF_8));
+            salida.flush();
+            return null;
+        }).when(exportacionService).exportar(eq(ExportacionService.Formato.NDJSON), any());
+
+        mockMvc = MockMvcBuilders.standaloneSetup(controlador, new ExportacionController(exportacionService))
+                .addFilters(new RespuestaCondicionalFilter(versionCatalogo, DataSize.ofKilobytes(2)))
+                .build();
+    }
+
+    @Test
+    void unaRespuestaGrandeSinGzipLlevaLosValidadoresDeLaVersion() throws Exception {
+        MockHttpServletResponse respuesta = ejecutar(get("/api/estaciones/grande"));
+
+        assertThat(respuesta.getStatus()).isEqualTo(200);
+        assertThat(respuesta.getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG);
+        assertThat(respuesta.getDateHeader(HttpHeaders.LAST_MODIFIED)).isEqualTo(segundos(ACTUALIZADO));
+        assertThat(respuesta.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("no-cache");
+        assertThat(respuesta.getHeaders(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(respuesta.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(respuesta.getContentAsString(StandardCharsets.UTF_8)).isEqualTo(JSON_GRANDE);
+    }
+
+    @Test
+    void unaRespuestaGrandeSeComprimeConSuPropioEtag() throws Exception {
+        MockHttpServletResponse respuesta = ejecutar(get("/api/estaciones/grande")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"));
+
+        assertThat(respuesta.getStatus()).isEqualTo(200);
+        assertThat(respuesta.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(respuesta.getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG_GZIP);
+        assertThat(respuesta.containsHeader(HttpHeaders.CONTENT_LENGTH)).isFalse();
+        assertThat(descomprimir(respuesta.getContentAsByteArray())).isEqualTo(JSON_GRANDE);
+    }
+
+    @Test
+    void unaRespuestaPequenaNoSeComprime() throws Exception {
+        MockHttpServletResponse respuesta = ejecutar(get("/api/estaciones/pequena")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+
+        assertThat(respuesta.getStatus()).isEqualTo(200);
+        assertThat(respuesta.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(respuesta.getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG);
+        assertThat(respuesta.getContentLength()).isEqualTo(JSON_PEQUENO.getBytes(StandardCharsets.UTF_8).length);
+        assertThat(respuesta.getContentAsString(StandardCharsets.UTF_8)).isEqualTo(JSON_PEQUENO);
+    }
+
+    @Test
+    void ifNoneMatchConLaVersionVigenteResponde304SinEjecutarElControlador() throws Exception {
+        MockHttpServletResponse respuesta = ejecutar(get("/api/estaciones/grande")
+                .header(HttpHeaders.IF_NONE_MATCH, ETAG));
+
+        assertThat(respuesta.getStatus()).isEqualTo(304);
+        assertThat(respuesta.getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG);
+        assertThat(respuesta.getDateHeader(HttpHeaders.LAST_MODIFIED)).isEqualTo(segundos(ACTUALIZADO));
+        assertThat(respuesta.getContentAsByteArray()).isEmpty();
+        assertThat(controlador.llamadas).hasValue(0);
+    }
+
+    @Test
+    void ifNoneMatchConElEtagGzipResponde304ConEseEtag() throws Exception {
+        MockHttpServletResponse respuesta = ejecutar(get("/api/estaciones/grande")
+                .header(HttpHeaders.IF_NONE_MATCH, ETAG_GZIP));
+
+        assertThat(respuesta.getStatus()).isEqualTo(304);
+        assertThat(respuesta.getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG_GZIP);
+        assertThat(controlador.llamadas).hasValue(0);
+    }
+
+    @Test
+    void ifNoneMatchUsaComparacionDebilYListas() throws Exception {
+        MockHttpServletResponse debil = ejecutar(get("/api/estaciones/grande")
+                .header(HttpHeaders.IF_NONE_MATCH, "W/" + ETAG));
+        MockHttpServletResponse lista = ejecutar(get("/api/estaciones/grande")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"6\", W/\"6-gzip\", " + ETAG_GZIP));
+
+        assertThat(debil.getStatus()).isEqualTo(304);
+        assertThat(debil.getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG);
+        assertThat(lista.getStatus()).isEqualTo(304);
+        assertThat(lista.getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG_GZIP);
+        assertThat(controlador.llamadas).hasValue(0);
+    }
+
+    @Test
+    void ifNoneMatchDeOtraVersionDevuelveElCuerpo() throws Exception {
+        MockHttpServletResponse respuesta = ejecutar(get("/api/estaciones/grande")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"6\", \"6-gzip\""));
+
+        assertThat(respuesta.getStatus()).isEqualTo(200);
+        assertThat(respuesta.getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG);
+        assertThat(respuesta.getContentAsString(StandardCharsets.UTF_8)).isEqualTo(JSON_GRANDE);
+    }
+
+    @Test
+    void elComodinSoloDa304SiElControladorEncuentraElRecurso() throws Exception {
+        MockHttpServletResponse existe = ejecutar(get("/api/estaciones/grande")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .header(HttpHeaders.IF_NONE_MATCH, "*"));
+
+        assertThat(existe.getStatus()).isEqualTo(304);
+        assertThat(existe.getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG);
+        assertThat(existe.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(existe.getContentAsByteArray()).isEmpty();
+        assertThat(controlador.llamadas).hasValue(1);
+
+        MockHttpServletResponse noExiste = ejecutar(get("/api/estaciones/no-existe")
+                .header(HttpHeaders.IF_NONE_MATCH, "*"));
+        MockHttpServletResponse invalida = ejecutar(get("/api/estaciones/invalida")
+                .header(HttpHeaders.IF_NONE_MATCH, "*"));
+
+        assertThat(noExiste.getStatus()).isEqualTo(404);
+        assertThat(noExiste.getContentAsString(StandardCharsets.UTF_8)).isEqualTo(JSON_GRANDE);
+        assertThat(invalida.getStatus()).isEqualTo(400);
+        assertThat(invalida.getContentAsString(StandardCharsets.UTF_8)).isEqualTo(JSON_PEQUENO);
+    }
+
+    @Test
+    void ifModifiedSinceDesdeLaUltimaIntegracionResponde304() throws Exception {
+        MockHttpServletResponse igual = ejecutar(get("/api/estaciones/grande")
+                .header(HttpHeaders.IF_MODIFIED_SINCE, fecha(segundos(ACTUALIZADO))));
+        MockHttpServletResponse posterior = ejecutar(get("/api/estaciones/grande")
+                .header(HttpHeaders.IF_MODIFIED_SINCE, fecha(segundos(ACTUALIZADO) + 60_000)));
+
+        assertThat(igual.getStatus()).isEqualTo(304);
+        assertThat(igual.getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG);
+        assertThat(posterior.getStatus()).isEqualTo(304);
+        assertThat(controlador.llamadas).hasValue(0);
+    }
+
+    @Test
+    void ifModifiedSinceAnteriorOIgnoradoPorIfNoneMatchDevuelveElCuerpo() throws Exception {
+        MockHttpServletResponse anterior = ejecutar(get("/api/estaciones/grande")
+                .header(HttpHeaders.IF_MODIFIED_SINCE, fecha(segundos(ACTUALIZADO) - 1000)));
+        // Con If-None-Match presente se ignora If-Modified-Since
+        MockHttpServletResponse conEtag = ejecutar(get("/api/estaciones/grande")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"6\"")
+                .header(HttpHeaders.IF_MODIFIED_SINCE, fecha(segundos(ACTUALIZADO))));
+        MockHttpServletResponse malFormada = ejecutar(get("/api/estaciones/grande")
+                .header(HttpHeaders.IF_MODIFIED_SINCE, "ayer"));
+
+        assertThat(anterior.getStatus()).isEqualTo(200);
+        assertThat(conEtag.getStatus()).isEqualTo(200);
+        assertThat(malFormada.getStatus()).isEqualTo(200);
+        assertThat(controlador.llamadas).hasValue(3);
+    }
+
+    @Test
+    void lasRespuestasDistintasDe200NoSeComprimenNiLlevanValidadores() throws Exception {
+        MockHttpServletResponse respuesta = ejecutar(get("/api/estaciones/no-existe")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+
+        assertThat(respuesta.getStatus()).isEqualTo(404);
+        assertThat(respuesta.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(respuesta.getHeader(HttpHeaders.ETAG)).isNull();
+        assertThat(respuesta.getHeader(HttpHeaders.LAST_MODIFIED)).isNull();
+        assertThat(respuesta.getContentAsString(StandardCharsets.UTF_8)).isEqualTo(JSON_GRANDE);
+    }
+
+    @Test
+    void unSnapshotConservaSusValidadoresYNoSeComprimeDosVeces() throws Exception {
+        MockHttpServletResponse comprimida = ejecutar(get("/api/estaciones/snapshot")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+
+        assertThat(comprimida.getStatus()).isEqualTo(200);
+        assertThat(comprimida.getHeaders(HttpHeaders.CONTENT_ENCODING)).containsExactly("gzip");
+        assertThat(comprimida.getHeader(HttpHeaders.ETAG)).isEqualTo("\"5-gzip\"");
+        assertThat(comprimida.getDateHeader(HttpHeaders.LAST_MODIFIED))
+                .isEqualTo(segundos(ControladorPrueba.SNAPSHOT.actualizado()));
+        assertThat(descomprimir(comprimida.getContentAsByteArray())).isEqualTo(JSON_GRANDE);
+
+        MockHttpServletResponse plana = ejecutar(get("/api/estaciones/snapshot"));
+
+        assertThat(plana.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(plana.getHeader(HttpHeaders.ETAG)).isEqualTo("\"5\"");
+        assertThat(plana.getContentLength()).isEqualTo(JSON_GRANDE.getBytes(StandardCharsets.UTF_8).length);
+        assertThat(plana.getContentAsString(StandardCharsets.UTF_8)).isEqualTo(JSON_GRANDE);
+    }
+
+    @Test
+    void laExportacionAsincronaComprimeSoloSiLoPideYLlevaElEtagDeSuCodificacion() throws Exception {
+        MockHttpServletResponse comprimida = ejecutarAsincrona(get("/api/exportacion/estaciones")
+                .param("gzip", "true")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+
+        assertThat(comprimida.getStatus()).isEqualTo(200);
+        assertThat(comprimida.getHeaders(HttpHeaders.CONTENT_ENCODING)).containsExactly("gzip");
+        assertThat(comprimida.getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG_GZIP);
+        assertThat(comprimida.getHeader(HttpHeaders.VARY)).isNull();
+        assertThat(descomprimir(comprimida.getContentAsByteArray())).isEqualTo(NDJSON);
+
+        // Sin el parámetro gzip sale sin comprimir aunque el cliente acepte gzip
+        MockHttpServletResponse plana = ejecutarAsincrona(get("/api/exportacion/estaciones")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+
+        assertThat(plana.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(plana.getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG);
+        assertThat(plana.getContentAsString(StandardCharsets.UTF_8)).isEqualTo(NDJSON);
+    }
+
+    @Test
+    void laExportacionConLaVersionVigenteResponde304SinExportar() throws Exception {
+        MockHttpServletResponse respuesta = ejecutar(get("/api/exportacion/estaciones")
+                .header(HttpHeaders.IF_NONE_MATCH, ETAG));
+
+        assertThat(respuesta.getStatus()).isEqualTo(304);
+        assertThat(respuesta.getHeader(HttpHeaders.VARY)).isNull();
+        assertThat(respuesta.getContentAsByteArray()).isEmpty();
+    }
+
+    private MockHttpServletResponse ejecutar(MockHttpServletRequestBuilder peticion) throws Exception {
+        return mockMvc.perform(peticion).andReturn().getResponse();
+    }
+
+    private MockHttpServletResponse ejecutarAsincrona(MockHttpServletRequestBuilder peticion) throws Exception {
+        MvcResult resultado = mockMvc.perform(peticion).andReturn();
+        assertThat(resultado.getRequest().isAsyncStarted()).isTrue();
+        return mockMvc.perform(asyncDispatch(resultado)).andReturn().getResponse();
+    }
+
+    // Last-Modified va en segundos
+    private static long segundos(Instant instante) {
+        return instante.toEpochMilli() / 1000 * 1000;
+    }
+
+    private static String fecha(long milisegundos) {
+        HttpHeaders cabeceras = new HttpHeaders();
+        cabeceras.setDate(HttpHeaders.IF_MODIFIED_SINCE, milisegundos);
+        return cabeceras.getFirst(HttpHeaders.IF_MODIFIED_SINCE);
+    }
+
+    private static String descomprimir(byte[] datos) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(datos))) {
+            return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @RestController
+    static class ControladorPrueba {
+
+        // Snapshot de una versión anterior a la vigente
+        static final SnapshotJson SNAPSHOT = SnapshotJson.crear(JSON_GRANDE.getBytes(StandardCharsets.UTF_8), 5,
+                Instant.parse("2025-02-01T08:00:00Z"));
+
+        final AtomicInteger llamadas = new AtomicInteger();
+
+        @GetMapping("/api/estaciones/pequena")
+        ResponseEntity<String> pequena() {
+            llamadas.incrementAndGet();
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(JSON_PEQUENO);
+        }
+
+        @GetMapping("/api/estaciones/grande")
+        ResponseEntity<String> grande() {
+            llamadas.incrementAndGet();
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(JSON_GRANDE);
+        }
+
+        @GetMapping("/api/estaciones/no-existe")
+        ResponseEntity<String> noExiste() {
+            return ResponseEntity.status(404).contentType(MediaType.APPLICATION_JSON).body(JSON_GRANDE);
+        }
+
+        @GetMapping("/api/estaciones/invalida")
+        ResponseEntity<String> invalida() {
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(JSON_PEQUENO);
+        }
+
+        @GetMapping("/api/estaciones/snapshot")
+        ResponseEntity<Resource> snapshot(HttpServletRequest request) {
+            return RespuestaSnapshot.de(SNAPSHOT, request);
+        }
+    }
+}